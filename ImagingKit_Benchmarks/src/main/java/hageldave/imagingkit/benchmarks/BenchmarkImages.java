@@ -0,0 +1,76 @@
+package hageldave.imagingkit.benchmarks;
+
+import java.util.Random;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+/**
+ * Utility methods for setting up the images used by the benchmarks.
+ * <p>
+ * The problem sizes used by the benchmarks are the same as in the
+ * Performance test classes of the core module and are specified as
+ * {@code "<width>x<height>"} strings so they can be used as JMH parameters.
+ *
+ * @author hageldave
+ */
+public final class BenchmarkImages {
+
+	/** the problem sizes used by the Performance test classes */
+	public static final String[] PROBLEM_SIZES = {"128x128", "1280x720", "1920x1080", "5568x3712"};
+
+	/** seed for the random image content, so that all runs use the same data */
+	public static final long SEED = 0xbadc0ffeeL;
+
+	private BenchmarkImages(){/* not to be instantiated */}
+
+	/**
+	 * Parses a problem size of the form {@code "<width>x<height>"}.
+	 * @param size the problem size string
+	 * @return array {width, height}
+	 * @throws IllegalArgumentException if the string is not of the expected form
+	 */
+	public static int[] parseSize(String size){
+		String[] parts = size.toLowerCase().split("x");
+		if(parts.length != 2){
+			throw new IllegalArgumentException(String.format("Cannot parse problem size '%s', expected <width>x<height>", size));
+		}
+		return new int[]{Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+	}
+
+	/**
+	 * Creates an {@link Img} of the specified problem size with random ARGB values.
+	 * @param size problem size {@code "<width>x<height>"}
+	 * @return random image
+	 */
+	public static Img randomImg(String size){
+		int[] dim = parseSize(size);
+		Img img = new Img(dim[0], dim[1]);
+		Random rand = new Random(SEED);
+		int[] data = img.getData();
+		for(int i = 0; i < data.length; i++){
+			data[i] = Pixel.argb(rand.nextInt(255), rand.nextInt(255), rand.nextInt(255), rand.nextInt(255));
+		}
+		return img;
+	}
+
+	/**
+	 * Creates a {@link ColorImg} of the specified problem size with random values in [0,1].
+	 * @param size problem size {@code "<width>x<height>"}
+	 * @param alpha whether the image has an alpha channel
+	 * @return random image
+	 */
+	public static ColorImg randomColorImg(String size, boolean alpha){
+		int[] dim = parseSize(size);
+		ColorImg img = new ColorImg(dim[0], dim[1], alpha);
+		Random rand = new Random(SEED);
+		for(double[] channel: img.getData()){
+			for(int i = 0; i < channel.length; i++){
+				channel[i] = rand.nextDouble();
+			}
+		}
+		return img;
+	}
+
+}
@@ -0,0 +1,122 @@
+package hageldave.imagingkit.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.operations.Blending;
+import hageldave.imagingkit.core.operations.ColorSpaceTransformation;
+import hageldave.imagingkit.core.operations.ImgPipeline;
+import hageldave.imagingkit.core.operations.ImgVectorOps;
+import hageldave.imagingkit.core.operations.PorterDuff;
+import hageldave.imagingkit.core.operations.PremultipliedAlpha;
+
+/**
+ * Benchmarks of the {@link Blending} modes applied to two {@link Img}s
+ * of the same size. Includes the table based bulk blending of {@link ImgVectorOps}
+ * and premultiplied {@link PorterDuff#SRC_OVER} compositing.
+ *
+ * @author hageldave
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 8, time = 1)
+@Fork(2)
+public class BlendingBenchmark {
+
+	@Param({"128x128", "1280x720", "1920x1080", "5568x3712"})
+	public String size;
+
+	@Param({"NORMAL", "MULTIPLY", "OVERLAY", "SOFTLIGHT", "DODGE"})
+	public Blending blending;
+
+	@Param({"true"})
+	public boolean parallel;
+
+	Img bottom;
+	Img bottomBackup;
+	Img top;
+
+	@Setup(Level.Trial)
+	public void setupTrial(){
+		bottomBackup = BenchmarkImages.randomImg(size);
+		bottom = bottomBackup.copy();
+		top = BenchmarkImages.randomImg(size);
+		// different content for top image
+		top.forEach(px->px.setValue(~px.getValue()));
+	}
+
+	@Setup(Level.Iteration)
+	public void resetImages(){
+		bottomBackup.copyArea(0, 0, bottom.getWidth(), bottom.getHeight(), bottom, 0, 0);
+	}
+
+	@Benchmark
+	public Img blend(){
+		bottom.forEach(parallel, blending.getBlendingWith(top));
+		return bottom;
+	}
+
+	@Benchmark
+	public Img blendBulk(){
+		return ImgVectorOps.blend(bottom, top, blending, parallel);
+	}
+
+	@Benchmark
+	public Img alphaBlend(){
+		bottom.forEach(parallel, blending.getAlphaBlendingWith(top, 0.7));
+		return bottom;
+	}
+
+	@Benchmark
+	public Img alphaBlendWithOffset(){
+		bottom.forEach(parallel, blending.getAlphaBlendingWith(top, top.getWidth()/3, top.getHeight()/3, 0.7));
+		return bottom;
+	}
+
+	@Benchmark
+	public Img alphaBlendWithOffsetBulk(){
+		return ImgVectorOps.alphaBlend(bottom, top, top.getWidth()/3, top.getHeight()/3, 0.7, blending, parallel);
+	}
+
+	@Benchmark
+	public Img srcOverPremultiplied(){
+		// conversion of the bottom image to and from premultiplied alpha is part of the measurement
+		PremultipliedAlpha.premultiply(bottom, parallel);
+		PorterDuff.SRC_OVER.composite(bottom, top, top.getWidth()/3, top.getHeight()/3, parallel);
+		return PremultipliedAlpha.unpremultiply(bottom, parallel);
+	}
+
+	@Benchmark
+	public Img labRoundTripAndBlend(){
+		bottom.forEach(parallel, ColorSpaceTransformation.RGB_2_LAB);
+		bottom.forEach(parallel, ColorSpaceTransformation.LAB_2_RGB);
+		bottom.forEach(parallel, blending.getAlphaBlendingWith(top, 0.7));
+		return bottom;
+	}
+
+	@Benchmark
+	public Img labRoundTripAndBlendPipeline(){
+		return new ImgPipeline<Img, Pixel>()
+				.forEach(ColorSpaceTransformation.RGB_2_LAB)
+				.forEach(ColorSpaceTransformation.LAB_2_RGB)
+				.alphaBlend(top, 0, 0, 0.7, blending)
+				.execute(bottom, parallel);
+	}
+
+}
@@ -0,0 +1,65 @@
+package hageldave.imagingkit.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.filter.BoxBlur;
+import hageldave.imagingkit.core.filter.Convolution;
+import hageldave.imagingkit.core.filter.SeparableKernel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+/**
+ * Benchmarks of Gaussian blurring using separable {@link Convolution} (cost per pixel
+ * linear in the radius) and iterated {@link BoxBlur} (constant cost per pixel).
+ *
+ * @author hageldave
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 8, time = 1)
+@Fork(2)
+public class BlurBenchmark {
+
+	@Param({"1280x720", "5568x3712"})
+	public String size;
+
+	@Param({"2", "17"})
+	public double sigma;
+
+	ColorImg colorSource;
+	ColorImg colorTarget;
+	SeparableKernel gaussian;
+
+	@Setup(Level.Trial)
+	public void setupTrial(){
+		colorSource = BenchmarkImages.randomColorImg(size, false);
+		colorTarget = new ColorImg(colorSource.getWidth(), colorSource.getHeight(), false);
+		gaussian = SeparableKernel.gaussian(sigma);
+	}
+
+	@Benchmark
+	public ColorImg separableConvolution(){
+		return Convolution.convolve(colorSource, gaussian, Img.boundary_mode_repeat_edge, colorTarget, true);
+	}
+
+	@Benchmark
+	public ColorImg iteratedBoxBlur(){
+		return BoxBlur.gaussianBlur(colorSource, sigma, 3, colorTarget, true);
+	}
+
+}
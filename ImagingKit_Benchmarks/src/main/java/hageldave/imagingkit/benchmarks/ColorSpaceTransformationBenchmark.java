@@ -0,0 +1,91 @@
+package hageldave.imagingkit.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.operations.ColorSpaceTransformation;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+/**
+ * Benchmarks of the {@link ColorSpaceTransformation}s applied to {@link Img}
+ * and {@link ColorImg}.
+ *
+ * @author hageldave
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 8, time = 1)
+@Fork(2)
+public class ColorSpaceTransformationBenchmark {
+
+	@Param({"128x128", "1280x720", "1920x1080", "5568x3712"})
+	public String size;
+
+	@Param({"RGB_2_LAB", "LAB_2_RGB", "RGB_2_HSV", "HSV_2_RGB", "RGB_2_YCbCr", "YCbCr_2_RGB"})
+	public ColorSpaceTransformation transformation;
+
+	@Param({"false", "true"})
+	public boolean parallel;
+
+	Img img;
+	Img imgBackup;
+	ColorImg colorImg;
+	ColorImg colorImgBackup;
+
+	@Setup(Level.Trial)
+	public void setupTrial(){
+		imgBackup = BenchmarkImages.randomImg(size);
+		img = imgBackup.copy();
+		colorImgBackup = BenchmarkImages.randomColorImg(size, false);
+		colorImg = colorImgBackup.copy();
+	}
+
+	@Setup(Level.Iteration)
+	public void resetImages(){
+		imgBackup.copyArea(0, 0, img.getWidth(), img.getHeight(), img, 0, 0);
+		colorImgBackup.copyArea(0, 0, colorImg.getWidth(), colorImg.getHeight(), colorImg, 0, 0);
+	}
+
+	@Benchmark
+	public Img img(){
+		img.forEach(parallel, transformation);
+		return img;
+	}
+
+	@Benchmark
+	public ColorImg colorImg(){
+		colorImg.forEach(parallel, transformation);
+		return colorImg;
+	}
+
+	@Benchmark
+	public Img imgBulk(){
+		return transformation.transform(img, img, parallel);
+	}
+
+	@Benchmark
+	public ColorImg colorImgBulk(){
+		return transformation.transform(colorImg, colorImg, parallel);
+	}
+
+	@Benchmark
+	public ColorImg imgToColorImgBulk(){
+		return transformation.transform(img, colorImg, parallel);
+	}
+
+}
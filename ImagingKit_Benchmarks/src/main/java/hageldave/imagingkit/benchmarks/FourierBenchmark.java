@@ -0,0 +1,83 @@
+package hageldave.imagingkit.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.fourier.ComplexImg;
+import hageldave.imagingkit.fourier.Fourier;
+import hageldave.imagingkit.fourier.JavaFFTBackend;
+import hageldave.imagingkit.fourier.NativeFFTBackend;
+
+/**
+ * Benchmarks of the 2D Fourier transforms provided by {@link Fourier}
+ * using the native (FFTW) and the pure Java backend.
+ *
+ * @author hageldave
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FourierBenchmark {
+
+	@Param({"128x128", "1280x720", "1920x1080", "5568x3712"})
+	public String size;
+
+	@Param({"native", "java"})
+	public String backend;
+
+	ColorImg img;
+	ComplexImg fourier;
+	ComplexImg target;
+	ColorImg inverseTarget;
+
+	@Setup(Level.Trial)
+	public void setupTrial(){
+		Fourier.setFFTBackend("java".equals(backend) ? new JavaFFTBackend() : new NativeFFTBackend());
+		img = BenchmarkImages.randomColorImg(size, false);
+		fourier = Fourier.transform(img, ColorImg.channel_r);
+		target = new ComplexImg(img.getDimension());
+		inverseTarget = new ColorImg(img.getDimension(), false);
+	}
+
+	@Benchmark
+	public ComplexImg transformChannel(){
+		return Fourier.transform(img, ColorImg.channel_r);
+	}
+
+	@Benchmark
+	public ComplexImg[] transformAllChannels(){
+		return Fourier.transformAll(img);
+	}
+
+	@Benchmark
+	public ComplexImg transformComplex(){
+		return Fourier.transform(false, fourier, target);
+	}
+
+	@Benchmark
+	public ComplexImg inverseTransformComplex(){
+		return Fourier.transform(true, fourier, target);
+	}
+
+	@Benchmark
+	public ColorImg inverseTransformChannel(){
+		return Fourier.inverseTransform(inverseTarget, fourier, ColorImg.channel_r);
+	}
+
+}
@@ -0,0 +1,75 @@
+package hageldave.imagingkit.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.io.ImageLoader;
+import hageldave.imagingkit.core.io.ImageSaver;
+
+/**
+ * Benchmarks of {@link ImageLoader} and {@link ImageSaver}.
+ * Images are written to and read from memory to exclude disk performance.
+ * Saving includes the conversion to INT_RGB that {@link ImageSaver} performs
+ * for formats without alpha.
+ *
+ * @author hageldave
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOBenchmark {
+
+	@Param({"128x128", "1280x720", "1920x1080"})
+	public String size;
+
+	@Param({"png", "jpg", "bmp"})
+	public String format;
+
+	BufferedImage image;
+	byte[] encoded;
+
+	@Setup(Level.Trial)
+	public void setupTrial(){
+		image = BenchmarkImages.randomImg(size).getRemoteBufferedImage();
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ImageSaver.saveImage(image, os, format);
+		encoded = os.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] save(){
+		ByteArrayOutputStream os = new ByteArrayOutputStream(encoded.length);
+		ImageSaver.saveImage(image, os, format);
+		return os.toByteArray();
+	}
+
+	@Benchmark
+	public BufferedImage load(){
+		return ImageLoader.loadImage(new ByteArrayInputStream(encoded));
+	}
+
+	@Benchmark
+	public Img loadImg(){
+		return ImageLoader.loadImg(new ByteArrayInputStream(encoded));
+	}
+
+}
@@ -0,0 +1,97 @@
+package hageldave.imagingkit.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.filter.Resize;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+/**
+ * Benchmarks of bilinear interpolation using {@link Img#interpolateARGB(double, double)}
+ * and {@link ColorImg#interpolate(int, double, double)}.
+ * The source image is rescaled to a target image of the specified scale (per pixel interpolation).
+ *
+ * @author hageldave
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 8, time = 1)
+@Fork(2)
+public class InterpolationBenchmark {
+
+	@Param({"128x128", "1280x720", "1920x1080", "5568x3712"})
+	public String size;
+
+	@Param({"0.5", "1.5"})
+	public double scale;
+
+	Img source;
+	Img target;
+	ColorImg colorSource;
+	ColorImg colorTarget;
+
+	@Setup(Level.Trial)
+	public void setupTrial(){
+		source = BenchmarkImages.randomImg(size);
+		int w = Math.max(1, (int)(source.getWidth()*scale));
+		int h = Math.max(1, (int)(source.getHeight()*scale));
+		target = new Img(w, h);
+		colorSource = BenchmarkImages.randomColorImg(size, false);
+		colorTarget = new ColorImg(w, h, false);
+	}
+
+	@Benchmark
+	public Img img_interpolateARGB(){
+		target.forEach(true, px->px.setValue(source.interpolateARGB(px.getXnormalized(), px.getYnormalized())));
+		return target;
+	}
+
+	@Benchmark
+	public ColorImg colorImg_interpolate(){
+		colorTarget.forEach(true, px->{
+			double x = px.getXnormalized();
+			double y = px.getYnormalized();
+			px.setRGB_fromDouble(
+					colorSource.interpolateR(x, y),
+					colorSource.interpolateG(x, y),
+					colorSource.interpolateB(x, y));
+		});
+		return colorTarget;
+	}
+
+	@Benchmark
+	public Img img_resizeBilinear(){
+		return Resize.resize(source, target, Resize.Filter.BILINEAR, true);
+	}
+
+	@Benchmark
+	public Img img_resizeLanczos3(){
+		return Resize.resize(source, target, Resize.Filter.LANCZOS3, true);
+	}
+
+	@Benchmark
+	public Img img_resizeArea(){
+		return Resize.resize(source, target, Resize.Filter.AREA, true);
+	}
+
+	@Benchmark
+	public ColorImg colorImg_resizeBilinear(){
+		return Resize.resize(colorSource, colorTarget, Resize.Filter.BILINEAR, true);
+	}
+
+}
@@ -0,0 +1,245 @@
+package hageldave.imagingkit.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.ImgBase;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.PixelBase;
+import hageldave.imagingkit.core.PixelConvertingSpliterator;
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.scientific.FloatColorImg;
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
+import hageldave.imagingkit.core.util.ExecutionContext;
+
+/**
+ * Benchmarks of the iteration facilities of {@link Img}, {@link ColorImg} and {@link FloatColorImg},
+ * i.e. the different variants of {@code forEach} and {@code stream}.
+ * <p>
+ * The per pixel action is the contrast operation used by the Performance test class
+ * of the core module. The hand written loop over the data array ({@link #img_serialFor()})
+ * serves as baseline.
+ *
+ * @author hageldave
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 8, time = 1)
+@Fork(2)
+public class IterationBenchmark {
+
+	static final double contrastLum = 128/255.0;
+	static final double contrastIntensity = 0.21;
+
+	static final Consumer<PixelBase> contrast = px -> {
+		double r = px.r_asDouble();
+		double g = px.g_asDouble();
+		double b = px.b_asDouble();
+		double luminance = r*0.2126 + g*0.7152 + b*0.0722;
+		double lumDif = luminance-contrastLum;
+		r += lumDif*contrastIntensity;
+		g += lumDif*contrastIntensity;
+		b += lumDif*contrastIntensity;
+		px.setRGB_fromDouble_preserveAlpha(r, g, b);
+	};
+
+	@Param({"128x128", "1280x720", "1920x1080", "5568x3712"})
+	public String size;
+
+	Img img;
+	Img imgBackup;
+	ColorImg colorImg;
+	ColorImg colorImgBackup;
+	FloatColorImg floatColorImg;
+	FloatColorImg floatColorImgBackup;
+
+	@Setup(Level.Trial)
+	public void setupTrial(){
+		imgBackup = BenchmarkImages.randomImg(size);
+		img = imgBackup.copy();
+		colorImgBackup = BenchmarkImages.randomColorImg(size, true);
+		colorImg = colorImgBackup.copy();
+		floatColorImgBackup = new FloatColorImg(colorImgBackup);
+		floatColorImg = floatColorImgBackup.copy();
+	}
+
+	@Setup(Level.Iteration)
+	public void resetImages(){
+		imgBackup.copyArea(0, 0, img.getWidth(), img.getHeight(), img, 0, 0);
+		colorImgBackup.copyArea(0, 0, colorImg.getWidth(), colorImg.getHeight(), colorImg, 0, 0);
+		floatColorImgBackup.copyArea(0, 0, floatColorImg.getWidth(), floatColorImg.getHeight(), floatColorImg, 0, 0);
+	}
+
+	@Benchmark
+	public Img img_serialFor(){
+		int[] data = img.getData();
+		for(int k = 0; k < data.length; k++){
+			int color = data[k];
+			double r = Pixel.r_normalized(color);
+			double g = Pixel.g_normalized(color);
+			double b = Pixel.b_normalized(color);
+			double luminance = r*0.2126 + g*0.7152 + b*0.0722;
+			double lumDif = luminance-contrastLum;
+			r += lumDif*contrastIntensity;
+			g += lumDif*contrastIntensity;
+			b += lumDif*contrastIntensity;
+			data[k] = Pixel.argb_fromNormalized(Pixel.a_normalized(color), r, g, b);
+		}
+		return img;
+	}
+
+	@Benchmark
+	public Img img_serialMapARGB(){
+		img.mapARGB(IterationBenchmark::contrastARGB, false);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_parallelMapARGB(){
+		img.mapARGB(IterationBenchmark::contrastARGB, true);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_parallelForEachRow(){
+		img.forEachRow(true, (y, data, offset, length)->{
+			for(int i = offset; i < offset+length; i++){
+				data[i] = contrastARGB(data[i]);
+			}
+		});
+		return img;
+	}
+
+	@Benchmark
+	public Img img_serialForEach(){
+		img.forEach(false, contrast);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_parallelForEach(){
+		img.forEach(true, contrast);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_parallelForEachAdaptive(){
+		img.forEach(ExecutionContext.current(), AdaptiveSplitPolicy.DEFAULT, contrast);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_serialForEachArea(){
+		img.forEach(false, img.getWidth()/4, img.getHeight()/4, img.getWidth()/2, img.getHeight()/2, contrast);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_parallelForEachArea(){
+		img.forEach(true, img.getWidth()/4, img.getHeight()/4, img.getWidth()/2, img.getHeight()/2, contrast);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_serialForEachConverted(){
+		img.forEach(PixelConvertingSpliterator.getDoubleArrayConverter(), false, IterationBenchmark::contrastArray);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_parallelForEachConverted(){
+		img.forEach(PixelConvertingSpliterator.getDoubleArrayConverter(), true, IterationBenchmark::contrastArray);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_serialStream(){
+		img.stream(false).forEach(contrast);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_parallelStream(){
+		img.stream(true).forEach(contrast);
+		return img;
+	}
+
+	@Benchmark
+	public Img img_parallelRowStream(){
+		ImgBase.stream(img.rowSpliterator(), true).forEach(contrast);
+		return img;
+	}
+
+	@Benchmark
+	public ColorImg colorImg_serialForEach(){
+		colorImg.forEach(false, contrast);
+		return colorImg;
+	}
+
+	@Benchmark
+	public ColorImg colorImg_parallelForEach(){
+		colorImg.forEach(true, contrast);
+		return colorImg;
+	}
+
+	@Benchmark
+	public ColorImg colorImg_parallelForEachArea(){
+		colorImg.forEach(true, colorImg.getWidth()/4, colorImg.getHeight()/4, colorImg.getWidth()/2, colorImg.getHeight()/2, contrast);
+		return colorImg;
+	}
+
+	@Benchmark
+	public ColorImg colorImg_parallelStream(){
+		colorImg.stream(true).forEach(contrast);
+		return colorImg;
+	}
+
+	@Benchmark
+	public FloatColorImg floatColorImg_serialForEach(){
+		floatColorImg.forEach(false, contrast);
+		return floatColorImg;
+	}
+
+	@Benchmark
+	public FloatColorImg floatColorImg_parallelForEach(){
+		floatColorImg.forEach(true, contrast);
+		return floatColorImg;
+	}
+
+	static int contrastARGB(int color){
+		double r = Pixel.r_normalized(color);
+		double g = Pixel.g_normalized(color);
+		double b = Pixel.b_normalized(color);
+		double luminance = r*0.2126 + g*0.7152 + b*0.0722;
+		double lumDif = luminance-contrastLum;
+		r += lumDif*contrastIntensity;
+		g += lumDif*contrastIntensity;
+		b += lumDif*contrastIntensity;
+		return Pixel.argb_fromNormalized(Pixel.a_normalized(color), r, g, b);
+	}
+
+	static void contrastArray(double[] rgb){
+		double luminance = rgb[0]*0.2126 + rgb[1]*0.7152 + rgb[2]*0.0722;
+		double lumDif = luminance-contrastLum;
+		rgb[0] += lumDif*contrastIntensity;
+		rgb[1] += lumDif*contrastIntensity;
+		rgb[2] += lumDif*contrastIntensity;
+	}
+
+}
@@ -32,8 +32,13 @@ import java.awt.image.WritableRaster;
 import java.util.Arrays;
 import java.util.Spliterator;
 import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
 
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
+import hageldave.imagingkit.core.util.ExecutionContext;
 import hageldave.imagingkit.core.util.ImagingKitUtils;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
 
 /**
  * Image class with data stored in an int array.
@@ -129,6 +134,9 @@ public class Img implements ImgBase<Pixel> {
 	 */
 	private int spliteratorMinimumSplitSize = 1024;
 
+	/** adaptive split policy, null for fixed minimum split size */
+	private AdaptiveSplitPolicy splitPolicy = null;
+
 
 	/**
 	 * Creates a new Img of specified dimensions.
@@ -480,6 +488,137 @@ public class Img implements ImgBase<Pixel> {
 		return this;
 	}
 
+	/**
+	 * Replaces every ARGB value of this image by the result of the specified operator
+	 * applied to it. In contrast to {@link #forEach(boolean, Consumer)} no {@link Pixel}
+	 * objects are involved, the operator is applied directly on the data array
+	 * which is split in the same way as by this image's {@link #spliterator()}.
+	 * <p>
+	 * Example (inverting the RGB channels):
+	 * <pre>
+	 * {@code
+	 * img.mapARGB(argb -> argb ^ 0x00ffffff, true);
+	 * }
+	 * </pre>
+	 * @param operator mapping an ARGB value to a new ARGB value
+	 * @param parallel whether to be performed in parallel
+	 * @return this for chaining
+	 * @since 2.2
+	 */
+	public Img mapARGB(final IntUnaryOperator operator, boolean parallel){
+		final int[] data = this.data;
+		final ExecutionContext context = ExecutionContext.current();
+		final int minSplit = context.minimumSplitSize(getSpliteratorMinimumSplitSize());
+		ParallelRangeExecutor.execute(parallel ? context:null, 0, numValues(), minSplit, (from, to)->{
+			for(int i = from; i < to; i++){
+				data[i] = operator.applyAsInt(data[i]);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Performs the specified action on each row of this image.
+	 * The action receives the data array of this image and the range of the row
+	 * within it, so that it can process the row in a plain array loop.
+	 * <p>
+	 * Example (inverting the RGB channels):
+	 * <pre>
+	 * {@code
+	 * img.forEachRow(true, (y, data, offset, length) -> {
+	 *     for(int i = offset; i < offset+length; i++)
+	 *         data[i] ^= 0x00ffffff;
+	 * });
+	 * }
+	 * </pre>
+	 * @param parallel whether to be performed in parallel (rows are distributed among threads)
+	 * @param action to be performed on each row
+	 * @see #forEachRow(boolean, int, int, int, int, RowAction)
+	 * @since 2.2
+	 */
+	public void forEachRow(boolean parallel, final RowAction action){
+		forEachRow(parallel, 0, 0, getWidth(), getHeight(), action);
+	}
+
+	/**
+	 * Performs the specified action on each row of the specified area of this image.
+	 * The action receives the data array of this image and the range of the row's part
+	 * that lies within the area.
+	 * @param parallel whether to be performed in parallel (rows are distributed among threads)
+	 * @param xStart left boundary of the area (inclusive)
+	 * @param yStart upper boundary of the area (inclusive)
+	 * @param width of the area
+	 * @param height of the area
+	 * @param action to be performed on each row
+	 * @throws IllegalArgumentException if provided area is not within this
+	 * image's bounds, or if the area is not positive (width or height &le; 0).
+	 * @see #forEachRow(boolean, RowAction)
+	 * @since 2.2
+	 */
+	public void forEachRow(boolean parallel, final int xStart, final int yStart, final int width, final int height, final RowAction action){
+		ImagingKitUtils.requireAreaInImageBounds(xStart, yStart, width, height, this);
+		final int[] data = this.data;
+		final int w = this.width;
+		final ExecutionContext context = ExecutionContext.current();
+		final int minRows = Math.max(1, context.minimumSplitSize(getSpliteratorMinimumSplitSize())/width);
+		ParallelRangeExecutor.execute(parallel ? context:null, yStart, yStart+height, minRows, (from, to)->{
+			for(int y = from; y < to; y++){
+				action.accept(y, data, y*w+xStart, width);
+			}
+		});
+	}
+
+	/**
+	 * Action performed on a row of an {@link Img}, see {@link Img#forEachRow(boolean, RowAction)}.
+	 * @since 2.2
+	 */
+	@FunctionalInterface
+	public static interface RowAction {
+		/**
+		 * Performs this action on the specified row.
+		 * @param y the row
+		 * @param data the data array of the image
+		 * @param offset index of the first value of the row (or of the row's part within an area)
+		 * @param length number of values of the row (width of the image or area)
+		 */
+		public void accept(int y, int[] data, int offset, int length);
+	}
+
+	/**
+	 * Replaces every ARGB value of this image by the result of the specified operator
+	 * applied to the index of the value (y*width+x) and the value.
+	 * @param operator mapping (index, ARGB value) to a new ARGB value
+	 * @return this for chaining
+	 * @see #forEachIndexed(IntBinaryOperator, boolean)
+	 * @since 2.2
+	 */
+	public Img forEachIndexed(final IntBinaryOperator operator){
+		return forEachIndexed(operator, false);
+	}
+
+	/**
+	 * Replaces every ARGB value of this image by the result of the specified operator
+	 * applied to the index of the value (y*width+x) and the value.
+	 * In contrast to {@link #forEach(boolean, Consumer)} no {@link Pixel}
+	 * objects are involved, the operator is applied directly on the data array
+	 * which is split in the same way as by this image's {@link #spliterator()}.
+	 * @param operator mapping (index, ARGB value) to a new ARGB value
+	 * @param parallel whether to be performed in parallel
+	 * @return this for chaining
+	 * @since 2.2
+	 */
+	public Img forEachIndexed(final IntBinaryOperator operator, boolean parallel){
+		final int[] data = this.data;
+		final ExecutionContext context = ExecutionContext.current();
+		final int minSplit = context.minimumSplitSize(getSpliteratorMinimumSplitSize());
+		ParallelRangeExecutor.execute(parallel ? context:null, 0, numValues(), minSplit, (from, to)->{
+			for(int i = from; i < to; i++){
+				data[i] = operator.applyAsInt(i, data[i]);
+			}
+		});
+		return this;
+	}
+
 	/**
 	 * @return a deep copy of this Img.
 	 * @since 1.0
@@ -602,5 +741,27 @@ public class Img implements ImgBase<Pixel> {
 		this.spliteratorMinimumSplitSize = size;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @since 2.2
+	 */
+	@Override
+	public AdaptiveSplitPolicy getSplitPolicy() {
+		return splitPolicy;
+	}
+
+	/**
+	 * Sets the {@link AdaptiveSplitPolicy} of this Img. When set, parallel forEach loops
+	 * (e.g. {@link #forEach(boolean, Consumer)}) determine their minimum split size from the
+	 * measured cost of the action instead of using {@link #getSpliteratorMinimumSplitSize()}.
+	 * This is useful when the cost of the actions performed on this Img varies a lot.
+	 * @param policy to use for parallel forEach loops, or null to use the fixed minimum split size
+	 * @since 2.2
+	 */
+	@Override
+	public void setSplitPolicy(AdaptiveSplitPolicy policy) {
+		this.splitPolicy = policy;
+	}
+
 
 }
@@ -30,11 +30,15 @@ import java.awt.image.Raster;
 import java.util.Iterator;
 import java.util.Spliterator;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import hageldave.imagingkit.core.PixelConvertingSpliterator.PixelConverter;
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
 import hageldave.imagingkit.core.util.BufferedImageFactory;
+import hageldave.imagingkit.core.util.CancellationToken;
+import hageldave.imagingkit.core.util.ExecutionContext;
 import hageldave.imagingkit.core.util.ImagingKitUtils;
 import hageldave.imagingkit.core.util.ParallelForEachExecutor;
 
@@ -278,6 +282,29 @@ public interface ImgBase<P extends PixelBase> extends Iterable<P> {
 	 */
 	public default int getSpliteratorMinimumSplitSize(){return 1024;}
 
+	/**
+	 * Returns the {@link AdaptiveSplitPolicy} of this image which, if present, determines the
+	 * minimum split size of parallel forEach loops from the measured cost of the action
+	 * instead of {@link #getSpliteratorMinimumSplitSize()}.
+	 * An {@link ExecutionContext} that specifies a minimum split size takes precedence.
+	 * Default implementation returns null (no adaptive splitting).
+	 * @return the split policy of this image or null
+	 * @see #forEach(ExecutionContext, AdaptiveSplitPolicy, Consumer)
+	 * @since 2.2
+	 */
+	public default AdaptiveSplitPolicy getSplitPolicy(){return null;}
+
+	/**
+	 * Sets the {@link AdaptiveSplitPolicy} of this image, see {@link #getSplitPolicy()}.
+	 * Default implementation throws an {@link UnsupportedOperationException}.
+	 * @param policy to use for parallel forEach loops, or null to use the fixed minimum split size
+	 * @throws UnsupportedOperationException if the image does not support split policies
+	 * @since 2.2
+	 */
+	public default void setSplitPolicy(AdaptiveSplitPolicy policy){
+		throw new UnsupportedOperationException("This image does not support split policies");
+	}
+
 	/**
 	 * Returns an {@link Iterator} for the specified area of the image. The Iterator will
 	 * always return the same pixel object on next() but with different index 
@@ -377,6 +404,43 @@ public interface ImgBase<P extends PixelBase> extends Iterable<P> {
 		return new Iterators.ImgAreaSpliterator<P>(xStart,yStart,width,height, getSpliteratorMinimumSplitSize(), this::getPixel);
 	}
 
+	/**
+	 * Returns a {@link Spliterator} over all pixels of this image whose splits
+	 * respect the minimum split size of the specified {@link ExecutionContext}.
+	 * This is {@link #spliterator()} when the context does not specify a minimum split size.
+	 * @param context determining the minimum split size
+	 * @return spliterator of this image
+	 * @since 2.2
+	 */
+	public default Spliterator<P> spliterator(ExecutionContext context) {
+		if(context.getMinimumSplitSize() == 0){
+			return spliterator();
+		}
+		return new Iterators.ImgSpliterator<P>(0, numValues()-1, context.getMinimumSplitSize(), this::getPixel);
+	}
+
+	/**
+	 * Returns a {@link Spliterator} over the specified area of this image whose splits
+	 * respect the minimum split size of the specified {@link ExecutionContext}.
+	 * This is {@link #spliterator(int, int, int, int)} when the context does not specify a minimum split size.
+	 * @param context determining the minimum split size
+	 * @param xStart left boundary of the area (inclusive)
+	 * @param yStart upper boundary of the area (inclusive)
+	 * @param width of the area
+	 * @param height of the area
+	 * @return spliterator for the specified area of this image
+	 * @throws IllegalArgumentException if provided area is not within this
+	 * images's bounds, or if the area is not positive (width or height &le; 0).
+	 * @since 2.2
+	 */
+	public default Spliterator<P> spliterator(ExecutionContext context, final int xStart, final int yStart, final int width, final int height) {
+		if(context.getMinimumSplitSize() == 0){
+			return spliterator(xStart, yStart, width, height);
+		}
+		ImagingKitUtils.requireAreaInImageBounds(xStart, yStart, width, height, this);
+		return new Iterators.ImgAreaSpliterator<P>(xStart,yStart,width,height, context.getMinimumSplitSize(), this::getPixel);
+	}
+
 
 	/** 
 	 * Default implementation of {@link Iterable#forEach(Consumer)} <br>
@@ -428,8 +492,7 @@ public interface ImgBase<P extends PixelBase> extends Iterable<P> {
 	 */
 	public default void forEach(boolean parallel, final Consumer<? super P> action) {
 		if(parallel){
-			ParallelForEachExecutor<P> exec = new ParallelForEachExecutor<>(spliterator(), action);
-			exec.invoke();
+			forEach(ExecutionContext.current(), action);
 		} else {
 			P p = getPixel();
 			for(int i = 0; i < numValues(); p.setIndex(++i)){
@@ -438,6 +501,165 @@ public interface ImgBase<P extends PixelBase> extends Iterable<P> {
 		}
 	}
 
+	/**
+	 * Performs the specified action on each of the pixels of this image in parallel
+	 * within the specified {@link ExecutionContext}.
+	 * The context's minimum split size is used instead of this image's minimum split size
+	 * when it is specified.
+	 * @param context in which the action is executed
+	 * @param action to be performed
+	 *
+	 * @see #forEach(boolean, Consumer)
+	 * @since 2.2
+	 */
+	public default void forEach(ExecutionContext context, final Consumer<? super P> action) {
+		if(context.getMinimumSplitSize() == 0 && getSplitPolicy() != null){
+			forEach(context, getSplitPolicy(), action);
+		} else {
+			ParallelForEachExecutor.execute(context, spliterator(context), action);
+		}
+	}
+
+	/**
+	 * Applies the specified action to every pixel in the specified area of this image
+	 * in parallel within the specified {@link ExecutionContext}.
+	 * The context's minimum split size is used instead of this image's minimum split size
+	 * when it is specified.
+	 * @param context in which the action is executed
+	 * @param xStart left boundary of the area (inclusive)
+	 * @param yStart upper boundary of the area (inclusive)
+	 * @param width of the area
+	 * @param height of the area
+	 * @param action to be performed on each pixel
+	 * @throws IllegalArgumentException if provided area is not within this
+	 * images's bounds, or if the area is not positive (width or height &le; 0).
+	 *
+	 * @see #forEach(boolean, int, int, int, int, Consumer)
+	 * @since 2.2
+	 */
+	public default void forEach(ExecutionContext context, final int xStart, final int yStart, final int width, final int height, final Consumer<? super P> action) {
+		if(context.getMinimumSplitSize() == 0 && getSplitPolicy() != null){
+			forEach(context, getSplitPolicy(), xStart, yStart, width, height, action);
+		} else {
+			ImagingKitUtils.requireAreaInImageBounds(xStart, yStart, width, height, this);
+			ParallelForEachExecutor.execute(context, spliterator(context, xStart, yStart, width, height), action);
+		}
+	}
+
+	/**
+	 * Performs the specified action on each of the pixels of this image in parallel
+	 * within the specified {@link ExecutionContext}, using a minimum split size that is
+	 * determined by the specified {@link AdaptiveSplitPolicy} from the measured cost of the action.
+	 * The pixels of the sample are processed serially by the calling thread.
+	 * @param context in which the action is executed
+	 * @param policy determining the minimum split size
+	 * @param action to be performed
+	 *
+	 * @see #setSplitPolicy(AdaptiveSplitPolicy)
+	 * @since 2.2
+	 */
+	public default void forEach(ExecutionContext context, AdaptiveSplitPolicy policy, final Consumer<? super P> action) {
+		final int n = numValues();
+		final int sample = Math.min(n, policy.getSampleSize());
+		long time = System.nanoTime();
+		new Iterators.ImgSpliterator<P>(0, sample-1, sample, this::getPixel).forEachRemaining(action);
+		time = System.nanoTime()-time;
+		if(sample < n){
+			int remaining = n-sample;
+			int splitSize = policy.minimumSplitSize(time, sample, remaining, context.getParallelism());
+			Spliterator<P> rest = new Iterators.ImgSpliterator<P>(sample, n-1, splitSize, this::getPixel);
+			if(splitSize >= remaining){
+				rest.forEachRemaining(action);
+			} else {
+				ParallelForEachExecutor.execute(context, rest, action);
+			}
+		}
+	}
+
+	/**
+	 * Applies the specified action to every pixel in the specified area of this image
+	 * in parallel within the specified {@link ExecutionContext}, using a minimum split size that is
+	 * determined by the specified {@link AdaptiveSplitPolicy} from the measured cost of the action.
+	 * The sample consists of the first rows of the area (at least the policy's sample size)
+	 * which are processed serially by the calling thread.
+	 * @param context in which the action is executed
+	 * @param policy determining the minimum split size
+	 * @param xStart left boundary of the area (inclusive)
+	 * @param yStart upper boundary of the area (inclusive)
+	 * @param width of the area
+	 * @param height of the area
+	 * @param action to be performed on each pixel
+	 * @throws IllegalArgumentException if provided area is not within this
+	 * images's bounds, or if the area is not positive (width or height &le; 0).
+	 *
+	 * @see #setSplitPolicy(AdaptiveSplitPolicy)
+	 * @since 2.2
+	 */
+	public default void forEach(ExecutionContext context, AdaptiveSplitPolicy policy, final int xStart, final int yStart, final int width, final int height, final Consumer<? super P> action) {
+		ImagingKitUtils.requireAreaInImageBounds(xStart, yStart, width, height, this);
+		final int sampleRows = Math.min(height, (policy.getSampleSize()+width-1)/width);
+		final int sample = sampleRows*width;
+		long time = System.nanoTime();
+		new Iterators.ImgAreaSpliterator<P>(xStart, yStart, width, sampleRows, sample, this::getPixel).forEachRemaining(action);
+		time = System.nanoTime()-time;
+		if(sampleRows < height){
+			int remaining = (height-sampleRows)*width;
+			int splitSize = policy.minimumSplitSize(time, sample, remaining, context.getParallelism());
+			Spliterator<P> rest = new Iterators.ImgAreaSpliterator<P>(xStart, yStart+sampleRows, width, height-sampleRows, splitSize, this::getPixel);
+			if(splitSize >= remaining){
+				rest.forEachRemaining(action);
+			} else {
+				ParallelForEachExecutor.execute(context, rest, action);
+			}
+		}
+	}
+
+	/**
+	 * Performs the specified action on each of the pixels of this image in parallel
+	 * within the specified {@link ExecutionContext}, until the specified token is cancelled.
+	 * The token is checked between chunks of pixels, so that a cancelled operation releases
+	 * the threads of the pool after the chunks currently processed are completed.
+	 * The progress callback reports the number of pixels processed so far after each chunk,
+	 * it is called concurrently by the threads of the pool.
+	 * <p>
+	 * The chunk size is the minimum split size of the context or this image
+	 * (see {@link #spliterator(ExecutionContext)}).
+	 * @param context in which the action is executed
+	 * @param token for cancellation (explicit or by deadline)
+	 * @param progress callback receiving the number of processed pixels, may be null
+	 * @param action to be performed
+	 * @throws java.util.concurrent.CancellationException when the token was cancelled
+	 * before all pixels were processed
+	 *
+	 * @see ParallelForEachExecutor#execute(ExecutionContext, Spliterator, Consumer, CancellationToken, LongConsumer)
+	 * @since 2.2
+	 */
+	public default void forEach(ExecutionContext context, CancellationToken token, LongConsumer progress, final Consumer<? super P> action) {
+		ParallelForEachExecutor.execute(context, spliterator(context), action, token, progress);
+	}
+
+	/**
+	 * Applies the specified action to every pixel in the specified area of this image
+	 * in parallel within the specified {@link ExecutionContext}, until the specified token is cancelled.
+	 * See {@link #forEach(ExecutionContext, CancellationToken, LongConsumer, Consumer)} for details.
+	 * @param context in which the action is executed
+	 * @param token for cancellation (explicit or by deadline)
+	 * @param progress callback receiving the number of processed pixels, may be null
+	 * @param xStart left boundary of the area (inclusive)
+	 * @param yStart upper boundary of the area (inclusive)
+	 * @param width of the area
+	 * @param height of the area
+	 * @param action to be performed on each pixel
+	 * @throws IllegalArgumentException if provided area is not within this
+	 * images's bounds, or if the area is not positive (width or height &le; 0).
+	 * @throws java.util.concurrent.CancellationException when the token was cancelled
+	 * before all pixels were processed
+	 * @since 2.2
+	 */
+	public default void forEach(ExecutionContext context, CancellationToken token, LongConsumer progress, final int xStart, final int yStart, final int width, final int height, final Consumer<? super P> action) {
+		ParallelForEachExecutor.execute(context, spliterator(context, xStart, yStart, width, height), action, token, progress);
+	}
+
 	/**
 	 * Applies the specified action to every pixel in the specified area of this image.
 	 * @param xStart left boundary of the area (inclusive)
@@ -490,8 +712,7 @@ public interface ImgBase<P extends PixelBase> extends Iterable<P> {
 	public default void forEach(boolean parallel, final int xStart, final int yStart, final int width, final int height, final Consumer<? super P> action) {
 		ImagingKitUtils.requireAreaInImageBounds(xStart, yStart, width, height, this);
 		if(parallel){
-			ParallelForEachExecutor<P> exec = new ParallelForEachExecutor<>(spliterator(xStart, yStart, width, height), action);
-			exec.invoke();
+			forEach(ExecutionContext.current(), xStart, yStart, width, height, action);
 		} else {
 			P p = getPixel();
 			int yEnd = yStart+height;
@@ -532,11 +753,11 @@ public interface ImgBase<P extends PixelBase> extends Iterable<P> {
 	 */
 	public default <T> void forEach(final PixelConverter<? super P,T> converter, boolean parallel, final Consumer<? super T> action) {
 		if(parallel){
+			ExecutionContext context = ExecutionContext.current();
 			Spliterator<T> spliterator = new PixelConvertingSpliterator<>(
-					spliterator(),
+					spliterator(context),
 					converter);
-	 		ParallelForEachExecutor<T> exec = new ParallelForEachExecutor<>(spliterator, action);
-			exec.invoke();
+			ParallelForEachExecutor.execute(context, spliterator, action);
 		} else {
 			P px = getPixel();
 			T element = converter.allocateElement();
@@ -584,11 +805,11 @@ public interface ImgBase<P extends PixelBase> extends Iterable<P> {
 	public default <T> void forEach(final PixelConverter<? super P, T> converter, boolean parallel, final int xStart, final int yStart, final int width, final int height, final Consumer<? super T> action) {
 		ImagingKitUtils.requireAreaInImageBounds(xStart, yStart, width, height, this);
 		if(parallel){
+			ExecutionContext context = ExecutionContext.current();
 			Spliterator<T> spliterator = new PixelConvertingSpliterator<>(
-					spliterator(xStart, yStart, width, height),
+					spliterator(context, xStart, yStart, width, height),
 					converter);
-			ParallelForEachExecutor<T> exec = new ParallelForEachExecutor<>(spliterator, action);
-			exec.invoke();
+			ParallelForEachExecutor.execute(context, spliterator, action);
 		} else {
 			P p = getPixel();
 			T element = converter.allocateElement();
@@ -565,4 +565,134 @@ public final class Iterators {
 
 	}
 
+	/**
+	 * Spliterator that iterates an image tile by tile (tiles are traversed in row major order,
+	 * and so are the pixels within a tile). Splits always cover entire tiles,
+	 * so that each split works on a compact 2D block of the image.
+	 * Tiles at the right and bottom border of the image may be smaller than the tile size.
+	 * @author hageldave
+	 * @since 2.2
+	 */
+	public static final class TileSpliterator<P extends PixelBase> implements Spliterator<P> {
+
+		private final Supplier<P> pixelSupplier;
+		private final P px;
+		private final int width, height;
+		private final int tileWidth, tileHeight;
+		private final int tilesX;
+		private final int minimumSplitSize;
+		/* current tile and end of tile range (exclusive) */
+		private int tile, endTileExcl;
+		/* bounds of the current tile (x1, y1 exclusive) */
+		private int tileX0, tileX1, tileY1;
+		/* current position */
+		private int x, y;
+
+		/**
+		 * Creates a new TileSpliterator for the specified range of tiles.
+		 * @param width of the image
+		 * @param height of the image
+		 * @param tileWidth width of a tile
+		 * @param tileHeight height of a tile
+		 * @param startTile first tile of the range (inclusive), tiles are numbered in row major order
+		 * @param endTileExcl last tile of the range (exclusive)
+		 * @param minSplitSize minimum split size for this spliterator (minimum number of elements in a split)
+		 * @param pixelSupplier a function that allocates a new pixel
+		 */
+		public TileSpliterator(int width, int height, int tileWidth, int tileHeight, int startTile, int endTileExcl, int minSplitSize, Supplier<P> pixelSupplier) {
+			this.pixelSupplier = pixelSupplier;
+			this.px = pixelSupplier.get();
+			this.width = width;
+			this.height = height;
+			this.tileWidth = tileWidth;
+			this.tileHeight = tileHeight;
+			this.tilesX = (width+tileWidth-1)/tileWidth;
+			this.minimumSplitSize = minSplitSize;
+			this.endTileExcl = endTileExcl;
+			setTile(startTile);
+		}
+
+		private void setTile(int t){
+			this.tile = t;
+			if(t < endTileExcl){
+				tileX0 = (t%tilesX)*tileWidth;
+				int tileY0 = (t/tilesX)*tileHeight;
+				tileX1 = Math.min(tileX0+tileWidth, width);
+				tileY1 = Math.min(tileY0+tileHeight, height);
+				x = tileX0;
+				y = tileY0;
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super P> action) {
+			if(tile >= endTileExcl){
+				return false;
+			}
+			px.setPosition(x, y);
+			if(++x >= tileX1){
+				x = tileX0;
+				if(++y >= tileY1){
+					setTile(tile+1);
+				}
+			}
+			action.accept(px);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super P> action) {
+			while(tile < endTileExcl){
+				for(int y_=y; y_ < tileY1; y_++){
+					for(int x_=x; x_ < tileX1; x_++){
+						px.setPosition(x_, y_);
+						action.accept(px);
+					}
+					x = tileX0;
+				}
+				setTile(tile+1);
+			}
+		}
+
+		@Override
+		public Spliterator<P> trySplit() {
+			int remainingTiles = endTileExcl-tile;
+			if(remainingTiles < 2){
+				return null;
+			}
+			int mid = tile + (remainingTiles+1)/2;
+			if((long)(endTileExcl-mid)*tileWidth*tileHeight < minimumSplitSize){
+				return null;
+			}
+			TileSpliterator<P> split = new TileSpliterator<>(width, height, tileWidth, tileHeight, mid, endTileExcl, minimumSplitSize, pixelSupplier);
+			this.endTileExcl = mid;
+			return split;
+		}
+
+		@Override
+		public long estimateSize() {
+			if(tile >= endTileExcl){
+				return 0;
+			}
+			// remaining of current tile + size of remaining tiles
+			long current = (long)(tileY1-y-1)*(tileX1-tileX0) + (tileX1-x);
+			return current + numPixelsBefore(endTileExcl) - numPixelsBefore(tile+1);
+		}
+
+		/* number of pixels in tiles [0,t) in row major tile order, border tiles may be smaller */
+		private long numPixelsBefore(int t){
+			int tileRow = t/tilesX;
+			int tileRowY0 = tileRow*tileHeight;
+			long fullRows = (long)Math.min(tileRowY0, height)*width;
+			int rowHeight = Math.max(0, Math.min(tileRowY0+tileHeight, height)-tileRowY0);
+			return fullRows + (long)Math.min((t%tilesX)*tileWidth, width)*rowHeight;
+		}
+
+		@Override
+		public int characteristics() {
+			return NONNULL | CONCURRENT | IMMUTABLE;
+		}
+
+	}
+
 }
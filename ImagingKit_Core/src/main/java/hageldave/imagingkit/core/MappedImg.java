@@ -0,0 +1,412 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
+
+/**
+ * Image class with packed ARGB values (like {@link Img}) that are stored in a
+ * file and accessed through memory mapping.
+ * <p>
+ * The data of a MappedImg does not reside on the Java heap, the operating system pages
+ * the required parts of the file in and out of memory. This allows for processing of images
+ * that are larger than the available heap space.
+ * The file is a raw sequence of 32bit ARGB integers in row major order without any header
+ * (big endian, i.e. alpha is the first byte of a pixel).
+ * <p>
+ * A MappedImg is created or opened using {@link #create(File, int, int)} or
+ * {@link #open(File, int, int, boolean)}. Changes are written back to the file by the
+ * operating system, {@link #force()} can be used to write them immediately.
+ * Since pixels are addressed by int indices, the number of pixels is limited to
+ * {@link Integer#MAX_VALUE}.
+ * <pre>
+ * {@code
+ * MappedImg img = MappedImg.create(new File("scan.argb"), 60000, 30000);
+ * img.forEach(true, px->px.setValue(...));
+ * img.force();
+ * }</pre>
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public class MappedImg implements ImgBase<MappedPixel> {
+
+	/** number of pixels per mapped segment as power of 2 (2^28 pixels = 1GiB) */
+	static final int DEFAULT_SEGMENT_BITS = 28;
+
+	private final int width, height;
+
+	private final File file;
+
+	private final boolean readOnly;
+
+	/* mapped regions of the file, each covering 2^segmentBits pixels */
+	private final MappedByteBuffer[] segments;
+	private final int segmentBits;
+	private final int segmentMask;
+
+	/** minimum number of elements this image's {@link Spliterator}s can be split to.
+	 * Default value is 1024.
+	 */
+	private int spliteratorMinimumSplitSize = 1024;
+
+	/** adaptive split policy, null for fixed minimum split size */
+	private AdaptiveSplitPolicy splitPolicy = null;
+
+	/**
+	 * Creates a new file of the required size for an image of specified dimensions
+	 * and maps it as MappedImg. An existing file will be overwritten.
+	 * Pixel values are initialized to 0.
+	 *
+	 * @param file to be used as storage for the image
+	 * @param width of the image
+	 * @param height of the image
+	 * @return the MappedImg
+	 * @throws IllegalArgumentException when width or height are not positive or the
+	 * number of pixels exceeds {@link Integer#MAX_VALUE}.
+	 * @throws UncheckedIOException when an IOException occurs during file creation or mapping
+	 */
+	public static MappedImg create(File file, int width, int height){
+		createFile(file, width, height);
+		return new MappedImg(file, width, height, false, DEFAULT_SEGMENT_BITS);
+	}
+
+	/* creates zero initialized file of required size for specified dimensions */
+	private static void createFile(File file, int width, int height){
+		requireValidDimensions(width, height);
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw")){
+			raf.setLength(0);
+			raf.setLength(4L*width*height);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Maps the specified existing file as MappedImg of specified dimensions.
+	 *
+	 * @param file containing the raw ARGB data of the image
+	 * @param width of the image
+	 * @param height of the image
+	 * @param readOnly whether the image is only read. Setting values of a read only image
+	 * will throw a {@link java.nio.ReadOnlyBufferException}.
+	 * @return the MappedImg
+	 * @throws IllegalArgumentException when width or height are not positive, the
+	 * number of pixels exceeds {@link Integer#MAX_VALUE} or the file is too small for the
+	 * specified dimensions.
+	 * @throws UncheckedIOException when an IOException occurs during mapping
+	 */
+	public static MappedImg open(File file, int width, int height, boolean readOnly){
+		return new MappedImg(file, width, height, readOnly, DEFAULT_SEGMENT_BITS);
+	}
+
+	/**
+	 * Maps the specified file with segments of 2^segmentBits pixels.
+	 */
+	MappedImg(File file, int width, int height, boolean readOnly, int segmentBits){
+		requireValidDimensions(width, height);
+		this.file = file;
+		this.width = width;
+		this.height = height;
+		this.readOnly = readOnly;
+		this.segmentBits = segmentBits;
+		this.segmentMask = (1<<segmentBits)-1;
+		long numPixels = (long)width*height;
+		int numSegments = (int)((numPixels+segmentMask) >> segmentBits);
+		this.segments = new MappedByteBuffer[numSegments];
+		try(RandomAccessFile raf = new RandomAccessFile(file, readOnly ? "r":"rw");
+			FileChannel channel = raf.getChannel())
+		{
+			if(channel.size() < numPixels*4){
+				throw new IllegalArgumentException(String.format(
+						"File %s is too small for image of dimension [%dx%d], has %d bytes but %d are required.",
+						file, width, height, channel.size(), numPixels*4));
+			}
+			MapMode mode = readOnly ? MapMode.READ_ONLY:MapMode.READ_WRITE;
+			for(int i = 0; i < numSegments; i++){
+				long start = ((long)i << segmentBits);
+				long size = Math.min(numPixels-start, 1L<<segmentBits);
+				segments[i] = channel.map(mode, start*4, size*4);
+				segments[i].order(ByteOrder.BIG_ENDIAN);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void requireValidDimensions(int width, int height){
+		if(width < 1 || height < 1 || (long)width*height > Integer.MAX_VALUE){
+			throw new IllegalArgumentException(String.format(
+					"Invalid image dimension [%dx%d], width and height have to be positive and width*height must not exceed %d.",
+					width, height, Integer.MAX_VALUE));
+		}
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int numValues() {
+		return width*height;
+	}
+
+	/** @return the file this image is mapped to */
+	public File getFile() {
+		return file;
+	}
+
+	/** @return true when this image was opened read only */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * Returns the value at the specified index (index = y*width+x).
+	 * @param index of the pixel
+	 * @return ARGB value at index
+	 * @throws IndexOutOfBoundsException if index is not in [0, numValues()-1]
+	 */
+	public int getValueAtIndex(int index){
+		return segments[index >>> segmentBits].getInt((index & segmentMask) << 2);
+	}
+
+	/**
+	 * Sets the value at the specified index (index = y*width+x).
+	 * @param index of the pixel
+	 * @param value ARGB value to be set
+	 * @throws IndexOutOfBoundsException if index is not in [0, numValues()-1]
+	 * @throws java.nio.ReadOnlyBufferException if this image is read only
+	 */
+	public void setValueAtIndex(int index, int value){
+		segments[index >>> segmentBits].putInt((index & segmentMask) << 2, value);
+	}
+
+	/**
+	 * Returns the value of this image at the specified position.
+	 * No bounds checks will be performed, positions outside of this
+	 * image's dimension can either result in a value for a different position
+	 * or an IndexOutOfBoundsException.
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return value for specified position
+	 * @throws IndexOutOfBoundsException if resulting index from x and y
+	 * is not within the image's bounds.
+	 */
+	public int getValue(final int x, final int y){
+		return getValueAtIndex(y*width+x);
+	}
+
+	/**
+	 * Sets value at the specified position.
+	 * No bounds checks will be performed, positions outside of this
+	 * image's dimension can either result in a value for a different position
+	 * or an IndexOutOfBoundsException.
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @param value to be set at specified position. e.g. 0xff0000ff for blue color
+	 * @throws IndexOutOfBoundsException if resulting index from x and y
+	 * is not within the image's bounds.
+	 * @throws java.nio.ReadOnlyBufferException if this image is read only
+	 */
+	public void setValue(final int x, final int y, final int value){
+		setValueAtIndex(y*width+x, value);
+	}
+
+	/**
+	 * Fills the whole image with the specified value.
+	 * @param value for filling image
+	 * @return this for chaining
+	 * @throws java.nio.ReadOnlyBufferException if this image is read only
+	 */
+	public MappedImg fill(final int value){
+		for(int i = 0; i < numValues(); i++){
+			setValueAtIndex(i, value);
+		}
+		return this;
+	}
+
+	/**
+	 * Copies the specified row of this image into the specified array.
+	 * @param y row index
+	 * @param dest array of at least width length, may be null
+	 * @return the array containing the row
+	 */
+	public int[] getRow(int y, int[] dest){
+		if(dest == null){
+			dest = new int[width];
+		}
+		int offset = y*width;
+		for(int x = 0; x < width; x++){
+			dest[x] = getValueAtIndex(offset+x);
+		}
+		return dest;
+	}
+
+	/**
+	 * Copies the specified array into the specified row of this image.
+	 * @param y row index
+	 * @param src array of at least width length
+	 * @throws java.nio.ReadOnlyBufferException if this image is read only
+	 */
+	public void setRow(int y, int[] src){
+		int offset = y*width;
+		for(int x = 0; x < width; x++){
+			setValueAtIndex(offset+x, src[x]);
+		}
+	}
+
+	/**
+	 * Writes changes to the underlying file.
+	 * @see MappedByteBuffer#force()
+	 */
+	public void force(){
+		if(readOnly)
+			return;
+		for(MappedByteBuffer segment: segments){
+			segment.force();
+		}
+	}
+
+	/**
+	 * Copies the contents of this image to a new {@link Img}.
+	 * Only possible when the image fits into a Java array and heap.
+	 * @return Img with this image's data
+	 */
+	public Img toImg(){
+		Img img = new Img(width, height);
+		img.forEach(true, px->px.setValue(getValueAtIndex(px.getIndex())));
+		return img;
+	}
+
+	@Override
+	public MappedPixel getPixel() {
+		return new MappedPixel(this, 0);
+	}
+
+	@Override
+	public MappedPixel getPixel(int x, int y) {
+		return new MappedPixel(this, x, y);
+	}
+
+	@Override
+	public BufferedImage toBufferedImage(BufferedImage bimg) {
+		if(bimg.getWidth() != this.getWidth() || bimg.getHeight() != this.getHeight()){
+			throw new IllegalArgumentException(String.format(
+					"Specified BufferedImage has a different dimension as this image. BufferedImage dimension: [%dx%d], this: [%dx%d]",
+					bimg.getWidth(),bimg.getHeight(), this.getWidth(),this.getHeight()));
+		}
+		int[] row = new int[width];
+		for(int y = 0; y < height; y++){
+			bimg.setRGB(0, y, width, 1, getRow(y, row), 0, width);
+		}
+		return bimg;
+	}
+
+	/**
+	 * Creates a copy of this image that is mapped to a temporary file which will be
+	 * deleted when the virtual machine terminates.
+	 * @throws UncheckedIOException when the temporary file cannot be created
+	 */
+	@Override
+	public MappedImg copy() {
+		File copyFile;
+		try {
+			copyFile = File.createTempFile("mappedimg", ".argb");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		copyFile.deleteOnExit();
+		createFile(copyFile, width, height);
+		MappedImg copy = new MappedImg(copyFile, width, height, false, segmentBits);
+		copy.setSpliteratorMinimumSplitSize(spliteratorMinimumSplitSize);
+		for(int i = 0; i < segments.length; i++){
+			// only absolute access is used on segments, duplicates thus span the whole segment
+			copy.segments[i].duplicate().put(segments[i].duplicate());
+		}
+		return copy;
+	}
+
+	/**
+	 * Sets the minimum number of elements in a split of a {@link Spliterator}
+	 * of this image. Spliterators will only split if they contain more elements than
+	 * specified by this value. Default is 1024.
+	 * See {@link Img#setSpliteratorMinimumSplitSize(int)} for details.
+	 *
+	 * @param size the minimum number of elements a split covers
+	 * @throws IllegalArgumentException if specified size is less than 1
+	 * @see #forEach(boolean, Consumer)
+	 */
+	public void setSpliteratorMinimumSplitSize(int size) {
+		if(size < 1){
+			throw new IllegalArgumentException(
+					String.format("Minimum split size has to be above zero, specified:%d", size));
+		}
+		this.spliteratorMinimumSplitSize = size;
+	}
+
+	@Override
+	public int getSpliteratorMinimumSplitSize() {
+		return this.spliteratorMinimumSplitSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @since 2.2
+	 */
+	@Override
+	public AdaptiveSplitPolicy getSplitPolicy() {
+		return splitPolicy;
+	}
+
+	/**
+	 * Sets the {@link AdaptiveSplitPolicy} of this MappedImg. When set, parallel forEach loops
+	 * (e.g. {@link #forEach(boolean, Consumer)}) determine their minimum split size from the
+	 * measured cost of the action instead of using {@link #getSpliteratorMinimumSplitSize()}.
+	 * @param policy to use for parallel forEach loops, or null to use the fixed minimum split size
+	 * @since 2.2
+	 */
+	@Override
+	public void setSplitPolicy(AdaptiveSplitPolicy policy) {
+		this.splitPolicy = policy;
+	}
+
+}
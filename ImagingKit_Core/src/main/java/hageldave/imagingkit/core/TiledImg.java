@@ -0,0 +1,462 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import hageldave.imagingkit.core.Iterators.TileSpliterator;
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
+import hageldave.imagingkit.core.util.ExecutionContext;
+import hageldave.imagingkit.core.util.ParallelForEachExecutor;
+
+/**
+ * Image class with packed ARGB values (like {@link Img}) that are stored in square tiles
+ * instead of a single row major array.
+ * <p>
+ * Pixels that are close to each other in 2D are close to each other in memory, which
+ * improves cache locality of neighborhood operations on large images.
+ * Tiles are only allocated when a value different from the background value is written
+ * to them, untouched tiles read as the background value. Sparse images thus only
+ * require memory for their non empty regions.
+ * <p>
+ * The spliterator of a TiledImg ({@link #spliterator()}) traverses the image tile by tile
+ * and only splits on tile boundaries, so that {@link #forEach(boolean, Consumer)} processes
+ * cache resident blocks. Note that in contrast to {@link Img} the iteration order is
+ * therefore not row major.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public class TiledImg implements ImgBase<TiledPixel> {
+
+	/** default width and height of a tile */
+	public static final int DEFAULT_TILE_SIZE = 64;
+
+	private final int width, height;
+
+	/* log2 of tile size, and tile size -1 for masking */
+	private final int tileBits, tileMask;
+
+	private final int tilesX, tilesY;
+
+	/* tiles in row major order, null for unallocated tiles */
+	private final AtomicReferenceArray<int[]> tiles;
+
+	/* value of unallocated tiles */
+	private volatile int backgroundValue;
+
+	/** minimum number of elements this image's {@link Spliterator}s can be split to.
+	 * Default value is 1024.
+	 */
+	private int spliteratorMinimumSplitSize = 1024;
+
+	/** adaptive split policy, null for fixed minimum split size */
+	private AdaptiveSplitPolicy splitPolicy = null;
+
+	/**
+	 * Creates a new TiledImg of specified dimensions with tiles of
+	 * {@link #DEFAULT_TILE_SIZE} and background value 0.
+	 * @param width of the image
+	 * @param height of the image
+	 */
+	public TiledImg(int width, int height){
+		this(width, height, DEFAULT_TILE_SIZE, 0);
+	}
+
+	/**
+	 * Creates a new TiledImg of specified Dimension with tiles of
+	 * {@link #DEFAULT_TILE_SIZE} and background value 0.
+	 * @param dimension extend of the image (width and height)
+	 */
+	public TiledImg(Dimension dimension){
+		this(dimension.width, dimension.height);
+	}
+
+	/**
+	 * Creates a new TiledImg of specified dimensions.
+	 * @param width of the image
+	 * @param height of the image
+	 * @param tileSize width and height of a tile, has to be a power of 2
+	 * @param backgroundValue value of pixels that have not been written to
+	 * @throws IllegalArgumentException when tileSize is not a power of 2
+	 */
+	public TiledImg(int width, int height, int tileSize, int backgroundValue){
+		if(tileSize < 1 || Integer.bitCount(tileSize) != 1){
+			throw new IllegalArgumentException(String.format(
+					"Tile size has to be a power of 2, but was %d", tileSize));
+		}
+		this.width = width;
+		this.height = height;
+		this.tileBits = Integer.numberOfTrailingZeros(tileSize);
+		this.tileMask = tileSize-1;
+		this.tilesX = (width+tileMask) >> tileBits;
+		this.tilesY = (height+tileMask) >> tileBits;
+		this.tiles = new AtomicReferenceArray<>(tilesX*tilesY);
+		this.backgroundValue = backgroundValue;
+	}
+
+	/**
+	 * Creates a new TiledImg from the specified {@link Img} with tiles of
+	 * {@link #DEFAULT_TILE_SIZE} and background value 0.
+	 * Values are copied from the argument image.
+	 * @param img the Img
+	 */
+	public TiledImg(Img img){
+		this(img.getWidth(), img.getHeight());
+		for(int y = 0; y < height; y++){
+			for(int x = 0; x < width; x++){
+				setValue(x, y, img.getValue(x, y));
+			}
+		}
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	/** @return the width and height of a tile */
+	public int getTileSize() {
+		return tileMask+1;
+	}
+
+	/** @return the number of tiles in horizontal direction */
+	public int getNumTilesX() {
+		return tilesX;
+	}
+
+	/** @return the number of tiles in vertical direction */
+	public int getNumTilesY() {
+		return tilesY;
+	}
+
+	/** @return the value of pixels that have not been written to */
+	public int getBackgroundValue() {
+		return backgroundValue;
+	}
+
+	/**
+	 * @param tileX horizontal tile index
+	 * @param tileY vertical tile index
+	 * @return true when the specified tile has been allocated
+	 */
+	public boolean isTileAllocated(int tileX, int tileY){
+		return tiles.get(tileY*tilesX+tileX) != null;
+	}
+
+	/** @return the number of tiles that have been allocated */
+	public int getNumAllocatedTiles(){
+		int n = 0;
+		for(int i = 0; i < tiles.length(); i++){
+			if(tiles.get(i) != null)
+				n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the value of this image at the specified position.
+	 * No bounds checks will be performed, positions outside of this
+	 * image's dimension can either result in a value for a different position
+	 * or an IndexOutOfBoundsException.
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return value for specified position
+	 * @throws IndexOutOfBoundsException if the position is out of bounds
+	 */
+	public int getValue(final int x, final int y){
+		int[] tile = tiles.get((y>>tileBits)*tilesX + (x>>tileBits));
+		return tile == null ? backgroundValue : tile[((y&tileMask)<<tileBits)|(x&tileMask)];
+	}
+
+	/**
+	 * Returns the value of this image at the specified position.
+	 * Bounds checks will be performed and positions outside of this image's
+	 * dimensions will be handled according to the specified boundary mode.
+	 * See {@link Img#getValue(int, int, int)} for details on the boundary modes.
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @param boundaryMode one of the boundary modes e.g. {@link Img#boundary_mode_mirror}
+	 * @return value at specified position or a value depending on the
+	 * boundary mode for out of bounds positions.
+	 */
+	public int getValue(int x, int y, final int boundaryMode){
+		if(x < 0 || y < 0 || x >= this.width || y >= this.height){
+			switch (boundaryMode) {
+			case Img.boundary_mode_zero:
+				return 0;
+			case Img.boundary_mode_repeat_edge:
+				x = (x < 0 ? 0: (x >= this.width ? this.width-1:x));
+				y = (y < 0 ? 0: (y >= this.height ? this.height-1:y));
+				return getValue(x, y);
+			case Img.boundary_mode_repeat_image:
+				x = (this.width + (x % this.width)) % this.width;
+				y = (this.height + (y % this.height)) % this.height;
+				return getValue(x,y);
+			case Img.boundary_mode_mirror:
+				if(x < 0){ // mirror x to right side of image
+					x = -x - 1;
+				}
+				if(y < 0 ){ // mirror y to bottom side of image
+					y = -y - 1;
+				}
+				x = (x/this.width) % 2 == 0 ? (x%this.width) : (this.width-1)-(x%this.width);
+				y = (y/this.height) % 2 == 0 ? (y%this.height) : (this.height-1)-(y%this.height);
+				return getValue(x, y);
+			default:
+				return boundaryMode; // boundary mode can be default color
+			}
+		} else {
+			return getValue(x, y);
+		}
+	}
+
+	/**
+	 * Sets value at the specified position.
+	 * The corresponding tile is allocated if necessary, unless the value equals the
+	 * background value.
+	 * No bounds checks will be performed, positions outside of this
+	 * image's dimension can either result in a value for a different position
+	 * or an IndexOutOfBoundsException.
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @param value to be set at specified position. e.g. 0xff0000ff for blue color
+	 * @throws IndexOutOfBoundsException if the position is out of bounds
+	 */
+	public void setValue(final int x, final int y, final int value){
+		int tileIdx = (y>>tileBits)*tilesX + (x>>tileBits);
+		int[] tile = tiles.get(tileIdx);
+		if(tile == null){
+			if(value == backgroundValue){
+				return;
+			}
+			tile = allocateTile(tileIdx);
+		}
+		tile[((y&tileMask)<<tileBits)|(x&tileMask)] = value;
+	}
+
+	/* allocates tile filled with background, returns the tile present after allocation attempt */
+	private int[] allocateTile(int tileIdx){
+		int[] tile = new int[1<<(tileBits*2)];
+		if(backgroundValue != 0){
+			Arrays.fill(tile, backgroundValue);
+		}
+		if(tiles.compareAndSet(tileIdx, null, tile)){
+			return tile;
+		}
+		// other thread was faster
+		return tiles.get(tileIdx);
+	}
+
+	/**
+	 * Fills the whole image with the specified value.
+	 * All tiles are released and the value becomes the new background value.
+	 * This method must not be called concurrently with other modifications of this image.
+	 * @param value for filling the image
+	 * @return this for chaining
+	 */
+	public TiledImg fill(final int value){
+		this.backgroundValue = value;
+		for(int i = 0; i < tiles.length(); i++){
+			tiles.set(i, null);
+		}
+		return this;
+	}
+
+	/**
+	 * Copies the contents of this image to a new {@link Img}.
+	 * @return Img with this image's data
+	 */
+	public Img toImg(){
+		Img img = new Img(width, height);
+		for(int y = 0; y < height; y++){
+			for(int x = 0; x < width; x++){
+				img.setValue(x, y, getValue(x, y));
+			}
+		}
+		return img;
+	}
+
+	@Override
+	public TiledPixel getPixel() {
+		return new TiledPixel(this, 0, 0);
+	}
+
+	@Override
+	public TiledPixel getPixel(int x, int y) {
+		return new TiledPixel(this, x, y);
+	}
+
+	@Override
+	public BufferedImage toBufferedImage(BufferedImage bimg) {
+		if(bimg.getWidth() != this.getWidth() || bimg.getHeight() != this.getHeight()){
+			throw new IllegalArgumentException(String.format(
+					"Specified BufferedImage has a different dimension as this image. BufferedImage dimension: [%dx%d], this: [%dx%d]",
+					bimg.getWidth(),bimg.getHeight(), this.getWidth(),this.getHeight()));
+		}
+		int[] row = new int[width];
+		for(int y = 0; y < height; y++){
+			for(int x = 0; x < width; x++){
+				row[x] = getValue(x, y);
+			}
+			bimg.setRGB(0, y, width, 1, row, 0, width);
+		}
+		return bimg;
+	}
+
+	@Override
+	public TiledImg copy() {
+		TiledImg copy = new TiledImg(width, height, getTileSize(), backgroundValue);
+		copy.setSpliteratorMinimumSplitSize(spliteratorMinimumSplitSize);
+		for(int i = 0; i < tiles.length(); i++){
+			int[] tile = tiles.get(i);
+			if(tile != null){
+				copy.tiles.set(i, Arrays.copyOf(tile, tile.length));
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The returned spliterator traverses this image tile by tile and its splits
+	 * cover entire tiles.
+	 */
+	@Override
+	public Spliterator<TiledPixel> spliterator() {
+		return new TileSpliterator<>(width, height, getTileSize(), getTileSize(),
+				0, tilesX*tilesY, spliteratorMinimumSplitSize, this::getPixel);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The returned spliterator traverses this image tile by tile (see {@link #spliterator()}).
+	 */
+	@Override
+	public Spliterator<TiledPixel> spliterator(ExecutionContext context) {
+		return new TileSpliterator<>(width, height, getTileSize(), getTileSize(),
+				0, tilesX*tilesY, context.minimumSplitSize(spliteratorMinimumSplitSize), this::getPixel);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Pixels are visited tile by tile (see {@link #spliterator()}) for both
+	 * serial and parallel execution.
+	 */
+	@Override
+	public void forEach(boolean parallel, Consumer<? super TiledPixel> action) {
+		if(parallel){
+			forEach(ExecutionContext.current(), action);
+		} else {
+			spliterator().forEachRemaining(action);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Pixels are visited tile by tile (see {@link #spliterator()}), the sample
+	 * consists of the first tiles.
+	 */
+	@Override
+	public void forEach(ExecutionContext context, AdaptiveSplitPolicy policy, Consumer<? super TiledPixel> action) {
+		final int tileSize = getTileSize();
+		final int numTiles = tilesX*tilesY;
+		final int sampleTiles = Math.min(numTiles, (policy.getSampleSize()+tileSize*tileSize-1)/(tileSize*tileSize));
+		Spliterator<TiledPixel> sample = new TileSpliterator<>(width, height, tileSize, tileSize,
+				0, sampleTiles, Integer.MAX_VALUE, this::getPixel);
+		final int sampled = (int)sample.estimateSize();
+		long time = System.nanoTime();
+		sample.forEachRemaining(action);
+		time = System.nanoTime()-time;
+		if(sampleTiles < numTiles){
+			int remaining = numValues()-sampled;
+			int splitSize = policy.minimumSplitSize(time, sampled, remaining, context.getParallelism());
+			Spliterator<TiledPixel> rest = new TileSpliterator<>(width, height, tileSize, tileSize,
+					sampleTiles, numTiles, splitSize, this::getPixel);
+			if(splitSize >= remaining){
+				rest.forEachRemaining(action);
+			} else {
+				ParallelForEachExecutor.execute(context, rest, action);
+			}
+		}
+	}
+
+	/**
+	 * Sets the minimum number of elements in a split of a {@link Spliterator}
+	 * of this image. Spliterators will only split if they contain more elements than
+	 * specified by this value. Default is 1024.
+	 * See {@link Img#setSpliteratorMinimumSplitSize(int)} for details.
+	 *
+	 * @param size the minimum number of elements a split covers
+	 * @throws IllegalArgumentException if specified size is less than 1
+	 */
+	public void setSpliteratorMinimumSplitSize(int size) {
+		if(size < 1){
+			throw new IllegalArgumentException(
+					String.format("Minimum split size has to be above zero, specified:%d", size));
+		}
+		this.spliteratorMinimumSplitSize = size;
+	}
+
+	@Override
+	public int getSpliteratorMinimumSplitSize() {
+		return this.spliteratorMinimumSplitSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @since 2.2
+	 */
+	@Override
+	public AdaptiveSplitPolicy getSplitPolicy() {
+		return splitPolicy;
+	}
+
+	/**
+	 * Sets the {@link AdaptiveSplitPolicy} of this TiledImg. When set, parallel forEach loops
+	 * (e.g. {@link #forEach(boolean, Consumer)}) determine their minimum split size from the
+	 * measured cost of the action instead of using {@link #getSpliteratorMinimumSplitSize()}.
+	 * Pixels are still visited tile by tile.
+	 * @param policy to use for parallel forEach loops, or null to use the fixed minimum split size
+	 * @since 2.2
+	 */
+	@Override
+	public void setSplitPolicy(AdaptiveSplitPolicy policy) {
+		this.splitPolicy = policy;
+	}
+
+}
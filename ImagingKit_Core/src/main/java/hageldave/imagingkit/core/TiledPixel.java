@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core;
+
+import static hageldave.imagingkit.core.util.ImagingKitUtils.clamp_0_255;
+
+/**
+ * Pixel class for retrieving a value from a {@link TiledImg}.
+ * A pixel object stores a position and can be used to get and set values of
+ * a TiledImg. It is NOT the value and changing its position will not change the
+ * image, instead it will reference a different value of the image.
+ * <p>
+ * The static methods of {@link Pixel} can be used to decompose the ARGB value
+ * returned by {@link #getValue()}.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public class TiledPixel implements PixelBase {
+
+	/** TiledImg this pixel belongs to */
+	private final TiledImg img;
+
+	/** position this pixel references */
+	private int x, y;
+
+	/**
+	 * Creates a new Pixel object referencing the value
+	 * of specified TiledImg at specified position.
+	 * <p>
+	 * No bounds checks are performed for x and y
+	 * @param img the TiledImg this pixel corresponds to
+	 * @param x coordinate
+	 * @param y coordinate
+	 */
+	public TiledPixel(TiledImg img, int x, int y) {
+		this.img = img;
+		this.x = x;
+		this.y = y;
+	}
+
+	@Override
+	public TiledImg getSource() {
+		return img;
+	}
+
+	@Override
+	public TiledPixel setIndex(int index) {
+		this.x = index % img.getWidth();
+		this.y = index / img.getWidth();
+		return this;
+	}
+
+	@Override
+	public TiledPixel setPosition(int x, int y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	@Override
+	public int getIndex() {
+		return y*img.getWidth()+x;
+	}
+
+	@Override
+	public int getX() {
+		return x;
+	}
+
+	@Override
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Sets the value of the TiledImg at the position currently referenced by
+	 * this Pixel.
+	 * @param pixelValue to be set e.g. 0xff0000ff for blue.
+	 * @return this pixel for chaining
+	 * @throws IndexOutOfBoundsException if this Pixel's index is not in
+	 * range of the image.
+	 */
+	public TiledPixel setValue(int pixelValue){
+		img.setValue(x, y, pixelValue);
+		return this;
+	}
+
+	/**
+	 * @return the ARGB value of the TiledImg currently referenced by this Pixel.
+	 * @throws IndexOutOfBoundsException if this Pixel's index is not in
+	 * range of the image.
+	 */
+	public int getValue(){
+		return img.getValue(x, y);
+	}
+
+	/** @return alpha channel value of this pixel in range [0,255] */
+	public int a(){
+		return Pixel.a(getValue());
+	}
+
+	/** @return red channel value of this pixel in range [0,255] */
+	public int r(){
+		return Pixel.r(getValue());
+	}
+
+	/** @return green channel value of this pixel in range [0,255] */
+	public int g(){
+		return Pixel.g(getValue());
+	}
+
+	/** @return blue channel value of this pixel in range [0,255] */
+	public int b(){
+		return Pixel.b(getValue());
+	}
+
+	@Override
+	public double a_asDouble(){
+		return Pixel.a_normalized(getValue());
+	}
+
+	@Override
+	public double r_asDouble(){
+		return Pixel.r_normalized(getValue());
+	}
+
+	@Override
+	public double g_asDouble(){
+		return Pixel.g_normalized(getValue());
+	}
+
+	@Override
+	public double b_asDouble(){
+		return Pixel.b_normalized(getValue());
+	}
+
+	@Override
+	public TiledPixel setA_fromDouble(double a) {
+		return setValue((getValue() & 0x00ffffff) | (clamp_0_255((int)Math.round(a*0xff))<<24));
+	}
+
+	@Override
+	public TiledPixel setR_fromDouble(double r) {
+		return setValue((getValue() & 0xff00ffff) | (clamp_0_255((int)Math.round(r*0xff))<<16));
+	}
+
+	@Override
+	public TiledPixel setG_fromDouble(double g) {
+		return setValue((getValue() & 0xffff00ff) | (clamp_0_255((int)Math.round(g*0xff))<<8));
+	}
+
+	@Override
+	public TiledPixel setB_fromDouble(double b) {
+		return setValue((getValue() & 0xffffff00) | clamp_0_255((int)Math.round(b*0xff)));
+	}
+
+	@Override
+	public TiledPixel setARGB_fromDouble(double a, double r, double g, double b){
+		return setValue(Pixel.argb_fromNormalized(a, r, g, b));
+	}
+
+	@Override
+	public TiledPixel setRGB_fromDouble(double r, double g, double b){
+		return setValue(Pixel.rgb_fromNormalized(r, g, b));
+	}
+
+	@Override
+	public TiledPixel setRGB_fromDouble_preserveAlpha(double r, double g, double b){
+		return setValue((getValue() & 0xff000000) | (0x00ffffff & Pixel.rgb_fromNormalized(r, g, b)));
+	}
+
+	@Override
+	public String toString() {
+		return asString();
+	}
+
+}
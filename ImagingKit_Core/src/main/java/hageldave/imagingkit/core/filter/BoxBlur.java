@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.filter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+/**
+ * Box blur and iterated box blur (approximating a Gaussian blur) based on
+ * {@link SummedAreaTable}s. The cost per pixel is constant regardless of the
+ * blur radius, which makes this considerably faster than {@link Convolution}
+ * for large radii.
+ * <p>
+ * Near the image border the box is clipped to the image bounds and the mean is
+ * taken over the remaining values only, so that no boundary mode is required and
+ * there is no darkening or brightening towards the border.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class BoxBlur {
+
+	private BoxBlur(){/* not to be instantiated */}
+
+	/**
+	 * Blurs all channels of the specified image with a box of size (2*radius+1)x(2*radius+1).
+	 * The alpha channel is only blurred when both images have an alpha channel.
+	 * @param src image to blur
+	 * @param radius of the box
+	 * @param dst destination image, may be null (then a new image is created) or src (in place)
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when radius is negative or dst has different dimension than src
+	 */
+	public static ColorImg boxBlur(ColorImg src, int radius, ColorImg dst, boolean parallel){
+		return blur(src, new int[]{requireRadius(radius)}, dst, parallel);
+	}
+
+	/**
+	 * Blurs all channels of the specified image with a box of size (2*radius+1)x(2*radius+1).
+	 * Channel values are rounded and clamped to [0,255].
+	 * @param src image to blur
+	 * @param radius of the box
+	 * @param dst destination image, may be null (then a new image is created) or src (in place)
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when radius is negative or dst has different dimension than src
+	 */
+	public static Img boxBlur(Img src, int radius, Img dst, boolean parallel){
+		return blur(src, new int[]{requireRadius(radius)}, dst, parallel);
+	}
+
+	/**
+	 * Approximates a Gaussian blur of the specified standard deviation by
+	 * the specified number of successive box blurs (3 iterations already give a
+	 * good approximation). The alpha channel is only blurred when both images
+	 * have an alpha channel.
+	 * @param src image to blur
+	 * @param sigma standard deviation of the Gaussian
+	 * @param iterations number of box blurs
+	 * @param dst destination image, may be null (then a new image is created) or src (in place)
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when sigma or iterations are not positive
+	 * or dst has different dimension than src
+	 * @see #boxRadiiForGaussian(double, int)
+	 */
+	public static ColorImg gaussianBlur(ColorImg src, double sigma, int iterations, ColorImg dst, boolean parallel){
+		return blur(src, boxRadiiForGaussian(sigma, iterations), dst, parallel);
+	}
+
+	/**
+	 * Approximates a Gaussian blur of the specified standard deviation by
+	 * the specified number of successive box blurs (3 iterations already give a
+	 * good approximation). Channel values are rounded and clamped to [0,255].
+	 * @param src image to blur
+	 * @param sigma standard deviation of the Gaussian
+	 * @param iterations number of box blurs
+	 * @param dst destination image, may be null (then a new image is created) or src (in place)
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when sigma or iterations are not positive
+	 * or dst has different dimension than src
+	 * @see #boxRadiiForGaussian(double, int)
+	 */
+	public static Img gaussianBlur(Img src, double sigma, int iterations, Img dst, boolean parallel){
+		return blur(src, boxRadiiForGaussian(sigma, iterations), dst, parallel);
+	}
+
+	/**
+	 * Calculates the radii of successive box blurs so that their combined
+	 * variance matches the variance of a Gaussian with the specified standard deviation.
+	 * The radii differ by at most 1.
+	 * @param sigma standard deviation of the Gaussian
+	 * @param iterations number of box blurs
+	 * @return radii of the box blurs
+	 * @throws IllegalArgumentException when sigma or iterations are not positive
+	 */
+	public static int[] boxRadiiForGaussian(double sigma, int iterations){
+		if(!(sigma > 0) || iterations < 1){
+			throw new IllegalArgumentException(String.format(
+					"Sigma and iterations have to be positive, but were %f and %d", sigma, iterations));
+		}
+		final int n = iterations;
+		// ideal box width for n boxes of same size, then mix lower and upper odd width
+		double wIdeal = Math.sqrt(12*sigma*sigma/n + 1);
+		int wl = (int)Math.floor(wIdeal);
+		if(wl % 2 == 0){
+			wl--;
+		}
+		int wu = wl+2;
+		double mIdeal = (12*sigma*sigma - n*wl*wl - 4*n*wl - 3*n)/(-4.0*wl - 4);
+		int m = (int)Math.round(mIdeal);
+		int[] radii = new int[n];
+		for(int i = 0; i < n; i++){
+			radii[i] = ((i < m ? wl:wu)-1)/2;
+		}
+		return radii;
+	}
+
+	private static int requireRadius(int radius){
+		if(radius < 0){
+			throw new IllegalArgumentException(String.format("Radius has to be non negative, but was %d", radius));
+		}
+		return radius;
+	}
+
+	private static ColorImg blur(ColorImg src, int[] radii, ColorImg dst, boolean parallel){
+		dst = Convolution.requireDestination(src, dst);
+		final int w = src.getWidth(), h = src.getHeight();
+		double[][] s = src.getData();
+		double[][] d = dst.getData();
+		int numChannels = Math.min(s.length, d.length);
+		SummedAreaTable sat = null;
+		for(int c = 0; c < numChannels; c++){
+			if(s[c] != d[c]){
+				System.arraycopy(s[c], 0, d[c], 0, s[c].length);
+			}
+			sat = blurPlane(d[c], w, h, radii, sat, parallel);
+		}
+		return dst;
+	}
+
+	private static Img blur(Img src, int[] radii, Img dst, boolean parallel){
+		dst = Convolution.requireDestination(src, dst);
+		final int w = src.getWidth(), h = src.getHeight();
+		double[][] planes = Convolution.toPlanes(src, parallel);
+		SummedAreaTable sat = null;
+		for(int c = 0; c < 4; c++){
+			sat = blurPlane(planes[c], w, h, radii, sat, parallel);
+		}
+		Convolution.fromPlanes(planes, dst, parallel);
+		return dst;
+	}
+
+	/**
+	 * Applies successive box blurs of the specified radii in place.
+	 * The table is reused when non null.
+	 * @return the table used
+	 */
+	static SummedAreaTable blurPlane(final double[] data, final int w, final int h, int[] radii, SummedAreaTable sat, boolean parallel){
+		for(int r: radii){
+			if(sat == null){
+				sat = new SummedAreaTable(data, w, h, parallel);
+			} else {
+				sat.compute(data, parallel);
+			}
+			final SummedAreaTable table = sat;
+			// the table holds all information, data can be overwritten
+			final int x0 = Math.min(r, w);
+			final int x1 = Math.max(x0, w-r);
+			final int boxWidth = 2*r+1;
+			Convolution.forEachRow(h, parallel, y->{
+				final int row = y*w;
+				final int top = Math.max(0, y-r);
+				final int bottom = Math.min(h, y+r+1);
+				final double rows = bottom-top;
+				for(int x = 0; x < x0; x++){
+					data[row+x] = clippedMean(table, x, r, w, top, bottom, rows);
+				}
+				// interior: box fully within horizontal bounds
+				final double norm = 1.0/(boxWidth*rows);
+				for(int x = x0; x < x1; x++){
+					data[row+x] = table.sum(x-r, top, x+r+1, bottom)*norm;
+				}
+				for(int x = x1; x < w; x++){
+					data[row+x] = clippedMean(table, x, r, w, top, bottom, rows);
+				}
+			});
+		}
+		return sat;
+	}
+
+	private static double clippedMean(SummedAreaTable table, int x, int r, int w, int top, int bottom, double rows){
+		final int left = Math.max(0, x-r);
+		final int right = Math.min(w, x+r+1);
+		return table.sum(left, top, right, bottom)/((right-left)*rows);
+	}
+
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.filter;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
+
+/**
+ * Convolution of {@link Img} and {@link ColorImg} with a general {@link Kernel}
+ * or a {@link SeparableKernel}.
+ * <p>
+ * Image values outside the image bounds are determined by a boundary mode as in
+ * {@link Img#getValue(int, int, int)}, i.e. one of {@link Img#boundary_mode_zero},
+ * {@link Img#boundary_mode_repeat_edge}, {@link Img#boundary_mode_repeat_image},
+ * {@link Img#boundary_mode_mirror} or any other value that is then used as default
+ * value (a default ARGB color for {@link Img}, a default channel value for {@link ColorImg}).
+ * <p>
+ * Each row of the image is split into a border region where the kernel exceeds
+ * the image bounds and an interior region where it does not. Only the border
+ * region is subject to boundary handling so that the interior is processed without
+ * any bounds checks. When parallel execution is requested, rows are processed in parallel.
+ * <p>
+ * An {@link Img} is convolved per channel (including alpha) on its 8bit channel values
+ * and the results are rounded and clamped to [0,255]. Kernels producing negative values
+ * (like derivative kernels) should therefore rather be applied to a {@link ColorImg}.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class Convolution {
+
+	private static final int[] ARGB_SHIFTS = {24,16,8,0};
+
+	private Convolution(){/* not to be instantiated */}
+
+	/**
+	 * Convolves all channels of the specified image with the specified kernel.
+	 * @param src image to be convolved
+	 * @param kernel to convolve with
+	 * @param boundaryMode one of the boundary modes e.g. {@link Img#boundary_mode_mirror}
+	 * or a default ARGB color
+	 * @param dst destination image, may be null (then a new image is created) or src (in place)
+	 * @param parallel whether to process rows in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when dst is of different dimension than src
+	 */
+	public static Img convolve(Img src, Kernel kernel, int boundaryMode, Img dst, boolean parallel){
+		return convolveImg(src, kernel, null, boundaryMode, dst, parallel);
+	}
+
+	/**
+	 * Convolves all channels of the specified image with the specified separable kernel.
+	 * @param src image to be convolved
+	 * @param kernel to convolve with
+	 * @param boundaryMode one of the boundary modes e.g. {@link Img#boundary_mode_mirror}
+	 * or a default ARGB color
+	 * @param dst destination image, may be null (then a new image is created) or src (in place)
+	 * @param parallel whether to process rows in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when dst is of different dimension than src
+	 */
+	public static Img convolve(Img src, SeparableKernel kernel, int boundaryMode, Img dst, boolean parallel){
+		return convolveImg(src, null, kernel, boundaryMode, dst, parallel);
+	}
+
+	/**
+	 * Convolves the channels of the specified image with the specified kernel.
+	 * The alpha channel is only convolved when both images have an alpha channel.
+	 * @param src image to be convolved
+	 * @param kernel to convolve with
+	 * @param boundaryMode one of the boundary modes e.g. {@link ColorImg#boundary_mode_mirror}
+	 * or a default channel value
+	 * @param dst destination image, may be null (then a new image is created) or src (in place)
+	 * @param parallel whether to process rows in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when dst is of different dimension than src
+	 */
+	public static ColorImg convolve(ColorImg src, Kernel kernel, int boundaryMode, ColorImg dst, boolean parallel){
+		return convolveColorImg(src, kernel, null, boundaryMode, dst, parallel);
+	}
+
+	/**
+	 * Convolves the channels of the specified image with the specified separable kernel.
+	 * The alpha channel is only convolved when both images have an alpha channel.
+	 * @param src image to be convolved
+	 * @param kernel to convolve with
+	 * @param boundaryMode one of the boundary modes e.g. {@link ColorImg#boundary_mode_mirror}
+	 * or a default channel value
+	 * @param dst destination image, may be null (then a new image is created) or src (in place)
+	 * @param parallel whether to process rows in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when dst is of different dimension than src
+	 */
+	public static ColorImg convolve(ColorImg src, SeparableKernel kernel, int boundaryMode, ColorImg dst, boolean parallel){
+		return convolveColorImg(src, null, kernel, boundaryMode, dst, parallel);
+	}
+
+	/**
+	 * Convolves a single channel of the specified image with the specified kernel.
+	 * Other channels of the destination are left untouched.
+	 * @param src image to be convolved
+	 * @param channel one of {@link ColorImg#channel_r},{@link ColorImg#channel_g},{@link ColorImg#channel_b},{@link ColorImg#channel_a}
+	 * @param kernel to convolve with
+	 * @param boundaryMode one of the boundary modes e.g. {@link ColorImg#boundary_mode_mirror}
+	 * or a default channel value
+	 * @param dst destination image, may be null (then a new image is created) or src (in place)
+	 * @param parallel whether to process rows in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when dst is of different dimension than src
+	 */
+	public static ColorImg convolve(ColorImg src, int channel, SeparableKernel kernel, int boundaryMode, ColorImg dst, boolean parallel){
+		dst = requireDestination(src, dst);
+		double[] s = src.getData()[channel];
+		double[] d = dst.getData()[channel];
+		convolvePlane(s, d, src.getWidth(), src.getHeight(), null, kernel, boundaryMode, defaultValue(boundaryMode), parallel);
+		return dst;
+	}
+
+	/**
+	 * Convolves a single channel of the specified image with the specified kernel.
+	 * Other channels of the destination are left untouched.
+	 * @param src image to be convolved
+	 * @param channel one of {@link ColorImg#channel_r},{@link ColorImg#channel_g},{@link ColorImg#channel_b},{@link ColorImg#channel_a}
+	 * @param kernel to convolve with
+	 * @param boundaryMode one of the boundary modes e.g. {@link ColorImg#boundary_mode_mirror}
+	 * or a default channel value
+	 * @param dst destination image, may be null (then a new image is created) or src (in place)
+	 * @param parallel whether to process rows in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when dst is of different dimension than src
+	 */
+	public static ColorImg convolve(ColorImg src, int channel, Kernel kernel, int boundaryMode, ColorImg dst, boolean parallel){
+		dst = requireDestination(src, dst);
+		double[] s = src.getData()[channel];
+		double[] d = dst.getData()[channel];
+		convolvePlane(s, d, src.getWidth(), src.getHeight(), kernel, null, boundaryMode, defaultValue(boundaryMode), parallel);
+		return dst;
+	}
+
+	static Img requireDestination(Img src, Img dst){
+		if(dst == null){
+			return new Img(src.getDimension());
+		}
+		if(dst.getWidth() != src.getWidth() || dst.getHeight() != src.getHeight()){
+			throw new IllegalArgumentException(String.format(
+					"Destination has different dimension than source: dst[%dx%d] src[%dx%d]",
+					dst.getWidth(), dst.getHeight(), src.getWidth(), src.getHeight()));
+		}
+		return dst;
+	}
+
+	static ColorImg requireDestination(ColorImg src, ColorImg dst){
+		if(dst == null){
+			return new ColorImg(src.getWidth(), src.getHeight(), src.hasAlpha());
+		}
+		if(dst.getWidth() != src.getWidth() || dst.getHeight() != src.getHeight()){
+			throw new IllegalArgumentException(String.format(
+					"Destination has different dimension than source: dst[%dx%d] src[%dx%d]",
+					dst.getWidth(), dst.getHeight(), src.getWidth(), src.getHeight()));
+		}
+		return dst;
+	}
+
+	private static ColorImg convolveColorImg(ColorImg src, Kernel k2d, SeparableKernel ksep, int boundaryMode, ColorImg dst, boolean parallel){
+		dst = requireDestination(src, dst);
+		double[][] s = src.getData();
+		double[][] d = dst.getData();
+		int numChannels = Math.min(s.length, d.length);
+		double defaultValue = defaultValue(boundaryMode);
+		for(int c = 0; c < numChannels; c++){
+			convolvePlane(s[c], d[c], src.getWidth(), src.getHeight(), k2d, ksep, boundaryMode, defaultValue, parallel);
+		}
+		return dst;
+	}
+
+	private static Img convolveImg(Img src, Kernel k2d, SeparableKernel ksep, int boundaryMode, Img dst, boolean parallel){
+		dst = requireDestination(src, dst);
+		final int w = src.getWidth(), h = src.getHeight();
+		final double[][] planes = toPlanes(src, parallel);
+		for(int c = 0; c < 4; c++){
+			double defaultValue = boundaryMode == Img.boundary_mode_zero ? 0:((boundaryMode>>ARGB_SHIFTS[c])&0xff);
+			// convolving in place, planes are private copies
+			convolvePlane(planes[c], planes[c], w, h, k2d, ksep, boundaryMode, defaultValue, parallel);
+		}
+		fromPlanes(planes, dst, parallel);
+		return dst;
+	}
+
+	/**
+	 * Splits the specified image into 4 row major planes of its A,R,G,B channel values (in [0,255]).
+	 */
+	static double[][] toPlanes(Img img, boolean parallel){
+		final int w = img.getWidth();
+		final int[] data = img.getData();
+		final double[][] planes = new double[4][data.length];
+		forEachRow(img.getHeight(), parallel, y->{
+			for(int i = y*w; i < (y+1)*w; i++){
+				int argb = data[i];
+				planes[0][i] = (argb>>>24);
+				planes[1][i] = (argb>>16)&0xff;
+				planes[2][i] = (argb>>8)&0xff;
+				planes[3][i] = argb&0xff;
+			}
+		});
+		return planes;
+	}
+
+	/**
+	 * Writes the specified A,R,G,B planes to the specified image, rounding and clamping to [0,255].
+	 */
+	static void fromPlanes(double[][] planes, Img img, boolean parallel){
+		final int w = img.getWidth();
+		final int[] data = img.getData();
+		forEachRow(img.getHeight(), parallel, y->{
+			for(int i = y*w; i < (y+1)*w; i++){
+				data[i] = Pixel.argb_bounded(
+						(int)Math.round(planes[0][i]),
+						(int)Math.round(planes[1][i]),
+						(int)Math.round(planes[2][i]),
+						(int)Math.round(planes[3][i]));
+			}
+		});
+	}
+
+	private static double defaultValue(int boundaryMode){
+		return boundaryMode == Img.boundary_mode_zero ? 0:boundaryMode;
+	}
+
+	/**
+	 * Convolves a single row major data plane.
+	 * Either k2d or ksep has to be non null. src and dst may be the same array.
+	 */
+	static void convolvePlane(double[] src, double[] dst, int w, int h, Kernel k2d, SeparableKernel ksep, int boundaryMode, double defaultValue, boolean parallel){
+		if(src == dst){
+			src = Arrays.copyOf(src, src.length);
+		}
+		if(ksep != null){
+			convolveSeparable(src, dst, w, h, ksep, boundaryMode, defaultValue, parallel);
+		} else {
+			convolve2D(src, dst, w, h, k2d, boundaryMode, defaultValue, parallel);
+		}
+	}
+
+	private static void convolve2D(final double[] src, final double[] dst, final int w, final int h, final Kernel kernel, final int boundaryMode, final double defaultValue, final boolean parallel){
+		final double[] k = kernel.weights();
+		final int kw = kernel.getWidth(), kh = kernel.getHeight();
+		final int cx = kernel.getCenterX(), cy = kernel.getCenterY();
+		// interior x range [x0,x1): kernel does not exceed left and right image borders
+		final int x0 = Math.min(cx, w);
+		final int x1 = Math.max(x0, w-kw+cx+1);
+		forEachRow(h, parallel, y->{
+			final int row = y*w;
+			final boolean interiorRow = y-cy >= 0 && y-cy+kh <= h;
+			if(!interiorRow){
+				for(int x = 0; x < w; x++){
+					dst[row+x] = sample2D(src, w, h, x, y, k, kw, kh, cx, cy, boundaryMode, defaultValue);
+				}
+				return;
+			}
+			for(int x = 0; x < x0; x++){
+				dst[row+x] = sample2D(src, w, h, x, y, k, kw, kh, cx, cy, boundaryMode, defaultValue);
+			}
+			// interior without bounds checks
+			for(int x = x0; x < x1; x++){
+				double sum = 0;
+				int ki = 0;
+				for(int j = 0; j < kh; j++){
+					final int off = (y-cy+j)*w + x-cx;
+					for(int i = 0; i < kw; i++){
+						sum += k[ki++]*src[off+i];
+					}
+				}
+				dst[row+x] = sum;
+			}
+			for(int x = x1; x < w; x++){
+				dst[row+x] = sample2D(src, w, h, x, y, k, kw, kh, cx, cy, boundaryMode, defaultValue);
+			}
+		});
+	}
+
+	private static double sample2D(double[] src, int w, int h, int x, int y, double[] k, int kw, int kh, int cx, int cy, int boundaryMode, double defaultValue){
+		double sum = 0;
+		int ki = 0;
+		for(int j = 0; j < kh; j++){
+			final int yy = resolveIndex(y-cy+j, h, boundaryMode);
+			for(int i = 0; i < kw; i++){
+				final int xx = resolveIndex(x-cx+i, w, boundaryMode);
+				sum += k[ki++] * ((xx < 0 || yy < 0) ? defaultValue:src[yy*w+xx]);
+			}
+		}
+		return sum;
+	}
+
+	private static void convolveSeparable(final double[] src, final double[] dst, final int w, final int h, final SeparableKernel kernel, final int boundaryMode, final double defaultValue, final boolean parallel){
+		final double[] kx = kernel.horizontal();
+		final double[] ky = kernel.vertical();
+		final int kw = kx.length, kh = ky.length;
+		final int cx = kw/2, cy = kh/2;
+		final int x0 = Math.min(cx, w);
+		final int x1 = Math.max(x0, w-kw+cx+1);
+		final double[] tmp = new double[w*h];
+		// horizontal pass
+		forEachRow(h, parallel, y->{
+			final int row = y*w;
+			for(int x = 0; x < x0; x++){
+				tmp[row+x] = sample1D(src, row, w, x, kx, cx, boundaryMode, defaultValue);
+			}
+			for(int x = x0; x < x1; x++){
+				final int off = row + x-cx;
+				double sum = 0;
+				for(int i = 0; i < kw; i++){
+					sum += kx[i]*src[off+i];
+				}
+				tmp[row+x] = sum;
+			}
+			for(int x = x1; x < w; x++){
+				tmp[row+x] = sample1D(src, row, w, x, kx, cx, boundaryMode, defaultValue);
+			}
+		});
+		// out of bounds rows consist of default values only, thus filter to default*sum(kx)
+		double sumX = 0;
+		for(double v: kx) sumX += v;
+		final double horizontalDefault = defaultValue*sumX;
+		// vertical pass, processed row wise for sequential memory access
+		forEachRow(h, parallel, y->{
+			final int row = y*w;
+			final boolean interiorRow = y-cy >= 0 && y-cy+kh <= h;
+			Arrays.fill(dst, row, row+w, 0.0);
+			for(int j = 0; j < kh; j++){
+				final double weight = ky[j];
+				final int yy = interiorRow ? y-cy+j : resolveIndex(y-cy+j, h, boundaryMode);
+				if(yy < 0){
+					final double v = weight*horizontalDefault;
+					for(int x = 0; x < w; x++){
+						dst[row+x] += v;
+					}
+				} else {
+					final int off = yy*w;
+					for(int x = 0; x < w; x++){
+						dst[row+x] += weight*tmp[off+x];
+					}
+				}
+			}
+		});
+	}
+
+	private static double sample1D(double[] src, int row, int w, int x, double[] k, int c, int boundaryMode, double defaultValue){
+		double sum = 0;
+		for(int i = 0; i < k.length; i++){
+			final int xx = resolveIndex(x-c+i, w, boundaryMode);
+			sum += k[i] * (xx < 0 ? defaultValue:src[row+xx]);
+		}
+		return sum;
+	}
+
+	/**
+	 * Maps a possibly out of bounds index into [0,n) according to the boundary mode
+	 * in the same way as {@link Img#getValue(int, int, int)} does.
+	 * @return the mapped index or -1 when the default value has to be used
+	 */
+	static int resolveIndex(int i, int n, int boundaryMode){
+		if(i >= 0 && i < n){
+			return i;
+		}
+		switch (boundaryMode) {
+		case Img.boundary_mode_repeat_edge:
+			return i < 0 ? 0:n-1;
+		case Img.boundary_mode_repeat_image:
+			return (n + (i % n)) % n;
+		case Img.boundary_mode_mirror:
+			if(i < 0){
+				i = -i - 1;
+			}
+			return (i/n) % 2 == 0 ? (i%n) : (n-1)-(i%n);
+		default:
+			// zero or default value
+			return -1;
+		}
+	}
+
+	static void forEachRow(int h, boolean parallel, IntConsumer rowAction){
+		ParallelRangeExecutor.execute(0, h, 1, parallel, (from, to)->{
+			for(int y = from; y < to; y++){
+				rowAction.accept(y);
+			}
+		});
+	}
+
+}
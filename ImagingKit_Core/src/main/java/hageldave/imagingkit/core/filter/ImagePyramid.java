@@ -0,0 +1,312 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.filter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+/**
+ * Gaussian (and Laplacian) image pyramid with lazily computed and cached levels.
+ * <p>
+ * Level 0 is the source image, level n+1 is obtained by blurring level n with the
+ * 5 tap binomial kernel (1,4,6,4,1)/16 and dropping every other row and column,
+ * so that the pixel (x,y) of level n corresponds to the location (x*2^n, y*2^n) of the source.
+ * The last level is 1x1 pixels large.
+ * Levels are computed on first request (using parallel processing if enabled) and kept until
+ * {@link #invalidate()} is called, which has to be done whenever the source image was modified.
+ * <p>
+ * Laplacian levels are only computed when requested through {@link #laplacianLevel(int)}.
+ * The Laplacian level n is the difference of the Gaussian level n and the bilinearly
+ * upsampled Gaussian level n+1 (the last Laplacian level equals the last Gaussian level).
+ * <p>
+ * A pyramid can be created from an {@link Img} in which case the levels are {@link ColorImg}s with
+ * alpha channel and normalized channel values (see {@link ColorImg#ColorImg(Img, boolean)}),
+ * {@link #levelImg(int)} provides the levels as Img.
+ * The methods of this class are thread safe.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public class ImagePyramid {
+
+	private static final SeparableKernel BINOMIAL = new SeparableKernel(
+			new double[]{1/16.0, 4/16.0, 6/16.0, 4/16.0, 1/16.0},
+			new double[]{1/16.0, 4/16.0, 6/16.0, 4/16.0, 1/16.0});
+
+	private final ColorImg source;
+	private final Img sourceImg;
+	private final boolean parallel;
+	private final int numLevels;
+
+	private final ColorImg[] gaussian;
+	private final ColorImg[] laplacian;
+	private final Img[] imgLevels;
+
+	/**
+	 * Creates a pyramid for the specified image.
+	 * @param source image of level 0 (is referenced, not copied)
+	 * @param parallel whether to use parallel processing for computing levels
+	 */
+	public ImagePyramid(ColorImg source, boolean parallel) {
+		this(source, null, parallel);
+	}
+
+	/**
+	 * Creates a pyramid for the specified image.
+	 * The image is converted to a {@link ColorImg} with alpha channel, which is done again on {@link #invalidate()}.
+	 * @param source image of level 0 (is referenced, not copied)
+	 * @param parallel whether to use parallel processing for computing levels
+	 */
+	public ImagePyramid(Img source, boolean parallel) {
+		this(new ColorImg(source, true), source, parallel);
+	}
+
+	private ImagePyramid(ColorImg source, Img sourceImg, boolean parallel) {
+		this.source = source;
+		this.sourceImg = sourceImg;
+		this.parallel = parallel;
+		this.numLevels = numLevels(source.getWidth(), source.getHeight());
+		this.gaussian = new ColorImg[numLevels];
+		this.laplacian = new ColorImg[numLevels];
+		this.imgLevels = new Img[numLevels];
+		this.gaussian[0] = source;
+		this.imgLevels[0] = sourceImg;
+	}
+
+	/**
+	 * Returns the number of levels of a pyramid for an image of specified size.
+	 * @param width of level 0
+	 * @param height of level 0
+	 * @return number of levels (including level 0 and the 1x1 level)
+	 */
+	public static int numLevels(int width, int height){
+		int n = 1;
+		while(width > 1 || height > 1){
+			width = (width+1)/2;
+			height = (height+1)/2;
+			n++;
+		}
+		return n;
+	}
+
+	/** @return the number of levels of this pyramid */
+	public int getNumLevels() {
+		return numLevels;
+	}
+
+	/** @return whether levels are computed using parallel processing */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Discards all cached levels. Has to be called when the source image was modified.
+	 * Levels previously returned by this pyramid are not altered.
+	 */
+	public synchronized void invalidate(){
+		for(int i = 1; i < numLevels; i++){
+			gaussian[i] = null;
+			imgLevels[i] = null;
+		}
+		for(int i = 0; i < numLevels; i++){
+			laplacian[i] = null;
+		}
+		if(sourceImg != null){
+			// refresh the converted source
+			ColorImg converted = new ColorImg(sourceImg, true);
+			for(int c = 0; c < 4; c++){
+				System.arraycopy(converted.getData()[c], 0, source.getData()[c], 0, source.numValues());
+			}
+		}
+	}
+
+	/**
+	 * Returns the Gaussian level n, computing it (and the levels below) if not yet cached.
+	 * The returned image must not be modified.
+	 * @param n level index in [0, numLevels)
+	 * @return the level image of size ceil(width/2^n) x ceil(height/2^n)
+	 * @throws IllegalArgumentException when n is out of range
+	 */
+	public synchronized ColorImg level(int n){
+		requireLevel(n);
+		int cached = n;
+		while(gaussian[cached] == null){
+			cached--;
+		}
+		for(int i = cached+1; i <= n; i++){
+			gaussian[i] = reduce(gaussian[i-1]);
+		}
+		return gaussian[n];
+	}
+
+	/**
+	 * Returns the Gaussian level n as {@link Img} (see {@link ColorImg#toImg()}).
+	 * For a pyramid created from an Img, level 0 is the source image.
+	 * The returned image must not be modified.
+	 * @param n level index in [0, numLevels)
+	 * @return the level image
+	 * @throws IllegalArgumentException when n is out of range
+	 */
+	public synchronized Img levelImg(int n){
+		requireLevel(n);
+		if(imgLevels[n] == null){
+			imgLevels[n] = level(n).toImg();
+		}
+		return imgLevels[n];
+	}
+
+	/**
+	 * Returns the Laplacian level n, computing it if not yet cached.
+	 * The returned image must not be modified.
+	 * @param n level index in [0, numLevels)
+	 * @return the Laplacian level, same size as the Gaussian level n
+	 * @throws IllegalArgumentException when n is out of range
+	 */
+	public synchronized ColorImg laplacianLevel(int n){
+		requireLevel(n);
+		if(laplacian[n] == null){
+			ColorImg g = level(n);
+			if(n == numLevels-1){
+				laplacian[n] = g;
+			} else {
+				ColorImg expanded = expand(level(n+1), g.getWidth(), g.getHeight(), parallel);
+				double[][] e = expanded.getData();
+				double[][] d = g.getData();
+				for(int c = 0; c < e.length; c++){
+					final double[] ec = e[c], dc = d[c];
+					final int w = g.getWidth();
+					Convolution.forEachRow(g.getHeight(), parallel, y->{
+						for(int i = y*w; i < (y+1)*w; i++){
+							ec[i] = dc[i]-ec[i];
+						}
+					});
+				}
+				laplacian[n] = expanded;
+			}
+		}
+		return laplacian[n];
+	}
+
+	/**
+	 * Upsamples the specified level image to the specified size using bilinear interpolation,
+	 * so that pixel x of the result corresponds to location x/2 of the level image.
+	 * @param level image to upsample (level n+1)
+	 * @param width of the result (width of level n)
+	 * @param height of the result (height of level n)
+	 * @param parallel whether to use parallel processing
+	 * @return the upsampled image
+	 */
+	public static ColorImg expand(ColorImg level, int width, int height, boolean parallel){
+		return Warp.affine(level, new double[]{2,0,0, 0,2,0}, ColorImg.boundary_mode_repeat_edge,
+				new ColorImg(width, height, level.hasAlpha()), parallel);
+	}
+
+	/**
+	 * Samples the specified channel of the pyramid with trilinear filtering.
+	 * The scale determines the level: a scale of 1 corresponds to level 0, a scale of 0.5
+	 * to level 1 and so on, scales in between are linearly interpolated between the two
+	 * bilinearly sampled adjacent levels. Scales greater than 1 sample level 0,
+	 * scales smaller than the smallest level sample the last level.
+	 * @param channel to sample
+	 * @param x coordinate in pixels of level 0
+	 * @param y coordinate in pixels of level 0
+	 * @param scale of the view relative to the source (in (0,1] for downscaled views)
+	 * @return the sampled value
+	 * @throws IllegalArgumentException when scale is not positive
+	 */
+	public double sampleAtScale(int channel, double x, double y, double scale){
+		if(!(scale > 0)){
+			throw new IllegalArgumentException("Scale has to be positive, but is " + scale);
+		}
+		double l = Math.min(Math.max(-Math.log(scale)/Math.log(2), 0), numLevels-1);
+		int l0 = (int)l;
+		double t = l-l0;
+		double v0 = sampleBilinear(level(l0), channel, x/(1<<l0), y/(1<<l0));
+		if(t == 0){
+			return v0;
+		}
+		int l1 = l0+1;
+		double v1 = sampleBilinear(level(l1), channel, x/(1<<l1), y/(1<<l1));
+		return v0 + t*(v1-v0);
+	}
+
+	/**
+	 * Samples all channels of the pyramid with trilinear filtering
+	 * (see {@link #sampleAtScale(int, double, double, double)}) and returns
+	 * the result as ARGB value (see {@link ColorImg#toImg()}, opaque if the pyramid has no alpha).
+	 * @param x coordinate in pixels of level 0
+	 * @param y coordinate in pixels of level 0
+	 * @param scale of the view relative to the source
+	 * @return the sampled ARGB value
+	 * @throws IllegalArgumentException when scale is not positive
+	 */
+	public int sampleARGBAtScale(double x, double y, double scale){
+		double r = sampleAtScale(ColorImg.channel_r, x, y, scale);
+		double g = sampleAtScale(ColorImg.channel_g, x, y, scale);
+		double b = sampleAtScale(ColorImg.channel_b, x, y, scale);
+		double a = source.hasAlpha() ? sampleAtScale(ColorImg.channel_a, x, y, scale):1.0;
+		return Pixel.argb_fromNormalized(
+				clamp01(a), clamp01(r), clamp01(g), clamp01(b));
+	}
+
+	private static double clamp01(double v){
+		return v < 0 ? 0 : (v > 1 ? 1:v);
+	}
+
+	private static double sampleBilinear(ColorImg img, int channel, double x, double y){
+		final int mode = ColorImg.boundary_mode_repeat_edge;
+		int x0 = (int)Math.floor(x), y0 = (int)Math.floor(y);
+		double fx = x-x0, fy = y-y0;
+		double top = (1-fx)*img.getValue(channel, x0, y0, mode) + fx*img.getValue(channel, x0+1, y0, mode);
+		double bot = (1-fx)*img.getValue(channel, x0, y0+1, mode) + fx*img.getValue(channel, x0+1, y0+1, mode);
+		return (1-fy)*top + fy*bot;
+	}
+
+	private ColorImg reduce(ColorImg img){
+		final int w = img.getWidth();
+		final int rw = (w+1)/2, rh = (img.getHeight()+1)/2;
+		ColorImg blurred = Convolution.convolve(img, BINOMIAL, ColorImg.boundary_mode_mirror, null, parallel);
+		ColorImg reduced = new ColorImg(rw, rh, img.hasAlpha());
+		double[][] b = blurred.getData();
+		double[][] r = reduced.getData();
+		for(int c = 0; c < b.length; c++){
+			final double[] bc = b[c], rc = r[c];
+			Convolution.forEachRow(rh, parallel, y->{
+				final int srow = 2*y*w;
+				for(int x = 0; x < rw; x++){
+					rc[y*rw+x] = bc[srow+2*x];
+				}
+			});
+		}
+		return reduced;
+	}
+
+	private void requireLevel(int n){
+		if(n < 0 || n >= numLevels){
+			throw new IllegalArgumentException(String.format(
+					"Level index has to be within [0,%d), but is %d", numLevels, n));
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.filter;
+
+import java.util.Arrays;
+
+/**
+ * A 2D filter kernel of arbitrary size with weights in row major order.
+ * The kernel's center (anchor) is at {@code (width/2, height/2)}, so kernels of
+ * odd size are centered.
+ * <p>
+ * The kernel is applied by {@link Convolution} such that the weight at kernel
+ * position (i,j) is multiplied with the image value at position
+ * {@code (x+i-centerX, y+j-centerY)} (the kernel is not mirrored).
+ * <p>
+ * For kernels that are separable into a horizontal and vertical 1D kernel,
+ * {@link SeparableKernel} should be used as it is considerably faster.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public class Kernel {
+
+	private final int width, height;
+	private final double[] weights;
+
+	/**
+	 * Creates a new kernel of specified size with the specified weights.
+	 * @param width of the kernel
+	 * @param height of the kernel
+	 * @param weights of the kernel in row major order
+	 * @throws IllegalArgumentException when width or height are not positive
+	 * or the number of weights does not match width*height.
+	 */
+	public Kernel(int width, int height, double... weights) {
+		if(width < 1 || height < 1 || weights.length != width*height){
+			throw new IllegalArgumentException(String.format(
+					"Invalid kernel: size [%dx%d] with %d weights", width, height, weights.length));
+		}
+		this.width = width;
+		this.height = height;
+		this.weights = Arrays.copyOf(weights, weights.length);
+	}
+
+	/** @return width of the kernel */
+	public int getWidth() {
+		return width;
+	}
+
+	/** @return height of the kernel */
+	public int getHeight() {
+		return height;
+	}
+
+	/** @return horizontal position of the kernel's anchor (width/2) */
+	public int getCenterX() {
+		return width/2;
+	}
+
+	/** @return vertical position of the kernel's anchor (height/2) */
+	public int getCenterY() {
+		return height/2;
+	}
+
+	/**
+	 * @param x position in kernel
+	 * @param y position in kernel
+	 * @return weight at specified position
+	 */
+	public double getWeight(int x, int y){
+		return weights[y*width+x];
+	}
+
+	/** @return copy of this kernel's weights in row major order */
+	public double[] getWeights() {
+		return Arrays.copyOf(weights, weights.length);
+	}
+
+	/* weights without copy for internal use */
+	double[] weights(){
+		return weights;
+	}
+
+	/** @return the sum of this kernel's weights */
+	public double getSum(){
+		double sum = 0;
+		for(double w: weights)
+			sum += w;
+		return sum;
+	}
+
+	/**
+	 * @return a new kernel with weights scaled so that they sum up to 1.
+	 * @throws IllegalArgumentException when the weights sum up to 0.
+	 */
+	public Kernel normalized(){
+		double sum = getSum();
+		if(sum == 0){
+			throw new IllegalArgumentException("Cannot normalize kernel with weights summing up to 0.");
+		}
+		double[] w = getWeights();
+		for(int i = 0; i < w.length; i++)
+			w[i] /= sum;
+		return new Kernel(width, height, w);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Kernel[%dx%d]%s", width, height, Arrays.toString(weights));
+	}
+
+	/**
+	 * Creates a box filter (mean filter) of size (2*radius+1)x(2*radius+1).
+	 * @param radius of the box
+	 * @return box kernel with weights summing up to 1
+	 * @see SeparableKernel#box(int)
+	 */
+	public static Kernel box(int radius){
+		return SeparableKernel.box(radius).toKernel();
+	}
+
+	/**
+	 * Creates a normalized Gaussian kernel with specified standard deviation.
+	 * @param sigma standard deviation
+	 * @return Gaussian kernel
+	 * @see SeparableKernel#gaussian(double)
+	 */
+	public static Kernel gaussian(double sigma){
+		return SeparableKernel.gaussian(sigma).toKernel();
+	}
+
+	/**
+	 * @return 3x3 Sobel kernel for horizontal derivative
+	 * @see SeparableKernel#sobelX()
+	 */
+	public static Kernel sobelX(){
+		return SeparableKernel.sobelX().toKernel();
+	}
+
+	/**
+	 * @return 3x3 Sobel kernel for vertical derivative
+	 * @see SeparableKernel#sobelY()
+	 */
+	public static Kernel sobelY(){
+		return SeparableKernel.sobelY().toKernel();
+	}
+
+	/** @return 3x3 Laplacian kernel (4-neighborhood) */
+	public static Kernel laplacian(){
+		return new Kernel(3, 3,
+				0, 1, 0,
+				1,-4, 1,
+				0, 1, 0);
+	}
+
+}
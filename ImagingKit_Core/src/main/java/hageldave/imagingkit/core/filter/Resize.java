@@ -0,0 +1,353 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.filter;
+
+import java.util.Arrays;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+/**
+ * Separable resampling of images to arbitrary dimensions.
+ * <p>
+ * For each output column and each output row the contributing source pixels and
+ * their weights are computed once ({@link WeightTable}), then the image is resampled
+ * horizontally into an intermediate buffer of size (dstWidth x srcHeight) and
+ * vertically into the destination. Both passes run row by row, optionally in parallel.
+ * <p>
+ * Pixel centers are aligned, i.e. the destination pixel x corresponds to the source
+ * coordinate (x+0.5)*srcWidth/dstWidth-0.5. When downscaling, the filter is stretched
+ * by the scale factor so that it acts as a low pass (antialiasing). Pixels outside the
+ * source image are treated according to {@link Img#boundary_mode_repeat_edge}.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class Resize {
+
+	private Resize(){/* not to be instantiated */}
+
+	/**
+	 * Resampling filters for {@link Resize}.
+	 */
+	public static enum Filter {
+		/** triangle filter (linear interpolation), support of 1 */
+		BILINEAR(1.0),
+		/** Keys cubic convolution filter with a=-0.5 (Catmull-Rom), support of 2 */
+		BICUBIC(2.0),
+		/** Lanczos windowed sinc filter with 3 lobes, support of 3 */
+		LANCZOS3(3.0),
+		/**
+		 * area averaging, each destination pixel is the mean of the source area it covers
+		 * (weighted by the covered fraction of each source pixel). Intended for downscaling.
+		 */
+		AREA(0.5);
+
+		/** half width of the filter in (unscaled) pixels */
+		public final double support;
+
+		private Filter(double support) {
+			this.support = support;
+		}
+
+		/**
+		 * Evaluates the filter function at the specified distance to the filter center
+		 * @param x distance in pixels
+		 * @return filter value
+		 */
+		public double weight(double x){
+			x = Math.abs(x);
+			switch (this) {
+			case BILINEAR:
+				return x < 1 ? 1-x : 0;
+			case BICUBIC:
+				if(x < 1) return (1.5*x-2.5)*x*x+1;
+				if(x < 2) return ((-0.5*x+2.5)*x-4)*x+2;
+				return 0;
+			case LANCZOS3:
+				if(x < 1e-8) return 1;
+				if(x >= 3) return 0;
+				double px = Math.PI*x;
+				return 3*Math.sin(px)*Math.sin(px/3)/(px*px);
+			case AREA:
+			default:
+				return x <= 0.5 ? 1:0;
+			}
+		}
+	}
+
+	/**
+	 * Resizes the specified image.
+	 * @param src image to resize
+	 * @param width of the resulting image
+	 * @param height of the resulting image
+	 * @param filter resampling filter
+	 * @param parallel whether to use parallel processing
+	 * @return the resized image
+	 * @throws IllegalArgumentException when width or height is not positive
+	 */
+	public static Img resize(Img src, int width, int height, Filter filter, boolean parallel){
+		requireDimensions(width, height);
+		return resize(src, new Img(width, height), filter, parallel);
+	}
+
+	/**
+	 * Resizes the specified image to the dimensions of the destination image.
+	 * Channel values are rounded and clamped to [0,255] (filters with negative lobes
+	 * like {@link Filter#BICUBIC} can overshoot).
+	 * @param src image to resize
+	 * @param dst destination image (must not be src)
+	 * @param filter resampling filter
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when dst is src
+	 */
+	public static Img resize(Img src, Img dst, Filter filter, boolean parallel){
+		requireDistinct(src, dst);
+		final int sw = src.getWidth(), sh = src.getHeight();
+		final int dw = dst.getWidth(), dh = dst.getHeight();
+		final WeightTable tx = new WeightTable(sw, dw, filter);
+		final WeightTable ty = new WeightTable(sh, dh, filter);
+		final int[] srcData = src.getData();
+		final int[] dstData = dst.getData();
+		// horizontal pass, one plane per channel
+		final double[] ta = new double[dw*sh], tr = new double[dw*sh], tg = new double[dw*sh], tb = new double[dw*sh];
+		final int xtaps = tx.taps;
+		final int[] xidx = tx.indices;
+		final double[] xwgt = tx.weights;
+		Convolution.forEachRow(sh, parallel, y->{
+			final int srow = y*sw;
+			final int trow = y*dw;
+			for(int x = 0; x < dw; x++){
+				final int base = x*xtaps;
+				double a=0,r=0,g=0,b=0;
+				for(int t = 0; t < xtaps; t++){
+					final int v = srcData[srow+xidx[base+t]];
+					final double wt = xwgt[base+t];
+					a += wt*(v>>>24);
+					r += wt*((v>>16)&0xff);
+					g += wt*((v>> 8)&0xff);
+					b += wt*( v     &0xff);
+				}
+				ta[trow+x]=a; tr[trow+x]=r; tg[trow+x]=g; tb[trow+x]=b;
+			}
+		});
+		// vertical pass
+		final int ytaps = ty.taps;
+		final int[] yidx = ty.indices;
+		final double[] ywgt = ty.weights;
+		Convolution.forEachRow(dh, parallel, y->{
+			final double[] a = new double[dw], r = new double[dw], g = new double[dw], b = new double[dw];
+			final int base = y*ytaps;
+			for(int t = 0; t < ytaps; t++){
+				final double wt = ywgt[base+t];
+				if(wt == 0) continue;
+				final int trow = yidx[base+t]*dw;
+				for(int x = 0; x < dw; x++){
+					a[x] += wt*ta[trow+x];
+					r[x] += wt*tr[trow+x];
+					g[x] += wt*tg[trow+x];
+					b[x] += wt*tb[trow+x];
+				}
+			}
+			final int drow = y*dw;
+			for(int x = 0; x < dw; x++){
+				dstData[drow+x] = Pixel.argb_bounded(
+						(int)Math.round(a[x]),
+						(int)Math.round(r[x]),
+						(int)Math.round(g[x]),
+						(int)Math.round(b[x]));
+			}
+		});
+		return dst;
+	}
+
+	/**
+	 * Resizes the specified image.
+	 * @param src image to resize
+	 * @param width of the resulting image
+	 * @param height of the resulting image
+	 * @param filter resampling filter
+	 * @param parallel whether to use parallel processing
+	 * @return the resized image (has alpha if src has alpha)
+	 * @throws IllegalArgumentException when width or height is not positive
+	 */
+	public static ColorImg resize(ColorImg src, int width, int height, Filter filter, boolean parallel){
+		requireDimensions(width, height);
+		return resize(src, new ColorImg(width, height, src.hasAlpha()), filter, parallel);
+	}
+
+	/**
+	 * Resizes the specified image to the dimensions of the destination image.
+	 * The alpha channel is only resampled when both images have an alpha channel.
+	 * Values are not clamped.
+	 * @param src image to resize
+	 * @param dst destination image (must not be src)
+	 * @param filter resampling filter
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when dst is src
+	 */
+	public static ColorImg resize(ColorImg src, ColorImg dst, Filter filter, boolean parallel){
+		requireDistinct(src, dst);
+		final WeightTable tx = new WeightTable(src.getWidth(), dst.getWidth(), filter);
+		final WeightTable ty = new WeightTable(src.getHeight(), dst.getHeight(), filter);
+		final double[] tmp = new double[dst.getWidth()*src.getHeight()];
+		int channels = src.hasAlpha() && dst.hasAlpha() ? 4:3;
+		for(int c = 0; c < channels; c++){
+			resizePlane(src.getData()[c], dst.getData()[c], src.getWidth(), src.getHeight(), dst.getWidth(), dst.getHeight(), tx, ty, tmp, parallel);
+		}
+		return dst;
+	}
+
+	/**
+	 * Resamples a single plane of row major data.
+	 * @param src source plane of size sw*sh
+	 * @param dst destination plane of size dw*dh
+	 * @param tx horizontal weight table (sw to dw)
+	 * @param ty vertical weight table (sh to dh)
+	 * @param tmp intermediate buffer of size dw*sh
+	 */
+	static void resizePlane(final double[] src, final double[] dst, final int sw, final int sh, final int dw, final int dh,
+			final WeightTable tx, final WeightTable ty, final double[] tmp, boolean parallel)
+	{
+		final int xtaps = tx.taps;
+		final int[] xidx = tx.indices;
+		final double[] xwgt = tx.weights;
+		Convolution.forEachRow(sh, parallel, y->{
+			final int srow = y*sw;
+			final int trow = y*dw;
+			for(int x = 0; x < dw; x++){
+				final int base = x*xtaps;
+				double sum = 0;
+				for(int t = 0; t < xtaps; t++){
+					sum += xwgt[base+t]*src[srow+xidx[base+t]];
+				}
+				tmp[trow+x] = sum;
+			}
+		});
+		final int ytaps = ty.taps;
+		final int[] yidx = ty.indices;
+		final double[] ywgt = ty.weights;
+		Convolution.forEachRow(dh, parallel, y->{
+			final int drow = y*dw;
+			final int base = y*ytaps;
+			Arrays.fill(dst, drow, drow+dw, 0.0);
+			for(int t = 0; t < ytaps; t++){
+				final double wt = ywgt[base+t];
+				if(wt == 0) continue;
+				final int trow = yidx[base+t]*dw;
+				for(int x = 0; x < dw; x++){
+					dst[drow+x] += wt*tmp[trow+x];
+				}
+			}
+		});
+	}
+
+	private static void requireDimensions(int width, int height){
+		if(width < 1 || height < 1){
+			throw new IllegalArgumentException(String.format(
+					"Dimensions of resized image have to be positive, but are [%dx%d]", width, height));
+		}
+	}
+
+	private static void requireDistinct(Object src, Object dst){
+		if(src == dst){
+			throw new IllegalArgumentException("Cannot resize in place, destination has to be a different image than source.");
+		}
+	}
+
+	/**
+	 * Precomputed contributions of source pixels to each destination pixel along one axis.
+	 * Every destination coordinate has the same number of taps, unused taps have zero weight.
+	 * Source indices are clamped to the valid range and weights are normalized to sum up to 1.
+	 */
+	static final class WeightTable {
+		/** number of taps per destination coordinate */
+		final int taps;
+		/** source index of each tap, length is dstSize*taps */
+		final int[] indices;
+		/** weight of each tap, length is dstSize*taps */
+		final double[] weights;
+
+		WeightTable(int srcSize, int dstSize, Filter filter) {
+			final double scale = srcSize/(double)dstSize;
+			if(filter == Filter.AREA){
+				this.taps = (int)Math.ceil(scale)+1;
+			} else {
+				this.taps = (int)Math.ceil(2*filter.support*Math.max(1, scale))+1;
+			}
+			this.indices = new int[dstSize*taps];
+			this.weights = new double[dstSize*taps];
+			for(int i = 0; i < dstSize; i++){
+				final int base = i*taps;
+				int n = 0;
+				double sum = 0;
+				if(filter == Filter.AREA){
+					// covered interval in source coordinates
+					final double lo = i*scale, hi = (i+1)*scale;
+					final int j1 = Math.min((int)Math.ceil(hi), srcSize);
+					for(int j = (int)Math.floor(lo); j < j1 && n < taps; j++){
+						final double coverage = Math.min(hi, j+1)-Math.max(lo, j);
+						if(coverage <= 0) continue;
+						indices[base+n] = j;
+						weights[base+n] = coverage;
+						sum += coverage;
+						n++;
+					}
+				} else {
+					final double fscale = Math.max(1, scale);
+					final double support = filter.support*fscale;
+					final double center = (i+0.5)*scale-0.5;
+					final int j0 = (int)Math.ceil(center-support);
+					final int j1 = (int)Math.floor(center+support);
+					for(int j = j0; j <= j1 && n < taps; j++){
+						final double wt = filter.weight((j-center)/fscale);
+						if(wt == 0) continue;
+						final int clamped = Math.min(Math.max(j, 0), srcSize-1);
+						// merge taps that were clamped to the same index
+						if(n > 0 && indices[base+n-1] == clamped){
+							weights[base+n-1] += wt;
+						} else {
+							indices[base+n] = clamped;
+							weights[base+n] = wt;
+							n++;
+						}
+						sum += wt;
+					}
+				}
+				if(n == 0){
+					// degenerate case, use nearest source pixel
+					indices[base] = Math.min(Math.max((int)Math.floor((i+0.5)*scale), 0), srcSize-1);
+					weights[base] = 1;
+				} else if(sum != 0){
+					for(int t = 0; t < n; t++){
+						weights[base+t] /= sum;
+					}
+				}
+			}
+		}
+	}
+
+}
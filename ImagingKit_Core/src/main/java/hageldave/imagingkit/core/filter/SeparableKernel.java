@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.filter;
+
+import java.util.Arrays;
+
+/**
+ * A 2D filter kernel that is the outer product of a horizontal and a vertical 1D kernel.
+ * Applying a separable kernel of size NxM costs N+M instead of N*M operations per pixel,
+ * as the image is first filtered horizontally and then vertically.
+ * The anchor of each 1D kernel is at {@code length/2}.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public class SeparableKernel {
+
+	private final double[] horizontal;
+	private final double[] vertical;
+
+	/**
+	 * Creates a new separable kernel.
+	 * @param horizontal 1D kernel applied along rows
+	 * @param vertical 1D kernel applied along columns
+	 * @throws IllegalArgumentException when one of the kernels is empty
+	 */
+	public SeparableKernel(double[] horizontal, double[] vertical) {
+		if(horizontal.length < 1 || vertical.length < 1){
+			throw new IllegalArgumentException(String.format(
+					"Invalid kernel: horizontal size %d, vertical size %d", horizontal.length, vertical.length));
+		}
+		this.horizontal = Arrays.copyOf(horizontal, horizontal.length);
+		this.vertical = Arrays.copyOf(vertical, vertical.length);
+	}
+
+	/** @return copy of the horizontal 1D kernel */
+	public double[] getHorizontal() {
+		return Arrays.copyOf(horizontal, horizontal.length);
+	}
+
+	/** @return copy of the vertical 1D kernel */
+	public double[] getVertical() {
+		return Arrays.copyOf(vertical, vertical.length);
+	}
+
+	/* kernels without copy for internal use */
+	double[] horizontal(){
+		return horizontal;
+	}
+
+	double[] vertical(){
+		return vertical;
+	}
+
+	/** @return width of the kernel (length of the horizontal kernel) */
+	public int getWidth(){
+		return horizontal.length;
+	}
+
+	/** @return height of the kernel (length of the vertical kernel) */
+	public int getHeight(){
+		return vertical.length;
+	}
+
+	/** @return the equivalent 2D {@link Kernel} */
+	public Kernel toKernel(){
+		double[] weights = new double[horizontal.length*vertical.length];
+		for(int j = 0; j < vertical.length; j++){
+			for(int i = 0; i < horizontal.length; i++){
+				weights[j*horizontal.length+i] = vertical[j]*horizontal[i];
+			}
+		}
+		return new Kernel(horizontal.length, vertical.length, weights);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SeparableKernel[h=%s v=%s]", Arrays.toString(horizontal), Arrays.toString(vertical));
+	}
+
+	/**
+	 * Creates a box filter (mean filter) of size (2*radius+1)x(2*radius+1).
+	 * @param radius of the box
+	 * @return box kernel with weights summing up to 1
+	 * @throws IllegalArgumentException when radius is negative
+	 */
+	public static SeparableKernel box(int radius){
+		if(radius < 0){
+			throw new IllegalArgumentException(String.format("Radius has to be non negative, but was %d", radius));
+		}
+		double[] k = new double[2*radius+1];
+		Arrays.fill(k, 1.0/k.length);
+		return new SeparableKernel(k, k);
+	}
+
+	/**
+	 * Creates a normalized Gaussian kernel with specified standard deviation and
+	 * a radius of ceil(3*sigma).
+	 * @param sigma standard deviation
+	 * @return Gaussian kernel
+	 * @throws IllegalArgumentException when sigma is not positive
+	 */
+	public static SeparableKernel gaussian(double sigma){
+		return gaussian(sigma, (int)Math.ceil(3*sigma));
+	}
+
+	/**
+	 * Creates a normalized Gaussian kernel with specified standard deviation
+	 * and size (2*radius+1)x(2*radius+1).
+	 * @param sigma standard deviation
+	 * @param radius of the kernel
+	 * @return Gaussian kernel
+	 * @throws IllegalArgumentException when sigma is not positive or radius is negative
+	 */
+	public static SeparableKernel gaussian(double sigma, int radius){
+		if(!(sigma > 0) || radius < 0){
+			throw new IllegalArgumentException(String.format(
+					"Sigma has to be positive and radius non negative, but were %f and %d", sigma, radius));
+		}
+		double[] k = new double[2*radius+1];
+		double sum = 0;
+		for(int i = 0; i < k.length; i++){
+			double d = i-radius;
+			sum += k[i] = Math.exp(-(d*d)/(2*sigma*sigma));
+		}
+		for(int i = 0; i < k.length; i++){
+			k[i] /= sum;
+		}
+		return new SeparableKernel(k, k);
+	}
+
+	/**
+	 * Sobel kernel for the horizontal derivative
+	 * <pre>
+	 * -1 0 1
+	 * -2 0 2
+	 * -1 0 1
+	 * </pre>
+	 * @return the kernel
+	 */
+	public static SeparableKernel sobelX(){
+		return new SeparableKernel(new double[]{-1,0,1}, new double[]{1,2,1});
+	}
+
+	/**
+	 * Sobel kernel for the vertical derivative
+	 * <pre>
+	 * -1 -2 -1
+	 *  0  0  0
+	 *  1  2  1
+	 * </pre>
+	 * @return the kernel
+	 */
+	public static SeparableKernel sobelY(){
+		return new SeparableKernel(new double[]{1,2,1}, new double[]{-1,0,1});
+	}
+
+}
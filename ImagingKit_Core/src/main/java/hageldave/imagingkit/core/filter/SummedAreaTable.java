@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.filter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
+
+/**
+ * A summed-area table (integral image) of a row major data plane.
+ * Each entry of the table holds the sum of all values above and left of
+ * (and including) the respective position, which allows to compute the
+ * sum over any axis aligned rectangle in constant time.
+ * <p>
+ * The table is computed with prefix sums along rows (processed in parallel)
+ * followed by prefix sums along columns (processed in parallel over blocks of columns).
+ * It is stored with an additional leading row and column of zeros, so that
+ * rectangle sums do not require special treatment of the image's top and left border.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public class SummedAreaTable {
+
+	private static final int COLUMN_BLOCK_SIZE = 64;
+
+	private final int width, height;
+	/* (width+1)*(height+1) entries, first row and column are zero */
+	private final double[] table;
+
+	/**
+	 * Creates the summed-area table of the specified data plane.
+	 * @param data row major values
+	 * @param width of the plane
+	 * @param height of the plane
+	 * @param parallel whether to compute the table in parallel
+	 * @throws IllegalArgumentException when data is not of length width*height
+	 */
+	public SummedAreaTable(double[] data, int width, int height, boolean parallel) {
+		if(width < 0 || height < 0 || data.length != width*height){
+			throw new IllegalArgumentException(String.format(
+					"Data of length %d does not match dimension [%dx%d]", data.length, width, height));
+		}
+		this.width = width;
+		this.height = height;
+		this.table = new double[(width+1)*(height+1)];
+		compute(data, parallel);
+	}
+
+	/**
+	 * Creates the summed-area table of the specified channel of a {@link ColorImg}.
+	 * @param img the image
+	 * @param channel one of {@link ColorImg#channel_r},{@link ColorImg#channel_g},{@link ColorImg#channel_b},{@link ColorImg#channel_a}
+	 * @param parallel whether to compute the table in parallel
+	 * @return summed-area table of the channel
+	 */
+	public static SummedAreaTable fromChannel(ColorImg img, int channel, boolean parallel){
+		return new SummedAreaTable(img.getData()[channel], img.getWidth(), img.getHeight(), parallel);
+	}
+
+	/**
+	 * Creates the summed-area table of the luminance of an {@link Img}
+	 * (as computed by {@link Pixel#getLuminance(int)}).
+	 * @param img the image
+	 * @param parallel whether to compute the table in parallel
+	 * @return summed-area table of the image's luminance
+	 */
+	public static SummedAreaTable fromLuminance(Img img, boolean parallel){
+		final int[] data = img.getData();
+		final double[] lum = new double[data.length];
+		final int w = img.getWidth();
+		Convolution.forEachRow(img.getHeight(), parallel, y->{
+			for(int i = y*w; i < (y+1)*w; i++){
+				lum[i] = Pixel.getLuminance(data[i]);
+			}
+		});
+		return new SummedAreaTable(lum, w, img.getHeight(), parallel);
+	}
+
+	/**
+	 * (Re)computes this table from the specified data of matching size.
+	 */
+	void compute(final double[] data, boolean parallel){
+		final int w = width;
+		final int tw = width+1;
+		// prefix sums along rows
+		Convolution.forEachRow(height, parallel, y->{
+			final int src = y*w;
+			final int dst = (y+1)*tw+1;
+			double sum = 0;
+			for(int x = 0; x < w; x++){
+				sum += data[src+x];
+				table[dst+x] = sum;
+			}
+		});
+		// prefix sums along columns, blocks of columns so that rows are accessed sequentially
+		final int numBlocks = (tw+COLUMN_BLOCK_SIZE-1)/COLUMN_BLOCK_SIZE;
+		ParallelRangeExecutor.execute(0, numBlocks, 1, parallel, (fromBlock, toBlock)->{
+			final int x0 = fromBlock*COLUMN_BLOCK_SIZE;
+			final int x1 = Math.min(tw, toBlock*COLUMN_BLOCK_SIZE);
+			for(int y = 2; y <= height; y++){
+				final int row = y*tw;
+				final int prev = row-tw;
+				for(int x = x0; x < x1; x++){
+					table[row+x] += table[prev+x];
+				}
+			}
+		});
+	}
+
+	/** @return width of the underlying data */
+	public int getWidth() {
+		return width;
+	}
+
+	/** @return height of the underlying data */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the table's entry at the specified position which is the sum of
+	 * all values in the rectangle from (0,0) to (x,y) inclusive.
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return sum of values in [0,x]x[0,y]
+	 */
+	public double getValue(int x, int y){
+		return table[(y+1)*(width+1)+x+1];
+	}
+
+	/**
+	 * Returns the sum of all values in the specified rectangle in constant time.
+	 * Parts of the rectangle that are outside the bounds are ignored.
+	 * @param x left coordinate of the rectangle
+	 * @param y top coordinate of the rectangle
+	 * @param w width of the rectangle
+	 * @param h height of the rectangle
+	 * @return sum over the rectangle
+	 */
+	public double getAreaSum(int x, int y, int w, int h){
+		int x0 = Math.max(0, x), y0 = Math.max(0, y);
+		int x1 = Math.min(width, x+w), y1 = Math.min(height, y+h);
+		if(x1 <= x0 || y1 <= y0){
+			return 0;
+		}
+		return sum(x0, y0, x1, y1);
+	}
+
+	/**
+	 * Returns the mean of all values in the specified rectangle in constant time.
+	 * Parts of the rectangle that are outside the bounds are ignored, i.e. the mean
+	 * is taken over the values within bounds only.
+	 * @param x left coordinate of the rectangle
+	 * @param y top coordinate of the rectangle
+	 * @param w width of the rectangle
+	 * @param h height of the rectangle
+	 * @return mean over the rectangle or NaN if the rectangle does not intersect the bounds
+	 */
+	public double getAreaMean(int x, int y, int w, int h){
+		int x0 = Math.max(0, x), y0 = Math.max(0, y);
+		int x1 = Math.min(width, x+w), y1 = Math.min(height, y+h);
+		if(x1 <= x0 || y1 <= y0){
+			return Double.NaN;
+		}
+		return sum(x0, y0, x1, y1)/((x1-x0)*(double)(y1-y0));
+	}
+
+	/* sum over [x0,x1)x[y0,y1) without bounds checks */
+	double sum(int x0, int y0, int x1, int y1){
+		final int tw = width+1;
+		return table[y1*tw+x1] - table[y0*tw+x1] - table[y1*tw+x0] + table[y0*tw+x0];
+	}
+
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.filter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+/**
+ * Geometric transformation of images (affine, perspective and displacement map based).
+ * <p>
+ * Transformations are specified in pixel coordinates where the pixel (x,y) is located
+ * at the coordinate (x,y), i.e. the origin is the center of the top left pixel.
+ * For every destination pixel the corresponding source location is obtained through
+ * the inverse mapping, which is evaluated incrementally along each destination row,
+ * and the source is sampled with bilinear interpolation.
+ * Source locations outside of the source image are handled according to the
+ * specified boundary mode (see {@link Img#getValue(int, int, int)}), for {@link ColorImg}s
+ * a boundary mode that is not one of the boundary_mode_* constants is used as default value.
+ * Rows of the destination are processed in parallel if desired.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class Warp {
+
+	private Warp(){/* not to be instantiated */}
+
+	/** coordinates beyond this are considered to be far outside (also used for NaN) */
+	private static final double COORDINATE_LIMIT = 1<<24;
+
+	/** maps a destination row to source coordinates */
+	private static interface RowMapping {
+		public void map(int y, double[] sx, double[] sy);
+	}
+
+	/**
+	 * Applies an affine transformation to the specified image.
+	 * @param src image to transform
+	 * @param matrix 2x3 matrix in row major order {m00,m01,m02, m10,m11,m12}
+	 * that maps source coordinates to destination coordinates
+	 * (x' = m00*x+m01*y+m02, y' = m10*x+m11*y+m12)
+	 * @param boundaryMode boundary mode or default color for locations outside of src
+	 * @param dst destination image, may be null (then a new image of the same size as src is created), must not be src
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the matrix is not of length 6 or not invertible, or when dst is src
+	 */
+	public static Img affine(Img src, double[] matrix, int boundaryMode, Img dst, boolean parallel){
+		return perspective(src, affineToHomography(matrix), boundaryMode, dst, parallel);
+	}
+
+	/**
+	 * Applies an affine transformation to the specified image.
+	 * The alpha channel is only transformed when both images have an alpha channel.
+	 * @param src image to transform
+	 * @param matrix 2x3 matrix in row major order {m00,m01,m02, m10,m11,m12}
+	 * that maps source coordinates to destination coordinates
+	 * (x' = m00*x+m01*y+m02, y' = m10*x+m11*y+m12)
+	 * @param boundaryMode boundary mode or default value for locations outside of src
+	 * @param dst destination image, may be null (then a new image of the same size as src is created), must not be src
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the matrix is not of length 6 or not invertible, or when dst is src
+	 */
+	public static ColorImg affine(ColorImg src, double[] matrix, int boundaryMode, ColorImg dst, boolean parallel){
+		return perspective(src, affineToHomography(matrix), boundaryMode, dst, parallel);
+	}
+
+	/**
+	 * Applies a perspective transformation (homography) to the specified image.
+	 * @param src image to transform
+	 * @param homography 3x3 matrix in row major order that maps homogeneous source
+	 * coordinates (x,y,1) to homogeneous destination coordinates
+	 * @param boundaryMode boundary mode or default color for locations outside of src
+	 * @param dst destination image, may be null (then a new image of the same size as src is created), must not be src
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the matrix is not of length 9 or not invertible, or when dst is src
+	 */
+	public static Img perspective(Img src, double[] homography, int boundaryMode, Img dst, boolean parallel){
+		RowMapping mapping = inverseMapping(homography);
+		if(dst == null){
+			dst = new Img(src.getWidth(), src.getHeight());
+		}
+		return warp(src, mapping, boundaryMode, dst, parallel);
+	}
+
+	/**
+	 * Applies a perspective transformation (homography) to the specified image.
+	 * The alpha channel is only transformed when both images have an alpha channel.
+	 * @param src image to transform
+	 * @param homography 3x3 matrix in row major order that maps homogeneous source
+	 * coordinates (x,y,1) to homogeneous destination coordinates
+	 * @param boundaryMode boundary mode or default value for locations outside of src
+	 * @param dst destination image, may be null (then a new image of the same size as src is created), must not be src
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the matrix is not of length 9 or not invertible, or when dst is src
+	 */
+	public static ColorImg perspective(ColorImg src, double[] homography, int boundaryMode, ColorImg dst, boolean parallel){
+		RowMapping mapping = inverseMapping(homography);
+		if(dst == null){
+			dst = new ColorImg(src.getWidth(), src.getHeight(), src.hasAlpha());
+		}
+		return warp(src, mapping, boundaryMode, dst, parallel);
+	}
+
+	/**
+	 * Remaps the specified image using a displacement map.
+	 * The destination pixel (x,y) is sampled from the source location (x+dx, y+dy)
+	 * where dx is the red and dy the green channel value of the displacement map at (x,y).
+	 * @param src image to remap
+	 * @param displacement map of offsets in pixels (red: x offset, green: y offset)
+	 * @param boundaryMode boundary mode or default color for locations outside of src
+	 * @param dst destination image, may be null (then a new image of the size of the
+	 * displacement map is created), must not be src
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when dst is src or dst and displacement map differ in dimensions
+	 */
+	public static Img remap(Img src, ColorImg displacement, int boundaryMode, Img dst, boolean parallel){
+		if(dst == null){
+			dst = new Img(displacement.getWidth(), displacement.getHeight());
+		}
+		requireSameDimensions(displacement.getWidth(), displacement.getHeight(), dst.getWidth(), dst.getHeight());
+		return warp(src, displacementMapping(displacement), boundaryMode, dst, parallel);
+	}
+
+	/**
+	 * Remaps the specified image using a displacement map.
+	 * The destination pixel (x,y) is sampled from the source location (x+dx, y+dy)
+	 * where dx is the red and dy the green channel value of the displacement map at (x,y).
+	 * The alpha channel is only remapped when both images have an alpha channel.
+	 * @param src image to remap
+	 * @param displacement map of offsets in pixels (red: x offset, green: y offset)
+	 * @param boundaryMode boundary mode or default value for locations outside of src
+	 * @param dst destination image, may be null (then a new image of the size of the
+	 * displacement map is created), must not be src
+	 * @param parallel whether to use parallel processing
+	 * @return the destination image
+	 * @throws IllegalArgumentException when dst is src or dst and displacement map differ in dimensions
+	 */
+	public static ColorImg remap(ColorImg src, ColorImg displacement, int boundaryMode, ColorImg dst, boolean parallel){
+		if(dst == null){
+			dst = new ColorImg(displacement.getWidth(), displacement.getHeight(), src.hasAlpha());
+		}
+		requireSameDimensions(displacement.getWidth(), displacement.getHeight(), dst.getWidth(), dst.getHeight());
+		return warp(src, displacementMapping(displacement), boundaryMode, dst, parallel);
+	}
+
+	/**
+	 * Inverts the specified 3x3 matrix.
+	 * @param m row major 3x3 matrix
+	 * @return the inverse
+	 * @throws IllegalArgumentException when the matrix is singular
+	 */
+	static double[] invert3x3(double[] m){
+		double c00 = m[4]*m[8]-m[5]*m[7];
+		double c01 = m[5]*m[6]-m[3]*m[8];
+		double c02 = m[3]*m[7]-m[4]*m[6];
+		double det = m[0]*c00 + m[1]*c01 + m[2]*c02;
+		if(det == 0 || !Double.isFinite(det)){
+			throw new IllegalArgumentException("Transformation matrix is not invertible, determinant is " + det);
+		}
+		double s = 1/det;
+		return new double[]{
+				c00*s, (m[2]*m[7]-m[1]*m[8])*s, (m[1]*m[5]-m[2]*m[4])*s,
+				c01*s, (m[0]*m[8]-m[2]*m[6])*s, (m[2]*m[3]-m[0]*m[5])*s,
+				c02*s, (m[1]*m[6]-m[0]*m[7])*s, (m[0]*m[4]-m[1]*m[3])*s
+		};
+	}
+
+	private static double[] affineToHomography(double[] matrix){
+		if(matrix.length != 6){
+			throw new IllegalArgumentException(String.format(
+					"Affine matrix has to have 6 elements (2x3), but has %d", matrix.length));
+		}
+		return new double[]{matrix[0],matrix[1],matrix[2], matrix[3],matrix[4],matrix[5], 0,0,1};
+	}
+
+	private static RowMapping inverseMapping(double[] homography){
+		if(homography.length != 9){
+			throw new IllegalArgumentException(String.format(
+					"Homography has to have 9 elements (3x3), but has %d", homography.length));
+		}
+		final double[] h = invert3x3(homography);
+		if(h[6] == 0 && h[7] == 0){
+			// affine, no perspective division required
+			final double s = 1/h[8];
+			final double a = h[0]*s, b = h[1]*s, c = h[2]*s, d = h[3]*s, e = h[4]*s, f = h[5]*s;
+			return (y, sx, sy)->{
+				double x_ = b*y+c;
+				double y_ = e*y+f;
+				for(int x = 0; x < sx.length; x++){
+					sx[x] = x_;
+					sy[x] = y_;
+					x_ += a;
+					y_ += d;
+				}
+			};
+		}
+		return (y, sx, sy)->{
+			double x_ = h[1]*y+h[2];
+			double y_ = h[4]*y+h[5];
+			double w_ = h[7]*y+h[8];
+			for(int x = 0; x < sx.length; x++){
+				sx[x] = x_/w_;
+				sy[x] = y_/w_;
+				x_ += h[0];
+				y_ += h[3];
+				w_ += h[6];
+			}
+		};
+	}
+
+	private static RowMapping displacementMapping(ColorImg displacement){
+		final double[] dx = displacement.getDataR();
+		final double[] dy = displacement.getDataG();
+		return (y, sx, sy)->{
+			final int row = y*sx.length;
+			for(int x = 0; x < sx.length; x++){
+				sx[x] = x+dx[row+x];
+				sy[x] = y+dy[row+x];
+			}
+		};
+	}
+
+	private static void requireSameDimensions(int w1, int h1, int w2, int h2){
+		if(w1 != w2 || h1 != h2){
+			throw new IllegalArgumentException(String.format(
+					"Displacement map and destination have to be of same dimensions, but are [%dx%d] and [%dx%d]",
+					w1, h1, w2, h2));
+		}
+	}
+
+	private static void requireDistinct(Object src, Object dst){
+		if(src == dst){
+			throw new IllegalArgumentException("Cannot warp in place, destination has to be a different image than source.");
+		}
+	}
+
+	private static Img warp(Img src, RowMapping mapping, int boundaryMode, Img dst, boolean parallel){
+		requireDistinct(src, dst);
+		final int sw = src.getWidth(), sh = src.getHeight(), dw = dst.getWidth();
+		final int[] s = src.getData();
+		final int[] d = dst.getData();
+		final int defaultColor = boundaryMode == Img.boundary_mode_zero ? 0:boundaryMode;
+		Convolution.forEachRow(dst.getHeight(), parallel, y->{
+			final double[] sx = new double[dw], sy = new double[dw];
+			final int[] idx = new int[4];
+			mapping.map(y, sx, sy);
+			for(int x = 0; x < dw; x++){
+				final double fx = bilinearTaps(sx[x], sy[x], sw, sh, boundaryMode, idx);
+				final double fy = bilinearFraction(sy[x]);
+				final int c00 = idx[0] < 0 ? defaultColor:s[idx[0]];
+				final int c10 = idx[1] < 0 ? defaultColor:s[idx[1]];
+				final int c01 = idx[2] < 0 ? defaultColor:s[idx[2]];
+				final int c11 = idx[3] < 0 ? defaultColor:s[idx[3]];
+				final double w00 = (1-fx)*(1-fy), w10 = fx*(1-fy), w01 = (1-fx)*fy, w11 = fx*fy;
+				d[y*dw+x] = Pixel.argb_fast(
+						(int)Math.round(w00*(c00>>>24)        + w10*(c10>>>24)        + w01*(c01>>>24)        + w11*(c11>>>24)),
+						(int)Math.round(w00*((c00>>16)&0xff) + w10*((c10>>16)&0xff) + w01*((c01>>16)&0xff) + w11*((c11>>16)&0xff)),
+						(int)Math.round(w00*((c00>> 8)&0xff) + w10*((c10>> 8)&0xff) + w01*((c01>> 8)&0xff) + w11*((c11>> 8)&0xff)),
+						(int)Math.round(w00*( c00     &0xff) + w10*( c10     &0xff) + w01*( c01     &0xff) + w11*( c11     &0xff)));
+			}
+		});
+		return dst;
+	}
+
+	private static ColorImg warp(ColorImg src, RowMapping mapping, int boundaryMode, ColorImg dst, boolean parallel){
+		requireDistinct(src, dst);
+		final int sw = src.getWidth(), sh = src.getHeight(), dw = dst.getWidth();
+		final double[][] s = src.getData();
+		final double[][] d = dst.getData();
+		final int numChannels = Math.min(s.length, d.length);
+		final double defaultValue = boundaryMode == ColorImg.boundary_mode_zero ? 0:boundaryMode;
+		Convolution.forEachRow(dst.getHeight(), parallel, y->{
+			final double[] sx = new double[dw], sy = new double[dw];
+			final int[] idx = new int[4];
+			mapping.map(y, sx, sy);
+			for(int x = 0; x < dw; x++){
+				final double fx = bilinearTaps(sx[x], sy[x], sw, sh, boundaryMode, idx);
+				final double fy = bilinearFraction(sy[x]);
+				final double w00 = (1-fx)*(1-fy), w10 = fx*(1-fy), w01 = (1-fx)*fy, w11 = fx*fy;
+				for(int c = 0; c < numChannels; c++){
+					final double[] channel = s[c];
+					d[c][y*dw+x] =
+							w00*(idx[0] < 0 ? defaultValue:channel[idx[0]]) +
+							w10*(idx[1] < 0 ? defaultValue:channel[idx[1]]) +
+							w01*(idx[2] < 0 ? defaultValue:channel[idx[2]]) +
+							w11*(idx[3] < 0 ? defaultValue:channel[idx[3]]);
+				}
+			}
+		});
+		return dst;
+	}
+
+	private static double limit(double v){
+		// also maps NaN (undefined mapping) to far outside
+		return v > -COORDINATE_LIMIT && v < COORDINATE_LIMIT ? v : -COORDINATE_LIMIT;
+	}
+
+	private static double bilinearFraction(double v){
+		v = limit(v);
+		return v-Math.floor(v);
+	}
+
+	/**
+	 * Determines the data indices of the 4 pixels surrounding the specified location
+	 * (order: top left, top right, bottom left, bottom right), -1 for default value.
+	 * @return the horizontal interpolation fraction
+	 */
+	private static double bilinearTaps(double x, double y, int w, int h, int boundaryMode, int[] idx){
+		x = limit(x);
+		y = limit(y);
+		final int x0 = (int)Math.floor(x);
+		final int y0 = (int)Math.floor(y);
+		final int xa, xb, ya, yb;
+		if(x0 >= 0 && x0+1 < w){
+			xa = x0; xb = x0+1;
+		} else {
+			xa = Convolution.resolveIndex(x0, w, boundaryMode);
+			xb = Convolution.resolveIndex(x0+1, w, boundaryMode);
+		}
+		if(y0 >= 0 && y0+1 < h){
+			ya = y0*w; yb = ya+w;
+		} else {
+			int r0 = Convolution.resolveIndex(y0, h, boundaryMode);
+			int r1 = Convolution.resolveIndex(y0+1, h, boundaryMode);
+			ya = r0 < 0 ? -1 : r0*w;
+			yb = r1 < 0 ? -1 : r1*w;
+		}
+		idx[0] = xa < 0 || ya < 0 ? -1 : ya+xa;
+		idx[1] = xb < 0 || ya < 0 ? -1 : ya+xb;
+		idx[2] = xa < 0 || yb < 0 ? -1 : yb+xa;
+		idx[3] = xb < 0 || yb < 0 ? -1 : yb+xb;
+		return x-x0;
+	}
+
+}
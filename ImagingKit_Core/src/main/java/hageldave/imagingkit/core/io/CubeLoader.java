@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import hageldave.imagingkit.core.operations.ColorLUT3D;
+
+/**
+ * Class providing methods for loading 3D color lookup tables from files in the .cube format
+ * (as specified by Adobe and used by most color grading software).
+ * <p>
+ * Supported keywords are {@code TITLE}, {@code LUT_3D_SIZE}, {@code DOMAIN_MIN} and {@code DOMAIN_MAX},
+ * lines starting with {@code #} are comments. 1D LUTs ({@code LUT_1D_SIZE}) are not supported.
+ * @author hageldave
+ * @since 2.2
+ */
+public class CubeLoader {
+
+	private CubeLoader(){}
+
+	/**
+	 * Loads the LUT from the specified .cube file.
+	 * @param fileName path of the .cube file
+	 * @return loaded LUT
+	 * @throws CubeLoaderException if the file does not exist, cannot be read or is malformed
+	 */
+	public static ColorLUT3D loadCube(String fileName){
+		return loadCube(new File(fileName));
+	}
+
+	/**
+	 * Loads the LUT from the specified .cube file.
+	 * @param file the .cube file
+	 * @return loaded LUT
+	 * @throws CubeLoaderException if the file does not exist, cannot be read or is malformed
+	 */
+	public static ColorLUT3D loadCube(File file){
+		if(!file.exists()){
+			throw new CubeLoaderException(new FileNotFoundException(file.getPath()));
+		}
+		try(InputStream is = new FileInputStream(file)){
+			return loadCube(is);
+		} catch (IOException e) {
+			throw new CubeLoaderException(e);
+		}
+	}
+
+	/**
+	 * Loads the LUT from the specified {@link InputStream} of .cube data.
+	 * The InputStream is not closed, this is the responsibility of the caller.
+	 * @param is InputStream of the .cube data
+	 * @return loaded LUT
+	 * @throws CubeLoaderException if the data cannot be read or is malformed
+	 */
+	public static ColorLUT3D loadCube(InputStream is){
+		return parseCube(new InputStreamReader(is, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Parses the LUT from the specified {@link Reader} of .cube data.
+	 * The Reader is not closed, this is the responsibility of the caller.
+	 * @param reader of the .cube data
+	 * @return parsed LUT
+	 * @throws CubeLoaderException if the data cannot be read or is malformed
+	 */
+	public static ColorLUT3D parseCube(Reader reader){
+		BufferedReader br = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader);
+		int size = -1;
+		double[] domainMin = {0,0,0};
+		double[] domainMax = {1,1,1};
+		double[] data = null;
+		int numValues = 0;
+		int lineNumber = 0;
+		try {
+			String line;
+			while((line = br.readLine()) != null){
+				lineNumber++;
+				line = line.trim();
+				if(line.isEmpty() || line.startsWith("#")){
+					continue;
+				}
+				String[] tokens = line.split("\\s+");
+				String keyword = tokens[0];
+				if(keyword.equals("TITLE")){
+					continue;
+				} else if(keyword.equals("LUT_1D_SIZE")){
+					throw new CubeLoaderException(String.format(
+							"Line %d: 1D LUTs are not supported.", lineNumber));
+				} else if(keyword.equals("LUT_3D_SIZE")){
+					if(size != -1){
+						throw new CubeLoaderException(String.format(
+								"Line %d: LUT_3D_SIZE is specified more than once.", lineNumber));
+					}
+					size = parseInteger(tokens, 1, lineNumber);
+					if(size < 2 || size > 256){
+						throw new CubeLoaderException(String.format(
+								"Line %d: LUT_3D_SIZE has to be in [2,256], but is %d.", lineNumber, size));
+					}
+					data = new double[size*size*size*3];
+				} else if(keyword.equals("DOMAIN_MIN")){
+					domainMin = parseNumbers(tokens, 1, 3, lineNumber);
+				} else if(keyword.equals("DOMAIN_MAX")){
+					domainMax = parseNumbers(tokens, 1, 3, lineNumber);
+				} else if(Character.isLetter(keyword.charAt(0))){
+					// unknown keywords are ignored
+					continue;
+				} else {
+					if(data == null){
+						throw new CubeLoaderException(String.format(
+								"Line %d: Data line before LUT_3D_SIZE.", lineNumber));
+					}
+					if(numValues == data.length){
+						throw new CubeLoaderException(String.format(
+								"Line %d: More than %d data lines.", lineNumber, data.length/3));
+					}
+					double[] rgb = parseNumbers(tokens, 0, 3, lineNumber);
+					System.arraycopy(rgb, 0, data, numValues, 3);
+					numValues += 3;
+				}
+			}
+		} catch (IOException e) {
+			throw new CubeLoaderException(e);
+		}
+		if(data == null){
+			throw new CubeLoaderException("LUT_3D_SIZE is not specified.");
+		}
+		if(numValues != data.length){
+			throw new CubeLoaderException(String.format(
+					"Expected %d data lines, but found %d.", data.length/3, numValues/3));
+		}
+		try {
+			return new ColorLUT3D(size, data, domainMin, domainMax);
+		} catch (IllegalArgumentException e){
+			throw new CubeLoaderException(e.getMessage(), e);
+		}
+	}
+
+	private static int parseInteger(String[] tokens, int index, int lineNumber){
+		if(tokens.length-index != 1){
+			throw new CubeLoaderException(String.format(
+					"Line %d: Expected 1 number, but found %d.", lineNumber, tokens.length-index));
+		}
+		try {
+			return Integer.parseInt(tokens[index]);
+		} catch (NumberFormatException e){
+			throw new CubeLoaderException(String.format(
+					"Line %d: Cannot parse integer '%s'.", lineNumber, tokens[index]), e);
+		}
+	}
+
+	private static double[] parseNumbers(String[] tokens, int start, int count, int lineNumber){
+		if(tokens.length-start != count){
+			throw new CubeLoaderException(String.format(
+					"Line %d: Expected %d numbers, but found %d.", lineNumber, count, tokens.length-start));
+		}
+		double[] numbers = new double[count];
+		for(int i = 0; i < count; i++){
+			try {
+				numbers[i] = Double.parseDouble(tokens[start+i]);
+			} catch (NumberFormatException e){
+				throw new CubeLoaderException(String.format(
+						"Line %d: Cannot parse number '%s'.", lineNumber, tokens[start+i]), e);
+			}
+		}
+		return numbers;
+	}
+
+	/**
+	 * RuntimeException class for Exceptions that occur during loading of .cube files.
+	 * @author hageldave
+	 * @since 2.2
+	 */
+	public static class CubeLoaderException extends RuntimeException {
+		private static final long serialVersionUID = 4519232378426531427L;
+
+		public CubeLoaderException() {
+		}
+
+		public CubeLoaderException(String message) {
+			super(message);
+		}
+
+		public CubeLoaderException(Throwable cause) {
+			super(cause);
+		}
+
+		public CubeLoaderException(String message, Throwable cause) {
+			super(message, cause);
+		}
+	}
+
+}
@@ -54,6 +54,12 @@ import hageldave.imagingkit.core.PixelManipulator;
  * int y = -5; // vertical offset
  * bottom.forEach(Blending.DIFFERENCE.getBlendingWith(top, x, y));
  * }</pre>
+ * When both images are {@link Img}s, the integer based methods of {@link ImgVectorOps}
+ * are considerably faster as they avoid the conversion to normalized doubles:
+ * <pre>
+ * {@code
+ * ImgVectorOps.alphaBlend(bottom, top, x, y, 0.5, Blending.NORMAL, true);
+ * }</pre>
  *
  * @author hageldave
  * @since 1.3 (relocated from core package)
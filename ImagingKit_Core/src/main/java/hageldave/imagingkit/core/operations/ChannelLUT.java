@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.operations;
+
+import java.util.function.DoubleUnaryOperator;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
+
+/**
+ * Per channel 1D lookup table for the 8 bit channels of an {@link Img}, e.g. for tone curves.
+ * Each channel value of a pixel is replaced by the table entry of its channel at that value.
+ * <p>
+ * The tables are stored pre-shifted to the bit position of their channel, so that applying the
+ * LUT to a packed ARGB value only takes four table lookups and a bitwise or, without any
+ * unpacking or floating point arithmetic.
+ * Channels are indexed like the channels of a {@link ColorImg}
+ * ({@link ColorImg#channel_r}, {@link ColorImg#channel_g}, {@link ColorImg#channel_b}, {@link ColorImg#channel_a}).
+ * <p>
+ * Example:
+ * <pre>
+ * {@code
+ * // gamma curve on RGB
+ * ChannelLUT gamma = ChannelLUT.fromCurve(v->Math.pow(v, 1/2.2));
+ * gamma.apply(img, true);
+ * }</pre>
+ *
+ * @author hageldave
+ * @since 2.2
+ * @see ColorLUT3D
+ */
+public final class ChannelLUT {
+
+	private static final int[] SHIFTS = {16, 8, 0, 24};
+
+	/* pre-shifted tables indexed by ColorImg channel index */
+	private final int[][] tables = new int[4][256];
+
+	/**
+	 * Creates a new LUT from the specified tables of 256 entries in [0,255].
+	 * @param r table for red channel, null for identity
+	 * @param g table for green channel, null for identity
+	 * @param b table for blue channel, null for identity
+	 * @param a table for alpha channel, null for identity
+	 * @throws IllegalArgumentException when a table does not have 256 entries or an entry is not in [0,255]
+	 */
+	public ChannelLUT(int[] r, int[] g, int[] b, int[] a) {
+		int[][] src = {r,g,b,a};
+		for(int c = 0; c < 4; c++){
+			int[] table = src[c];
+			if(table != null && table.length != 256){
+				throw new IllegalArgumentException(String.format(
+						"Table of channel %d has to have 256 entries, but has %d", c, table.length));
+			}
+			for(int i = 0; i < 256; i++){
+				int v = table == null ? i:table[i];
+				if(v < 0 || v > 255){
+					throw new IllegalArgumentException(String.format(
+							"Table entries have to be in [0,255], but entry %d of channel %d is %d", i, c, v));
+				}
+				tables[c][i] = v << SHIFTS[c];
+			}
+		}
+	}
+
+	/**
+	 * @return LUT that does not change any channel
+	 */
+	public static ChannelLUT identity(){
+		return new ChannelLUT(null, null, null, null);
+	}
+
+	/**
+	 * Creates a LUT that applies the same table to the red, green and blue channel
+	 * and preserves alpha.
+	 * @param rgb table of 256 entries in [0,255]
+	 * @return new LUT
+	 * @throws IllegalArgumentException when the table does not have 256 entries or an entry is not in [0,255]
+	 */
+	public static ChannelLUT rgb(int[] rgb){
+		return new ChannelLUT(rgb, rgb, rgb, null);
+	}
+
+	/**
+	 * Creates a LUT from the specified curves on normalized values.
+	 * Each curve maps [0,1] to [0,1] (results are clamped to this range) and is
+	 * sampled at the 256 channel values.
+	 * @param r curve for red channel, null for identity
+	 * @param g curve for green channel, null for identity
+	 * @param b curve for blue channel, null for identity
+	 * @param a curve for alpha channel, null for identity
+	 * @return new LUT
+	 */
+	public static ChannelLUT fromCurves(DoubleUnaryOperator r, DoubleUnaryOperator g, DoubleUnaryOperator b, DoubleUnaryOperator a){
+		return new ChannelLUT(sample(r), sample(g), sample(b), sample(a));
+	}
+
+	/**
+	 * Creates a LUT that applies the specified curve to the red, green and blue channel and preserves alpha.
+	 * See {@link #fromCurves(DoubleUnaryOperator, DoubleUnaryOperator, DoubleUnaryOperator, DoubleUnaryOperator)}.
+	 * @param rgb curve on normalized values
+	 * @return new LUT
+	 */
+	public static ChannelLUT fromCurve(DoubleUnaryOperator rgb){
+		int[] table = sample(rgb);
+		return new ChannelLUT(table, table, table, null);
+	}
+
+	private static int[] sample(DoubleUnaryOperator curve){
+		if(curve == null){
+			return null;
+		}
+		int[] table = new int[256];
+		for(int i = 0; i < 256; i++){
+			double v = curve.applyAsDouble(i/255.0);
+			table[i] = v == v ? (int)Math.round(Math.max(0, Math.min(1, v))*255):0;
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the composition of this LUT and the specified one, which applies this LUT first.
+	 * @param next LUT applied after this one
+	 * @return new LUT
+	 */
+	public ChannelLUT andThen(ChannelLUT next){
+		int[][] composed = new int[4][256];
+		for(int c = 0; c < 4; c++){
+			for(int i = 0; i < 256; i++){
+				composed[c][i] = next.get(c, get(c, i));
+			}
+		}
+		return new ChannelLUT(composed[0], composed[1], composed[2], composed[3]);
+	}
+
+	/**
+	 * @param channel index
+	 * @param value 8 bit channel value
+	 * @return table entry of the specified channel for the specified value
+	 */
+	public int get(int channel, int value){
+		return tables[channel][value] >>> SHIFTS[channel];
+	}
+
+	/**
+	 * @param channel index
+	 * @return copy of the table of the specified channel (entries in [0,255])
+	 */
+	public int[] getTable(int channel){
+		int[] table = new int[256];
+		for(int i = 0; i < 256; i++){
+			table[i] = get(channel, i);
+		}
+		return table;
+	}
+
+	/**
+	 * Applies this LUT to the specified packed ARGB value
+	 * @param argb value
+	 * @return transformed ARGB value
+	 */
+	public int lookup(int argb){
+		return tables[3][argb>>>24] | tables[0][(argb>>16)&0xff] | tables[1][(argb>>8)&0xff] | tables[2][argb&0xff];
+	}
+
+	/**
+	 * Applies this LUT to all pixels of the specified image.
+	 * @param img to be transformed
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 */
+	public Img apply(Img img, boolean parallel){
+		return apply(img, img, parallel);
+	}
+
+	/**
+	 * Applies this LUT to all pixels of the source image and writes the results to the destination image.
+	 * @param src source image
+	 * @param dst destination image of same dimensions (may be the source image),
+	 * or null to create a new image
+	 * @param parallel whether to process in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the destination's dimensions do not match the source's
+	 */
+	public Img apply(Img src, Img dst, boolean parallel){
+		if(dst == null){
+			dst = new Img(src.getDimension());
+		} else if(dst.getWidth() != src.getWidth() || dst.getHeight() != src.getHeight()){
+			throw new IllegalArgumentException(String.format(
+					"Destination dimensions (%dx%d) do not match source dimensions (%dx%d)",
+					dst.getWidth(), dst.getHeight(), src.getWidth(), src.getHeight()));
+		}
+		final int[] in = src.getData();
+		final int[] out = dst.getData();
+		final int[] tr = tables[0], tg = tables[1], tb = tables[2], ta = tables[3];
+		ParallelRangeExecutor.executeChunked(src.numValues(), src.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			for(int i = from; i < to; i++){
+				int argb = in[i];
+				out[i] = ta[argb>>>24] | tr[(argb>>16)&0xff] | tg[(argb>>8)&0xff] | tb[argb&0xff];
+			}
+		});
+		return dst;
+	}
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.operations;
+
+import java.util.Arrays;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.io.CubeLoader;
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
+
+/**
+ * 3D color lookup table mapping RGB colors to RGB colors, e.g. for color grading.
+ * The table is a regular grid of N x N x N output colors spanning the input domain
+ * (by default the unit cube), colors between grid points are interpolated
+ * (see {@link Interpolation}).
+ * <p>
+ * The grid is stored as RGB triples with red varying fastest, then green, then blue,
+ * which is the layout of the .cube file format (see {@link CubeLoader}).
+ * Inputs outside the domain are clamped to it.
+ * <p>
+ * When applied to an {@link Img}, the channels are normalized to [0,1] and the resulting
+ * colors are clamped to [0,1] and scaled back to 8 bit, alpha is preserved.
+ * When applied to a {@link ColorImg}, the channel values are used as they are.
+ *
+ * @author hageldave
+ * @since 2.2
+ * @see ChannelLUT
+ */
+public final class ColorLUT3D {
+
+	/** Interpolation scheme for colors between the grid points of a {@link ColorLUT3D} */
+	public static enum Interpolation {
+		/** Interpolation between the 8 corners of the enclosing grid cell */
+		TRILINEAR,
+		/**
+		 * Interpolation between the 4 corners of the tetrahedron of the enclosing grid cell
+		 * that contains the color. Cheaper than {@link #TRILINEAR} and preserves the gray axis.
+		 */
+		TETRAHEDRAL
+	}
+
+	private final int size;
+	private final double[] data;
+	private final double[] domainMin;
+	private final double[] domainMax;
+
+	/**
+	 * Creates a new LUT with domain [0,1] on each channel.
+	 * @param size number of grid points along each axis
+	 * @param data RGB triples of the grid points, red varying fastest (is not copied)
+	 * @throws IllegalArgumentException when size is less than 2 or data does not contain size^3 RGB triples
+	 */
+	public ColorLUT3D(int size, double[] data) {
+		this(size, data, new double[]{0,0,0}, new double[]{1,1,1});
+	}
+
+	/**
+	 * Creates a new LUT.
+	 * @param size number of grid points along each axis
+	 * @param data RGB triples of the grid points, red varying fastest (is not copied)
+	 * @param domainMin lower bounds of the input domain per channel (r,g,b)
+	 * @param domainMax upper bounds of the input domain per channel (r,g,b)
+	 * @throws IllegalArgumentException when size is less than 2, data does not contain size^3 RGB triples
+	 * or the domain is not a non empty finite range on each channel
+	 */
+	public ColorLUT3D(int size, double[] data, double[] domainMin, double[] domainMax) {
+		if(size < 2){
+			throw new IllegalArgumentException(String.format(
+					"LUT size has to be at least 2, but is %d", size));
+		}
+		if((long)size*size*size*3 != data.length){
+			throw new IllegalArgumentException(String.format(
+					"LUT of size %d requires %d values, but %d were specified", size, (long)size*size*size*3, data.length));
+		}
+		if(domainMin.length != 3 || domainMax.length != 3){
+			throw new IllegalArgumentException(String.format(
+					"Domain bounds have to have 3 entries, but have %d and %d", domainMin.length, domainMax.length));
+		}
+		for(int c = 0; c < 3; c++){
+			if(!(domainMin[c] < domainMax[c]) || Double.isInfinite(domainMin[c]) || Double.isInfinite(domainMax[c])){
+				throw new IllegalArgumentException(String.format(
+						"Domain of channel %d is not a non empty finite range: [%s,%s]", c, domainMin[c], domainMax[c]));
+			}
+		}
+		this.size = size;
+		this.data = data;
+		this.domainMin = domainMin.clone();
+		this.domainMax = domainMax.clone();
+	}
+
+	/**
+	 * Creates a LUT that maps every color of the unit cube to itself.
+	 * @param size number of grid points along each axis
+	 * @return new LUT
+	 */
+	public static ColorLUT3D identity(int size){
+		if(size < 2){
+			throw new IllegalArgumentException(String.format(
+					"LUT size has to be at least 2, but is %d", size));
+		}
+		double[] data = new double[size*size*size*3];
+		double scale = 1.0/(size-1);
+		int i = 0;
+		for(int b = 0; b < size; b++){
+			for(int g = 0; g < size; g++){
+				for(int r = 0; r < size; r++){
+					data[i++] = r*scale;
+					data[i++] = g*scale;
+					data[i++] = b*scale;
+				}
+			}
+		}
+		return new ColorLUT3D(size, data);
+	}
+
+	/** @return number of grid points along each axis */
+	public int getSize() {
+		return size;
+	}
+
+	/** @return the grid data (not a copy), RGB triples with red varying fastest */
+	public double[] getData() {
+		return data;
+	}
+
+	/** @return copy of the lower bounds of the input domain (r,g,b) */
+	public double[] getDomainMin() {
+		return domainMin.clone();
+	}
+
+	/** @return copy of the upper bounds of the input domain (r,g,b) */
+	public double[] getDomainMax() {
+		return domainMax.clone();
+	}
+
+	/**
+	 * Returns the value of a grid point
+	 * @param r grid index along red axis
+	 * @param g grid index along green axis
+	 * @param b grid index along blue axis
+	 * @param channel of the output color (0=r, 1=g, 2=b)
+	 * @return value of the grid point
+	 */
+	public double getGridValue(int r, int g, int b, int channel){
+		return data[((b*size+g)*size+r)*3+channel];
+	}
+
+	/**
+	 * Looks up the specified color.
+	 * @param r red value
+	 * @param g green value
+	 * @param b blue value
+	 * @param interpolation scheme
+	 * @param out array of at least 3 entries to which the resulting color is written
+	 * @return the out array
+	 */
+	public double[] lookup(double r, double g, double b, Interpolation interpolation, double[] out){
+		double tr = gridCoordinate(r, 0), tg = gridCoordinate(g, 1), tb = gridCoordinate(b, 2);
+		int ir = cell(tr), ig = cell(tg), ib = cell(tb);
+		int base = ((ib*size+ig)*size+ir)*3;
+		interpolate(base, tr-ir, tg-ig, tb-ib, interpolation, out, 0);
+		return out;
+	}
+
+	/** maps value to continuous grid coordinate in [0,size-1] */
+	private double gridCoordinate(double v, int channel){
+		double t = (v-domainMin[channel])/(domainMax[channel]-domainMin[channel])*(size-1);
+		// NaN maps to 0
+		return t > 0 ? Math.min(t, size-1):0;
+	}
+
+	/** index of the lower grid point of the cell containing the grid coordinate */
+	private int cell(double t){
+		return Math.min((int)t, size-2);
+	}
+
+	/**
+	 * Interpolates the color at fractional position (fr,fg,fb) within the cell
+	 * with lower corner at base and writes it to out at offset.
+	 */
+	private void interpolate(int base, double fr, double fg, double fb, Interpolation interpolation, double[] out, int offset){
+		final double[] d = data;
+		final int dr = 3, dg = size*3, db = size*size*3;
+		if(interpolation == Interpolation.TRILINEAR){
+			for(int c = 0; c < 3; c++){
+				int i = base+c;
+				double c00 = d[i      ] + fr*(d[i+dr      ]-d[i      ]);
+				double c10 = d[i+dg   ] + fr*(d[i+dr+dg   ]-d[i+dg   ]);
+				double c01 = d[i+db   ] + fr*(d[i+dr+db   ]-d[i+db   ]);
+				double c11 = d[i+dg+db] + fr*(d[i+dr+dg+db]-d[i+dg+db]);
+				double c0 = c00 + fg*(c10-c00);
+				double c1 = c01 + fg*(c11-c01);
+				out[offset+c] = c0 + fb*(c1-c0);
+			}
+		} else {
+			// select tetrahedron by ordering of the fractions, the path from corner 000 to 111
+			// steps along the axes in order of decreasing fraction
+			double w0,w1,w2,w3;
+			int o1,o2;
+			if(fr >= fg){
+				if(fg >= fb){        // r g b
+					w0=1-fr; w1=fr-fg; w2=fg-fb; w3=fb; o1=dr; o2=dr+dg;
+				} else if(fr >= fb){ // r b g
+					w0=1-fr; w1=fr-fb; w2=fb-fg; w3=fg; o1=dr; o2=dr+db;
+				} else {             // b r g
+					w0=1-fb; w1=fb-fr; w2=fr-fg; w3=fg; o1=db; o2=dr+db;
+				}
+			} else {
+				if(fb >= fg){        // b g r
+					w0=1-fb; w1=fb-fg; w2=fg-fr; w3=fr; o1=db; o2=dg+db;
+				} else if(fb >= fr){ // g b r
+					w0=1-fg; w1=fg-fb; w2=fb-fr; w3=fr; o1=dg; o2=dg+db;
+				} else {             // g r b
+					w0=1-fg; w1=fg-fr; w2=fr-fb; w3=fb; o1=dg; o2=dr+dg;
+				}
+			}
+			final int o3 = dr+dg+db;
+			for(int c = 0; c < 3; c++){
+				int i = base+c;
+				out[offset+c] = w0*d[i] + w1*d[i+o1] + w2*d[i+o2] + w3*d[i+o3];
+			}
+		}
+	}
+
+	/**
+	 * Applies this LUT to all pixels of the specified image, alpha is preserved.
+	 * @param img to be transformed
+	 * @param interpolation scheme
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 */
+	public Img apply(Img img, Interpolation interpolation, boolean parallel){
+		return apply(img, img, interpolation, parallel);
+	}
+
+	/**
+	 * Applies this LUT to all pixels of the source image and writes the results to the destination image,
+	 * alpha is preserved.
+	 * @param src source image
+	 * @param dst destination image of same dimensions (may be the source image),
+	 * or null to create a new image
+	 * @param interpolation scheme
+	 * @param parallel whether to process in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the destination's dimensions do not match the source's
+	 */
+	public Img apply(Img src, Img dst, Interpolation interpolation, boolean parallel){
+		if(dst == null){
+			dst = new Img(src.getDimension());
+		} else if(dst.getWidth() != src.getWidth() || dst.getHeight() != src.getHeight()){
+			throw new IllegalArgumentException(String.format(
+					"Destination dimensions (%dx%d) do not match source dimensions (%dx%d)",
+					dst.getWidth(), dst.getHeight(), src.getWidth(), src.getHeight()));
+		}
+		// per channel tables of the cell offset and fraction for each 8 bit value
+		final int[][] offsets = new int[3][256];
+		final double[][] fractions = new double[3][256];
+		final int[] strides = {3, size*3, size*size*3};
+		for(int c = 0; c < 3; c++){
+			for(int v = 0; v < 256; v++){
+				double t = gridCoordinate(v/255.0, c);
+				int i = cell(t);
+				offsets[c][v] = i*strides[c];
+				fractions[c][v] = t-i;
+			}
+		}
+		final int[] in = src.getData();
+		final int[] out = dst.getData();
+		ParallelRangeExecutor.executeChunked(src.numValues(), src.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			final double[] rgb = new double[3];
+			for(int i = from; i < to; i++){
+				int argb = in[i];
+				int r = (argb>>16)&0xff, g = (argb>>8)&0xff, b = argb&0xff;
+				interpolate(
+						offsets[0][r]+offsets[1][g]+offsets[2][b],
+						fractions[0][r], fractions[1][g], fractions[2][b],
+						interpolation, rgb, 0);
+				out[i] = (argb&0xff000000) | to8bit(rgb[0])<<16 | to8bit(rgb[1])<<8 | to8bit(rgb[2]);
+			}
+		});
+		return dst;
+	}
+
+	private static int to8bit(double v){
+		return v > 0 ? (v < 1 ? (int)(v*255+0.5):255):0;
+	}
+
+	/**
+	 * Applies this LUT to the red, green and blue channel of all pixels of the specified image,
+	 * alpha is preserved.
+	 * @param img to be transformed
+	 * @param interpolation scheme
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 */
+	public ColorImg apply(ColorImg img, Interpolation interpolation, boolean parallel){
+		final double[] dr = img.getDataR(), dg = img.getDataG(), db = img.getDataB();
+		ParallelRangeExecutor.executeChunked(img.numValues(), img.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			final double[] rgb = new double[3];
+			for(int i = from; i < to; i++){
+				lookup(dr[i], dg[i], db[i], interpolation, rgb);
+				dr[i] = rgb[0];
+				dg[i] = rgb[1];
+				db[i] = rgb[2];
+			}
+		});
+		return img;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ColorLUT3D[size %d, domain %s to %s]",
+				size, Arrays.toString(domainMin), Arrays.toString(domainMax));
+	}
+
+}
@@ -24,8 +24,13 @@ package hageldave.imagingkit.core.operations;
 
 import java.util.function.Consumer;
 
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.ImgBase;
 import hageldave.imagingkit.core.Pixel;
 import hageldave.imagingkit.core.PixelBase;
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.scientific.FloatColorImg;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
 
 /**
  * Enum providing multiple color space transformations.
@@ -34,6 +39,10 @@ import hageldave.imagingkit.core.PixelBase;
  * <p>
  * To tranform an image to the desired Colorspace the following could be used:<br>
  * {@code myImg.forEach(ColorSpaceTransformation.RGB_2_HSV)}
+ * <p>
+ * Whole images are transformed considerably faster by the bulk methods
+ * (e.g. {@link #transform(Img, Img, boolean)} or {@link #transform(Img, ColorImg, boolean)})
+ * which work directly on the packed ARGB values or channel arrays and yield the same results.
  * @author hageldave
  * @since 1.2 (relocated from core package)
  */
@@ -58,8 +67,15 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 	 * @since 1.2
 	 */
 	RGB_2_LAB(
-			ColorSpaceTransformation::rgb2lab_continuous
-	),
+			ColorSpaceTransformation::rgb2lab
+	){
+		@Override
+		public void accept(PixelBase px) {
+			double[] out = new double[3];
+			rgb2lab(px.r_asDouble(), px.g_asDouble(), px.b_asDouble(), px instanceof Pixel, out);
+			px.setRGB_fromDouble_preserveAlpha(out[0], out[1], out[2]);
+		}
+	},
 
 	/**
 	 * Transforms colors from the CIE L*a*b* domain to the RGB domain. <br>
@@ -75,8 +91,15 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 	 * @since 1.2
 	 */
 	LAB_2_RGB(
-			ColorSpaceTransformation::lab2rgb_continuous
-	),
+			ColorSpaceTransformation::lab2rgb
+	){
+		@Override
+		public void accept(PixelBase px) {
+			double[] out = new double[3];
+			lab2rgb(px.r_asDouble(), px.g_asDouble(), px.b_asDouble(), px instanceof Pixel, out);
+			px.setRGB_fromDouble_preserveAlpha(out[0], out[1], out[2]);
+		}
+	},
 
 	/**
 	 * Transforms colors from the RGB domain to the HSV domain (hue, saturation, value).
@@ -98,8 +121,15 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 	 * @since 1.2
 	 */
 	RGB_2_HSV(
-			ColorSpaceTransformation::rgb2hsv_continuous
-	),
+			ColorSpaceTransformation::rgb2hsv
+	){
+		@Override
+		public void accept(PixelBase px) {
+			double[] out = new double[3];
+			rgb2hsv(px.r_asDouble(), px.g_asDouble(), px.b_asDouble(), px instanceof Pixel, out);
+			px.setRGB_fromDouble_preserveAlpha(out[0], out[1], out[2]);
+		}
+	},
 
 	/**
 	 * Transforms colors from the HSV domain (hue, saturation, value) to the RGB domain.
@@ -109,18 +139,39 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 	 * @since 1.2
 	 */
 	HSV_2_RGB(
-			ColorSpaceTransformation::hsv2rgb_continuous
-	),
+			ColorSpaceTransformation::hsv2rgb
+	){
+		@Override
+		public void accept(PixelBase px) {
+			double[] out = new double[3];
+			hsv2rgb(px.r_asDouble(), px.g_asDouble(), px.b_asDouble(), px instanceof Pixel, out);
+			px.setRGB_fromDouble_preserveAlpha(out[0], out[1], out[2]);
+		}
+	},
 
 
 	RGB_2_YCbCr(
-			ColorSpaceTransformation::rgb2ycbcr_continuous
-	),
+			ColorSpaceTransformation::rgb2ycbcr
+	){
+		@Override
+		public void accept(PixelBase px) {
+			double[] out = new double[3];
+			rgb2ycbcr(px.r_asDouble(), px.g_asDouble(), px.b_asDouble(), px instanceof Pixel, out);
+			px.setRGB_fromDouble_preserveAlpha(out[0], out[1], out[2]);
+		}
+	},
 
 
 	YCbCr_2_RGB(
-			ColorSpaceTransformation::ycbcr2rgb_continuous
-	)
+			ColorSpaceTransformation::ycbcr2rgb
+	){
+		@Override
+		public void accept(PixelBase px) {
+			double[] out = new double[3];
+			ycbcr2rgb(px.r_asDouble(), px.g_asDouble(), px.b_asDouble(), px instanceof Pixel, out);
+			px.setRGB_fromDouble_preserveAlpha(out[0], out[1], out[2]);
+		}
+	}
 	;
 
 	static {
@@ -135,11 +186,12 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 	}
 
 	////// ATTRIBUTES / METHODS //////
-	private final Consumer<PixelBase> continousTransform;
+	/* transformation of the channel arrays used by the bulk methods */
+	private final ChannelTransform channelTransform;
 	private ColorSpaceTransformation inverse;
 
-	private ColorSpaceTransformation(Consumer<PixelBase> continousTransform) {
-		this.continousTransform = continousTransform;
+	private ColorSpaceTransformation(ChannelTransform channelTransform) {
+		this.channelTransform = channelTransform;
 	}
 
 
@@ -149,9 +201,7 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 	 * @since 1.4
 	 */
 	@Override
-	public void accept(PixelBase px) {
-		continousTransform.accept(px);
-	}
+	public abstract void accept(PixelBase px);
 
 	/**
 	 * Applies this transformation to the specified pixel
@@ -174,9 +224,213 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 	}
 
 
+	/**
+	 * Applies this transformation to all pixels of the source image and writes the
+	 * results to the destination image.
+	 * The channel arrays are processed directly, which is considerably faster than
+	 * {@code img.forEach(transformation)}, and yields the same values.
+	 * The alpha channel is copied when both images have alpha and otherwise left untouched.
+	 * @param src source image
+	 * @param dst destination image of same dimensions (may be the source image),
+	 * or null to create a new image (with alpha if the source has alpha)
+	 * @param parallel whether to process in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the destination's dimensions do not match the source's
+	 * @since 2.2
+	 */
+	public ColorImg transform(ColorImg src, ColorImg dst, boolean parallel){
+		if(dst == null){
+			dst = new ColorImg(src.getWidth(), src.getHeight(), src.hasAlpha());
+		}
+		requireSameDimensions(src, dst);
+		final double[] r = src.getDataR(), g = src.getDataG(), b = src.getDataB();
+		final double[] outR = dst.getDataR(), outG = dst.getDataG(), outB = dst.getDataB();
+		ParallelRangeExecutor.executeChunked(src.numValues(), src.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			final double[] out = new double[3];
+			for(int i = from; i < to; i++){
+				channelTransform.transform(r[i], g[i], b[i], false, out);
+				outR[i] = out[0]; outG[i] = out[1]; outB[i] = out[2];
+			}
+		});
+		copyAlpha(src.getDataA(), dst.getDataA(), src, dst);
+		return dst;
+	}
+
+	/**
+	 * Applies this transformation to all pixels of the source image and writes the
+	 * results to the destination image.
+	 * The packed ARGB values are processed directly (8 bit channels are normalized using
+	 * lookup tables), which is considerably faster than {@code img.forEach(transformation)},
+	 * and yields the same values. The alpha channel is copied.
+	 * @param src source image
+	 * @param dst destination image of same dimensions (may be the source image),
+	 * or null to create a new image
+	 * @param parallel whether to process in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the destination's dimensions do not match the source's
+	 * @since 2.2
+	 */
+	public Img transform(Img src, Img dst, boolean parallel){
+		if(dst == null){
+			dst = new Img(src.getDimension());
+		}
+		requireSameDimensions(src, dst);
+		final int[] in = src.getData();
+		final int[] outARGB = dst.getData();
+		ParallelRangeExecutor.executeChunked(src.numValues(), src.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			final double[] out = new double[3];
+			for(int i = from; i < to; i++){
+				int argb = in[i];
+				transform8bit(argb, true, out);
+				outARGB[i] = (argb & 0xff000000) | (0x00ffffff & Pixel.rgb_fromNormalized(out[0], out[1], out[2]));
+			}
+		});
+		return dst;
+	}
+
+	/**
+	 * Applies this transformation to all pixels of the source image and writes the
+	 * results to the floating point destination image without quantization,
+	 * same as {@code new ColorImg(src, alpha).forEach(transformation)} would.
+	 * 8 bit channels are normalized using lookup tables.
+	 * The normalized alpha channel is copied when the destination has alpha.
+	 * @param src source image
+	 * @param dst destination image of same dimensions, or null to create a new image with alpha
+	 * @param parallel whether to process in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the destination's dimensions do not match the source's
+	 * @since 2.2
+	 */
+	public ColorImg transform(Img src, ColorImg dst, boolean parallel){
+		if(dst == null){
+			dst = new ColorImg(src.getWidth(), src.getHeight(), true);
+		}
+		requireSameDimensions(src, dst);
+		final int[] in = src.getData();
+		final double[] outR = dst.getDataR(), outG = dst.getDataG(), outB = dst.getDataB(), outA = dst.getDataA();
+		ParallelRangeExecutor.executeChunked(src.numValues(), src.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			final double[] out = new double[3];
+			for(int i = from; i < to; i++){
+				int argb = in[i];
+				transform8bit(argb, false, out);
+				outR[i] = out[0]; outG[i] = out[1]; outB[i] = out[2];
+				if(outA != null){
+					outA[i] = NORMALIZED[argb>>>24];
+				}
+			}
+		});
+		return dst;
+	}
+
+	/**
+	 * Applies this transformation to all pixels of the source image and writes the
+	 * results to the single precision destination image without quantization to 8 bit,
+	 * same as {@code new FloatColorImg(src, alpha).forEach(transformation)} would
+	 * (up to single precision rounding of the inputs).
+	 * 8 bit channels are normalized using lookup tables.
+	 * The normalized alpha channel is copied when the destination has alpha.
+	 * @param src source image
+	 * @param dst destination image of same dimensions, or null to create a new image with alpha
+	 * @param parallel whether to process in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the destination's dimensions do not match the source's
+	 * @since 2.2
+	 */
+	public FloatColorImg transform(Img src, FloatColorImg dst, boolean parallel){
+		if(dst == null){
+			dst = new FloatColorImg(src.getWidth(), src.getHeight(), true);
+		}
+		requireSameDimensions(src, dst);
+		final int[] in = src.getData();
+		final float[] outR = dst.getDataR(), outG = dst.getDataG(), outB = dst.getDataB(), outA = dst.getDataA();
+		ParallelRangeExecutor.executeChunked(src.numValues(), src.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			final double[] out = new double[3];
+			for(int i = from; i < to; i++){
+				int argb = in[i];
+				transform8bit(argb, false, out);
+				outR[i] = (float)out[0]; outG[i] = (float)out[1]; outB[i] = (float)out[2];
+				if(outA != null){
+					outA[i] = (float)NORMALIZED[argb>>>24];
+				}
+			}
+		});
+		return dst;
+	}
+
+	/**
+	 * Applies this transformation to all pixels of the source image and writes the
+	 * results to the destination image. Same as {@link #transform(ColorImg, ColorImg, boolean)}
+	 * but in single precision.
+	 * @param src source image
+	 * @param dst destination image of same dimensions (may be the source image),
+	 * or null to create a new image (with alpha if the source has alpha)
+	 * @param parallel whether to process in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when the destination's dimensions do not match the source's
+	 * @since 2.2
+	 */
+	public FloatColorImg transform(FloatColorImg src, FloatColorImg dst, boolean parallel){
+		if(dst == null){
+			dst = new FloatColorImg(src.getWidth(), src.getHeight(), src.hasAlpha());
+		}
+		requireSameDimensions(src, dst);
+		final float[] r = src.getDataR(), g = src.getDataG(), b = src.getDataB();
+		final float[] outR = dst.getDataR(), outG = dst.getDataG(), outB = dst.getDataB();
+		ParallelRangeExecutor.executeChunked(src.numValues(), src.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			final double[] out = new double[3];
+			for(int i = from; i < to; i++){
+				channelTransform.transform(r[i], g[i], b[i], false, out);
+				outR[i] = (float)out[0]; outG[i] = (float)out[1]; outB[i] = (float)out[2];
+			}
+		});
+		copyAlpha(src.getDataA(), dst.getDataA(), src, dst);
+		return dst;
+	}
+
+	/** transforms the RGB channels of an 8 bit ARGB value, using tables where possible */
+	private void transform8bit(int argb, boolean discrete, double[] out){
+		int r = (argb>>16)&0xff, g = (argb>>8)&0xff, b = argb&0xff;
+		if(this == RGB_2_LAB){
+			xyz2lab(
+					LAB.XR[r] + LAB.XG[g] + LAB.XB[b],
+					LAB.YR[r] + LAB.YG[g] + LAB.YB[b],
+					LAB.ZR[r] + LAB.ZG[g] + LAB.ZB[b],
+					discrete, out);
+		} else {
+			channelTransform.transform(NORMALIZED[r], NORMALIZED[g], NORMALIZED[b], discrete, out);
+		}
+	}
+
+	private static void requireSameDimensions(ImgBase<?> src, ImgBase<?> dst){
+		if(dst.getWidth() != src.getWidth() || dst.getHeight() != src.getHeight()){
+			throw new IllegalArgumentException(String.format(
+					"Destination dimensions (%dx%d) do not match source dimensions (%dx%d)",
+					dst.getWidth(), dst.getHeight(), src.getWidth(), src.getHeight()));
+		}
+	}
+
+	private static void copyAlpha(Object srcA, Object dstA, ImgBase<?> src, ImgBase<?> dst){
+		if(srcA != null && dstA != null && src != dst){
+			System.arraycopy(srcA, 0, dstA, 0, src.numValues());
+		}
+	}
+
+
 	////// STATIC //////
 
-	
+	/* normalized 8 bit values, same as Pixel.r_normalized */
+	private static final double[] NORMALIZED = new double[256];
+	static {
+		for(int i = 0; i < 256; i++){
+			NORMALIZED[i] = i/255.0;
+		}
+	}
+
+	/* transformation of normalized RGB values, discrete indicates 8 bit target (see LAB) */
+	private static interface ChannelTransform {
+		public void transform(double r, double g, double b, boolean discrete, double[] out);
+	}
+
 	// CIE L*a*b* helper class
 	private static final class LAB {
 		private LAB(){};
@@ -188,6 +442,19 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 		static final double lab6_29_3 = lab6_29*lab6_29*lab6_29;
 		static final double lab1_3_29_6_2 = (1.0/3.0) * (29.0/6.0) * (29.0/6.0);
 
+		// sRGB to XYZ matrix products of the normalized 8 bit values
+		static final double[] XR = table(0.4124564f), XG = table(0.3575761f), XB = table(0.1804375f);
+		static final double[] YR = table(0.2126729f), YG = table(0.7151522f), YB = table(0.0721750f);
+		static final double[] ZR = table(0.0193339f), ZG = table(0.1191920f), ZB = table(0.9503041f);
+
+		static double[] table(double coefficient){
+			double[] table = new double[256];
+			for(int i = 0; i < 256; i++){
+				table[i] = (i/255.0)*coefficient;
+			}
+			return table;
+		}
+
 		static double func(double q){
 			return q > lab6_29_3 ? (double)Math.cbrt(q):lab1_3_29_6_2*q + (4.0/29.0);
 //			return (double)Math.cbrt(q);
@@ -197,96 +464,68 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 			return q > lab6_29 ? q*q*q : 3*lab6_29*lab6_29*(q-(4.0/29.0));
 //			return q*q*q;
 		}
-	}
 
+		/*
+		 * Normalized L*a*b* components from func(x/Xn), func(y/Yn) and func(z/Zn).
+		 * Unnormalized, with ranges L[0,100] ab[-100,100]:
+		 * L = 116*fy-16;
+		 * a = 500*(fx - fy);
+		 * b = 200*(fy - fz);
+		 *
+		 * For discrete targets this is special:
+		 * Pixels value range per channel is [0,255] (discrete).
+		 * We want to map an interval [-1.0, 1.0] to [0,255] for the a and b channels.
+		 * It is mandatory that the range [-1.0, 0.0[ and ]0.0, 1.0] are mapped to the same amount of
+		 * discrete values and that 0 is directly mapped to a value as it corresponds to zero
+		 * chromaticity (i.e. grey level values).
+		 * The problem with this requirement is that the number of values in [0,255] is even (256)
+		 * and therefore having a zero mapping and two ranges of equal size left and right to it cannot
+		 * use the full range.
+		 * We will thus map negative values to [0,126] 0 to [127] and positive values to [128,254],
+		 * leaving out the last value (255) so actually [-1.0, 1.0] is mapped to [0,254]
+		 * Otherwise ranges are L[0,1] ab[-0.5,0.5] shifted to [0,1].
+		 */
+		static double L(double fy, boolean discrete){
+			return discrete ? ((116*fy-16)*(255.0/100))/255 : (116*fy-16)*(0.01);
+		}
 
-	////// TRANSFORMS //////
-	private static void rgb2lab_continuous(PixelBase px)
-	{
+		static double a(double fx, double fy, boolean discrete){
+			return discrete ? (500*(127.0/100)*(fx - fy)+127)/255 : 2.5*(fx - fy)+0.5;
+		}
 
-		double x,y,z; x=y=z=0;
-		{// first convert to CIEXYZ (assuming sRGB color space with D65 white)
-			double r = px.r_asDouble(); double g = px.g_asDouble(); double b = px.b_asDouble();
-			x = r*0.4124564f + g*0.3575761f + b*0.1804375f;
-			y = r*0.2126729f + g*0.7151522f + b*0.0721750f;
-			z = r*0.0193339f + g*0.1191920f + b*0.9503041f;
+		static double b(double fy, double fz, boolean discrete){
+			return discrete ? (200*(127.0/100)*(fy - fz)+127)/255 : 1.0*(fy - fz)+0.5;
 		}
-		double L,a,b; L=a=b=0;
-		{// now convert to Lab
-			double temp = LAB.func(y/LAB.Yn);
-//			 with ranges L[0,100] ab[-100,100]
-//			 L = 116*temp-16;
-//			 a = 500*(LAB.func(x/LAB.Xn) - temp);
-//			 b = 200*(temp - LAB.func(z/LAB.Zn));
-
-//			 // with ranges L[0,1] ab[-0.5,0.5];
-//			 L = (116*temp-16)*(0.01);
-//			 a = 2.5*(LAB.func(x/LAB.Xn) - temp);
-//			 b = 1.0*(temp - LAB.func(z/LAB.Zn));
-
-			if(px instanceof Pixel){
-				/* this is special:
-				 * Pixels value range per channel is [0,255] (discrete).
-				 * We want to map an interval [-1.0, 1.0] to [0,255] for the a and b channels.
-				 * It is mandatory that the range [-1.0, 0.0[ and ]0.0, 1.0] are mapped to the same amount of
-				 * discrete values and that 0 is directly mapped to a value as it corresponds to zero
-				 * chromaticity (i.e. grey level values).
-				 * The problem with this requirement is that the number of values in [0,255] is even (256)
-				 * and therefore having a zero mapping and two ranges of equal size left and right to it cannot
-				 * use the full range.
-				 * We will thus map negative values to [0,126] 0 to [127] and positive values to [128,254],
-				 * leaving out the last value (255) so actually [-1.0, 1.0] is mapped to [0,254]
-				 */
-
-				// with ranges L[0,255] ab[-127,127];
-				L = (116*temp-16)*(255.0/100);
-				a = 500*(127.0/100)*(LAB.func(x/LAB.Xn) - temp);
-				b = 200*(127.0/100)*(temp - LAB.func(z/LAB.Zn));
-
-				L /= 255;
-				a = (a+127)/255;
-				b = (b+127)/255;
-			} else {
-				 // with ranges L[0,1] ab[-0.5,0.5];
-				 L = (116*temp-16)*(0.01);
-				 a = 2.5*(LAB.func(x/LAB.Xn) - temp);
-				 b = 1.0*(temp - LAB.func(z/LAB.Zn));
-
-				 a = a+0.5;
-				 b = b+0.5;
-			}
 
+		/* inverse of the a and b normalization, see above. Result is in range [-100,100] */
+		static double ab_denormalized(double v, boolean discrete){
+			return discrete ? (v*255-127)*(200.0/254) : (v-0.5)*200.0;
 		}
-		px.setRGB_fromDouble_preserveAlpha(L, a, b);
 	}
 
-	private static void lab2rgb_continuous(PixelBase px)
+
+	////// TRANSFORMS //////
+	private static void rgb2lab(double r, double g, double b, boolean discrete, double[] out)
 	{
-		double L,A,B;
-		if(px instanceof Pixel){
-			/* this is special:
-			 * Pixels value range per channel is [0,255] (discrete).
-			 * But we mapped an interval [-1.0, 1.0] to [0,254] for the a and b channels.
-			 * This was done because the range [-1.0, 0.0[ and ]0.0, 1.0] has to be mapped to the same amount of
-			 * discrete values and 0 has to be directly mapped to a value as it corresponds to zero
-			 * chromaticity (i.e. grey level values).
-			 * The problem with this requirement was that the number of values in [0,255] is even (256)
-			 * and therefore having a zero mapping and two ranges of equal size left and right to it cannot
-			 * use the full range of [0,255].
-			 * We thus mapped negative values of a and b to [0,126] 0 to [127] and positive values to [128,254],
-			 * leaving out the last value (255).
-			 */
-			L = (px.r_asDouble()        )*100.0;
-			A = (px.g_asDouble()*255-127)*(200.0/254);
-			B = (px.b_asDouble()*255-127)*(200.0/254);
-		} else {
-			L = (px.r_asDouble()    )*100.0;
-			A = (px.g_asDouble()-0.5)*200.0;
-			B = (px.b_asDouble()-0.5)*200.0;
-		}
+		// first convert to CIEXYZ (assuming sRGB color space with D65 white)
+		double x = r*0.4124564f + g*0.3575761f + b*0.1804375f;
+		double y = r*0.2126729f + g*0.7151522f + b*0.0721750f;
+		double z = r*0.0193339f + g*0.1191920f + b*0.9503041f;
+		xyz2lab(x, y, z, discrete, out);
+	}
 
-		// L in range [0,100] a,b in range [-100,100]
+	private static void xyz2lab(double x, double y, double z, boolean discrete, double[] out)
+	{
+		double fx = LAB.func(x/LAB.Xn), fy = LAB.func(y/LAB.Yn), fz = LAB.func(z/LAB.Zn);
+		set(out, LAB.L(fy, discrete), LAB.a(fx, fy, discrete), LAB.b(fy, fz, discrete));
+	}
 
+	private static void lab2rgb(double l, double a, double b, boolean discrete, double[] out)
+	{
+		// L in range [0,100] a,b in range [-100,100]
+		double L = l*100.0;
+		double A = LAB.ab_denormalized(a, discrete);
+		double B = LAB.ab_denormalized(b, discrete);
 
 		// LAB to XYZ
 		double temp = (L+16)/116;
@@ -294,19 +533,14 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 		double y =  LAB.Yn*LAB.funcInv(temp);
 		double z =  LAB.Zn*LAB.funcInv(temp - (B/200));
 
-		px.setRGB_fromDouble_preserveAlpha(
-				//                           X             Y             Z
-				( 3.2404542f*x -1.5371385f*y -0.4985314f*z),  // R
-				(-0.9692660f*x +1.8760108f*y +0.0415560f*z),  // G
-				( 0.0556434f*x -0.2040259f*y +1.0572252f*z)); // B
+		//                                    X             Y             Z
+		out[0] = ( 3.2404542f*x -1.5371385f*y -0.4985314f*z);  // R
+		out[1] = (-0.9692660f*x +1.8760108f*y +0.0415560f*z);  // G
+		out[2] = ( 0.0556434f*x -0.2040259f*y +1.0572252f*z);  // B
 	}
 
-	private static void rgb2hsv_continuous(PixelBase px)
+	private static void rgb2hsv(double r, double g, double b, boolean discrete, double[] out)
 	{
-		double r = px.r_asDouble();
-		double g = px.g_asDouble();
-		double b = px.b_asDouble();
-
 		double max,p,q,o; max=p=q=o=0;
 		if(r > max){ max=r; p=g; q=b; o=0; }
 		if(g > max){ max=g; p=b; q=r; o=2; }
@@ -314,55 +548,55 @@ public enum ColorSpaceTransformation implements Consumer<PixelBase> {
 
 		double min = Math.min(Math.min(r,g),b);
 		if(max==min){
-			px.setRGB_fromDouble_preserveAlpha(0, 0, max);
+			set(out, 0, 0, max);
 		} else {
 			double h,s,v;
 			h = (1.0/6.0) * (o + (p-q)/(max-min));
 			h -= Math.floor(h);
 			s = (max-min)/max;
 			v = max;
-			px.setRGB_fromDouble_preserveAlpha(h, s, v);
+			set(out, h, s, v);
 		}
 	}
 
-	private static void hsv2rgb_continuous(PixelBase px)
+	private static void hsv2rgb(double h, double s, double v, boolean discrete, double[] out)
 	{
-		double h = px.r_asDouble();
 		h -= Math.floor(h);
 		h *= 360;
-		double s = px.g_asDouble();
-		double v = px.b_asDouble();
 		double hi = h/60;
 		double f = hi - (hi=(int)hi);
 		double p = v*(1-s);
 		double q = v*(1-s*f);
 		double t = v*(1-s*(1-f));
 		switch((int)hi){
-		case 1:  px.setRGB_fromDouble_preserveAlpha(q,v,p);break;
-		case 2:  px.setRGB_fromDouble_preserveAlpha(p,v,t);break;
-		case 3:  px.setRGB_fromDouble_preserveAlpha(p,q,v);break;
-		case 4:  px.setRGB_fromDouble_preserveAlpha(t,p,v);break;
-		case 5:  px.setRGB_fromDouble_preserveAlpha(v,p,q);break;
-		default: px.setRGB_fromDouble_preserveAlpha(v,t,p);break;
+		case 1:  set(out, q,v,p);break;
+		case 2:  set(out, p,v,t);break;
+		case 3:  set(out, p,q,v);break;
+		case 4:  set(out, t,p,v);break;
+		case 5:  set(out, v,p,q);break;
+		default: set(out, v,t,p);break;
 		}
 	}
 	
-	private static void rgb2ycbcr_continuous(PixelBase px)
+	private static void rgb2ycbcr(double r, double g, double b, boolean discrete, double[] out)
 	{
-		double r = px.r_asDouble(), g = px.g_asDouble(), b = px.b_asDouble();
-		px.setRGB_fromDouble_preserveAlpha(
+		set(out,
 				(0.2990f*r +0.5870f*g +0.1140f*b),
 				(-0.1687f*r -0.3313f*g +0.5000f*b +0.5),
 				( 0.5000f*r -0.4187f*g +0.0813f*b +0.5));
 	}
 
-	private static void ycbcr2rgb_continuous(PixelBase px)
+	private static void ycbcr2rgb(double y, double cb, double cr, boolean discrete, double[] out)
 	{
-		double y = px.r_asDouble(), cb = px.g_asDouble()-0.5, cr = px.b_asDouble()-0.5;
-		px.setRGB_fromDouble_preserveAlpha(
+		cb -= 0.5; cr -= 0.5;
+		set(out,
 				(0.7720f*y -0.4030f*cb +1.4020f*cr),
 				(1.1161f*y -0.1384f*cb -0.7141f*cr),
 				(1.0000f*y +1.7720f*cb -0.0001f*cr));
 	}
 
+	private static void set(double[] out, double r, double g, double b){
+		out[0] = r; out[1] = g; out[2] = b;
+	}
+
 }
@@ -0,0 +1,480 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.operations;
+
+import java.util.Arrays;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
+
+/**
+ * Per channel histogram of an image.
+ * <p>
+ * A histogram of an {@link Img} has 256 bins per channel, one for each 8 bit value,
+ * a histogram of a {@link ColorImg} has a configurable number of bins that evenly divide
+ * a configurable value range [min,max). Values outside of the range are counted in the first or last bin,
+ * NaN values are not counted.
+ * The channels are indexed like the channels of a {@link ColorImg}
+ * ({@link ColorImg#channel_r}, {@link ColorImg#channel_g}, {@link ColorImg#channel_b}, {@link ColorImg#channel_a}),
+ * for an Img the alpha channel is always present.
+ * <p>
+ * Histograms are computed in a single pass over the image, when executed in parallel
+ * each task counts into its own partial histogram which are merged in the end.
+ * Apart from the queries (counts, cumulative counts, percentiles) this class provides
+ * bulk operations that are based on histograms:
+ * histogram equalization, histogram matching and auto levels.
+ * <p>
+ * Example:
+ * <pre>
+ * {@code
+ * Histogram h = Histogram.of(img, true);
+ * int median = h.percentileBin(ColorImg.channel_g, 0.5);
+ * Histogram.autoLevels(img, 0.005, true);
+ * }</pre>
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class Histogram {
+
+	private final int numBins;
+	private final double min, max;
+	private final double binWidth;
+	/* counts[channel][bin] */
+	private final long[][] counts;
+	private final long[] totals;
+
+	private Histogram(int numChannels, int numBins, double min, double max) {
+		this.numBins = numBins;
+		this.min = min;
+		this.max = max;
+		this.binWidth = (max-min)/numBins;
+		this.counts = new long[numChannels][numBins];
+		this.totals = new long[numChannels];
+	}
+
+	/**
+	 * Computes the histogram of the specified image with 256 bins per channel,
+	 * covering the 8 bit values [0,256).
+	 * @param img of which the histogram is computed
+	 * @param parallel whether to compute in parallel
+	 * @return histogram with 4 channels (r,g,b,a)
+	 */
+	public static Histogram of(Img img, boolean parallel){
+		final Histogram histogram = new Histogram(4, 256, 0, 256);
+		final int[] data = img.getData();
+		ParallelRangeExecutor.executeChunked(img.numValues(), img.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			final int[] r = new int[256], g = new int[256], b = new int[256], a = new int[256];
+			for(int i = from; i < to; i++){
+				int argb = data[i];
+				r[(argb>>16)&0xff]++;
+				g[(argb>> 8)&0xff]++;
+				b[(argb    )&0xff]++;
+				a[(argb>>>24)     ]++;
+			}
+			histogram.merge(new int[][]{r,g,b,a});
+		});
+		return histogram;
+	}
+
+	/**
+	 * Computes the histogram of the specified image with the specified number of bins
+	 * per channel, covering the specified value range.
+	 * @param img of which the histogram is computed
+	 * @param numBins number of bins per channel
+	 * @param min lower bound of the value range (inclusive)
+	 * @param max upper bound of the value range (exclusive)
+	 * @param parallel whether to compute in parallel
+	 * @return histogram with one channel per channel of the image (r,g,b and a if present)
+	 * @throws IllegalArgumentException when numBins is not positive or the range is empty or not finite
+	 */
+	public static Histogram of(ColorImg img, int numBins, double min, double max, boolean parallel){
+		if(numBins < 1){
+			throw new IllegalArgumentException(String.format(
+					"Number of bins has to be positive, specified:%d", numBins));
+		}
+		if(!(min < max) || Double.isInfinite(min) || Double.isInfinite(max)){
+			throw new IllegalArgumentException(String.format(
+					"Value range has to be finite and non empty, specified: [%f,%f)", min, max));
+		}
+		final int numChannels = img.hasAlpha() ? 4:3;
+		final Histogram histogram = new Histogram(numChannels, numBins, min, max);
+		final double[][] data = img.getData();
+		ParallelRangeExecutor.executeChunked(img.numValues(), img.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			final int[][] partial = new int[numChannels][numBins];
+			for(int c = 0; c < numChannels; c++){
+				final double[] values = data[c];
+				final int[] bins = partial[c];
+				for(int i = from; i < to; i++){
+					double v = values[i];
+					if(v == v){
+						bins[histogram.binOf(v)]++;
+					}
+				}
+			}
+			histogram.merge(partial);
+		});
+		return histogram;
+	}
+
+	private synchronized void merge(int[][] partial){
+		for(int c = 0; c < partial.length; c++){
+			long[] bins = counts[c];
+			int[] p = partial[c];
+			long sum = 0;
+			for(int i = 0; i < numBins; i++){
+				bins[i] += p[i];
+				sum += p[i];
+			}
+			totals[c] += sum;
+		}
+	}
+
+	/**
+	 * Returns the bin of the specified value, values outside of the range
+	 * are assigned to the first or last bin.
+	 * @param value to find bin for (not NaN)
+	 * @return bin index
+	 */
+	public int binOf(double value){
+		int bin = (int)Math.floor((value-min)/binWidth);
+		return Math.max(0, Math.min(numBins-1, bin));
+	}
+
+	/**
+	 * @param bin index
+	 * @return lower bound of the value range of the specified bin
+	 */
+	public double binValue(int bin){
+		return min+bin*binWidth;
+	}
+
+	/** @return number of channels */
+	public int numChannels(){
+		return counts.length;
+	}
+
+	/** @return number of bins per channel */
+	public int numBins(){
+		return numBins;
+	}
+
+	/** @return lower bound of the value range (inclusive) */
+	public double getMin() {
+		return min;
+	}
+
+	/** @return upper bound of the value range (exclusive) */
+	public double getMax() {
+		return max;
+	}
+
+	/**
+	 * @param channel index
+	 * @param bin index
+	 * @return number of values of the specified channel in the specified bin
+	 */
+	public long getCount(int channel, int bin){
+		return counts[channel][bin];
+	}
+
+	/**
+	 * @param channel index
+	 * @return copy of the counts of the specified channel
+	 */
+	public long[] getCounts(int channel){
+		return counts[channel].clone();
+	}
+
+	/**
+	 * @param channel index
+	 * @return total number of counted values of the specified channel (NaN values are not counted)
+	 */
+	public long getTotal(int channel){
+		return totals[channel];
+	}
+
+	/**
+	 * Returns the cumulative histogram of the specified channel, where the value for a bin
+	 * is the number of values in this bin and all bins below.
+	 * @param channel index
+	 * @return cumulative counts
+	 */
+	public long[] cumulative(int channel){
+		long[] cumulative = counts[channel].clone();
+		for(int i = 1; i < numBins; i++){
+			cumulative[i] += cumulative[i-1];
+		}
+		return cumulative;
+	}
+
+	/**
+	 * Returns the lowest bin for which the fraction of values of the specified channel
+	 * that are in this bin or below is at least the specified fraction.
+	 * E.g. the bin of the median is {@code percentileBin(channel, 0.5)}.
+	 * @param channel index
+	 * @param fraction in [0,1]
+	 * @return bin index of the percentile, 0 if the channel does not contain any values
+	 * @throws IllegalArgumentException when fraction is not in [0,1]
+	 */
+	public int percentileBin(int channel, double fraction){
+		if(!(fraction >= 0 && fraction <= 1)){
+			throw new IllegalArgumentException(String.format(
+					"Fraction has to be in [0,1], specified: %f", fraction));
+		}
+		long[] bins = counts[channel];
+		long threshold = Math.max(1, (long)Math.ceil(fraction*totals[channel]));
+		long sum = 0;
+		for(int i = 0; i < numBins; i++){
+			sum += bins[i];
+			if(sum >= threshold){
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the value of the specified percentile, which is the lower bound of the bin
+	 * returned by {@link #percentileBin(int, double)}.
+	 * For histograms of an {@link Img} this is the 8 bit value of the percentile.
+	 * @param channel index
+	 * @param fraction in [0,1]
+	 * @return value of the percentile
+	 * @throws IllegalArgumentException when fraction is not in [0,1]
+	 */
+	public double percentile(int channel, double fraction){
+		return binValue(percentileBin(channel, fraction));
+	}
+
+	/**
+	 * Returns the normalized cumulative histogram of the specified channel (values in [0,1]).
+	 * All zeros if the channel does not contain any values.
+	 */
+	private double[] normalizedCumulative(int channel){
+		long[] cumulative = cumulative(channel);
+		double[] cdf = new double[numBins];
+		long total = totals[channel];
+		if(total > 0){
+			for(int i = 0; i < numBins; i++){
+				cdf[i] = cumulative[i]/(double)total;
+			}
+		}
+		return cdf;
+	}
+
+	/**
+	 * Returns the equalization mapping of the specified channel, which maps each bin to
+	 * a value in [0,1] so that the mapped values are (approximately) uniformly distributed.
+	 * The lowest occupied bin is mapped to 0 and the highest to 1.
+	 * @param channel index
+	 * @return mapping from bin to value in [0,1]
+	 */
+	public double[] equalizationMapping(int channel){
+		long[] cumulative = cumulative(channel);
+		long total = totals[channel];
+		long cmin = 0;
+		for(int i = 0; i < numBins && cmin == 0; i++){
+			cmin = cumulative[i];
+		}
+		double[] mapping = new double[numBins];
+		if(total > cmin){
+			for(int i = 0; i < numBins; i++){
+				mapping[i] = Math.max(0, (cumulative[i]-cmin)/(double)(total-cmin));
+			}
+		}
+		return mapping;
+	}
+
+	/**
+	 * Returns the mapping of bins of the specified channel of this histogram to values,
+	 * so that the distribution of mapped values matches the specified reference histogram.
+	 * Each bin is mapped to the value of the lowest bin of the reference whose normalized
+	 * cumulative count is at least the normalized cumulative count of the bin.
+	 * @param channel index
+	 * @param reference histogram to match
+	 * @param referenceChannel channel of the reference histogram
+	 * @return mapping from bin to value in the reference's range
+	 */
+	public double[] matchingMapping(int channel, Histogram reference, int referenceChannel){
+		double[] cdf = normalizedCumulative(channel);
+		double[] refCdf = reference.normalizedCumulative(referenceChannel);
+		double[] mapping = new double[numBins];
+		int j = 0;
+		for(int i = 0; i < numBins; i++){
+			// cdf is monotonic, search continues from previous bin
+			while(j < refCdf.length-1 && refCdf[j] < cdf[i]-1e-12){
+				j++;
+			}
+			mapping[i] = reference.binValue(j);
+		}
+		return mapping;
+	}
+
+	/* ---------------------------- bulk operations ---------------------------- */
+
+	/**
+	 * Equalizes the histograms of the red, green and blue channel of the specified image,
+	 * alpha is preserved.
+	 * @param img to be equalized
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 */
+	public static Img equalize(Img img, boolean parallel){
+		Histogram h = of(img, parallel);
+		int[][] tables = new int[3][];
+		for(int c = 0; c < 3; c++){
+			double[] mapping = h.equalizationMapping(c);
+			tables[c] = new int[256];
+			for(int i = 0; i < 256; i++){
+				tables[c][i] = (int)Math.round(mapping[i]*255);
+			}
+		}
+		return applyRGBTables(img, tables, parallel);
+	}
+
+	/**
+	 * Equalizes the histograms of the red, green and blue channel of the specified image,
+	 * alpha is preserved. Values are binned in the specified range and are mapped to this range.
+	 * @param img to be equalized
+	 * @param numBins number of bins
+	 * @param min lower bound of the value range (inclusive)
+	 * @param max upper bound of the value range (exclusive)
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 * @throws IllegalArgumentException when numBins is not positive or the range is empty or not finite
+	 */
+	public static ColorImg equalize(ColorImg img, int numBins, double min, double max, boolean parallel){
+		Histogram h = of(img, numBins, min, max, parallel);
+		double[][] tables = new double[3][];
+		for(int c = 0; c < 3; c++){
+			tables[c] = h.equalizationMapping(c);
+			for(int i = 0; i < numBins; i++){
+				tables[c][i] = min + tables[c][i]*(max-min);
+			}
+		}
+		return applyRGBTables(img, h, tables, parallel);
+	}
+
+	/**
+	 * Transforms the red, green and blue channel of the specified image so that their histograms
+	 * match the corresponding channels of the specified reference histogram, alpha is preserved.
+	 * @param img to be transformed
+	 * @param reference histogram of an {@link Img} (e.g. {@code Histogram.of(referenceImg, true)})
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 * @throws IllegalArgumentException when the reference does not have 256 bins covering [0,256)
+	 */
+	public static Img match(Img img, Histogram reference, boolean parallel){
+		if(reference.numBins != 256 || reference.min != 0 || reference.max != 256){
+			throw new IllegalArgumentException(
+					"Reference histogram has to be a histogram of an Img (256 bins in [0,256)).");
+		}
+		Histogram h = of(img, parallel);
+		int[][] tables = new int[3][];
+		for(int c = 0; c < 3; c++){
+			double[] mapping = h.matchingMapping(c, reference, c);
+			tables[c] = new int[256];
+			for(int i = 0; i < 256; i++){
+				tables[c][i] = (int)mapping[i];
+			}
+		}
+		return applyRGBTables(img, tables, parallel);
+	}
+
+	/**
+	 * Transforms the red, green and blue channel of the specified image so that their histograms
+	 * match the corresponding channels of the specified reference histogram, alpha is preserved.
+	 * The image is binned with the same number of bins and value range as the reference.
+	 * @param img to be transformed
+	 * @param reference histogram with at least 3 channels
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 */
+	public static ColorImg match(ColorImg img, Histogram reference, boolean parallel){
+		Histogram h = of(img, reference.numBins, reference.min, reference.max, parallel);
+		double[][] tables = new double[3][];
+		for(int c = 0; c < 3; c++){
+			tables[c] = h.matchingMapping(c, reference, c);
+		}
+		return applyRGBTables(img, h, tables, parallel);
+	}
+
+	/**
+	 * Stretches the red, green and blue channel of the specified image individually so that
+	 * the specified fraction of darkest values becomes 0 and the specified fraction of brightest
+	 * values becomes 255, alpha is preserved. Channels that only contain a single value
+	 * (after clipping) are not changed.
+	 * @param img to be adjusted
+	 * @param clipFraction fraction of values at each end that is clipped, in [0,0.5)
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 * @throws IllegalArgumentException when clipFraction is not in [0,0.5)
+	 */
+	public static Img autoLevels(Img img, double clipFraction, boolean parallel){
+		if(!(clipFraction >= 0 && clipFraction < 0.5)){
+			throw new IllegalArgumentException(String.format(
+					"Clip fraction has to be in [0,0.5), specified: %f", clipFraction));
+		}
+		Histogram h = of(img, parallel);
+		int[][] tables = new int[3][256];
+		for(int c = 0; c < 3; c++){
+			int lo = h.percentileBin(c, clipFraction);
+			int hi = h.percentileBin(c, 1-clipFraction);
+			for(int i = 0; i < 256; i++){
+				if(hi <= lo){
+					tables[c][i] = i;
+				} else {
+					tables[c][i] = Math.max(0, Math.min(255, (int)Math.round((i-lo)*255.0/(hi-lo))));
+				}
+			}
+		}
+		return applyRGBTables(img, tables, parallel);
+	}
+
+	private static Img applyRGBTables(Img img, int[][] tables, boolean parallel){
+		final int[] tr = tables[0], tg = tables[1], tb = tables[2];
+		return img.mapARGB(argb->
+			(argb & 0xff000000) |
+			tr[(argb>>16)&0xff]<<16 |
+			tg[(argb>> 8)&0xff]<< 8 |
+			tb[(argb    )&0xff],
+			parallel);
+	}
+
+	private static ColorImg applyRGBTables(ColorImg img, Histogram h, double[][] tables, boolean parallel){
+		for(int c = 0; c < 3; c++){
+			final double[] table = tables[c];
+			img.mapChannel(c, v->v == v ? table[h.binOf(v)]:v, parallel);
+		}
+		return img;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Histogram[%d channels, %d bins in [%s,%s), totals %s]",
+				numChannels(), numBins, min, max, Arrays.toString(totals));
+	}
+
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.operations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import hageldave.imagingkit.core.ImgBase;
+import hageldave.imagingkit.core.PixelBase;
+import hageldave.imagingkit.core.PixelConvertingSpliterator.PixelConverter;
+import hageldave.imagingkit.core.PixelManipulator;
+
+/**
+ * Recorded sequence of image operations that is executed lazily and fuses consecutive
+ * per pixel operations into a single traversal of the image.
+ * <p>
+ * Chaining {@code img.forEach(...)} calls traverses the whole image (and forks and joins
+ * the parallel tasks) once per operation, which is bound by memory bandwidth for large images.
+ * A pipeline instead applies all consecutive point stages (actions, {@link PixelManipulator}s,
+ * converter and action pairs, blendings) to a pixel before moving on to the next pixel.
+ * Operations on the whole image such as convolutions depend on neighboring pixels and are
+ * therefore pipeline barriers (see {@link #imageOperation(UnaryOperator)}): all preceding
+ * stages are completed before such an operation is executed.
+ * <p>
+ * Example:
+ * <pre>
+ * {@code
+ * ImgPipeline<Img, Pixel> pipeline = new ImgPipeline<Img, Pixel>()
+ *     .forEach(ColorSpaceTransformation.RGB_2_LAB)
+ *     .forEach(px->px.setG(127))
+ *     .forEach(ColorSpaceTransformation.LAB_2_RGB)
+ *     .blend(watermark, 10, 10, Blending.NORMAL)    // single pass for all of the above
+ *     .imageOperation(img->BoxBlur.boxBlur(img, 2, null, true))
+ *     .forEach(px->px.setA(0xff));                   // second pass
+ * Img result = pipeline.execute(img, true);
+ * }
+ * </pre>
+ * A pipeline can be executed multiple times, also concurrently on different images.
+ *
+ * @param <I> type of the image the pipeline is executed on
+ * @param <P> pixel type of the image
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class ImgPipeline<I extends ImgBase<P>, P extends PixelBase> {
+
+	/* either FusedStages or UnaryOperator<I> */
+	private final List<Object> segments = new ArrayList<>();
+
+	/**
+	 * Appends a stage that performs the specified action on each pixel.
+	 * @param action to be performed
+	 * @return this for chaining
+	 */
+	public ImgPipeline<I,P> forEach(Consumer<? super P> action){
+		Objects.requireNonNull(action);
+		return addPointStage(new PointStage<P>() {
+			@Override
+			public Object allocateElement() {
+				return null;
+			}
+			@Override
+			public void apply(P px, Object element) {
+				action.accept(px);
+			}
+		});
+	}
+
+	/**
+	 * Appends a stage that converts each pixel using the specified converter, performs the specified
+	 * action on the converted element and converts it back to the pixel
+	 * (see {@link ImgBase#forEach(PixelConverter, boolean, Consumer)}).
+	 * @param converter that converts the pixel to the type accepted by the action
+	 * @param action to be performed
+	 * @param <T> converter's element type
+	 * @return this for chaining
+	 */
+	public <T> ImgPipeline<I,P> forEach(PixelConverter<? super P, T> converter, Consumer<? super T> action){
+		Objects.requireNonNull(converter);
+		Objects.requireNonNull(action);
+		return addPointStage(new PointStage<P>() {
+			@Override
+			public Object allocateElement() {
+				return converter.allocateElement();
+			}
+			@Override
+			@SuppressWarnings("unchecked")
+			public void apply(P px, Object element) {
+				T t = (T)element;
+				converter.convertPixelToElement(px, t);
+				action.accept(t);
+				converter.convertElementToPixel(t, px);
+			}
+		});
+	}
+
+	/**
+	 * Appends a stage that applies the specified manipulator to each pixel
+	 * (see {@link ImgBase#forEach(PixelManipulator)}).
+	 * @param manipulator to be applied
+	 * @param <T> manipulator's element type
+	 * @return this for chaining
+	 */
+	public <T> ImgPipeline<I,P> forEach(PixelManipulator<? super P, T> manipulator){
+		return forEach(manipulator.getConverter(), manipulator.getAction());
+	}
+
+	/**
+	 * Appends a stage that blends the specified top image onto the image,
+	 * see {@link Blending#getBlendingWith(ImgBase, int, int)}.
+	 * @param topImg top image of the blending
+	 * @param xTopOffset horizontal offset of the top image
+	 * @param yTopOffset vertical offset of the top image
+	 * @param blending to be used
+	 * @return this for chaining
+	 */
+	public ImgPipeline<I,P> blend(ImgBase<? extends PixelBase> topImg, int xTopOffset, int yTopOffset, Blending blending){
+		return forEach(blending.getBlendingWith(topImg, xTopOffset, yTopOffset));
+	}
+
+	/**
+	 * Appends a stage that alpha blends the specified top image onto the image,
+	 * see {@link Blending#getAlphaBlendingWith(ImgBase, int, int, double)}.
+	 * @param topImg top image of the blending
+	 * @param xTopOffset horizontal offset of the top image
+	 * @param yTopOffset vertical offset of the top image
+	 * @param opacity of the blended color over the bottom color
+	 * @param blending to be used
+	 * @return this for chaining
+	 */
+	public ImgPipeline<I,P> alphaBlend(ImgBase<? extends PixelBase> topImg, int xTopOffset, int yTopOffset, double opacity, Blending blending){
+		return forEach(blending.getAlphaBlendingWith(topImg, xTopOffset, yTopOffset, opacity));
+	}
+
+	/**
+	 * Appends an operation on the whole image, e.g. a convolution.
+	 * This is a pipeline barrier, all preceding stages are completed before the operation is executed.
+	 * The image returned by the operation (which may be the image it was called with)
+	 * is the one the subsequent stages are executed on.
+	 * @param operation to be executed on the image, returning the resulting image
+	 * @return this for chaining
+	 */
+	public ImgPipeline<I,P> imageOperation(UnaryOperator<I> operation){
+		segments.add(Objects.requireNonNull(operation));
+		return this;
+	}
+
+	/**
+	 * @return number of traversals of the image when executing this pipeline,
+	 * i.e. the number of runs of fused point stages plus the number of image operations.
+	 */
+	public int numPasses(){
+		return segments.size();
+	}
+
+	/**
+	 * Executes this pipeline on the specified image.
+	 * @param img to be processed
+	 * @param parallel whether the point stages are to be executed in parallel
+	 * (image operations decide on their own)
+	 * @return the resulting image, which is the specified image unless an image operation returned a different one
+	 */
+	@SuppressWarnings("unchecked")
+	public I execute(I img, boolean parallel){
+		for(Object segment: segments){
+			if(segment instanceof FusedStages){
+				FusedStages<P> stages = (FusedStages<P>)segment;
+				img.forEach(stages, parallel, stages);
+			} else {
+				img = ((UnaryOperator<I>)segment).apply(img);
+			}
+		}
+		return img;
+	}
+
+	@SuppressWarnings("unchecked")
+	private ImgPipeline<I,P> addPointStage(PointStage<P> stage){
+		Object last = segments.isEmpty() ? null:segments.get(segments.size()-1);
+		if(last instanceof FusedStages){
+			((FusedStages<P>)last).stages.add(stage);
+		} else {
+			FusedStages<P> stages = new FusedStages<>();
+			stages.stages.add(stage);
+			segments.add(stages);
+		}
+		return this;
+	}
+
+
+	/* per pixel operation that may need an element allocated per thread */
+	private static interface PointStage<P> {
+		public Object allocateElement();
+		public void apply(P px, Object element);
+	}
+
+	/**
+	 * Run of consecutive point stages. The converted element is a frame holding the
+	 * current pixel followed by the elements of the stages, which is allocated once per
+	 * spliterator and thus not shared between threads.
+	 */
+	private static final class FusedStages<P extends PixelBase> implements PixelConverter<P, Object[]>, Consumer<Object[]> {
+		final List<PointStage<P>> stages = new ArrayList<>();
+
+		@Override
+		public Object[] allocateElement() {
+			Object[] frame = new Object[stages.size()+1];
+			for(int i = 0; i < stages.size(); i++){
+				frame[i+1] = stages.get(i).allocateElement();
+			}
+			return frame;
+		}
+
+		@Override
+		public void convertPixelToElement(P px, Object[] frame) {
+			frame[0] = px;
+		}
+
+		@Override
+		public void convertElementToPixel(Object[] frame, P px) {
+			// stages write to the pixel directly
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void accept(Object[] frame) {
+			P px = (P)frame[0];
+			for(int i = 0; i < stages.size(); i++){
+				stages.get(i).apply(px, frame[i+1]);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.operations;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.ImgBase;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor.RangeAction;
+
+/**
+ * Bulk per channel operations on the packed ARGB data array of an {@link Img}.
+ * <p>
+ * In contrast to the {@link Img#forEach(java.util.function.Consumer)} based
+ * operations, these methods do not use {@link Pixel} objects or normalized
+ * double values but work directly on the {@code int[]} returned by {@link Img#getData()}.
+ * The loops are kept free of method dispatch and branches (fixed point arithmetic
+ * and lookup tables instead) so that the JIT compiler can unroll and, where the
+ * platform allows it, auto-vectorize them.
+ * <p>
+ * All operations can be executed in parallel, in which case the data array is
+ * split into contiguous chunks of at least {@link Img#getSpliteratorMinimumSplitSize()}
+ * pixels.
+ * <p>
+ * Example:
+ * <pre>
+ * {@code
+ * Img img = ...;
+ * // darken red, boost blue
+ * ImgVectorOps.scaleChannels(img, 1.0, 0.8, 1.0, 1.2, true);
+ * // blend with other image
+ * ImgVectorOps.blend(img, overlay, Blending.SCREEN, true);
+ * }</pre>
+ *
+ * @author hageldave
+ */
+public class ImgVectorOps {
+
+	/** number of fractional bits of the fixed point channel factors */
+	private static final int FIXED_POINT_BITS = 15;
+
+	/** lookup tables of the blend modes, lazily initialized, indexed by ordinal */
+	private static final AtomicReferenceArray<byte[]> blendTables = new AtomicReferenceArray<>(Blending.values().length);
+
+	/** lookup tables of the unclamped blend results for alpha blending, lazily initialized, indexed by ordinal */
+	private static final AtomicReferenceArray<int[]> wideBlendTables = new AtomicReferenceArray<>(Blending.values().length);
+
+	/** bound of the unclamped blend results, far beyond any value that does not saturate */
+	private static final int WIDE_BLEND_BOUND = 1<<24;
+
+	private ImgVectorOps(){/* static utility class */}
+
+	/**
+	 * Multiplies each channel of each pixel of the specified image by the
+	 * corresponding factor. Results are rounded and clamped to [0,255].
+	 * Factors are applied with a precision of 15 fractional bits and
+	 * factors greater than 255 have the same effect as 255.
+	 *
+	 * @param img to be modified
+	 * @param a factor for alpha channel
+	 * @param r factor for red channel
+	 * @param g factor for green channel
+	 * @param b factor for blue channel
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 * @throws IllegalArgumentException when one of the factors is negative or NaN
+	 */
+	public static Img scaleChannels(Img img, double a, double r, double g, double b, boolean parallel){
+		final int fa = toFixedPointFactor(a);
+		final int fr = toFixedPointFactor(r);
+		final int fg = toFixedPointFactor(g);
+		final int fb = toFixedPointFactor(b);
+		final int[] data = img.getData();
+		final int round = 1 << (FIXED_POINT_BITS-1);
+		execute(img, parallel, (from, to)->{
+			for(int i = from; i < to; i++){
+				int c = data[i];
+				int ca = Math.min(((c>>>24)     *fa+round)>>FIXED_POINT_BITS, 0xff);
+				int cr = Math.min(((c>>16&0xff) *fr+round)>>FIXED_POINT_BITS, 0xff);
+				int cg = Math.min(((c>>8 &0xff) *fg+round)>>FIXED_POINT_BITS, 0xff);
+				int cb = Math.min(((c    &0xff) *fb+round)>>FIXED_POINT_BITS, 0xff);
+				data[i] = (ca<<24)|(cr<<16)|(cg<<8)|cb;
+			}
+		});
+		return img;
+	}
+
+	/**
+	 * Multiplies each RGB channel of each pixel of the specified image by the
+	 * specified factor, alpha is preserved.
+	 * See {@link #scaleChannels(Img, double, double, double, double, boolean)}.
+	 *
+	 * @param img to be modified
+	 * @param factor for red, green and blue channel
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 * @throws IllegalArgumentException when the factor is negative or NaN
+	 */
+	public static Img scaleRGB(Img img, double factor, boolean parallel){
+		return scaleChannels(img, 1, factor, factor, factor, parallel);
+	}
+
+	/**
+	 * Clamps the RGB channels of each pixel of the specified image to the
+	 * range [min,max], alpha is preserved.
+	 *
+	 * @param img to be modified
+	 * @param min lower bound, in [0,255]
+	 * @param max upper bound, in [min,255]
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 * @throws IllegalArgumentException when the bounds are not within [0,255] or min &gt; max
+	 */
+	public static Img clampRGB(Img img, int min, int max, boolean parallel){
+		if(min < 0 || max > 0xff || min > max){
+			throw new IllegalArgumentException(String.format(
+					"Invalid clamping bounds [%d,%d], need 0 <= min <= max <= 255.", min, max));
+		}
+		final int[] data = img.getData();
+		execute(img, parallel, (from, to)->{
+			for(int i = from; i < to; i++){
+				int c = data[i];
+				int cr = Math.max(min, Math.min(max, c>>16&0xff));
+				int cg = Math.max(min, Math.min(max, c>>8 &0xff));
+				int cb = Math.max(min, Math.min(max, c    &0xff));
+				data[i] = (c&0xff000000)|(cr<<16)|(cg<<8)|cb;
+			}
+		});
+		return img;
+	}
+
+	/**
+	 * Calculates the luminance of each pixel of the specified image as
+	 * {@link Pixel#getLuminance(int)} does.
+	 *
+	 * @param img source image
+	 * @param target array to write the luminance values to (index corresponds to pixel index),
+	 * may be null in which case a new array is allocated.
+	 * @param parallel whether to process in parallel
+	 * @return the target array
+	 * @throws IllegalArgumentException when the target array is smaller than the number of pixels
+	 */
+	public static int[] luminance(Img img, int[] target, boolean parallel){
+		final int[] data = img.getData();
+		if(target == null){
+			target = new int[data.length];
+		} else if(target.length < data.length){
+			throw new IllegalArgumentException(String.format(
+					"Target array is too small, has length %d but image has %d pixels.", target.length, data.length));
+		}
+		final int[] lum = target;
+		execute(img, parallel, (from, to)->{
+			for(int i = from; i < to; i++){
+				lum[i] = Pixel.getLuminance(data[i]);
+			}
+		});
+		return lum;
+	}
+
+	/**
+	 * Replaces the RGB channels of each pixel of the specified image by its
+	 * luminance (see {@link Pixel#getLuminance(int)}), alpha is preserved.
+	 *
+	 * @param img to be modified
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 */
+	public static Img toLuminance(Img img, boolean parallel){
+		final int[] data = img.getData();
+		execute(img, parallel, (from, to)->{
+			for(int i = from; i < to; i++){
+				int c = data[i];
+				int l = Pixel.getLuminance(c);
+				data[i] = (c&0xff000000)|(l<<16)|(l<<8)|l;
+			}
+		});
+		return img;
+	}
+
+	/**
+	 * Blends the top image onto the bottom image using the specified {@link Blending}.
+	 * This yields the same result as {@code bottom.forEach(blending.getBlendingWith(top))},
+	 * i.e. alpha values are ignored and the bottom alpha is preserved.
+	 * <p>
+	 * The blend function is evaluated for all 256x256 combinations of 8bit channel values
+	 * once per {@link Blending} and the resulting lookup table is used for subsequent calls.
+	 *
+	 * @param bottom image, will be modified
+	 * @param top image
+	 * @param blending the blend mode
+	 * @param parallel whether to process in parallel
+	 * @return the bottom image
+	 * @throws IllegalArgumentException when the images are not of the same dimensions
+	 */
+	public static Img blend(Img bottom, Img top, Blending blending, boolean parallel){
+		if(bottom.getWidth() != top.getWidth() || bottom.getHeight() != top.getHeight()){
+			throw new IllegalArgumentException(String.format(
+					"Images have different dimensions, bottom: %dx%d, top: %dx%d.",
+					bottom.getWidth(), bottom.getHeight(), top.getWidth(), top.getHeight()));
+		}
+		final byte[] table = getBlendTable(blending);
+		final int[] bot = bottom.getData();
+		final int[] tp = top.getData();
+		execute(bottom, parallel, (from, to)->{
+			for(int i = from; i < to; i++){
+				int b = bot[i];
+				int t = tp[i];
+				int cr = table[(b>>8 &0xff00)|(t>>16&0xff)]&0xff;
+				int cg = table[(b    &0xff00)|(t>>8 &0xff)]&0xff;
+				int cb = table[(b<<8 &0xff00)|(t    &0xff)]&0xff;
+				bot[i] = (b&0xff000000)|(cr<<16)|(cg<<8)|cb;
+			}
+		});
+		return bottom;
+	}
+
+	/**
+	 * Blends the top image onto the bottom image at the specified offset using the specified {@link Blending}.
+	 * This yields the same result as {@code bottom.forEach(blending.getBlendingWith(top, xTopOffset, yTopOffset))},
+	 * i.e. alpha values are ignored and the bottom alpha is preserved.
+	 * Only the area where the images overlap is processed, parallelized by rows.
+	 *
+	 * @param bottom image, will be modified
+	 * @param top image
+	 * @param xTopOffset horizontal offset of the top image on the bottom (may be negative)
+	 * @param yTopOffset vertical offset of the top image on the bottom (may be negative)
+	 * @param blending the blend mode
+	 * @param parallel whether to process in parallel
+	 * @return the bottom image
+	 * @since 2.2
+	 */
+	public static Img blend(Img bottom, Img top, int xTopOffset, int yTopOffset, Blending blending, boolean parallel){
+		final byte[] table = getBlendTable(blending);
+		final int[] bot = bottom.getData();
+		final int[] tp = top.getData();
+		forEachOverlappingRow(bottom, top, xTopOffset, yTopOffset, parallel, (bi, ti, n)->{
+			for(int k = 0; k < n; k++){
+				int b = bot[bi+k];
+				int t = tp[ti+k];
+				int cr = table[(b>>8 &0xff00)|(t>>16&0xff)]&0xff;
+				int cg = table[(b    &0xff00)|(t>>8 &0xff)]&0xff;
+				int cb = table[(b<<8 &0xff00)|(t    &0xff)]&0xff;
+				bot[bi+k] = (b&0xff000000)|(cr<<16)|(cg<<8)|cb;
+			}
+		});
+		return bottom;
+	}
+
+	/**
+	 * Alpha blends the top image onto the bottom image at the specified offset using the specified
+	 * {@link Blending} and opacity.
+	 * This yields the same result as
+	 * {@code bottom.forEach(blending.getAlphaBlendingWith(top, xTopOffset, yTopOffset, opacity))}
+	 * up to a rounding difference of 1 per channel, but uses lookup tables and 16 bit fixed point
+	 * weights instead of normalized doubles.
+	 * Only the area where the images overlap is processed, parallelized by rows.
+	 *
+	 * @param bottom image, will be modified
+	 * @param top image
+	 * @param xTopOffset horizontal offset of the top image on the bottom (may be negative)
+	 * @param yTopOffset vertical offset of the top image on the bottom (may be negative)
+	 * @param opacity of the blended color over the bottom color in [0,1]
+	 * @param blending the blend mode
+	 * @param parallel whether to process in parallel
+	 * @return the bottom image
+	 * @throws IllegalArgumentException when opacity is not in [0,1]
+	 * @since 2.2
+	 */
+	public static Img alphaBlend(Img bottom, Img top, int xTopOffset, int yTopOffset, double opacity, Blending blending, boolean parallel){
+		if(!(opacity >= 0 && opacity <= 1)){
+			throw new IllegalArgumentException(String.format(
+					"Opacity has to be in [0,1], but was %f.", opacity));
+		}
+		final int[] table = getWideBlendTable(blending);
+		// per top alpha: weight of the blended color (16 bit fixed point) and alpha increment
+		final int[] weights = new int[256];
+		final int[] alphas = new int[256];
+		for(int a = 0; a < 256; a++){
+			weights[a] = (int)Math.round(opacity*a/255.0*(1<<16));
+			alphas[a] = (int)Math.round(opacity*a);
+		}
+		final int[] bot = bottom.getData();
+		final int[] tp = top.getData();
+		forEachOverlappingRow(bottom, top, xTopOffset, yTopOffset, parallel, (bi, ti, n)->{
+			for(int k = 0; k < n; k++){
+				int b = bot[bi+k];
+				int t = tp[ti+k];
+				int ta = t>>>24;
+				long w = weights[ta];
+				long v = (1<<16)-w;
+				int br = b>>16&0xff, bg = b>>8&0xff, bb = b&0xff;
+				int cr = clamp255((w*table[(br<<8)|(t>>16&0xff)] + v*br + (1<<15)) >> 16);
+				int cg = clamp255((w*table[(bg<<8)|(t>>8 &0xff)] + v*bg + (1<<15)) >> 16);
+				int cb = clamp255((w*table[(bb<<8)|(t    &0xff)] + v*bb + (1<<15)) >> 16);
+				int a = Math.min((b>>>24) + alphas[ta], 0xff);
+				bot[bi+k] = (a<<24)|(cr<<16)|(cg<<8)|cb;
+			}
+		});
+		return bottom;
+	}
+
+	private static int clamp255(long v){
+		return v < 0 ? 0 : v > 0xff ? 0xff : (int)v;
+	}
+
+	/**
+	 * Executes the kernel on each row of the area where the top image overlaps the bottom image,
+	 * serially or in parallel chunks of rows.
+	 */
+	static void forEachOverlappingRow(ImgBase<?> bottom, ImgBase<?> top, int xTopOffset, int yTopOffset, boolean parallel, RowKernel kernel){
+		final int x0 = Math.max(0, xTopOffset), x1 = (int)Math.min(bottom.getWidth(),  (long)xTopOffset+top.getWidth());
+		final int y0 = Math.max(0, yTopOffset), y1 = (int)Math.min(bottom.getHeight(), (long)yTopOffset+top.getHeight());
+		if(x0 >= x1 || y0 >= y1){
+			return;
+		}
+		final int rowLength = x1-x0;
+		final int bw = bottom.getWidth(), tw = top.getWidth();
+		ParallelRangeExecutor.executeChunked(y0, y1, rowLength, bottom.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			for(int y = from; y < to; y++){
+				kernel.apply(y*bw+x0, (y-yTopOffset)*tw+(x0-xTopOffset), rowLength);
+			}
+		});
+	}
+
+	/**
+	 * Returns the lookup table of unclamped blend results (scaled to 8 bit and rounded)
+	 * for the specified blend mode, creates it if necessary. Index is (bottom&lt;&lt;8)|top.
+	 */
+	static int[] getWideBlendTable(Blending blending){
+		int[] table = wideBlendTables.get(blending.ordinal());
+		if(table == null){
+			table = createWideBlendTable(blending.blendFunction);
+			if(!wideBlendTables.compareAndSet(blending.ordinal(), null, table)){
+				// other thread was faster
+				table = wideBlendTables.get(blending.ordinal());
+			}
+		}
+		return table;
+	}
+
+	private static int[] createWideBlendTable(Blending.BlendFunction func){
+		int[] table = new int[256*256];
+		for(int b = 0; b < 256; b++){
+			for(int t = 0; t < 256; t++){
+				double v = func.blend(b/255.0, t/255.0)*255;
+				// bounded to keep the fixed point arithmetic in range
+				table[(b<<8)|t] = (int)Math.round(Math.max(-WIDE_BLEND_BOUND, Math.min(WIDE_BLEND_BOUND, v)));
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the lookup table for the specified blend mode, creates it if necessary.
+	 * Index is (bottom&lt;&lt;8)|top.
+	 */
+	static byte[] getBlendTable(Blending blending){
+		byte[] table = blendTables.get(blending.ordinal());
+		if(table == null){
+			table = createBlendTable(blending.blendFunction);
+			if(!blendTables.compareAndSet(blending.ordinal(), null, table)){
+				// other thread was faster
+				table = blendTables.get(blending.ordinal());
+			}
+		}
+		return table;
+	}
+
+	private static byte[] createBlendTable(Blending.BlendFunction func){
+		byte[] table = new byte[256*256];
+		for(int b = 0; b < 256; b++){
+			for(int t = 0; t < 256; t++){
+				double v = func.blend(b/255.0, t/255.0);
+				table[(b<<8)|t] = (byte)Pixel.b(Pixel.rgb_fromNormalized(0, 0, v));
+			}
+		}
+		return table;
+	}
+
+	private static int toFixedPointFactor(double factor){
+		if(!(factor >= 0)){
+			throw new IllegalArgumentException(String.format(
+					"Channel factor has to be non negative, but was %f.", factor));
+		}
+		return (int)Math.round(Math.min(factor, 255.0) * (1<<FIXED_POINT_BITS));
+	}
+
+	/** Executes the action on the whole data array of the image, serially or in parallel chunks. */
+	private static void execute(Img img, boolean parallel, RangeAction action){
+		ParallelRangeExecutor.executeChunked(img.numValues(), img.getSpliteratorMinimumSplitSize(), parallel, action);
+	}
+
+	/** Kernel applied to a row segment of length n starting at the specified bottom and top indices */
+	static interface RowKernel {
+		public void apply(int bottomIndex, int topIndex, int n);
+	}
+
+}
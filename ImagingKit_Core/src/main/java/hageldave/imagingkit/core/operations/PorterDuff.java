@@ -0,0 +1,232 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.operations;
+
+import java.util.Arrays;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.ImgBase;
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor.RangeAction;
+
+/**
+ * Enum of the Porter-Duff compositing operators, which composite a source (top)
+ * image onto a destination (bottom) image.
+ * Each operator computes the resulting premultiplied color (and alpha) as
+ * <pre>
+ * result = Fs * source + Fd * destination
+ * </pre>
+ * where the factors Fs and Fd are 0, 1, the alpha of the other image or 1 minus that alpha.
+ * <p>
+ * <b>All operators work on premultiplied alpha</b>, images in straight alpha have to be
+ * converted using {@link PremultipliedAlpha} first. This way compositing needs no division.
+ * <pre>
+ * {@code
+ * PremultipliedAlpha.premultiply(background, true);
+ * for(Img layer: premultipliedLayers)
+ *     PorterDuff.SRC_OVER.composite(background, layer, 0, 0, true);
+ * PremultipliedAlpha.unpremultiply(background, true);
+ * }</pre>
+ * The source image can be placed at an offset on the destination. The area of the
+ * destination that is not covered by the source is treated as covered by a fully
+ * transparent source, i.e. it is cleared by operators such as {@link #SRC_IN}
+ * and unchanged by operators such as {@link #SRC_OVER}.
+ *
+ * @author hageldave
+ * @since 2.2
+ * @see Blending
+ */
+public enum PorterDuff {
+
+	/** Result is fully transparent */
+	CLEAR(Factor.ZERO, Factor.ZERO),
+	/** Result is the source */
+	SRC(Factor.ONE, Factor.ZERO),
+	/** Result is the destination */
+	DST(Factor.ZERO, Factor.ONE),
+	/** Source over destination, the usual alpha compositing */
+	SRC_OVER(Factor.ONE, Factor.ONE_MINUS_ALPHA),
+	/** Destination over source */
+	DST_OVER(Factor.ONE_MINUS_ALPHA, Factor.ONE),
+	/** Part of the source inside the destination */
+	SRC_IN(Factor.ALPHA, Factor.ZERO),
+	/** Part of the destination inside the source */
+	DST_IN(Factor.ZERO, Factor.ALPHA),
+	/** Part of the source outside the destination */
+	SRC_OUT(Factor.ONE_MINUS_ALPHA, Factor.ZERO),
+	/** Part of the destination outside the source */
+	DST_OUT(Factor.ZERO, Factor.ONE_MINUS_ALPHA),
+	/** Source inside destination over destination */
+	SRC_ATOP(Factor.ALPHA, Factor.ONE_MINUS_ALPHA),
+	/** Destination inside source over source */
+	DST_ATOP(Factor.ONE_MINUS_ALPHA, Factor.ALPHA),
+	/** Parts of source and destination that do not overlap */
+	XOR(Factor.ONE_MINUS_ALPHA, Factor.ONE_MINUS_ALPHA),
+	/** Sum of source and destination, clamped to 1 */
+	PLUS(Factor.ONE, Factor.ONE),
+	;
+
+	/* factor of the form constant + sign*alpha, where alpha is the other image's alpha */
+	private static enum Factor {
+		ZERO(0, 0), ONE(1, 0), ALPHA(0, 1), ONE_MINUS_ALPHA(1, -1);
+
+		final int constant;
+		final int sign;
+
+		private Factor(int constant, int sign) {
+			this.constant = constant;
+			this.sign = sign;
+		}
+	}
+
+	private final Factor srcFactor;
+	private final Factor dstFactor;
+
+	private PorterDuff(Factor srcFactor, Factor dstFactor) {
+		this.srcFactor = srcFactor;
+		this.dstFactor = dstFactor;
+	}
+
+	/**
+	 * @return true when this operator clears the destination where there is no source
+	 * (destination factor is 0 for a fully transparent source)
+	 */
+	public boolean clearsUncoveredDestination(){
+		return dstFactor.constant == 0;
+	}
+
+	/**
+	 * Composites the specified premultiplied source ARGB value onto the
+	 * premultiplied destination ARGB value.
+	 * @param dst premultiplied destination (bottom) value
+	 * @param src premultiplied source (top) value
+	 * @return premultiplied result
+	 */
+	public int composite(int dst, int src){
+		final int cs = srcFactor.constant*0xff, ss = srcFactor.sign;
+		final int cd = dstFactor.constant*0xff, sd = dstFactor.sign;
+		return composite(dst, src, cs, ss, cd, sd);
+	}
+
+	private static int composite(int dst, int src, int cs, int ss, int cd, int sd){
+		int fs = cs + ss*(dst>>>24);
+		int fd = cd + sd*(src>>>24);
+		return    channel(src>>>24,     dst>>>24,     fs, fd)<<24
+				| channel(src>>16&0xff, dst>>16&0xff, fs, fd)<<16
+				| channel(src>>8 &0xff, dst>>8 &0xff, fs, fd)<<8
+				| channel(src    &0xff, dst    &0xff, fs, fd);
+	}
+
+	private static int channel(int s, int d, int fs, int fd){
+		return PremultipliedAlpha.div255(Math.min(fs*s + fd*d, 0xff*0xff));
+	}
+
+	/**
+	 * Composites the premultiplied source image onto the premultiplied destination image.
+	 * @param dst premultiplied destination (bottom) image, will be modified
+	 * @param src premultiplied source (top) image
+	 * @param xSrcOffset horizontal offset of the source image on the destination (may be negative)
+	 * @param ySrcOffset vertical offset of the source image on the destination (may be negative)
+	 * @param parallel whether to process in parallel
+	 * @return the destination image
+	 */
+	public Img composite(Img dst, Img src, int xSrcOffset, int ySrcOffset, boolean parallel){
+		final int cs = srcFactor.constant*0xff, ss = srcFactor.sign;
+		final int cd = dstFactor.constant*0xff, sd = dstFactor.sign;
+		final int[] d = dst.getData();
+		final int[] s = src.getData();
+		ImgVectorOps.forEachOverlappingRow(dst, src, xSrcOffset, ySrcOffset, parallel, (di, si, n)->{
+			for(int k = 0; k < n; k++){
+				d[di+k] = composite(d[di+k], s[si+k], cs, ss, cd, sd);
+			}
+		});
+		if(clearsUncoveredDestination()){
+			clearUncovered(dst, src, xSrcOffset, ySrcOffset, (from, to)->Arrays.fill(d, from, to, 0));
+		}
+		return dst;
+	}
+
+	/**
+	 * Composites the premultiplied source image onto the premultiplied destination image.
+	 * @param dst premultiplied destination (bottom) image, will be modified
+	 * @param src premultiplied source (top) image
+	 * @param xSrcOffset horizontal offset of the source image on the destination (may be negative)
+	 * @param ySrcOffset vertical offset of the source image on the destination (may be negative)
+	 * @param parallel whether to process in parallel
+	 * @return the destination image
+	 * @throws IllegalArgumentException when one of the images has no alpha channel
+	 */
+	public ColorImg composite(ColorImg dst, ColorImg src, int xSrcOffset, int ySrcOffset, boolean parallel){
+		PremultipliedAlpha.requireAlpha(dst);
+		PremultipliedAlpha.requireAlpha(src);
+		final double cs = srcFactor.constant, ss = srcFactor.sign;
+		final double cd = dstFactor.constant, sd = dstFactor.sign;
+		final double[][] d = dst.getData();
+		final double[][] s = src.getData();
+		final boolean clamp = this == PLUS;
+		ImgVectorOps.forEachOverlappingRow(dst, src, xSrcOffset, ySrcOffset, parallel, (di, si, n)->{
+			final double[] dA = d[ColorImg.channel_a], sA = s[ColorImg.channel_a];
+			for(int k = 0; k < n; k++){
+				int i = di+k, j = si+k;
+				double fs = cs + ss*dA[i];
+				double fd = cd + sd*sA[j];
+				for(int c = 0; c < 4; c++){
+					d[c][i] = fs*s[c][j] + fd*d[c][i];
+				}
+				if(clamp){
+					for(int c = 0; c < 4; c++){
+						d[c][i] = Math.min(d[c][i], 1);
+					}
+				}
+			}
+		});
+		if(clearsUncoveredDestination()){
+			clearUncovered(dst, src, xSrcOffset, ySrcOffset, (from, to)->{
+				for(double[] channel: d){
+					Arrays.fill(channel, from, to, 0);
+				}
+			});
+		}
+		return dst;
+	}
+
+	/** applies the clear action to all index ranges of the destination that are not covered by the source */
+	private static void clearUncovered(ImgBase<?> dst, ImgBase<?> src, int xSrcOffset, int ySrcOffset, RangeAction clear){
+		final int w = dst.getWidth(), h = dst.getHeight();
+		final int x0 = Math.max(0, Math.min(w, xSrcOffset));
+		final int x1 = (int)Math.max(x0, Math.min(w, (long)xSrcOffset+src.getWidth()));
+		final int y0 = Math.max(0, Math.min(h, ySrcOffset));
+		final int y1 = (int)Math.max(y0, Math.min(h, (long)ySrcOffset+src.getHeight()));
+		if(x0 == x1){
+			clear.accept(0, w*h);
+			return;
+		}
+		clear.accept(0, y0*w);
+		for(int y = y0; y < y1; y++){
+			clear.accept(y*w, y*w+x0);
+			clear.accept(y*w+x1, y*w+w);
+		}
+		clear.accept(y1*w, h*w);
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.operations;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
+
+/**
+ * Conversion between straight (non premultiplied) and premultiplied alpha
+ * for {@link Img} and {@link ColorImg}.
+ * <p>
+ * In premultiplied representation the color channels are stored multiplied by the alpha value
+ * of the pixel, e.g. half transparent white is (a=0.5, r=0.5, g=0.5, b=0.5).
+ * Compositing in this representation (see {@link PorterDuff}) is a weighted sum of the
+ * channels without any per pixel division, which makes it the preferred representation
+ * for compositing multiple layers. Images are converted once before and after compositing.
+ * <p>
+ * For {@link Img} the conversions use 8 bit fixed point arithmetic and lookup tables.
+ * Note that premultiplication of 8 bit values is lossy for small alpha values.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class PremultipliedAlpha {
+
+	/* 16 bit fixed point factors 255/a for unpremultiplication */
+	private static final int[] RECIPROCALS = new int[256];
+	static {
+		for(int a = 1; a < 256; a++){
+			RECIPROCALS[a] = (int)Math.round(255.0*(1<<16)/a);
+		}
+	}
+
+	private PremultipliedAlpha(){/* static utility class */}
+
+	/**
+	 * Divides the specified value in [0,255*255] by 255 with rounding.
+	 * @param x value to divide
+	 * @return round(x/255)
+	 */
+	static int div255(int x){
+		x += 128;
+		return (x + (x>>8)) >> 8;
+	}
+
+	/**
+	 * Converts the specified straight ARGB value to premultiplied ARGB.
+	 * @param argb straight ARGB value
+	 * @return premultiplied ARGB value
+	 */
+	public static int premultiply(int argb){
+		int a = argb>>>24;
+		return (argb & 0xff000000)
+				| div255((argb>>16&0xff)*a)<<16
+				| div255((argb>>8 &0xff)*a)<<8
+				| div255((argb    &0xff)*a);
+	}
+
+	/**
+	 * Converts the specified premultiplied ARGB value to straight ARGB.
+	 * Colors of fully transparent values become 0.
+	 * @param argb premultiplied ARGB value
+	 * @return straight ARGB value
+	 */
+	public static int unpremultiply(int argb){
+		int a = argb>>>24;
+		long f = RECIPROCALS[a];
+		return (argb & 0xff000000)
+				| unpremultiplyChannel(argb>>16&0xff, f)<<16
+				| unpremultiplyChannel(argb>>8 &0xff, f)<<8
+				| unpremultiplyChannel(argb    &0xff, f);
+	}
+
+	private static int unpremultiplyChannel(int c, long reciprocal){
+		return (int)Math.min(0xff, (c*reciprocal + (1<<15)) >> 16);
+	}
+
+	/**
+	 * Converts all pixels of the specified image from straight to premultiplied alpha.
+	 * @param img to be converted
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 */
+	public static Img premultiply(Img img, boolean parallel){
+		final int[] data = img.getData();
+		ParallelRangeExecutor.executeChunked(img.numValues(), img.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			for(int i = from; i < to; i++){
+				data[i] = premultiply(data[i]);
+			}
+		});
+		return img;
+	}
+
+	/**
+	 * Converts all pixels of the specified image from premultiplied to straight alpha.
+	 * @param img to be converted
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 */
+	public static Img unpremultiply(Img img, boolean parallel){
+		final int[] data = img.getData();
+		ParallelRangeExecutor.executeChunked(img.numValues(), img.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			for(int i = from; i < to; i++){
+				data[i] = unpremultiply(data[i]);
+			}
+		});
+		return img;
+	}
+
+	/**
+	 * Converts all pixels of the specified image from straight to premultiplied alpha.
+	 * @param img to be converted, has to have an alpha channel
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 * @throws IllegalArgumentException when the image has no alpha channel
+	 */
+	public static ColorImg premultiply(ColorImg img, boolean parallel){
+		requireAlpha(img);
+		final double[] r = img.getDataR(), g = img.getDataG(), b = img.getDataB(), a = img.getDataA();
+		ParallelRangeExecutor.executeChunked(img.numValues(), img.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			for(int i = from; i < to; i++){
+				double alpha = a[i];
+				r[i] *= alpha;
+				g[i] *= alpha;
+				b[i] *= alpha;
+			}
+		});
+		return img;
+	}
+
+	/**
+	 * Converts all pixels of the specified image from premultiplied to straight alpha.
+	 * Colors of pixels with alpha of 0 become 0.
+	 * @param img to be converted, has to have an alpha channel
+	 * @param parallel whether to process in parallel
+	 * @return the specified image
+	 * @throws IllegalArgumentException when the image has no alpha channel
+	 */
+	public static ColorImg unpremultiply(ColorImg img, boolean parallel){
+		requireAlpha(img);
+		final double[] r = img.getDataR(), g = img.getDataG(), b = img.getDataB(), a = img.getDataA();
+		ParallelRangeExecutor.executeChunked(img.numValues(), img.getSpliteratorMinimumSplitSize(), parallel, (from, to)->{
+			for(int i = from; i < to; i++){
+				double alpha = a[i];
+				double f = alpha == 0 ? 0 : 1/alpha;
+				r[i] *= f;
+				g[i] *= f;
+				b[i] *= f;
+			}
+		});
+		return img;
+	}
+
+	static void requireAlpha(ColorImg img){
+		if(!img.hasAlpha()){
+			throw new IllegalArgumentException("Image has no alpha channel.");
+		}
+	}
+
+}
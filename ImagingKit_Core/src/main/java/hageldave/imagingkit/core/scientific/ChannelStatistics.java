@@ -0,0 +1,341 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.scientific;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.util.ImagingKitUtils;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
+
+/**
+ * Statistics of the channels of an image or an area of an image:
+ * minimum, maximum, index of minimum and maximum, sum, mean and variance.
+ * All statistics of all requested channels are computed in a single (optionally parallel) pass
+ * over the image data.
+ * <p>
+ * Channels are indexed like the channels of a {@link ColorImg}
+ * ({@link ColorImg#channel_r}, {@link ColorImg#channel_g}, {@link ColorImg#channel_b}, {@link ColorImg#channel_a}).
+ * For an {@link Img} the statistics are computed on the 8 bit channel values in [0,255].
+ * Indices of minimum and maximum are indices into the data arrays of the image
+ * ({@code y*width+x}), in case of ties the lowest index is reported.
+ * NaN values are not treated specially, they make sums, means and variances NaN and are
+ * not considered for minimum and maximum unless they are the first value of the image or area.
+ * <p>
+ * Example:
+ * <pre>
+ * {@code
+ * ChannelStatistics stats = ChannelStatistics.of(img, true);
+ * double contrast = stats.stdDev(ColorImg.channel_r);
+ * int brightest = stats.argMax(ColorImg.channel_g);
+ * }</pre>
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class ChannelStatistics {
+
+	private final boolean[] computed = new boolean[4];
+	private final double[] min = new double[4];
+	private final double[] max = new double[4];
+	private final int[] argMin = new int[4];
+	private final int[] argMax = new int[4];
+	private final double[] sum = new double[4];
+	/* mean and sum of squared deviations from mean (merged using Chan's formula) */
+	private final double[] mean = new double[4];
+	private final double[] m2 = new double[4];
+	private long count = 0;
+
+	private ChannelStatistics(int[] channels) {
+		for(int c: channels){
+			computed[c] = true;
+		}
+	}
+
+	/**
+	 * Computes the statistics of the specified channels of the specified image.
+	 * @param img of which the statistics are computed
+	 * @param parallel whether to compute in parallel
+	 * @param channels to compute statistics for, all channels of the image (including alpha if present) if none are specified
+	 * @return statistics
+	 * @throws IllegalArgumentException when a channel is not in [0,3] or is 3 but the image has no alpha
+	 */
+	public static ChannelStatistics of(ColorImg img, boolean parallel, int... channels){
+		return of(img, 0, 0, img.getWidth(), img.getHeight(), parallel, channels);
+	}
+
+	/**
+	 * Computes the statistics of the specified channels within the specified area of the specified image.
+	 * @param img of which the statistics are computed
+	 * @param xStart left boundary of the area (inclusive)
+	 * @param yStart upper boundary of the area (inclusive)
+	 * @param width of the area
+	 * @param height of the area
+	 * @param parallel whether to compute in parallel
+	 * @param channels to compute statistics for, all channels of the image (including alpha if present) if none are specified
+	 * @return statistics
+	 * @throws IllegalArgumentException when the area is not within the image's bounds or not positive,
+	 * or when a channel is not in [0,3] or is 3 but the image has no alpha
+	 */
+	public static ChannelStatistics of(ColorImg img, int xStart, int yStart, int width, int height, boolean parallel, int... channels){
+		ImagingKitUtils.requireAreaInImageBounds(xStart, yStart, width, height, img);
+		final int[] chans = requireChannels(channels, img.hasAlpha() ? 4:3);
+		final ChannelStatistics stats = new ChannelStatistics(chans);
+		final double[][] data = img.getData();
+		final int w = img.getWidth();
+		ParallelRangeExecutor.executeChunked(yStart, yStart+height, width, img.getSpliteratorMinimumSplitSize(), parallel, (y0, y1)->{
+			ChannelStatistics partial = new ChannelStatistics(chans);
+			for(int c: chans){
+				final double[] values = data[c];
+				final double first = values[y0*w+xStart];
+				double mn = first, mx = first, s1 = 0, s2 = 0;
+				int amn = y0*w+xStart, amx = amn;
+				for(int y = y0; y < y1; y++){
+					final int rowEnd = y*w+xStart+width;
+					for(int i = y*w+xStart; i < rowEnd; i++){
+						double v = values[i];
+						if(v < mn){ mn = v; amn = i; }
+						if(v > mx){ mx = v; amx = i; }
+						// shifted by first value for numerical stability
+						double d = v-first;
+						s1 += d;
+						s2 += d*d;
+					}
+				}
+				partial.set(c, mn, mx, amn, amx, first, s1, s2, (long)(y1-y0)*width);
+			}
+			partial.count = (long)(y1-y0)*width;
+			stats.merge(partial);
+		});
+		return stats;
+	}
+
+	/**
+	 * Computes the statistics of all channels (r,g,b,a) of the specified image.
+	 * @param img of which the statistics are computed
+	 * @param parallel whether to compute in parallel
+	 * @return statistics
+	 */
+	public static ChannelStatistics of(Img img, boolean parallel){
+		return of(img, 0, 0, img.getWidth(), img.getHeight(), parallel);
+	}
+
+	/**
+	 * Computes the statistics of all channels (r,g,b,a) within the specified area of the specified image.
+	 * @param img of which the statistics are computed
+	 * @param xStart left boundary of the area (inclusive)
+	 * @param yStart upper boundary of the area (inclusive)
+	 * @param width of the area
+	 * @param height of the area
+	 * @param parallel whether to compute in parallel
+	 * @return statistics
+	 * @throws IllegalArgumentException when the area is not within the image's bounds or not positive
+	 */
+	public static ChannelStatistics of(Img img, int xStart, int yStart, int width, int height, boolean parallel){
+		ImagingKitUtils.requireAreaInImageBounds(xStart, yStart, width, height, img);
+		final int[] chans = {ColorImg.channel_r, ColorImg.channel_g, ColorImg.channel_b, ColorImg.channel_a};
+		final ChannelStatistics stats = new ChannelStatistics(chans);
+		final int[] data = img.getData();
+		final int w = img.getWidth();
+		ParallelRangeExecutor.executeChunked(yStart, yStart+height, width, img.getSpliteratorMinimumSplitSize(), parallel, (y0, y1)->{
+			// channels in order of ColorImg channel indices r,g,b,a
+			final int[] shifts = {16, 8, 0, 24};
+			final int[] mn = new int[4], mx = new int[4], amn = new int[4], amx = new int[4];
+			final long[] s1 = new long[4], s2 = new long[4];
+			final int firstIdx = y0*w+xStart;
+			for(int c = 0; c < 4; c++){
+				mn[c] = mx[c] = (data[firstIdx]>>>shifts[c])&0xff;
+				amn[c] = amx[c] = firstIdx;
+			}
+			for(int y = y0; y < y1; y++){
+				final int rowEnd = y*w+xStart+width;
+				for(int i = y*w+xStart; i < rowEnd; i++){
+					final int argb = data[i];
+					for(int c = 0; c < 4; c++){
+						int v = (argb>>>shifts[c])&0xff;
+						if(v < mn[c]){ mn[c] = v; amn[c] = i; }
+						if(v > mx[c]){ mx[c] = v; amx[c] = i; }
+						s1[c] += v;
+						s2[c] += v*v;
+					}
+				}
+			}
+			long n = (long)(y1-y0)*width;
+			ChannelStatistics partial = new ChannelStatistics(chans);
+			for(int c = 0; c < 4; c++){
+				// integer sums are exact, no shift required
+				partial.set(c, mn[c], mx[c], amn[c], amx[c], 0, s1[c], s2[c], n);
+			}
+			partial.count = n;
+			stats.merge(partial);
+		});
+		return stats;
+	}
+
+	private static int[] requireChannels(int[] channels, int numChannels){
+		if(channels.length == 0){
+			channels = numChannels == 4 ? new int[]{0,1,2,3}:new int[]{0,1,2};
+		}
+		for(int c: channels){
+			if(c < 0 || c >= numChannels){
+				throw new IllegalArgumentException(String.format(
+						"Channel %d is not available, image has %d channels.", c, numChannels));
+			}
+		}
+		return channels;
+	}
+
+	private void set(int c, double mn, double mx, int amn, int amx, double shift, double s1, double s2, long n){
+		min[c] = mn;
+		max[c] = mx;
+		argMin[c] = amn;
+		argMax[c] = amx;
+		sum[c] = shift*n + s1;
+		mean[c] = shift + s1/n;
+		m2[c] = Math.max(0, s2 - s1*s1/n);
+	}
+
+	private synchronized void merge(ChannelStatistics other){
+		if(count == 0){
+			System.arraycopy(other.min, 0, min, 0, 4);
+			System.arraycopy(other.max, 0, max, 0, 4);
+			System.arraycopy(other.argMin, 0, argMin, 0, 4);
+			System.arraycopy(other.argMax, 0, argMax, 0, 4);
+			System.arraycopy(other.sum, 0, sum, 0, 4);
+			System.arraycopy(other.mean, 0, mean, 0, 4);
+			System.arraycopy(other.m2, 0, m2, 0, 4);
+			count = other.count;
+			return;
+		}
+		long n = count+other.count;
+		for(int c = 0; c < 4; c++){
+			if(!computed[c])
+				continue;
+			if(other.min[c] < min[c] || (other.min[c] == min[c] && other.argMin[c] < argMin[c])){
+				min[c] = other.min[c];
+				argMin[c] = other.argMin[c];
+			}
+			if(other.max[c] > max[c] || (other.max[c] == max[c] && other.argMax[c] < argMax[c])){
+				max[c] = other.max[c];
+				argMax[c] = other.argMax[c];
+			}
+			double delta = other.mean[c]-mean[c];
+			m2[c] += other.m2[c] + delta*delta*((double)count*other.count/n);
+			mean[c] += delta*other.count/n;
+			sum[c] += other.sum[c];
+		}
+		count = n;
+	}
+
+	private int requireComputed(int channel){
+		if(channel < 0 || channel > 3 || !computed[channel]){
+			throw new IllegalArgumentException(String.format(
+					"No statistics were computed for channel %d.", channel));
+		}
+		return channel;
+	}
+
+	/** @return number of values per channel (number of pixels of the image or area) */
+	public long count(){
+		return count;
+	}
+
+	/**
+	 * @param channel index
+	 * @return true if statistics were computed for the specified channel
+	 */
+	public boolean hasChannel(int channel){
+		return channel >= 0 && channel < 4 && computed[channel];
+	}
+
+	/**
+	 * @param channel index
+	 * @return minimum value of the channel
+	 * @throws IllegalArgumentException when no statistics were computed for the channel
+	 */
+	public double min(int channel){
+		return min[requireComputed(channel)];
+	}
+
+	/**
+	 * @param channel index
+	 * @return maximum value of the channel
+	 * @throws IllegalArgumentException when no statistics were computed for the channel
+	 */
+	public double max(int channel){
+		return max[requireComputed(channel)];
+	}
+
+	/**
+	 * @param channel index
+	 * @return index ({@code y*width+x}) of the minimum value of the channel
+	 * @throws IllegalArgumentException when no statistics were computed for the channel
+	 */
+	public int argMin(int channel){
+		return argMin[requireComputed(channel)];
+	}
+
+	/**
+	 * @param channel index
+	 * @return index ({@code y*width+x}) of the maximum value of the channel
+	 * @throws IllegalArgumentException when no statistics were computed for the channel
+	 */
+	public int argMax(int channel){
+		return argMax[requireComputed(channel)];
+	}
+
+	/**
+	 * @param channel index
+	 * @return sum of the values of the channel
+	 * @throws IllegalArgumentException when no statistics were computed for the channel
+	 */
+	public double sum(int channel){
+		return sum[requireComputed(channel)];
+	}
+
+	/**
+	 * @param channel index
+	 * @return mean of the values of the channel
+	 * @throws IllegalArgumentException when no statistics were computed for the channel
+	 */
+	public double mean(int channel){
+		return mean[requireComputed(channel)];
+	}
+
+	/**
+	 * @param channel index
+	 * @return (population) variance of the values of the channel
+	 * @throws IllegalArgumentException when no statistics were computed for the channel
+	 */
+	public double variance(int channel){
+		return m2[requireComputed(channel)]/count;
+	}
+
+	/**
+	 * @param channel index
+	 * @return (population) standard deviation of the values of the channel
+	 * @throws IllegalArgumentException when no statistics were computed for the channel
+	 */
+	public double stdDev(int channel){
+		return Math.sqrt(variance(channel));
+	}
+
+}
@@ -38,13 +38,17 @@ import java.util.Objects;
 import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleUnaryOperator;
 
 import hageldave.imagingkit.core.Img;
 import hageldave.imagingkit.core.ImgBase;
 import hageldave.imagingkit.core.Pixel;
 import hageldave.imagingkit.core.PixelBase;
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
+import hageldave.imagingkit.core.util.ExecutionContext;
 import hageldave.imagingkit.core.util.ImageFrame;
 import hageldave.imagingkit.core.util.ImagingKitUtils;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
 
 /**
  * The ColorImg class provides defines a 2D Image with 3 (4 with alpha) channels 
@@ -116,6 +120,9 @@ public class ColorImg implements ImgBase<ColorPixel> {
 	 */
 	private int spliteratorMinimumSplitSize = 1024;
 
+	/** adaptive split policy, null for fixed minimum split size */
+	private AdaptiveSplitPolicy splitPolicy = null;
+
 
 	/**
 	 * Creates a new ColorImg of specified dimensions.
@@ -694,13 +701,28 @@ public class ColorImg implements ImgBase<ColorPixel> {
 	 * @see #clampChannelToUnitRange(int)
 	 */
 	public ColorImg scaleChannelToUnitRange(int channel) {
-		double min=getMinValue(channel), max=getMaxValue(channel);
-		double range = max-min;
+		return scaleChannelToUnitRange(channel, false);
+	}
+
+	/**
+	 * Scales all values of the specified channel to unit range [0,1], see {@link #scaleChannelToUnitRange(int)}.
+	 * The value range is determined in a single pass using {@link ChannelStatistics}.
+	 * @param channel one of {@link #channel_r},{@link #channel_g},{@link #channel_b},{@link #channel_a} (0,1,2,3)
+	 * @param parallel whether to process in parallel
+	 * @return this for chaining
+	 * @throws ArrayIndexOutOfBoundsException if the specified channel is not in [0,3]
+	 * or is 3 but the image has no alpha (check using {@link #hasAlpha()}).
+	 * @since 2.2
+	 */
+	public ColorImg scaleChannelToUnitRange(int channel, boolean parallel) {
+		if(channel < 0 || channel > (hasAlpha ? 3:2)){
+			throw new ArrayIndexOutOfBoundsException(channel);
+		}
+		ChannelStatistics stats = ChannelStatistics.of(this, parallel, channel);
+		final double min=stats.min(channel), max=stats.max(channel);
+		final double range = max-min;
 		if(range != 0){
-			double[] channelData = getData()[channel];
-			for(int i=0; i<channelData.length; i++){
-				channelData[i] = (channelData[i]-min)/range;
-			}
+			mapChannel(channel, v->(v-min)/range, parallel);
 		} else {
 			fill(channel, 0);
 		}
@@ -719,10 +741,26 @@ public class ColorImg implements ImgBase<ColorPixel> {
 	 * @see #scaleChannelToUnitRange(int)
 	 */
 	public ColorImg scaleRGBToUnitRange(){
-		double min=Math.min(getMinValue(channel_r), Math.min(getMinValue(channel_g), getMinValue(channel_b)));
-		double max=Math.max(getMaxValue(channel_r), Math.max(getMaxValue(channel_g), getMaxValue(channel_b)));
+		return scaleRGBToUnitRange(false);
+	}
+
+	/**
+	 * Scales the RGB channels to unit range [0,1], see {@link #scaleRGBToUnitRange()}.
+	 * The value range is determined in a single pass using {@link ChannelStatistics}.
+	 * @param parallel whether to process in parallel
+	 * @return this for chaining
+	 * @since 2.2
+	 */
+	public ColorImg scaleRGBToUnitRange(boolean parallel){
+		ChannelStatistics stats = ChannelStatistics.of(this, parallel, channel_r, channel_g, channel_b);
+		final double min=Math.min(stats.min(channel_r), Math.min(stats.min(channel_g), stats.min(channel_b)));
+		final double max=Math.max(stats.max(channel_r), Math.max(stats.max(channel_g), stats.max(channel_b)));
 		if(min != max){
-			forEach(px->px.convertRange(min,max, 0,1));
+			// same arithmetic as ColorPixel.convertRange(min,max, 0,1)
+			final double scaling = 1.0/(max-min);
+			mapChannel(channel_r, v->0+(v-min)*scaling, parallel);
+			mapChannel(channel_g, v->0+(v-min)*scaling, parallel);
+			mapChannel(channel_b, v->0+(v-min)*scaling, parallel);
 		} else {
 			fill(channel_r, 0);
 			fill(channel_g, 0);
@@ -1025,6 +1063,107 @@ public class ColorImg implements ImgBase<ColorPixel> {
 		return this;
 	}
 
+	/**
+	 * Performs the specified action on each row of this image.
+	 * The action receives the channel arrays of this image and the range of the row
+	 * within them, so that it can process the row in plain array loops.
+	 * <p>
+	 * Example (swapping red and blue channel):
+	 * <pre>
+	 * {@code
+	 * img.forEachRow(true, (y, channels, offset, length) -> {
+	 *     double[] r = channels[ColorImg.channel_r], b = channels[ColorImg.channel_b];
+	 *     for(int i = offset; i < offset+length; i++){
+	 *         double tmp = r[i]; r[i] = b[i]; b[i] = tmp;
+	 *     }
+	 * });
+	 * }
+	 * </pre>
+	 * @param parallel whether to be performed in parallel (rows are distributed among threads)
+	 * @param action to be performed on each row
+	 * @see #forEachRow(boolean, int, int, int, int, RowAction)
+	 * @since 2.2
+	 */
+	public void forEachRow(boolean parallel, final RowAction action){
+		forEachRow(parallel, 0, 0, getWidth(), getHeight(), action);
+	}
+
+	/**
+	 * Performs the specified action on each row of the specified area of this image.
+	 * The action receives the channel arrays of this image and the range of the row's part
+	 * that lies within the area.
+	 * @param parallel whether to be performed in parallel (rows are distributed among threads)
+	 * @param xStart left boundary of the area (inclusive)
+	 * @param yStart upper boundary of the area (inclusive)
+	 * @param width of the area
+	 * @param height of the area
+	 * @param action to be performed on each row
+	 * @throws IllegalArgumentException if provided area is not within this
+	 * image's bounds, or if the area is not positive (width or height &le; 0).
+	 * @see #forEachRow(boolean, RowAction)
+	 * @since 2.2
+	 */
+	public void forEachRow(boolean parallel, final int xStart, final int yStart, final int width, final int height, final RowAction action){
+		ImagingKitUtils.requireAreaInImageBounds(xStart, yStart, width, height, this);
+		final double[][] channels = getData();
+		final int w = this.width;
+		final ExecutionContext context = ExecutionContext.current();
+		final int minRows = Math.max(1, context.minimumSplitSize(getSpliteratorMinimumSplitSize())/width);
+		ParallelRangeExecutor.execute(parallel ? context:null, yStart, yStart+height, minRows, (from, to)->{
+			for(int y = from; y < to; y++){
+				action.accept(y, channels, y*w+xStart, width);
+			}
+		});
+	}
+
+	/**
+	 * Action performed on a row of a {@link ColorImg}, see {@link ColorImg#forEachRow(boolean, RowAction)}.
+	 * @since 2.2
+	 */
+	@FunctionalInterface
+	public static interface RowAction {
+		/**
+		 * Performs this action on the specified row.
+		 * @param y the row
+		 * @param channels the channel arrays of the image (R,G,B and A if the image has alpha)
+		 * @param offset index of the first value of the row (or of the row's part within an area)
+		 * @param length number of values of the row (width of the image or area)
+		 */
+		public void accept(int y, double[][] channels, int offset, int length);
+	}
+
+	/**
+	 * Replaces every value of the specified channel by the result of the specified
+	 * operator applied to it. In contrast to {@link #forEach(boolean, Consumer)} no
+	 * {@link ColorPixel} objects are involved, the operator is applied directly on the
+	 * channel's data array which is split in the same way as by this image's {@link #spliterator()}.
+	 * <p>
+	 * Example (gamma correction of the red channel):
+	 * <pre>
+	 * {@code
+	 * img.mapChannel(ColorImg.channel_r, v -> Math.pow(v, 1/2.2), true);
+	 * }
+	 * </pre>
+	 * @param channel to be mapped
+	 * @param operator mapping a channel value to a new value
+	 * @param parallel whether to be performed in parallel
+	 * @return this for chaining
+	 * @throws ArrayIndexOutOfBoundsException if the specified channel is not in [0,3]
+	 * or is 3 but the image has no alpha (check using {@link #hasAlpha()}).
+	 * @since 2.2
+	 */
+	public ColorImg mapChannel(final int channel, final DoubleUnaryOperator operator, boolean parallel){
+		final double[] data = getData()[channel];
+		final ExecutionContext context = ExecutionContext.current();
+		final int minSplit = context.minimumSplitSize(getSpliteratorMinimumSplitSize());
+		ParallelRangeExecutor.execute(parallel ? context:null, 0, numValues(), minSplit, (from, to)->{
+			for(int i = from; i < to; i++){
+				data[i] = operator.applyAsDouble(data[i]);
+			}
+		});
+		return this;
+	}
+
 	@Override
 	public ColorImg copy(){
 		return new ColorImg(
@@ -1161,6 +1300,28 @@ public class ColorImg implements ImgBase<ColorPixel> {
 		this.spliteratorMinimumSplitSize = size;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @since 2.2
+	 */
+	@Override
+	public AdaptiveSplitPolicy getSplitPolicy() {
+		return splitPolicy;
+	}
+
+	/**
+	 * Sets the {@link AdaptiveSplitPolicy} of this ColorImg. When set, parallel forEach loops
+	 * (e.g. {@link #forEach(boolean, Consumer)}) determine their minimum split size from the
+	 * measured cost of the action instead of using {@link #getSpliteratorMinimumSplitSize()}.
+	 * This is useful when the cost of the actions performed on this ColorImg varies a lot.
+	 * @param policy to use for parallel forEach loops, or null to use the fixed minimum split size
+	 * @since 2.2
+	 */
+	@Override
+	public void setSplitPolicy(AdaptiveSplitPolicy policy) {
+		this.splitPolicy = policy;
+	}
+
 	@Override
 	public int getSpliteratorMinimumSplitSize() {
 		return this.spliteratorMinimumSplitSize;
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.util;
+
+import hageldave.imagingkit.core.ImgBase;
+
+/**
+ * Policy for choosing the minimum split size of a parallel forEach from the measured
+ * cost of the action instead of a fixed number.
+ * A cheap per pixel action is best executed in large chunks to keep the task overhead low,
+ * while an expensive action needs small chunks so that the work is balanced among the threads.
+ * <p>
+ * When executing with an adaptive policy (e.g. {@link ImgBase#forEach(ExecutionContext, AdaptiveSplitPolicy, java.util.function.Consumer)}),
+ * the first {@link #getSampleSize()} pixels are processed serially and timed.
+ * The remaining pixels are then split into tasks that take about {@link #getTargetTaskNanos()}
+ * each, but at least into as many tasks as the context has threads.
+ * Remaining work that takes less than a single task's duration is not parallelized at all.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class AdaptiveSplitPolicy {
+
+	/** Policy targeting tasks of half a millisecond, sampling 256 pixels */
+	public static final AdaptiveSplitPolicy DEFAULT = new AdaptiveSplitPolicy(500_000, 256);
+
+	private final long targetTaskNanos;
+	private final int sampleSize;
+
+	/**
+	 * Creates a new policy.
+	 * @param targetTaskNanos desired duration of a single task in nanoseconds
+	 * @param sampleSize number of elements that are processed and timed before splitting
+	 * @throws IllegalArgumentException when targetTaskNanos or sampleSize are not positive
+	 */
+	public AdaptiveSplitPolicy(long targetTaskNanos, int sampleSize) {
+		if(targetTaskNanos < 1 || sampleSize < 1){
+			throw new IllegalArgumentException(String.format(
+					"Target task duration and sample size have to be positive, specified: %d ns, %d",
+					targetTaskNanos, sampleSize));
+		}
+		this.targetTaskNanos = targetTaskNanos;
+		this.sampleSize = sampleSize;
+	}
+
+	/** @return desired duration of a single task in nanoseconds */
+	public long getTargetTaskNanos() {
+		return targetTaskNanos;
+	}
+
+	/** @return number of elements that are processed and timed before splitting */
+	public int getSampleSize() {
+		return sampleSize;
+	}
+
+	/**
+	 * Computes the minimum split size for the remaining elements from the measured cost of the sample.
+	 * @param sampleNanos time it took to process the sample
+	 * @param sampledElements number of elements in the sample
+	 * @param remainingElements number of elements that remain to be processed
+	 * @param parallelism number of threads available
+	 * @return minimum split size, at least 1. This is the number of remaining elements
+	 * when splitting is not worthwhile.
+	 */
+	public int minimumSplitSize(long sampleNanos, int sampledElements, int remainingElements, int parallelism){
+		if(remainingElements < 2){
+			return 1;
+		}
+		double nanosPerElement = Math.max(sampleNanos, 1)/(double)Math.max(sampledElements, 1);
+		if(nanosPerElement*remainingElements <= targetTaskNanos){
+			return remainingElements;
+		}
+		double byDuration = targetTaskNanos/nanosPerElement;
+		// splits contain between minimum and twice the minimum elements
+		double byThreads = Math.ceil(remainingElements/(2.0*Math.max(parallelism, 1)));
+		return (int)Math.max(1, Math.min(byDuration, byThreads));
+	}
+
+}
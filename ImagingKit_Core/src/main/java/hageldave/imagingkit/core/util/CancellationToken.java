@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import hageldave.imagingkit.core.ImgBase;
+
+/**
+ * Token for cancelling a running parallel operation, e.g.
+ * {@link ImgBase#forEach(ExecutionContext, CancellationToken, java.util.function.LongConsumer, java.util.function.Consumer)}.
+ * A token is cancelled explicitly by {@link #cancel()} (from any thread) or
+ * implicitly once its deadline has passed.
+ * <p>
+ * Cancellation is cooperative, the operation checks the token between chunks of pixels
+ * and skips all chunks that were not yet started. Chunks that are already being processed
+ * are completed.
+ * <pre>
+ * {@code
+ * CancellationToken token = CancellationToken.withTimeout(2, TimeUnit.SECONDS);
+ * try {
+ *     img.forEach(ExecutionContext.current(), token, null, px->...);
+ * } catch (CancellationException e){
+ *     // image is only partially processed
+ * }
+ * }
+ * </pre>
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class CancellationToken {
+
+	private final long deadline;
+	private final boolean hasDeadline;
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Creates a new token without deadline, which is only cancelled by {@link #cancel()}.
+	 */
+	public CancellationToken() {
+		this.deadline = 0;
+		this.hasDeadline = false;
+	}
+
+	private CancellationToken(long deadlineNanoTime) {
+		this.deadline = deadlineNanoTime;
+		this.hasDeadline = true;
+	}
+
+	/**
+	 * Creates a new token that is cancelled once the specified deadline has passed.
+	 * @param deadlineNanoTime deadline with respect to {@link System#nanoTime()}
+	 * @return new token
+	 */
+	public static CancellationToken withDeadline(long deadlineNanoTime){
+		return new CancellationToken(deadlineNanoTime);
+	}
+
+	/**
+	 * Creates a new token that is cancelled once the specified time from now has passed.
+	 * @param timeout duration until cancellation
+	 * @param unit of the duration
+	 * @return new token
+	 */
+	public static CancellationToken withTimeout(long timeout, TimeUnit unit){
+		return new CancellationToken(System.nanoTime()+unit.toNanos(timeout));
+	}
+
+	/**
+	 * Cancels this token.
+	 */
+	public void cancel(){
+		cancelled = true;
+	}
+
+	/**
+	 * @return true when {@link #cancel()} was called or the deadline of this token has passed
+	 */
+	public boolean isCancelled(){
+		if(!cancelled && hasDeadline && System.nanoTime()-deadline >= 0){
+			cancelled = true;
+		}
+		return cancelled;
+	}
+
+	/**
+	 * @throws CancellationException when this token is cancelled
+	 */
+	public void throwIfCancelled(){
+		if(isCancelled()){
+			throw new CancellationException("Operation was cancelled" + (hasDeadline ? " or exceeded its deadline.":"."));
+		}
+	}
+
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.util;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import hageldave.imagingkit.core.ImgBase;
+
+/**
+ * Determines where and how parallel operations of this library are executed.
+ * An ExecutionContext consists of a {@link ForkJoinPool} (which also determines the
+ * maximum parallelism) and an optional split granularity (minimum number of elements
+ * per task) that overrides the minimum split size of the processed images.
+ * <p>
+ * All parallel operations (e.g. {@link ImgBase#forEach(boolean, java.util.function.Consumer)},
+ * the bulk and row operations of Img and ColorImg and the filters) use the
+ * {@link #current()} context, which is the context installed for the calling thread
+ * (see {@link #install()}) or the {@link #common()} context that uses the
+ * {@link ForkJoinPool#commonPool()}. A context can also be passed explicitly, e.g. to
+ * {@link ImgBase#forEach(ExecutionContext, java.util.function.Consumer)}.
+ * Worker threads of a pool that was created by a context have that context installed,
+ * so that nested parallel operations stay within the pool.
+ * <p>
+ * Parallel streams execute in the pool from which their terminal operation is invoked,
+ * use {@link #call(Supplier)} or {@link #run(Runnable)} to execute them within the context:
+ * <pre>
+ * {@code
+ * ExecutionContext ctx = new ExecutionContext(4, 0);
+ * long count = ctx.call(()->img.stream(true).filter(px->px.a() > 0).count());
+ * }
+ * </pre>
+ * <p>
+ * Each context keeps metrics on the tasks it executed: the number of queued (forked but not
+ * yet started) tasks, active tasks and completed tasks. While tasks are executing,
+ * these values are approximate.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class ExecutionContext {
+
+	private static final ExecutionContext COMMON = new ExecutionContext(ForkJoinPool.commonPool(), 0);
+
+	private static final ThreadLocal<ExecutionContext> installed = new ThreadLocal<>();
+
+	private final ForkJoinPool pool;
+	private final boolean ownsPool;
+	private final int minimumSplitSize;
+
+	/* adders instead of atomics to avoid contention between tasks, metrics are only approximate anyway */
+	private final LongAdder queuedTasks = new LongAdder();
+	private final LongAdder activeTasks = new LongAdder();
+	private final LongAdder completedTasks = new LongAdder();
+
+	/**
+	 * Creates a new context using the specified pool.
+	 * @param pool the pool in which tasks are executed
+	 * @param minimumSplitSize minimum number of elements per task, or 0 to use the
+	 * minimum split size of the processed image ({@link ImgBase#getSpliteratorMinimumSplitSize()})
+	 * @throws IllegalArgumentException when minimumSplitSize is negative
+	 */
+	public ExecutionContext(ForkJoinPool pool, int minimumSplitSize) {
+		requireNonNegativeSplitSize(minimumSplitSize);
+		this.pool = Objects.requireNonNull(pool);
+		this.ownsPool = false;
+		this.minimumSplitSize = minimumSplitSize;
+	}
+
+	/**
+	 * Creates a new context with its own pool of the specified parallelism.
+	 * The pool uses daemon threads and can be shut down using {@link #shutdown()}.
+	 * @param parallelism maximum number of threads executing tasks concurrently
+	 * @param minimumSplitSize minimum number of elements per task, or 0 to use the
+	 * minimum split size of the processed image ({@link ImgBase#getSpliteratorMinimumSplitSize()})
+	 * @throws IllegalArgumentException when parallelism is not positive or minimumSplitSize is negative
+	 */
+	public ExecutionContext(int parallelism, int minimumSplitSize) {
+		requireNonNegativeSplitSize(minimumSplitSize);
+		if(parallelism < 1){
+			throw new IllegalArgumentException(String.format(
+					"Parallelism has to be positive, specified:%d", parallelism));
+		}
+		this.pool = new ForkJoinPool(parallelism, ContextWorkerThread::new, null, false);
+		this.ownsPool = true;
+		this.minimumSplitSize = minimumSplitSize;
+	}
+
+	private static void requireNonNegativeSplitSize(int minimumSplitSize){
+		if(minimumSplitSize < 0){
+			throw new IllegalArgumentException(String.format(
+					"Minimum split size has to be non negative, specified:%d", minimumSplitSize));
+		}
+	}
+
+	/** Worker thread of a context's own pool, has the context installed */
+	private final class ContextWorkerThread extends ForkJoinWorkerThread {
+		ContextWorkerThread(ForkJoinPool pool) {
+			super(pool);
+			setDaemon(true);
+		}
+
+		@Override
+		protected void onStart() {
+			super.onStart();
+			installed.set(ExecutionContext.this);
+		}
+	}
+
+	/**
+	 * Creates a new context with its own pool of the specified parallelism.
+	 * @param parallelism maximum number of threads executing tasks concurrently
+	 * @return new context
+	 * @throws IllegalArgumentException when parallelism is not positive
+	 */
+	public static ExecutionContext withParallelism(int parallelism){
+		return new ExecutionContext(parallelism, 0);
+	}
+
+	/**
+	 * @return the context using the {@link ForkJoinPool#commonPool()}
+	 * which is used when no other context is installed.
+	 */
+	public static ExecutionContext common(){
+		return COMMON;
+	}
+
+	/**
+	 * @return the context installed for the calling thread or the {@link #common()} context
+	 */
+	public static ExecutionContext current(){
+		ExecutionContext ctx = installed.get();
+		return ctx != null ? ctx : COMMON;
+	}
+
+	/**
+	 * Installs this context for the calling thread until the returned {@link Installation}
+	 * is closed, after which the previously installed context is restored.
+	 * <pre>
+	 * {@code
+	 * try(ExecutionContext.Installation i = ctx.install()){
+	 *     img.forEach(true, px->...); // runs in ctx's pool
+	 * }
+	 * }
+	 * </pre>
+	 * @return the installation to be closed
+	 */
+	public Installation install(){
+		ExecutionContext previous = installed.get();
+		installed.set(this);
+		return new Installation(previous);
+	}
+
+	/**
+	 * Restores the previously installed context on {@link #close()}.
+	 */
+	public static final class Installation implements AutoCloseable {
+		private final ExecutionContext previous;
+		private final Thread thread;
+
+		private Installation(ExecutionContext previous) {
+			this.previous = previous;
+			this.thread = Thread.currentThread();
+		}
+
+		/**
+		 * Restores the previously installed context.
+		 * @throws IllegalStateException when called by another thread than the installing thread
+		 */
+		@Override
+		public void close() {
+			if(Thread.currentThread() != thread){
+				throw new IllegalStateException("Installation has to be closed by the thread that installed the context.");
+			}
+			if(previous == null){
+				installed.remove();
+			} else {
+				installed.set(previous);
+			}
+		}
+	}
+
+	/** @return the pool of this context */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/** @return the maximum number of concurrently executing tasks (parallelism of the pool) */
+	public int getParallelism(){
+		return pool.getParallelism();
+	}
+
+	/** @return the minimum number of elements per task, 0 if the image's minimum split size is used */
+	public int getMinimumSplitSize() {
+		return minimumSplitSize;
+	}
+
+	/**
+	 * Returns the minimum number of elements per task to be used for an operation.
+	 * @param imageMinimumSplitSize minimum split size of the processed image
+	 * @return this context's minimum split size if specified, otherwise the specified one
+	 */
+	public int minimumSplitSize(int imageMinimumSplitSize){
+		return minimumSplitSize > 0 ? minimumSplitSize : imageMinimumSplitSize;
+	}
+
+	/** @return number of tasks that were forked but did not start yet */
+	public int getQueuedTasks(){
+		return queuedTasks.intValue();
+	}
+
+	/** @return number of tasks that are currently executing */
+	public int getActiveTasks(){
+		return activeTasks.intValue();
+	}
+
+	/** @return number of tasks that completed since creation of this context */
+	public long getCompletedTasks(){
+		return completedTasks.sum();
+	}
+
+	void taskQueued(){
+		queuedTasks.increment();
+	}
+
+	/**
+	 * Called by a task when it starts executing. Installs this context for the executing
+	 * thread (which may be a worker of a pool that was not created by this context),
+	 * so that nested parallel operations stay within the pool.
+	 * @return the previously installed context to be passed to {@link #taskFinished(ExecutionContext)}
+	 */
+	ExecutionContext taskStarted(){
+		queuedTasks.decrement();
+		activeTasks.increment();
+		ExecutionContext previous = installed.get();
+		if(previous != this && (previous != null || this != COMMON)){
+			installed.set(this);
+		}
+		return previous;
+	}
+
+	void taskFinished(ExecutionContext previous){
+		if(previous != this && (previous != null || this != COMMON)){
+			if(previous == null){
+				installed.remove();
+			} else {
+				installed.set(previous);
+			}
+		}
+		activeTasks.decrement();
+		completedTasks.increment();
+	}
+
+	/**
+	 * Executes the specified task in this context's pool and waits for its completion.
+	 * When called from a worker thread of the pool, the task is executed directly.
+	 * The task is executed with this context installed.
+	 * @param task to execute
+	 */
+	public void invoke(ForkJoinTask<?> task){
+		call(task::invoke);
+	}
+
+	/**
+	 * Executes the specified runnable within this context's pool and waits for its completion.
+	 * Parallel streams used by the runnable are executed by the pool.
+	 * @param runnable to execute
+	 */
+	public void run(Runnable runnable){
+		call(()->{
+			runnable.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Executes the specified supplier within this context's pool and returns its result.
+	 * The supplier is executed with this context installed, so that parallel operations of
+	 * this library as well as parallel streams used by the supplier are executed by the pool.
+	 * @param supplier to execute
+	 * @param <T> result type
+	 * @return the result of the supplier
+	 */
+	public <T> T call(Supplier<T> supplier){
+		if(ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool){
+			return callInstalled(supplier);
+		}
+		return pool.invoke(ForkJoinTask.adapt(()->callInstalled(supplier)));
+	}
+
+	@SuppressWarnings("try")
+	private <T> T callInstalled(Supplier<T> supplier){
+		try(Installation i = install()){
+			return supplier.get();
+		}
+	}
+
+	/**
+	 * Shuts down the pool of this context if it was created by this context
+	 * (see {@link #ExecutionContext(int, int)}), otherwise does nothing.
+	 */
+	public void shutdown(){
+		if(ownsPool){
+			pool.shutdown();
+		}
+	}
+
+}
@@ -1,8 +1,11 @@
 package hageldave.imagingkit.core.util;
 
 import java.util.Spliterator;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 import hageldave.imagingkit.core.ImgBase;
 
@@ -19,6 +22,9 @@ public final class ParallelForEachExecutor<T> extends CountedCompleter<Void> {
 
 	private final Spliterator<T> spliterator;
 	private final Consumer<? super T> action;
+	private final ExecutionContext context;
+	/* cancellation and progress state shared by all tasks of an execution, null if not cancellable */
+	private final Control control;
 	
 	/**
 	 * Creates a new ParallelForEachExecutor that executes the 
@@ -34,27 +40,118 @@ public final class ParallelForEachExecutor<T> extends CountedCompleter<Void> {
 			Spliterator<T> spliterator,
 			Consumer<? super T> action)
 	{
-		this(null, spliterator, action);
+		this(null, spliterator, action, ExecutionContext.current(), null);
 	}
 
 	private ParallelForEachExecutor(
 			ParallelForEachExecutor<T> parent,
 			Spliterator<T> spliterator,
-			Consumer<? super T> action)
+			Consumer<? super T> action,
+			ExecutionContext context,
+			Control control)
 	{
 		super(parent);
 		this.spliterator = spliterator;
 		this.action = action;
+		this.context = context;
+		this.control = control;
+		context.taskQueued();
 	}
 
 	@Override
 	public void compute() {
-		Spliterator<T> sub;
-		while ((sub = spliterator.trySplit()) != null) {
-			addToPendingCount(1);
-			new ParallelForEachExecutor<T>(this, sub, action).fork();
+		ExecutionContext previous = context.taskStarted();
+		try {
+			if(control == null){
+				Spliterator<T> sub;
+				while ((sub = spliterator.trySplit()) != null) {
+					addToPendingCount(1);
+					new ParallelForEachExecutor<T>(this, sub, action, context, null).fork();
+				}
+				spliterator.forEachRemaining(action);
+			} else {
+				Spliterator<T> sub;
+				while (!control.isCancelled() && (sub = spliterator.trySplit()) != null) {
+					addToPendingCount(1);
+					new ParallelForEachExecutor<T>(this, sub, action, context, control).fork();
+				}
+				if(!control.isCancelled()){
+					long size = spliterator.estimateSize();
+					spliterator.forEachRemaining(action);
+					control.processed(size);
+				}
+			}
+		} finally {
+			context.taskFinished(previous);
 		}
-		spliterator.forEachRemaining(action);
 		propagateCompletion();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Executes the specified action on the elements of the specified spliterator
+	 * in parallel within the pool of the specified context.
+	 * @param context in which to execute
+	 * @param spliterator that provides the elements on which the action is to be performed
+	 * @param action to be performed
+	 * @param <T> element type
+	 * @since 2.2
+	 */
+	public static <T> void execute(ExecutionContext context, Spliterator<T> spliterator, Consumer<? super T> action){
+		context.invoke(new ParallelForEachExecutor<T>(null, spliterator, action, context, null));
+	}
+
+	/**
+	 * Executes the specified action on the elements of the specified spliterator
+	 * in parallel within the pool of the specified context, until the specified token is cancelled.
+	 * The token is checked before each split and before each chunk (split that is not split any further)
+	 * is processed. Once it is cancelled, all chunks that were not started yet are skipped.
+	 * <p>
+	 * The progress callback is called after each processed chunk with the total number of
+	 * elements processed so far (which is estimated for spliterators that are not {@link Spliterator#SIZED}).
+	 * It is called concurrently by the threads of the context's pool.
+	 *
+	 * @param context in which to execute
+	 * @param spliterator that provides the elements on which the action is to be performed
+	 * @param action to be performed
+	 * @param token for cancellation
+	 * @param progress callback receiving the number of processed elements, may be null
+	 * @param <T> element type
+	 * @throws CancellationException when the token was cancelled before all elements were processed
+	 * @since 2.2
+	 */
+	public static <T> void execute(ExecutionContext context, Spliterator<T> spliterator, Consumer<? super T> action, CancellationToken token, LongConsumer progress){
+		Control control = new Control(token, progress);
+		context.invoke(new ParallelForEachExecutor<T>(null, spliterator, action, context, control));
+		if(control.skipped){
+			throw new CancellationException(String.format(
+					"Operation was cancelled after processing %d elements.", control.processed.get()));
+		}
+	}
+
+	private static final class Control {
+		final CancellationToken token;
+		final LongConsumer progress;
+		final AtomicLong processed = new AtomicLong();
+		volatile boolean skipped = false;
+
+		Control(CancellationToken token, LongConsumer progress) {
+			this.token = token;
+			this.progress = progress;
+		}
+
+		boolean isCancelled(){
+			if(token.isCancelled()){
+				skipped = true;
+				return true;
+			}
+			return false;
+		}
+
+		void processed(long n){
+			long total = processed.addAndGet(n);
+			if(progress != null){
+				progress.accept(total);
+			}
+		}
+	}
+}
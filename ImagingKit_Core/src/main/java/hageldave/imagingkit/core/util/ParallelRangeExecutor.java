@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 David Haegele
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package hageldave.imagingkit.core.util;
+
+import java.util.concurrent.CountedCompleter;
+
+import hageldave.imagingkit.core.Iterators.ImgSpliterator;
+
+/**
+ * CountedCompleter class for multithreaded execution of an action on
+ * an index range. The range is split in halves in the same way as an
+ * {@link ImgSpliterator} is split, until a split would contain less than
+ * the minimum split size. The action is then called once per split with
+ * the bounds of the split, which allows for plain array loops instead of
+ * per element callbacks.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public final class ParallelRangeExecutor extends CountedCompleter<Void> {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Action that is performed on an index range.
+	 */
+	@FunctionalInterface
+	public static interface RangeAction {
+		/**
+		 * Performs the action on the specified range
+		 * @param from first index of the range (inclusive)
+		 * @param to end of the range (exclusive)
+		 */
+		public void accept(int from, int to);
+	}
+
+	private final int from;
+	private int to;
+	private final int minimumSplitSize;
+	private final RangeAction action;
+	private final ExecutionContext context;
+
+	/**
+	 * Creates a new ParallelRangeExecutor for the specified range.
+	 * <p>
+	 * Call {@link #invoke()} to trigger execution.
+	 *
+	 * @param from first index of the range (inclusive)
+	 * @param to end of the range (exclusive)
+	 * @param minimumSplitSize minimum number of elements in a split
+	 * @param action to be performed on each split
+	 */
+	public ParallelRangeExecutor(int from, int to, int minimumSplitSize, RangeAction action) {
+		this(null, from, to, minimumSplitSize, action, ExecutionContext.current());
+	}
+
+	private ParallelRangeExecutor(ParallelRangeExecutor parent, int from, int to, int minimumSplitSize, RangeAction action, ExecutionContext context) {
+		super(parent);
+		this.from = from;
+		this.to = to;
+		this.minimumSplitSize = Math.max(1, minimumSplitSize);
+		this.action = action;
+		this.context = context;
+		context.taskQueued();
+	}
+
+	@Override
+	public void compute() {
+		ExecutionContext previous = context.taskStarted();
+		try {
+			int range;
+			while((range = to-from)/2 >= minimumSplitSize){
+				int mid = from+range/2;
+				addToPendingCount(1);
+				new ParallelRangeExecutor(this, mid, to, minimumSplitSize, action, context).fork();
+				to = mid;
+			}
+			if(from < to){
+				action.accept(from, to);
+			}
+		} finally {
+			context.taskFinished(previous);
+		}
+		propagateCompletion();
+	}
+
+	/**
+	 * Performs the specified action on the specified range, either in a single call
+	 * or in parallel on splits of the range.
+	 * @param from first index of the range (inclusive)
+	 * @param to end of the range (exclusive)
+	 * @param minimumSplitSize minimum number of elements in a split
+	 * @param parallel whether to execute in parallel (within the {@link ExecutionContext#current()} context)
+	 * @param action to be performed
+	 */
+	public static void execute(int from, int to, int minimumSplitSize, boolean parallel, RangeAction action){
+		execute(parallel ? ExecutionContext.current():null, from, to, minimumSplitSize, action);
+	}
+
+	/**
+	 * Performs the specified action on the specified range in parallel on splits of the range
+	 * within the pool of the specified context, or in a single call if the context is null
+	 * or the range is too small to be split.
+	 * @param context in which to execute, or null for serial execution
+	 * @param from first index of the range (inclusive)
+	 * @param to end of the range (exclusive)
+	 * @param minimumSplitSize minimum number of elements in a split
+	 * @param action to be performed
+	 */
+	public static void execute(ExecutionContext context, int from, int to, int minimumSplitSize, RangeAction action){
+		if(context == null || (to-from)/2 < minimumSplitSize){
+			if(from < to){
+				action.accept(from, to);
+			}
+		} else {
+			context.invoke(new ParallelRangeExecutor(null, from, to, minimumSplitSize, action, context));
+		}
+	}
+
+	/**
+	 * Performs the specified action on the range [0,n), either in a single call or in parallel
+	 * on contiguous chunks of the range (within the {@link ExecutionContext#current()} context).
+	 * Unlike {@link #execute(int, int, int, boolean, RangeAction)} the range is not split into
+	 * more than a few chunks per worker thread, which suits actions that are cheap per element
+	 * or that allocate per chunk state.
+	 * @param n end of the range (exclusive)
+	 * @param minimumSplitSize minimum number of elements in a chunk, unless overridden by the context
+	 * (see {@link ExecutionContext#minimumSplitSize(int)})
+	 * @param parallel whether to execute in parallel
+	 * @param action to be performed
+	 */
+	public static void executeChunked(int n, int minimumSplitSize, boolean parallel, RangeAction action){
+		executeChunked(0, n, 1, minimumSplitSize, parallel, action);
+	}
+
+	/**
+	 * Performs the specified action on the range [from,to) of rows, either in a single call or in
+	 * parallel on contiguous chunks of rows (within the {@link ExecutionContext#current()} context).
+	 * The range is not split into more than a few chunks per worker thread.
+	 * @param from first row (inclusive)
+	 * @param to end row (exclusive)
+	 * @param rowLength number of elements per row
+	 * @param minimumSplitSize minimum number of elements in a chunk, unless overridden by the context
+	 * (see {@link ExecutionContext#minimumSplitSize(int)})
+	 * @param parallel whether to execute in parallel
+	 * @param action to be performed on row ranges
+	 */
+	public static void executeChunked(int from, int to, int rowLength, int minimumSplitSize, boolean parallel, RangeAction action){
+		ExecutionContext context = ExecutionContext.current();
+		int chunkRows = Math.max(
+				context.minimumSplitSize(minimumSplitSize)/Math.max(1, rowLength),
+				(to-from)/(context.getParallelism()*4));
+		execute(parallel ? context:null, from, to, Math.max(1, chunkRows), action);
+	}
+
+}
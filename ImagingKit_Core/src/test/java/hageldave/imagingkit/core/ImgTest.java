@@ -14,6 +14,8 @@ import java.util.function.Consumer;
 import org.junit.Test;
 
 import hageldave.imagingkit.core.PixelConvertingSpliterator.PixelConverter;
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
+import hageldave.imagingkit.core.util.ExecutionContext;
 
 public class ImgTest {
 
@@ -883,5 +885,96 @@ public class ImgTest {
 		});
 	}
 
+	@Test
+	public void primitiveMapping_test(){
+		for(boolean parallel: new boolean[]{false,true}){
+			Img img = new Img(123, 77);
+			img.setSpliteratorMinimumSplitSize(100);
+			img.forEachIndexed((i,v)->i, parallel);
+			for(int i = 0; i < img.numValues(); i++){
+				assertEquals(i, img.getData()[i]);
+			}
+			img.mapARGB(v->v*2+1, parallel);
+			for(int i = 0; i < img.numValues(); i++){
+				assertEquals(i*2+1, img.getData()[i]);
+			}
+			assertSame(img, img.forEachIndexed((i,v)->v-i));
+			for(int i = 0; i < img.numValues(); i++){
+				assertEquals(i+1, img.getData()[i]);
+			}
+		}
+		// same result as with pixel based forEach
+		Img img1 = new Img(64, 31);
+		img1.forEach(px->px.setValue(px.getIndex()*7919));
+		Img img2 = img1.copy();
+		img1.forEach(true, px->px.setValue(Pixel.argb_fast(px.b(), px.a(), px.r(), px.g())));
+		img2.mapARGB(v->Pixel.argb_fast(Pixel.b(v), Pixel.a(v), Pixel.r(v), Pixel.g(v)), true);
+		assertArrayEquals(img1.getData(), img2.getData());
+	}
+
+	@Test
+	public void rowIteration_test(){
+		for(boolean parallel: new boolean[]{false,true}){
+			Img img = new Img(50, 300);
+			img.setSpliteratorMinimumSplitSize(120);
+			img.forEachRow(parallel, (y, data, offset, length)->{
+				assertEquals(y*50, offset);
+				assertEquals(50, length);
+				for(int i = offset; i < offset+length; i++)
+					data[i] = y;
+			});
+			img.forEach(px->assertEquals(px.getY(), px.getValue()));
+			// area
+			img.fill(0);
+			img.forEachRow(parallel, 7, 20, 13, 100, (y, data, offset, length)->{
+				assertEquals(y*50+7, offset);
+				assertEquals(13, length);
+				for(int i = offset; i < offset+length; i++)
+					data[i]++;
+			});
+			img.forEach(px->{
+				boolean inArea = px.getX() >= 7 && px.getX() < 20 && px.getY() >= 20 && px.getY() < 120;
+				assertEquals(inArea ? 1:0, px.getValue());
+			});
+		}
+		try {
+			new Img(10, 10).forEachRow(false, 5, 5, 6, 1, (y,d,o,l)->{});
+			fail();
+		} catch (IllegalArgumentException e){
+			// expected
+		}
+	}
+
+	@Test
+	public void adaptiveSplitting_test(){
+		AdaptiveSplitPolicy policy = new AdaptiveSplitPolicy(10_000, 100);
+		ExecutionContext ctx = ExecutionContext.common();
+		Img img = new Img(123, 77);
+		img.forEach(ctx, policy, px->px.setValue(px.getValue()+1));
+		img.forEach(px->assertEquals(1, px.getValue()));
+		// area, sample consists of whole rows
+		img.forEach(ctx, policy, 3, 4, 50, 60, px->px.setValue(px.getValue()+1));
+		img.forEach(px->{
+			boolean inArea = px.getX() >= 3 && px.getX() < 53 && px.getY() >= 4 && px.getY() < 64;
+			assertEquals(inArea ? 2:1, px.getValue());
+		});
+		// per image policy is used by parallel forEach
+		assertNull(img.getSplitPolicy());
+		img.setSplitPolicy(policy);
+		assertSame(policy, img.getSplitPolicy());
+		img.forEach(true, px->px.setValue(0));
+		img.forEach(true, 0, 0, 10, 77, px->px.setValue(px.getValue()+5));
+		img.forEach(px->assertEquals(px.getX() < 10 ? 5:0, px.getValue()));
+		// sample larger than image
+		Img small = new Img(3, 3);
+		small.forEach(ctx, AdaptiveSplitPolicy.DEFAULT, px->px.setValue(px.getIndex()));
+		small.forEach(px->assertEquals(px.getIndex(), px.getValue()));
+		try {
+			img.forEach(ctx, policy, 100, 0, 30, 10, px->{});
+			fail();
+		} catch (IllegalArgumentException e){
+			// expected
+		}
+	}
 
 }
@@ -2,8 +2,11 @@ package hageldave.imagingkit.core;
 
 import static org.junit.Assert.fail;
 
+import java.util.Random;
 import java.util.function.Supplier;
 
+import hageldave.imagingkit.core.scientific.ColorImg;
+
 public class JunitUtils {
 
 
@@ -22,6 +25,23 @@ public class JunitUtils {
 		}
 	}
 
+	public static Img randomImg(int w, int h, long seed){
+		Random r = new Random(seed);
+		Img img = new Img(w, h);
+		for(int i = 0; i < img.numValues(); i++)
+			img.getData()[i] = r.nextInt();
+		return img;
+	}
+
+	public static ColorImg randomColorImg(int w, int h, boolean alpha, long seed){
+		Random r = new Random(seed);
+		ColorImg img = new ColorImg(w, h, alpha);
+		for(double[] channel: img.getData())
+			for(int i = 0; i < channel.length; i++)
+				channel[i] = r.nextDouble();
+		return img;
+	}
+
 	public static void testWithMsg(Runnable test, Supplier<String> msg){
 		try {
 			test.run();
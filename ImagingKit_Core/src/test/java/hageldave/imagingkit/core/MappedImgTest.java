@@ -0,0 +1,130 @@
+package hageldave.imagingkit.core;
+
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
+
+public class MappedImgTest {
+
+	ArrayList<File> files = new ArrayList<>();
+
+	File tmpFile() throws IOException {
+		File f = File.createTempFile("mappedimgtest", ".argb");
+		f.deleteOnExit();
+		files.add(f);
+		return f;
+	}
+
+	@After
+	public void deleteFiles(){
+		files.forEach(File::delete);
+	}
+
+	@Test
+	public void testCreateAndAccess() throws IOException {
+		File file = tmpFile();
+		// use small segments to test access across segment borders
+		MappedImg.create(file, 7, 5);
+		MappedImg img = new MappedImg(file, 7, 5, false, 3);
+		assertEquals(7*5, img.numValues());
+		assertEquals(7*5*4, file.length());
+		assertEquals(0, img.getValue(6, 4));
+
+		Img reference = new Img(7, 5);
+		Random r = new Random(1);
+		reference.forEach(px->px.setValue(r.nextInt()));
+		reference.forEach(px->img.setValue(px.getX(), px.getY(), px.getValue()));
+		assertArrayEquals(reference.getData(), img.toImg().getData());
+		img.force();
+
+		// raw file content is big endian ARGB
+		try(DataInputStream is = new DataInputStream(new FileInputStream(file))){
+			for(int i = 0; i < reference.numValues(); i++){
+				assertEquals(reference.getData()[i], is.readInt());
+			}
+		}
+
+		// reopen read only
+		MappedImg readonly = MappedImg.open(file, 7, 5, true);
+		assertTrue(readonly.isReadOnly());
+		assertArrayEquals(reference.getData(), readonly.toImg().getData());
+		testException(()->readonly.setValue(0, 0, 0), ReadOnlyBufferException.class);
+
+		// rows
+		int[] row = img.getRow(2, null);
+		for(int x = 0; x < 7; x++){
+			assertEquals(reference.getValue(x, 2), row[x]);
+		}
+		img.setRow(3, row);
+		assertEquals(reference.getValue(4, 2), img.getValue(4, 3));
+	}
+
+	@Test
+	public void testIteration() throws IOException {
+		MappedImg img = new MappedImg(MappedImg.create(tmpFile(), 100, 77).getFile(), 100, 77, false, 10);
+		img.setSpliteratorMinimumSplitSize(64);
+		img.forEach(true, px->px.setValue(px.getIndex()));
+		for(int i = 0; i < img.numValues(); i++){
+			assertEquals(i, img.getValueAtIndex(i));
+		}
+		img.forEach(false, 10, 10, 20, 20, px->px.setValue(-1));
+		assertEquals(-1, img.getValue(15, 15));
+		assertEquals(9*100+9, img.getValue(9, 9));
+		assertEquals(20*20, img.stream(true).filter(px->px.getValue()==-1).count());
+
+		img.fill(0xff000000);
+		img.forEach(true, px->px.setRGB_fromDouble_preserveAlpha(px.getXnormalized(), px.getYnormalized(), 0.5));
+		MappedPixel px = img.getPixel(99, 76);
+		assertEquals(0xff, px.a());
+		assertEquals(0xff, px.r());
+		assertEquals(0xff, px.g());
+		assertEquals(0x80, px.b());
+		px.setA_fromDouble(0).setB_fromDouble(0);
+		assertEquals(0x00ffff00, px.getValue());
+
+		MappedImg copy = img.copy();
+		assertNotEquals(img.getFile(), copy.getFile());
+		assertArrayEquals(img.toImg().getData(), copy.toImg().getData());
+
+		BufferedImage bimg = img.toBufferedImage();
+		assertEquals(img.getValue(42, 17), bimg.getRGB(42, 17));
+	}
+
+	@Test
+	public void testSplitPolicy() throws IOException {
+		File file = tmpFile();
+		MappedImg.create(file, 123, 77);
+		MappedImg img = MappedImg.open(file, 123, 77, false);
+		AdaptiveSplitPolicy policy = new AdaptiveSplitPolicy(10_000, 100);
+		assertNull(img.getSplitPolicy());
+		img.setSplitPolicy(policy);
+		assertSame(policy, img.getSplitPolicy());
+		img.forEach(true, px->px.setValue(px.getValue()+1));
+		img.forEach(px->assertEquals(1, px.getValue()));
+	}
+
+	@Test
+	public void testExceptions() throws IOException {
+		File file = tmpFile();
+		testException(()->MappedImg.create(file, 0, 5), IllegalArgumentException.class);
+		testException(()->MappedImg.create(file, 1<<16, 1<<16), IllegalArgumentException.class);
+		MappedImg.create(file, 4, 4);
+		testException(()->MappedImg.open(file, 5, 4, false), IllegalArgumentException.class);
+		testException(()->MappedImg.open(file, 4, 4, false).setSpliteratorMinimumSplitSize(0), IllegalArgumentException.class);
+		testException(()->MappedImg.open(file, 4, 4, false).getValue(0, 4), IndexOutOfBoundsException.class);
+	}
+
+}
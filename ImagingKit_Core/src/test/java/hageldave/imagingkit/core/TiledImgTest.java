@@ -0,0 +1,154 @@
+package hageldave.imagingkit.core;
+
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
+import hageldave.imagingkit.core.util.ExecutionContext;
+
+public class TiledImgTest {
+
+	@Test
+	public void testSparseAccess(){
+		TiledImg img = new TiledImg(200, 100, 16, 0xff00ff00);
+		assertEquals(13, img.getNumTilesX());
+		assertEquals(7, img.getNumTilesY());
+		assertEquals(0, img.getNumAllocatedTiles());
+		assertEquals(0xff00ff00, img.getValue(199, 99));
+		// writing background does not allocate
+		img.setValue(5, 5, 0xff00ff00);
+		assertEquals(0, img.getNumAllocatedTiles());
+
+		img.setValue(17, 33, 0xffaabbcc);
+		assertEquals(1, img.getNumAllocatedTiles());
+		assertTrue(img.isTileAllocated(1, 2));
+		assertEquals(0xffaabbcc, img.getValue(17, 33));
+		assertEquals(0xff00ff00, img.getValue(16, 33));
+
+		TiledImg copy = img.copy();
+		assertEquals(1, copy.getNumAllocatedTiles());
+		copy.setValue(17, 33, 0);
+		assertEquals(0xffaabbcc, img.getValue(17, 33));
+
+		img.fill(0x12345678);
+		assertEquals(0, img.getNumAllocatedTiles());
+		assertEquals(0x12345678, img.getValue(17, 33));
+	}
+
+	@Test
+	public void testImgEquivalence(){
+		Img reference = new Img(150, 70);
+		Random r = new Random(7);
+		reference.forEach(px->px.setValue(r.nextInt()));
+		TiledImg img = new TiledImg(reference);
+		assertArrayEquals(reference.getData(), img.toImg().getData());
+		int[] modes = {Img.boundary_mode_zero, Img.boundary_mode_repeat_edge, Img.boundary_mode_repeat_image, Img.boundary_mode_mirror, 0xff00ff00};
+		for(int mode: modes){
+			for(int y = -80; y < 150; y+=3){
+				for(int x = -160; x < 300; x+=7){
+					assertEquals(reference.getValue(x, y, mode), img.getValue(x, y, mode));
+				}
+			}
+		}
+		assertEquals(reference.getValue(140, 60), img.toBufferedImage().getRGB(140, 60));
+		assertEquals(reference.getValue(33, 21), img.getPixel(33, 21).getValue());
+		assertEquals(21*150+33, img.getPixel(33, 21).getIndex());
+		assertEquals(33, img.getPixel().setIndex(21*150+33).getX());
+	}
+
+	@Test
+	public void testForEach(){
+		for(boolean parallel: new boolean[]{false,true}){
+			TiledImg img = new TiledImg(300, 130, 32, 0);
+			img.setSpliteratorMinimumSplitSize(32*32);
+			img.forEach(parallel, px->px.setValue(px.getIndex()+1));
+			for(int y = 0; y < img.getHeight(); y++){
+				for(int x = 0; x < img.getWidth(); x++){
+					assertEquals(y*300+x+1, img.getValue(x, y));
+				}
+			}
+			img.forEach(parallel, 10, 20, 100, 50, px->px.setValue(0));
+			assertEquals(0, img.getValue(10, 20));
+			assertEquals(0, img.getValue(109, 69));
+			assertEquals(69*300+110+1, img.getValue(110, 69));
+			assertEquals(img.numValues()-100*50, img.stream(parallel).filter(px->px.getValue()!=0).count());
+		}
+	}
+
+	@Test
+	public void testTileSpliterator(){
+		TiledImg img = new TiledImg(100, 70, 16, 0);
+		img.setSpliteratorMinimumSplitSize(1);
+		// tile order traversal
+		Spliterator<TiledPixel> split = img.spliterator();
+		int[] count = {0};
+		split.tryAdvance(px->assertEquals(0, px.getIndex()));
+		for(int i = 1; i < 16*16; i++){
+			split.tryAdvance(px->count[0]++);
+		}
+		split.tryAdvance(px->{
+			assertEquals(16, px.getX());
+			assertEquals(0, px.getY());
+		});
+		// border tiles are smaller than full tiles
+		assertEquals(img.numValues()-16*16-1, split.estimateSize());
+		assertEquals(img.numValues(), img.spliterator().estimateSize());
+
+		// splits cover entire tiles and together all pixels
+		Spliterator<TiledPixel> s1 = img.spliterator();
+		Spliterator<TiledPixel> s2 = s1.trySplit();
+		Spliterator<TiledPixel> s3 = s2.trySplit();
+		assertNotNull(s2);
+		assertNotNull(s3);
+		assertEquals(img.numValues(), s1.estimateSize()+s2.estimateSize()+s3.estimateSize());
+		AtomicInteger visited = new AtomicInteger();
+		for(Spliterator<TiledPixel> s: Arrays.asList(s1,s2,s3)){
+			int[] tileOfFirst = {-1};
+			s.forEachRemaining(px->{
+				if(tileOfFirst[0] < 0){
+					tileOfFirst[0] = 0;
+					assertEquals(0, px.getX()%16);
+					assertEquals(0, px.getY()%16);
+				}
+				visited.incrementAndGet();
+			});
+		}
+		assertEquals(img.numValues(), visited.get());
+
+		// single tile does not split
+		TiledImg small = new TiledImg(10, 10, 16, 0);
+		small.setSpliteratorMinimumSplitSize(1);
+		assertNull(small.spliterator().trySplit());
+		assertEquals(100, small.spliterator().estimateSize());
+	}
+
+	@Test
+	public void testSplitPolicy(){
+		AdaptiveSplitPolicy policy = new AdaptiveSplitPolicy(10_000, 100);
+		TiledImg img = new TiledImg(200, 100, 16, 0);
+		assertNull(img.getSplitPolicy());
+		img.setSplitPolicy(policy);
+		assertSame(policy, img.getSplitPolicy());
+		img.forEach(true, px->px.setValue(px.getValue()+1));
+		img.forEach(px->assertEquals(1, px.getValue()));
+		// sample larger than image
+		TiledImg small = new TiledImg(10, 10, 16, 0);
+		small.forEach(ExecutionContext.common(), AdaptiveSplitPolicy.DEFAULT, px->px.setValue(px.getIndex()));
+		small.forEach(px->assertEquals(px.getIndex(), px.getValue()));
+	}
+
+	@Test
+	public void testExceptions(){
+		testException(()->new TiledImg(10, 10, 12, 0), IllegalArgumentException.class);
+		testException(()->new TiledImg(10, 10, 0, 0), IllegalArgumentException.class);
+		testException(()->new TiledImg(10, 10).setSpliteratorMinimumSplitSize(0), IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,139 @@
+package hageldave.imagingkit.core.filter;
+
+import static hageldave.imagingkit.core.JunitUtils.randomColorImg;
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+public class ConvolutionTest {
+
+	static final int[] modes = {
+			Img.boundary_mode_zero,
+			Img.boundary_mode_repeat_edge,
+			Img.boundary_mode_repeat_image,
+			Img.boundary_mode_mirror,
+			0xff336699
+	};
+
+	/* straight forward reference implementation */
+	static double reference(ColorImg img, int channel, int x, int y, Kernel k, int mode){
+		double sum = 0;
+		for(int j = 0; j < k.getHeight(); j++)
+			for(int i = 0; i < k.getWidth(); i++)
+				sum += k.getWeight(i, j)*img.getValue(channel, x+i-k.getCenterX(), y+j-k.getCenterY(), mode);
+		return sum;
+	}
+
+	@Test
+	public void testColorImgAgainstReference(){
+		// also covers images smaller than the kernel
+		int[][] sizes = {{31,17},{4,3},{1,1}};
+		Kernel[] kernels = {
+				new Kernel(3, 2, 1,2,3,4,5,6),
+				Kernel.gaussian(1.5),
+				Kernel.sobelX(),
+				Kernel.laplacian()
+		};
+		for(int[] size: sizes){
+			ColorImg img = randomColorImg(size[0], size[1], true, 17);
+			for(Kernel k: kernels){
+				for(int mode: modes){
+					for(boolean parallel: new boolean[]{false,true}){
+						ColorImg result = Convolution.convolve(img, k, mode, null, parallel);
+						for(int c = 0; c < 4; c++)
+							for(int y = 0; y < img.getHeight(); y++)
+								for(int x = 0; x < img.getWidth(); x++)
+									assertEquals(reference(img, c, x, y, k, mode), result.getValue(c, x, y), 1e-9);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSeparableEqualsGeneral(){
+		ColorImg img = randomColorImg(40, 25, true, 3);
+		SeparableKernel[] kernels = {
+				SeparableKernel.gaussian(2),
+				SeparableKernel.box(1),
+				SeparableKernel.sobelY(),
+				new SeparableKernel(new double[]{1,2}, new double[]{3,4,5,6})
+		};
+		for(SeparableKernel k: kernels){
+			for(int mode: modes){
+				ColorImg sep = Convolution.convolve(img, k, mode, null, true);
+				ColorImg gen = Convolution.convolve(img, k.toKernel(), mode, null, false);
+				for(int c = 0; c < 4; c++)
+					assertArrayEquals(gen.getData()[c], sep.getData()[c], 1e-6);
+			}
+		}
+		// single channel in place
+		ColorImg copy = img.copy();
+		Convolution.convolve(copy, ColorImg.channel_g, SeparableKernel.box(2), Img.boundary_mode_mirror, copy, false);
+		ColorImg expected = Convolution.convolve(img, SeparableKernel.box(2), Img.boundary_mode_mirror, null, false);
+		assertArrayEquals(expected.getDataG(), copy.getDataG(), 1e-9);
+		assertArrayEquals(img.getDataR(), copy.getDataR(), 0);
+	}
+
+	@Test
+	public void testImg(){
+		Img img = new Img(23, 19);
+		Random r = new Random(5);
+		img.forEach(px->px.setValue(r.nextInt()));
+		ColorImg[] channels = new ColorImg[4];
+		int[] shifts = {24,16,8,0};
+		for(int c = 0; c < 4; c++){
+			channels[c] = new ColorImg(img.getWidth(), img.getHeight(), false);
+			double[] data = channels[c].getDataR();
+			for(int i = 0; i < data.length; i++)
+				data[i] = (img.getData()[i]>>>shifts[c])&0xff;
+		}
+		Kernel k = Kernel.gaussian(1);
+		for(int mode: modes){
+			Img result = Convolution.convolve(img, k, mode, null, true);
+			Img resultSep = Convolution.convolve(img, SeparableKernel.gaussian(1), mode, null, false);
+			for(int y = 0; y < img.getHeight(); y++){
+				for(int x = 0; x < img.getWidth(); x++){
+					int[] v = new int[4];
+					for(int c = 0; c < 4; c++){
+						int channelMode = mode == 0xff336699 ? (mode>>>shifts[c])&0xff : mode;
+						v[c] = (int)Math.round(reference(channels[c], ColorImg.channel_r, x, y, k, channelMode));
+					}
+					int expected = Pixel.argb_bounded(v[0], v[1], v[2], v[3]);
+					assertEquals(expected, result.getValue(x, y));
+					assertEquals(expected, resultSep.getValue(x, y));
+				}
+			}
+		}
+		// in place
+		Img copy = img.copy();
+		Convolution.convolve(copy, SeparableKernel.box(1), Img.boundary_mode_repeat_edge, copy, false);
+		assertArrayEquals(Convolution.convolve(img, Kernel.box(1), Img.boundary_mode_repeat_edge, null, false).getData(), copy.getData());
+	}
+
+	@Test
+	public void testKernels(){
+		assertEquals(1, Kernel.gaussian(3).getSum(), 1e-9);
+		assertEquals(1, Kernel.box(2).getSum(), 1e-9);
+		assertEquals(5, Kernel.box(2).getWidth());
+		assertEquals(0, Kernel.sobelX().getSum(), 0);
+		assertEquals(-1, Kernel.sobelX().getWeight(0, 0), 0);
+		assertEquals(2, Kernel.sobelX().getWeight(2, 1), 0);
+		assertEquals(-2, Kernel.sobelY().getWeight(1, 0), 0);
+		assertEquals(0.5, new Kernel(2, 1, 2,2).normalized().getWeight(1, 0), 0);
+
+		testException(()->new Kernel(2, 2, 1,2,3), IllegalArgumentException.class);
+		testException(()->Kernel.laplacian().normalized(), IllegalArgumentException.class);
+		testException(()->SeparableKernel.box(-1), IllegalArgumentException.class);
+		testException(()->SeparableKernel.gaussian(0), IllegalArgumentException.class);
+		testException(()->Convolution.convolve(new Img(3, 3), Kernel.box(1), 0, new Img(3, 4), false), IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,106 @@
+package hageldave.imagingkit.core.filter;
+
+import static hageldave.imagingkit.core.JunitUtils.randomColorImg;
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+public class ImagePyramidTest {
+
+	@Test
+	public void testLevels(){
+		assertEquals(1, ImagePyramid.numLevels(1, 1));
+		assertEquals(2, ImagePyramid.numLevels(2, 1));
+		assertEquals(4, ImagePyramid.numLevels(5, 3));
+		assertEquals(9, ImagePyramid.numLevels(256, 1));
+
+		ColorImg img = randomColorImg(37, 20, true, 8);
+		ImagePyramid pyramid = new ImagePyramid(img, true);
+		assertEquals(7, pyramid.getNumLevels());
+		assertSame(img, pyramid.level(0));
+		int[][] sizes = {{37,20},{19,10},{10,5},{5,3},{3,2},{2,1},{1,1}};
+		for(int i = 0; i < sizes.length; i++){
+			assertEquals(sizes[i][0], pyramid.level(i).getWidth());
+			assertEquals(sizes[i][1], pyramid.level(i).getHeight());
+		}
+		// level 1 is blurred and decimated level 0
+		double[] k = {1/16.0, 4/16.0, 6/16.0, 4/16.0, 1/16.0};
+		ColorImg blurred = Convolution.convolve(img, new SeparableKernel(k, k), ColorImg.boundary_mode_mirror, null, false);
+		ColorImg level1 = pyramid.level(1);
+		for(int y = 0; y < level1.getHeight(); y++)
+			for(int x = 0; x < level1.getWidth(); x++)
+				for(int c = 0; c < 4; c++)
+					assertEquals(blurred.getValue(c, 2*x, 2*y), level1.getValue(c, x, y), 1e-12);
+
+		// constant image stays constant
+		ColorImg constant = new ColorImg(21, 13, false).fill(ColorImg.channel_g, 0.4);
+		ImagePyramid cp = new ImagePyramid(constant, false);
+		for(int i = 0; i < cp.getNumLevels(); i++)
+			for(double v: cp.level(i).getDataG())
+				assertEquals(0.4, v, 1e-12);
+	}
+
+	@Test
+	public void testLaplacian(){
+		ColorImg img = randomColorImg(30, 17, true, 9);
+		ImagePyramid pyramid = new ImagePyramid(img, true);
+		int last = pyramid.getNumLevels()-1;
+		assertSame(pyramid.level(last), pyramid.laplacianLevel(last));
+		for(int n = 0; n < last; n++){
+			ColorImg g = pyramid.level(n);
+			ColorImg expanded = ImagePyramid.expand(pyramid.level(n+1), g.getWidth(), g.getHeight(), false);
+			ColorImg l = pyramid.laplacianLevel(n);
+			for(int c = 0; c < 4; c++)
+				for(int i = 0; i < g.numValues(); i++)
+					assertEquals(g.getData()[c][i], l.getData()[c][i]+expanded.getData()[c][i], 1e-12);
+		}
+		// source is unaffected by laplacian computation
+		assertArrayEquals(randomColorImg(30, 17, true, 9).getDataR(), img.getDataR(), 0);
+	}
+
+	@Test
+	public void testCachingAndInvalidation(){
+		Img img = new Img(16, 8).fill(0xff000000);
+		ImagePyramid pyramid = new ImagePyramid(img, false);
+		assertSame(img, pyramid.levelImg(0));
+		ColorImg level2 = pyramid.level(2);
+		assertSame(level2, pyramid.level(2));
+		assertSame(pyramid.levelImg(2), pyramid.levelImg(2));
+		assertEquals(0xff000000, pyramid.levelImg(2).getValue(1, 1));
+
+		img.fill(0xffffffff);
+		assertSame(level2, pyramid.level(2));
+		pyramid.invalidate();
+		assertNotSame(level2, pyramid.level(2));
+		assertEquals(0xffffffff, pyramid.levelImg(2).getValue(1, 1));
+		assertEquals(1.0, pyramid.level(3).getValueR(0, 0), 1e-12);
+	}
+
+	@Test
+	public void testSampleAtScale(){
+		ColorImg img = randomColorImg(40, 40, true, 10);
+		ImagePyramid pyramid = new ImagePyramid(img, true);
+		assertEquals(img.getValueR(7, 9), pyramid.sampleAtScale(ColorImg.channel_r, 7, 9, 1), 1e-12);
+		assertEquals(img.getValueR(7, 9), pyramid.sampleAtScale(ColorImg.channel_r, 7, 9, 4), 1e-12);
+		assertEquals(pyramid.level(1).getValueB(3, 5), pyramid.sampleAtScale(ColorImg.channel_b, 6, 10, 0.5), 1e-12);
+		// in between levels 1 and 2
+		double v1 = pyramid.level(1).getValueB(6, 4);
+		double v2 = pyramid.level(2).getValueB(3, 2);
+		assertEquals(v1+0.5*(v2-v1), pyramid.sampleAtScale(ColorImg.channel_b, 12, 8, Math.pow(2, -1.5)), 1e-9);
+		// smallest level for tiny scales
+		double last = pyramid.level(pyramid.getNumLevels()-1).getValueA(0, 0);
+		assertEquals(last, pyramid.sampleAtScale(ColorImg.channel_a, 13, 2, 1e-9), 1e-12);
+
+		ImagePyramid ip = new ImagePyramid(new Img(10, 10).fill(0x80ff4000), false);
+		assertEquals(0x80ff4000, ip.sampleARGBAtScale(3.3, 4.1, 0.3));
+
+		testException(()->pyramid.sampleAtScale(0, 1, 1, 0), IllegalArgumentException.class);
+		testException(()->pyramid.level(-1), IllegalArgumentException.class);
+		testException(()->pyramid.laplacianLevel(pyramid.getNumLevels()), IllegalArgumentException.class);
+	}
+
+}
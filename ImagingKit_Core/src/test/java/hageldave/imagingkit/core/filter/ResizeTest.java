@@ -0,0 +1,107 @@
+package hageldave.imagingkit.core.filter;
+
+import static hageldave.imagingkit.core.JunitUtils.randomColorImg;
+import static hageldave.imagingkit.core.JunitUtils.randomImg;
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.filter.Resize.Filter;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+public class ResizeTest {
+
+	@Test
+	public void testIdentity(){
+		ColorImg cimg = randomColorImg(23, 17, true, 5);
+		Img img = randomImg(23, 17, 5);
+		for(Filter filter: Filter.values()){
+			ColorImg cres = Resize.resize(cimg, 23, 17, filter, true);
+			for(int c = 0; c < 4; c++)
+				assertArrayEquals(filter.name(), cimg.getData()[c], cres.getData()[c], 1e-9);
+			Img res = Resize.resize(img, 23, 17, filter, false);
+			assertArrayEquals(filter.name(), img.getData(), res.getData());
+		}
+	}
+
+	@Test
+	public void testConstant(){
+		ColorImg cimg = new ColorImg(31, 20, false);
+		cimg.fill(ColorImg.channel_r, 0.3).fill(ColorImg.channel_g, 0.6).fill(ColorImg.channel_b, 0.9);
+		Img img = new Img(31, 20).fill(0xff336699);
+		int[][] sizes = {{1,1},{7,5},{15,10},{30,21},{64,47},{200,3}};
+		for(Filter filter: Filter.values()){
+			for(int[] size: sizes){
+				ColorImg cres = Resize.resize(cimg, size[0], size[1], filter, true);
+				assertFalse(cres.hasAlpha());
+				for(int i = 0; i < cres.numValues(); i++){
+					assertEquals(0.3, cres.getDataR()[i], 1e-9);
+					assertEquals(0.6, cres.getDataG()[i], 1e-9);
+					assertEquals(0.9, cres.getDataB()[i], 1e-9);
+				}
+				Img res = Resize.resize(img, size[0], size[1], filter, true);
+				for(int v: res.getData())
+					assertEquals(0xff336699, v);
+			}
+		}
+	}
+
+	@Test
+	public void testAreaAveraging(){
+		ColorImg img = randomColorImg(40, 30, true, 7);
+		ColorImg half = Resize.resize(img, 20, 15, Filter.AREA, true);
+		for(int y = 0; y < 15; y++){
+			for(int x = 0; x < 20; x++){
+				double mean = 0;
+				for(int j = 0; j < 2; j++)
+					for(int i = 0; i < 2; i++)
+						mean += img.getValueG(2*x+i, 2*y+j)/4;
+				assertEquals(mean, half.getValueG(x, y), 1e-9);
+			}
+		}
+		// non integer factor conserves the overall mean
+		ColorImg odd = Resize.resize(img, 13, 7, Filter.AREA, false);
+		double meanSrc = 0, meanDst = 0;
+		for(double v: img.getDataA()) meanSrc += v/img.numValues();
+		for(double v: odd.getDataA()) meanDst += v/odd.numValues();
+		assertEquals(meanSrc, meanDst, 1e-9);
+	}
+
+	@Test
+	public void testImgAgreesWithColorImg(){
+		Img img = randomImg(50, 41, 3);
+		ColorImg cimg = new ColorImg(img, true);
+		int[][] sizes = {{17,13},{120,90},{50,20}};
+		for(Filter filter: new Filter[]{Filter.BILINEAR, Filter.AREA}){
+			for(int[] size: sizes){
+				Img res = Resize.resize(img, size[0], size[1], filter, true);
+				ColorImg cres = Resize.resize(cimg, size[0], size[1], filter, true);
+				for(int i = 0; i < res.numValues(); i++){
+					int v = res.getData()[i];
+					assertEquals(cres.getDataA()[i]*255, Pixel.a(v), 0.5+1e-6);
+					assertEquals(cres.getDataR()[i]*255, Pixel.r(v), 0.5+1e-6);
+					assertEquals(cres.getDataB()[i]*255, Pixel.b(v), 0.5+1e-6);
+				}
+			}
+		}
+		// parallel and sequential give same results
+		for(Filter filter: Filter.values()){
+			assertArrayEquals(
+					Resize.resize(img, 33, 77, filter, false).getData(),
+					Resize.resize(img, 33, 77, filter, true).getData());
+		}
+	}
+
+	@Test
+	public void testExceptions(){
+		Img img = new Img(10, 10);
+		testException(()->Resize.resize(img, 0, 5, Filter.BICUBIC, false), IllegalArgumentException.class);
+		testException(()->Resize.resize(img, img, Filter.BICUBIC, false), IllegalArgumentException.class);
+		ColorImg cimg = new ColorImg(10, 10, false);
+		testException(()->Resize.resize(cimg, 5, -1, Filter.LANCZOS3, false), IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,126 @@
+package hageldave.imagingkit.core.filter;
+
+import static hageldave.imagingkit.core.JunitUtils.randomColorImg;
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+public class SummedAreaTableTest {
+
+	@Test
+	public void testAreaSums(){
+		for(boolean parallel: new boolean[]{false,true}){
+			ColorImg img = randomColorImg(150, 37, true, 11);
+			SummedAreaTable sat = SummedAreaTable.fromChannel(img, ColorImg.channel_b, parallel);
+			assertEquals(150, sat.getWidth());
+			assertEquals(37, sat.getHeight());
+			int[][] rects = {{0,0,150,37},{3,4,5,6},{-10,-3,20,7},{140,30,30,30},{149,36,1,1},{200,0,5,5}};
+			for(int[] r: rects){
+				double sum = 0;
+				int count = 0;
+				for(int y = r[1]; y < r[1]+r[3]; y++){
+					for(int x = r[0]; x < r[0]+r[2]; x++){
+						if(x >= 0 && y >= 0 && x < 150 && y < 37){
+							sum += img.getValueB(x, y);
+							count++;
+						}
+					}
+				}
+				assertEquals(sum, sat.getAreaSum(r[0], r[1], r[2], r[3]), 1e-9);
+				if(count > 0)
+					assertEquals(sum/count, sat.getAreaMean(r[0], r[1], r[2], r[3]), 1e-9);
+				else
+					assertTrue(Double.isNaN(sat.getAreaMean(r[0], r[1], r[2], r[3])));
+			}
+			assertEquals(img.getValueB(0, 0), sat.getValue(0, 0), 1e-12);
+		}
+
+		Img img = new Img(10, 10);
+		img.fill(0xff808080);
+		img.setValue(3, 3, 0xffffffff);
+		SummedAreaTable lum = SummedAreaTable.fromLuminance(img, false);
+		assertEquals(99*Pixel.getLuminance(0xff808080)+255, lum.getAreaSum(0, 0, 10, 10), 0);
+
+		testException(()->new SummedAreaTable(new double[5], 2, 2, false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testBoxBlur(){
+		ColorImg img = randomColorImg(60, 45, true, 2);
+		int r = 4;
+		ColorImg blurred = BoxBlur.boxBlur(img, r, null, true);
+		// interior matches convolution with box kernel
+		ColorImg conv = Convolution.convolve(img, SeparableKernel.box(r), Img.boundary_mode_zero, null, false);
+		for(int c = 0; c < 4; c++){
+			for(int y = r; y < img.getHeight()-r; y++){
+				for(int x = r; x < img.getWidth()-r; x++){
+					assertEquals(conv.getValue(c, x, y), blurred.getValue(c, x, y), 1e-9);
+				}
+			}
+		}
+		// border is mean of clipped box
+		double sum = 0;
+		for(int y = 0; y <= r; y++)
+			for(int x = 0; x <= r; x++)
+				sum += img.getValueR(x, y);
+		assertEquals(sum/((r+1)*(r+1)), blurred.getValueR(0, 0), 1e-9);
+
+		// in place and Img version
+		ColorImg copy = img.copy();
+		BoxBlur.boxBlur(copy, r, copy, false);
+		assertArrayEquals(blurred.getDataA(), copy.getDataA(), 1e-9);
+
+		Img argb = new Img(20, 20);
+		argb.fill(0xff204060);
+		Img argbBlurred = BoxBlur.boxBlur(argb, 30, null, false);
+		assertArrayEquals(argb.getData(), argbBlurred.getData());
+
+		testException(()->BoxBlur.boxBlur(img, -1, null, false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testGaussianApproximation(){
+		double[] sigmas = {0.8, 2, 5.5, 13};
+		for(double sigma: sigmas){
+			for(int n = 1; n <= 5; n++){
+				int[] radii = BoxBlur.boxRadiiForGaussian(sigma, n);
+				double variance = 0;
+				for(int r: radii){
+					assertTrue(Math.abs(r-radii[0]) <= 1);
+					int w = 2*r+1;
+					variance += (w*w-1)/12.0;
+				}
+				assertEquals(sigma*sigma, variance, sigma*sigma*0.5+1);
+			}
+		}
+
+		// blurred impulse has approximately the Gaussian's variance
+		int size = 101, c = 50;
+		double sigma = 6;
+		ColorImg impulse = new ColorImg(size, size, false);
+		impulse.setValueR(c, c, 1);
+		ColorImg blurred = BoxBlur.gaussianBlur(impulse, sigma, 4, null, true);
+		ColorImg gauss = Convolution.convolve(impulse, ColorImg.channel_r, SeparableKernel.gaussian(sigma), Img.boundary_mode_zero, null, false);
+		double total = 0, varX = 0, maxErr = 0;
+		for(int y = 0; y < size; y++){
+			for(int x = 0; x < size; x++){
+				double v = blurred.getValueR(x, y);
+				total += v;
+				varX += v*(x-c)*(x-c);
+				maxErr = Math.max(maxErr, Math.abs(v-gauss.getValueR(x, y)));
+			}
+		}
+		assertEquals(1, total, 1e-9);
+		assertEquals(sigma*sigma, varX, 2);
+		assertTrue(maxErr < 0.1*gauss.getValueR(c, c));
+
+		testException(()->BoxBlur.boxRadiiForGaussian(0, 3), IllegalArgumentException.class);
+		testException(()->BoxBlur.boxRadiiForGaussian(1, 0), IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,105 @@
+package hageldave.imagingkit.core.filter;
+
+import static hageldave.imagingkit.core.JunitUtils.randomColorImg;
+import static hageldave.imagingkit.core.JunitUtils.randomImg;
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+public class WarpTest {
+
+	static final int[] MODES = {
+			Img.boundary_mode_zero, Img.boundary_mode_repeat_edge,
+			Img.boundary_mode_repeat_image, Img.boundary_mode_mirror, 0xff00ff00};
+
+	/* bilinear sample using getValue with boundary mode */
+	static double reference(ColorImg img, int c, double x, double y, int mode){
+		int x0 = (int)Math.floor(x), y0 = (int)Math.floor(y);
+		double fx = x-x0, fy = y-y0;
+		return    (1-fx)*(1-fy)*img.getValue(c, x0, y0, mode)
+				+ fx*(1-fy)*img.getValue(c, x0+1, y0, mode)
+				+ (1-fx)*fy*img.getValue(c, x0, y0+1, mode)
+				+ fx*fy*img.getValue(c, x0+1, y0+1, mode);
+	}
+
+	@Test
+	public void testIdentityAndTranslation(){
+		Img img = randomImg(30, 21, 1);
+		double[] identity = {1,0,0, 0,1,0};
+		assertArrayEquals(img.getData(), Warp.affine(img, identity, Img.boundary_mode_zero, null, true).getData());
+		double[] translation = {1,0,3, 0,1,-2};
+		for(int mode: MODES){
+			for(boolean parallel: new boolean[]{false,true}){
+				Img res = Warp.affine(img, translation, mode, null, parallel);
+				for(int y = 0; y < 21; y++)
+					for(int x = 0; x < 30; x++)
+						assertEquals(img.getValue(x-3, y+2, mode), res.getValue(x, y));
+				// same with displacement map
+				ColorImg displacement = new ColorImg(30, 21, false)
+						.fill(ColorImg.channel_r, -3)
+						.fill(ColorImg.channel_g, 2);
+				assertArrayEquals(res.getData(), Warp.remap(img, displacement, mode, null, parallel).getData());
+			}
+		}
+	}
+
+	@Test
+	public void testPerspective(){
+		ColorImg img = randomColorImg(40, 32, true, 4);
+		double[] h = {
+				0.9, 0.2, 4,
+				-0.1, 1.1, -3,
+				0.002, -0.001, 1};
+		double[] inv = Warp.invert3x3(h);
+		for(int mode: MODES){
+			ColorImg res = Warp.perspective(img, h, mode, new ColorImg(50, 30, true), true);
+			for(int y = 0; y < 30; y++){
+				for(int x = 0; x < 50; x++){
+					double w = inv[6]*x+inv[7]*y+inv[8];
+					double sx = (inv[0]*x+inv[1]*y+inv[2])/w;
+					double sy = (inv[3]*x+inv[4]*y+inv[5])/w;
+					for(int c = 0; c < 4; c++){
+						double expected = reference(img, c, sx, sy, mode);
+						// incremental mapping accumulates rounding errors, default value is large
+						assertEquals(expected, res.getValue(c, x, y), 1e-9*Math.max(1, Math.abs(expected)));
+					}
+				}
+			}
+		}
+		// rotation by 90 degrees about the center of a square image
+		Img square = randomImg(25, 25, 2);
+		double[] rot = {0,-1,24, 1,0,0};
+		Img rotated = Warp.affine(square, rot, Img.boundary_mode_zero, null, false);
+		for(int y = 0; y < 25; y++)
+			for(int x = 0; x < 25; x++)
+				assertEquals(square.getValue(x, y), rotated.getValue(24-y, x));
+	}
+
+	@Test
+	public void testInvert(){
+		double[] m = {2,1,0, 1,3,1, 0,1,4};
+		double[] inv = Warp.invert3x3(m);
+		for(int i = 0; i < 3; i++){
+			for(int j = 0; j < 3; j++){
+				double v = 0;
+				for(int k = 0; k < 3; k++)
+					v += m[i*3+k]*inv[k*3+j];
+				assertEquals(i==j ? 1:0, v, 1e-12);
+			}
+		}
+	}
+
+	@Test
+	public void testExceptions(){
+		Img img = new Img(10, 10);
+		testException(()->Warp.affine(img, new double[]{1,0,0,0,1}, 0, null, false), IllegalArgumentException.class);
+		testException(()->Warp.affine(img, new double[]{1,0,0,2,0,0}, 0, null, false), IllegalArgumentException.class);
+		testException(()->Warp.perspective(img, new double[]{1,0,0,0,1,0,0,0,1}, 0, img, false), IllegalArgumentException.class);
+		testException(()->Warp.remap(img, new ColorImg(10, 11, false), 0, img.copy(), false), IllegalArgumentException.class);
+	}
+
+}
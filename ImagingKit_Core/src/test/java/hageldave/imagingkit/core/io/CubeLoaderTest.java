@@ -0,0 +1,68 @@
+package hageldave.imagingkit.core.io;
+
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.io.CubeLoader.CubeLoaderException;
+import hageldave.imagingkit.core.operations.ColorLUT3D;
+
+public class CubeLoaderTest {
+
+	static final String CUBE =
+			"# inverting LUT\n"+
+			"TITLE \"invert\"\n"+
+			"LUT_3D_SIZE 2\n"+
+			"DOMAIN_MIN 0 0 0\n"+
+			"DOMAIN_MAX 1 1 2\n"+
+			"\n"+
+			"1 1 1\n"+
+			"0 1 1\n"+
+			"1.0 0.0 1.0\n"+
+			"0 0 1\n"+
+			"1 1 0\n"+
+			"0 1 0\n"+
+			"  1 0 0  \n"+
+			"0 0 0\n";
+
+	@Test
+	public void testParse(){
+		ColorLUT3D lut = CubeLoader.parseCube(new StringReader(CUBE));
+		assertEquals(2, lut.getSize());
+		assertArrayEquals(new double[]{0,0,0}, lut.getDomainMin(), 0);
+		assertArrayEquals(new double[]{1,1,2}, lut.getDomainMax(), 0);
+		// red varies fastest
+		assertEquals(0, lut.getGridValue(1, 0, 0, 0), 0);
+		assertEquals(1, lut.getGridValue(1, 0, 0, 1), 0);
+		assertEquals(0, lut.getGridValue(0, 1, 0, 1), 0);
+		assertEquals(0, lut.getGridValue(0, 0, 1, 2), 0);
+
+		double[] out = lut.lookup(0.25, 0.5, 1.0, ColorLUT3D.Interpolation.TRILINEAR, new double[3]);
+		assertArrayEquals(new double[]{0.75, 0.5, 0.5}, out, 1e-12);
+
+		ColorLUT3D fromStream = CubeLoader.loadCube(new ByteArrayInputStream(CUBE.getBytes(StandardCharsets.UTF_8)));
+		assertArrayEquals(lut.getData(), fromStream.getData(), 0);
+	}
+
+	@Test
+	public void testMalformed(){
+		testException(()->CubeLoader.parseCube(new StringReader("LUT_1D_SIZE 2\n0 0 0\n1 1 1\n")), CubeLoaderException.class);
+		testException(()->CubeLoader.parseCube(new StringReader("0 0 0\n")), CubeLoaderException.class);
+		testException(()->CubeLoader.parseCube(new StringReader("# empty\n")), CubeLoaderException.class);
+		testException(()->CubeLoader.parseCube(new StringReader("LUT_3D_SIZE 1\n0 0 0\n")), CubeLoaderException.class);
+		testException(()->CubeLoader.parseCube(new StringReader(CUBE.replace("LUT_3D_SIZE 2", "LUT_3D_SIZE 2.9"))), CubeLoaderException.class);
+		testException(()->CubeLoader.parseCube(new StringReader(CUBE.replace("LUT_3D_SIZE 2", "LUT_3D_SIZE 2 2"))), CubeLoaderException.class);
+		testException(()->CubeLoader.parseCube(new StringReader(CUBE.substring(0, CUBE.lastIndexOf("0 0 0")))), CubeLoaderException.class);
+		testException(()->CubeLoader.parseCube(new StringReader(CUBE+"0 0 0\n")), CubeLoaderException.class);
+		testException(()->CubeLoader.parseCube(new StringReader(CUBE.replace("0 1 1", "0 x 1"))), CubeLoaderException.class);
+		testException(()->CubeLoader.parseCube(new StringReader(CUBE.replace("0 1 1", "0 1"))), CubeLoaderException.class);
+		testException(()->CubeLoader.parseCube(new StringReader(CUBE.replace("DOMAIN_MAX 1 1 2", "DOMAIN_MAX 1 1 0"))), CubeLoaderException.class);
+		testException(()->CubeLoader.loadCube("this/file/does/not/exist.cube"), CubeLoaderException.class);
+	}
+
+}
@@ -0,0 +1,127 @@
+package hageldave.imagingkit.core.operations;
+
+import static hageldave.imagingkit.core.JunitUtils.randomImg;
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.operations.ColorLUT3D.Interpolation;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+public class ColorLUTTest {
+
+	@Test
+	public void testChannelLUT(){
+		Img img = randomImg(123, 77, 3);
+		Img copy = img.copy();
+		ChannelLUT.identity().apply(img, true);
+		assertArrayEquals(copy.getData(), img.getData());
+
+		int[] invert = new int[256];
+		for(int i = 0; i < 256; i++)
+			invert[i] = 255-i;
+		ChannelLUT lut = ChannelLUT.rgb(invert);
+		for(boolean parallel: new boolean[]{false,true}){
+			Img result = lut.apply(copy, null, parallel);
+			for(int i = 0; i < copy.numValues(); i++){
+				int argb = copy.getData()[i];
+				int expected = Pixel.argb(Pixel.a(argb), 255-Pixel.r(argb), 255-Pixel.g(argb), 255-Pixel.b(argb));
+				assertEquals(expected, result.getData()[i]);
+				assertEquals(expected, lut.lookup(argb));
+			}
+		}
+		// composition
+		assertArrayEquals(copy.getData(), lut.andThen(lut).apply(copy, null, true).getData());
+		// curves
+		ChannelLUT alphaHalf = ChannelLUT.fromCurves(null, v->0, null, v->v*0.5);
+		assertEquals(0, alphaHalf.get(ColorImg.channel_g, 200));
+		assertEquals(100, alphaHalf.get(ColorImg.channel_b, 100));
+		assertEquals(128, alphaHalf.get(ColorImg.channel_a, 255));
+		assertEquals(Pixel.argb(128, 10, 0, 30), alphaHalf.lookup(Pixel.argb(255, 10, 20, 30)));
+		assertArrayEquals(invert, lut.getTable(ColorImg.channel_r));
+
+		testException(()->ChannelLUT.rgb(new int[255]), IllegalArgumentException.class);
+		testException(()->ChannelLUT.rgb(new int[]{256}), IllegalArgumentException.class);
+		testException(()->{int[] t = new int[256]; t[7] = -1; ChannelLUT.rgb(t);}, IllegalArgumentException.class);
+		testException(()->lut.apply(copy, new Img(2,2), false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testIdentity3D(){
+		Img img = randomImg(100, 50, 4);
+		ColorLUT3D lut = ColorLUT3D.identity(17);
+		for(Interpolation interpolation: Interpolation.values()){
+			for(boolean parallel: new boolean[]{false,true}){
+				Img result = lut.apply(img, null, interpolation, parallel);
+				assertArrayEquals(img.getData(), result.getData());
+			}
+		}
+		ColorImg cimg = new ColorImg(img, true);
+		ColorImg ccopy = cimg.copy();
+		lut.apply(cimg, Interpolation.TETRAHEDRAL, true);
+		for(int c = 0; c < 4; c++)
+			assertArrayEquals(ccopy.getData()[c], cimg.getData()[c], 1e-12);
+	}
+
+	@Test
+	public void testInterpolation(){
+		// affine mapping is reproduced exactly by both schemes
+		int n = 5;
+		double[] data = new double[n*n*n*3];
+		for(int b = 0; b < n; b++)
+			for(int g = 0; g < n; g++)
+				for(int r = 0; r < n; r++){
+					double vr = r/(n-1.0), vg = g/(n-1.0), vb = b/(n-1.0);
+					int i = ((b*n+g)*n+r)*3;
+					data[i+0] = 0.5*vr + 0.2*vg + 0.1;
+					data[i+1] = vb;
+					data[i+2] = 1-0.3*vr-0.3*vg-0.3*vb;
+				}
+		ColorLUT3D lut = new ColorLUT3D(n, data);
+		Random rand = new Random(7);
+		double[] out = new double[3];
+		for(int k = 0; k < 1000; k++){
+			double r = rand.nextDouble(), g = rand.nextDouble(), b = rand.nextDouble();
+			double[] expected = {0.5*r+0.2*g+0.1, b, 1-0.3*r-0.3*g-0.3*b};
+			for(Interpolation interpolation: Interpolation.values()){
+				assertArrayEquals(expected, lut.lookup(r, g, b, interpolation, out), 1e-12);
+			}
+		}
+		// clamping to domain
+		assertArrayEquals(new double[]{0.1, 0, 1}, lut.lookup(-1, Double.NaN, -3, Interpolation.TRILINEAR, out), 1e-12);
+		assertArrayEquals(new double[]{0.8, 1, 0.1}, lut.lookup(2, 2, 2, Interpolation.TETRAHEDRAL, out), 1e-12);
+
+		// nonlinear grid: schemes differ in the interior but agree on grid points and Img matches ColorImg
+		for(int i = 0; i < data.length; i++)
+			data[i] = data[i]*data[i];
+		double[] tri = lut.lookup(0.3, 0.6, 0.1, Interpolation.TRILINEAR, new double[3]);
+		double[] tet = lut.lookup(0.3, 0.6, 0.1, Interpolation.TETRAHEDRAL, new double[3]);
+		assertNotEquals(tri[0], tet[0], 1e-6);
+		assertArrayEquals(
+				lut.lookup(0.25, 0.5, 0.75, Interpolation.TRILINEAR, new double[3]),
+				lut.lookup(0.25, 0.5, 0.75, Interpolation.TETRAHEDRAL, new double[3]), 1e-12);
+
+		Img img = randomImg(64, 64, 5);
+		for(Interpolation interpolation: Interpolation.values()){
+			Img result = lut.apply(img, null, interpolation, true);
+			ColorImg cresult = lut.apply(new ColorImg(img, true), interpolation, false);
+			for(int i = 0; i < img.numValues(); i++){
+				int argb = result.getData()[i];
+				assertEquals(Pixel.a(img.getData()[i]), Pixel.a(argb));
+				assertEquals(cresult.getDataR()[i]*255, Pixel.r(argb), 0.5+1e-9);
+				assertEquals(cresult.getDataG()[i]*255, Pixel.g(argb), 0.5+1e-9);
+				assertEquals(cresult.getDataB()[i]*255, Pixel.b(argb), 0.5+1e-9);
+			}
+		}
+
+		testException(()->new ColorLUT3D(1, new double[3]), IllegalArgumentException.class);
+		testException(()->new ColorLUT3D(2, new double[23]), IllegalArgumentException.class);
+		testException(()->new ColorLUT3D(2, new double[24], new double[]{0,0,0}, new double[]{1,0,1}), IllegalArgumentException.class);
+	}
+
+}
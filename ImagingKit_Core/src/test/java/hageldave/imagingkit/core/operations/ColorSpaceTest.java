@@ -1,21 +1,26 @@
 package hageldave.imagingkit.core.operations;
 
 
+import static hageldave.imagingkit.core.JunitUtils.randomImg;
 import static hageldave.imagingkit.core.operations.ColorSpaceTransformation.LAB_2_RGB;
 import static hageldave.imagingkit.core.operations.ColorSpaceTransformation.RGB_2_HSV;
 import static hageldave.imagingkit.core.operations.ColorSpaceTransformation.RGB_2_LAB;
 import static hageldave.imagingkit.core.operations.ColorSpaceTransformation.RGB_2_YCbCr;
 import static hageldave.imagingkit.core.operations.ColorSpaceTransformation.YCbCr_2_RGB;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
 import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.JunitUtils;
 import hageldave.imagingkit.core.Pixel;
 import hageldave.imagingkit.core.scientific.ColorImg;
 import hageldave.imagingkit.core.scientific.ColorPixel;
+import hageldave.imagingkit.core.scientific.FloatColorImg;
 
 public class ColorSpaceTest {
 
@@ -194,4 +199,38 @@ public class ColorSpaceTest {
 		return img;
 	}
 
+	@Test
+	public void test_bulk(){
+		Img reference = randomImg(301, 203, 11);
+		for(ColorSpaceTransformation t: ColorSpaceTransformation.values()){
+			Img expected = reference.copy();
+			expected.forEach(t);
+			ColorImg expectedC = new ColorImg(reference, true);
+			expectedC.forEach(t);
+			FloatColorImg expectedF = new FloatColorImg(expectedC.copy());
+			for(boolean parallel: new boolean[]{false,true}){
+				// packed to packed, in place and into new image
+				assertArrayEquals(t.name(), expected.getData(), t.transform(reference, (Img)null, parallel).getData());
+				Img inplace = reference.copy();
+				assertTrue(inplace == t.transform(inplace, inplace, parallel));
+				assertArrayEquals(t.name(), expected.getData(), inplace.getData());
+				// packed to planar
+				ColorImg planar = t.transform(reference, (ColorImg)null, parallel);
+				ColorImg planarFromPlanar = t.transform(new ColorImg(reference, true), null, parallel);
+				FloatColorImg floats = t.transform(reference, (FloatColorImg)null, parallel);
+				FloatColorImg floatsFromFloats = t.transform(new FloatColorImg(reference, true), null, parallel);
+				for(int c = 0; c < 4; c++){
+					assertArrayEquals(t.name(), expectedC.getData()[c], planar.getData()[c], 0);
+					assertArrayEquals(t.name(), expectedC.getData()[c], planarFromPlanar.getData()[c], 0);
+					assertArrayEquals(t.name(), expectedF.getData()[c], floats.getData()[c], 0);
+					assertArrayEquals(t.name(), expectedF.getData()[c], floatsFromFloats.getData()[c], 1e-5f);
+				}
+			}
+		}
+		// alpha of planar destination without alpha is not written
+		ColorImg noAlpha = RGB_2_HSV.transform(new ColorImg(reference, true), new ColorImg(301, 203, false), false);
+		assertFalse(noAlpha.hasAlpha());
+		JunitUtils.testException(()->RGB_2_LAB.transform(reference, new Img(3,3), false), IllegalArgumentException.class);
+	}
+
 }
@@ -0,0 +1,133 @@
+package hageldave.imagingkit.core.operations;
+
+import static hageldave.imagingkit.core.JunitUtils.randomImg;
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+public class HistogramTest {
+
+	@Test
+	public void testImgHistogram(){
+		Img img = randomImg(300, 211, 1);
+		long[][] expected = new long[4][256];
+		for(int argb: img.getData()){
+			expected[ColorImg.channel_r][Pixel.r(argb)]++;
+			expected[ColorImg.channel_g][Pixel.g(argb)]++;
+			expected[ColorImg.channel_b][Pixel.b(argb)]++;
+			expected[ColorImg.channel_a][Pixel.a(argb)]++;
+		}
+		for(boolean parallel: new boolean[]{false,true}){
+			Histogram h = Histogram.of(img, parallel);
+			assertEquals(4, h.numChannels());
+			assertEquals(256, h.numBins());
+			for(int c = 0; c < 4; c++){
+				assertArrayEquals(expected[c], h.getCounts(c));
+				assertEquals(img.numValues(), h.getTotal(c));
+				long[] cumulative = h.cumulative(c);
+				assertEquals(img.numValues(), cumulative[255]);
+				assertEquals(expected[c][0]+expected[c][1], cumulative[1]);
+			}
+		}
+	}
+
+	@Test
+	public void testPercentiles(){
+		Img img = new Img(100, 1);
+		img.forEach(px->px.setRGB(px.getX(), 0, 0));
+		Histogram h = Histogram.of(img, false);
+		assertEquals(0, h.percentileBin(ColorImg.channel_r, 0));
+		assertEquals(0, h.percentileBin(ColorImg.channel_r, 0.01));
+		assertEquals(49, h.percentileBin(ColorImg.channel_r, 0.5));
+		assertEquals(99, h.percentileBin(ColorImg.channel_r, 1));
+		assertEquals(49.0, h.percentile(ColorImg.channel_r, 0.5), 0);
+		assertEquals(0, h.percentileBin(ColorImg.channel_g, 0.9));
+		testException(()->h.percentileBin(0, 1.1), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testColorImgHistogram(){
+		ColorImg img = new ColorImg(50, 40, false);
+		Random r = new Random(3);
+		for(int c = 0; c < 3; c++)
+			for(int i = 0; i < img.numValues(); i++)
+				img.getData()[c][i] = r.nextDouble()*1.2-0.1;
+		img.getDataR()[0] = Double.NaN;
+		for(boolean parallel: new boolean[]{false,true}){
+			Histogram h = Histogram.of(img, 10, 0, 1, parallel);
+			assertEquals(3, h.numChannels());
+			assertEquals(img.numValues()-1, h.getTotal(ColorImg.channel_r));
+			assertEquals(img.numValues(), h.getTotal(ColorImg.channel_b));
+			long[] expected = new long[10];
+			for(double v: img.getDataG())
+				expected[Math.max(0, Math.min(9, (int)Math.floor(v*10)))]++;
+			assertArrayEquals(expected, h.getCounts(ColorImg.channel_g));
+			assertEquals(0.3, h.binValue(3), 1e-12);
+		}
+		testException(()->Histogram.of(img, 0, 0, 1, false), IllegalArgumentException.class);
+		testException(()->Histogram.of(img, 10, 1, 1, false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testEqualizationAndAutoLevels(){
+		// values 100..149 in red, equalization spreads them to 0..255
+		Img img = new Img(50, 4);
+		img.forEach(px->px.setARGB(77, 100+px.getX(), 5, 5));
+		Histogram.equalize(img, true);
+		assertEquals(0, Pixel.r(img.getValue(0, 0)));
+		assertEquals(255, Pixel.r(img.getValue(49, 0)));
+		assertEquals(77, Pixel.a(img.getValue(20, 2)));
+		// single valued channel cannot be spread, equalization maps it to 0
+		assertEquals(0, Pixel.g(img.getValue(20, 2)));
+		Histogram h = Histogram.of(img, false);
+		for(int i = 1; i < 49; i++){
+			// uniform distribution stays uniform and monotonic
+			assertTrue(Pixel.r(img.getValue(i, 0)) > Pixel.r(img.getValue(i-1, 0)));
+		}
+		assertEquals(200, h.getTotal(ColorImg.channel_r));
+
+		Img levels = new Img(100, 1);
+		levels.forEach(px->px.setARGB(255, 50+px.getX(), 10, 10+px.getX()));
+		Histogram.autoLevels(levels, 0.0, false);
+		assertEquals(0, Pixel.r(levels.getValue(0, 0)));
+		assertEquals(255, Pixel.r(levels.getValue(99, 0)));
+		assertEquals(10, Pixel.g(levels.getValue(50, 0)));
+		assertEquals(Math.round(50*255.0/99), Pixel.b(levels.getValue(50, 0)));
+		testException(()->Histogram.autoLevels(levels, 0.5, false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testMatching(){
+		Img img = randomImg(64, 64, 5);
+		Img reference = new Img(64, 64);
+		reference.forEach(px->px.setRGB(px.getX()*2, 255-px.getY()*2, 128));
+		Histogram refHist = Histogram.of(reference, false);
+		Histogram.match(img, refHist, true);
+		Histogram h = Histogram.of(img, false);
+		// matched histogram has the same percentiles as the reference
+		for(int c = 0; c < 3; c++)
+			for(double f: new double[]{0.1, 0.25, 0.5, 0.75, 0.9})
+				assertEquals(refHist.percentileBin(c, f), h.percentileBin(c, f), 2);
+		assertEquals(128, Pixel.b(img.getValue(3, 3)));
+
+		// matching a histogram to itself maps each value to its bin
+		ColorImg cimg = new ColorImg(30, 30, false);
+		cimg.forEach(px->px.setRGB_fromDouble((px.getX()+0.5)/30.0, (px.getY()+0.5)/30.0, 0.5));
+		Histogram self = Histogram.of(cimg, 30, 0, 1, false);
+		Histogram.match(cimg, self, false);
+		cimg.forEach(px->{
+			assertEquals(px.getX()/30.0, px.r_asDouble(), 1e-9);
+			assertEquals(px.getY()/30.0, px.g_asDouble(), 1e-9);
+		});
+
+		testException(()->Histogram.match(img, Histogram.of(cimg, 10, 0, 1, false), false), IllegalArgumentException.class);
+	}
+
+}
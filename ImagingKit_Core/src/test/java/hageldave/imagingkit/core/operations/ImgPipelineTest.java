@@ -0,0 +1,79 @@
+package hageldave.imagingkit.core.operations;
+
+import static hageldave.imagingkit.core.JunitUtils.randomImg;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.PixelConvertingSpliterator.PixelConverter;
+import hageldave.imagingkit.core.filter.BoxBlur;
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.scientific.ColorPixel;
+
+public class ImgPipelineTest {
+
+	@Test
+	public void testFusedEqualsSequential(){
+		Img img = randomImg(200, 150, 21);
+		Img top = randomImg(50, 40, 22);
+		PixelConverter<Pixel, int[]> rgbConverter = PixelConverter.fromFunctions(
+				()->new int[3],
+				(px,e)->{e[0]=px.r(); e[1]=px.g(); e[2]=px.b();},
+				(e,px)->px.setRGB_preserveAlpha(e[0], e[1], e[2]));
+
+		Img expected = img.copy();
+		expected.forEach(ColorSpaceTransformation.RGB_2_LAB);
+		expected.forEach(px->px.setG(127));
+		expected.forEach(ColorSpaceTransformation.LAB_2_RGB);
+		expected.forEach(rgbConverter, false, e->{int t=e[0]; e[0]=e[2]; e[2]=t;});
+		expected.forEach(Blending.MULTIPLY.getAlphaBlendingWith(top, 30, -5, 0.7));
+		expected = BoxBlur.boxBlur(expected, 2, null, false);
+		expected.forEach(px->px.setA(0xff));
+
+		ImgPipeline<Img, Pixel> pipeline = new ImgPipeline<Img, Pixel>()
+				.forEach(ColorSpaceTransformation.RGB_2_LAB)
+				.forEach(px->px.setG(127))
+				.forEach(ColorSpaceTransformation.LAB_2_RGB)
+				.forEach(rgbConverter, e->{int t=e[0]; e[0]=e[2]; e[2]=t;})
+				.alphaBlend(top, 30, -5, 0.7, Blending.MULTIPLY)
+				.imageOperation(i->BoxBlur.boxBlur(i, 2, null, false))
+				.forEach(px->px.setA(0xff));
+		assertEquals(3, pipeline.numPasses());
+
+		for(boolean parallel: new boolean[]{false,true}){
+			Img copy = img.copy();
+			Img result = pipeline.execute(copy, parallel);
+			assertNotSame(copy, result);
+			assertArrayEquals(expected.getData(), result.getData());
+		}
+	}
+
+	@Test
+	public void testSinglePass(){
+		ColorImg img = new ColorImg(64, 64, false);
+		AtomicInteger visits = new AtomicInteger();
+		ImgPipeline<ColorImg, ColorPixel> pipeline = new ImgPipeline<ColorImg, ColorPixel>()
+				.forEach(px->px.setR_fromDouble(px.getX()))
+				.forEach(px->{
+					// previous stage was already applied to this pixel
+					assertEquals(px.getX(), px.r_asDouble(), 0);
+					px.setG_fromDouble(px.r_asDouble()+px.getY());
+				})
+				.blend(img.copy().fill(ColorImg.channel_b, 0.5), 0, 0, Blending.ADDITION)
+				.forEach(px->visits.incrementAndGet());
+		assertEquals(1, pipeline.numPasses());
+		ColorImg result = pipeline.execute(img, true);
+		assertSame(img, result);
+		assertEquals(img.numValues(), visits.get());
+		img.forEach(px->{
+			assertEquals(px.getX(), px.r_asDouble(), 0);
+			assertEquals(px.getX()+px.getY(), px.g_asDouble(), 0);
+			assertEquals(0.5, px.b_asDouble(), 0);
+		});
+	}
+
+}
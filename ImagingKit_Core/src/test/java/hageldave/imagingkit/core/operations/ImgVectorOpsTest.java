@@ -0,0 +1,143 @@
+package hageldave.imagingkit.core.operations;
+
+import static hageldave.imagingkit.core.JunitUtils.randomImg;
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+
+public class ImgVectorOpsTest {
+
+	@Test
+	public void testScaleChannels(){
+		for(boolean parallel: new boolean[]{false,true}){
+			Img img = randomImg(300, 200, 1);
+			Img expected = img.copy();
+			expected.forEach(px->px.setARGB(
+					Math.min(255, (int)Math.round(px.a()*1.0)),
+					Math.min(255, (int)Math.round(px.r()*0.5)),
+					Math.min(255, (int)Math.round(px.g()*1.7)),
+					Math.min(255, (int)Math.round(px.b()*0.0))));
+			ImgVectorOps.scaleChannels(img, 1.0, 0.5, 1.7, 0.0, parallel);
+			for(int i = 0; i < img.numValues(); i++){
+				int c = img.getData()[i], e = expected.getData()[i];
+				assertEquals(Pixel.a(e), Pixel.a(c));
+				assertEquals(Pixel.r(e), Pixel.r(c), 1);
+				assertEquals(Pixel.g(e), Pixel.g(c), 1);
+				assertEquals(Pixel.b(e), Pixel.b(c));
+			}
+		}
+		// saturation with large factor
+		Img img = new Img(1, 1).fill(0x01020304);
+		ImgVectorOps.scaleRGB(img, 1000, false);
+		assertEquals(0x01ffffff, img.getValue(0, 0));
+
+		testException(()->ImgVectorOps.scaleRGB(new Img(1,1), -1, false), IllegalArgumentException.class);
+		testException(()->ImgVectorOps.scaleRGB(new Img(1,1), Double.NaN, false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testClampRGB(){
+		Img img = randomImg(100, 100, 2);
+		Img expected = img.copy();
+		expected.forEach(px->px.setRGB_preserveAlpha(
+				Math.max(20, Math.min(200, px.r())),
+				Math.max(20, Math.min(200, px.g())),
+				Math.max(20, Math.min(200, px.b()))));
+		ImgVectorOps.clampRGB(img, 20, 200, true);
+		assertArrayEquals(expected.getData(), img.getData());
+
+		testException(()->ImgVectorOps.clampRGB(new Img(1,1), 200, 20, false), IllegalArgumentException.class);
+		testException(()->ImgVectorOps.clampRGB(new Img(1,1), -1, 20, false), IllegalArgumentException.class);
+		testException(()->ImgVectorOps.clampRGB(new Img(1,1), 0, 256, false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testLuminance(){
+		Img img = randomImg(123, 45, 3);
+		int[] lum = ImgVectorOps.luminance(img, null, true);
+		for(int i = 0; i < img.numValues(); i++){
+			assertEquals(Pixel.getLuminance(img.getData()[i]), lum[i]);
+		}
+		Img grey = img.copy();
+		ImgVectorOps.toLuminance(grey, false);
+		for(int i = 0; i < img.numValues(); i++){
+			int c = img.getData()[i];
+			int l = Pixel.getLuminance(c);
+			assertEquals(Pixel.argb(Pixel.a(c), l, l, l), grey.getData()[i]);
+		}
+
+		testException(()->ImgVectorOps.luminance(new Img(4,4), new int[15], false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testBlend(){
+		Img bottom = randomImg(211, 97, 4);
+		Img top = randomImg(211, 97, 5);
+		for(Blending mode: Blending.values()){
+			for(boolean parallel: new boolean[]{false,true}){
+				Img expected = bottom.copy();
+				expected.forEach(mode.getBlendingWith(top));
+				Img result = ImgVectorOps.blend(bottom.copy(), top, mode, parallel);
+				assertArrayEquals(mode.name(), expected.getData(), result.getData());
+			}
+		}
+
+		testException(()->ImgVectorOps.blend(new Img(4,4), new Img(4,5), Blending.NORMAL, false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testBlendWithOffset(){
+		Img bottom = randomImg(211, 97, 6);
+		Img top = randomImg(80, 120, 7);
+		int[][] offsets = {{0,0},{50,-30},{-20,40},{180,90},{300,0},{0,-200}};
+		for(Blending mode: Blending.values()){
+			for(int[] offset: offsets){
+				for(boolean parallel: new boolean[]{false,true}){
+					Img expected = bottom.copy();
+					expected.forEach(mode.getBlendingWith(top, offset[0], offset[1]));
+					Img result = ImgVectorOps.blend(bottom.copy(), top, offset[0], offset[1], mode, parallel);
+					assertArrayEquals(mode.name(), expected.getData(), result.getData());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testAlphaBlend(){
+		Img bottom = randomImg(211, 97, 8);
+		Img top = randomImg(80, 120, 9);
+		int[][] offsets = {{0,0},{50,-30},{-20,40},{180,90}};
+		for(Blending mode: Blending.values()){
+			for(int[] offset: offsets){
+				for(double opacity: new double[]{0, 0.3, 1}){
+					Img expected = bottom.copy();
+					expected.forEach(mode.getAlphaBlendingWith(top, offset[0], offset[1], opacity));
+					Img result = ImgVectorOps.alphaBlend(bottom.copy(), top, offset[0], offset[1], opacity, mode, true);
+					for(int i = 0; i < expected.numValues(); i++){
+						int e = expected.getData()[i], r = result.getData()[i];
+						String msg = mode.name()+" opacity "+opacity+" index "+i;
+						assertEquals(msg, Pixel.a(e), Pixel.a(r), 1);
+						assertEquals(msg, Pixel.r(e), Pixel.r(r), 1);
+						assertEquals(msg, Pixel.g(e), Pixel.g(r), 1);
+						assertEquals(msg, Pixel.b(e), Pixel.b(r), 1);
+					}
+				}
+			}
+		}
+		// fully opaque top with full opacity replaces color exactly
+		Img opaqueTop = new Img(10, 10);
+		opaqueTop.fill(0xff123456);
+		Img result = ImgVectorOps.alphaBlend(randomImg(10, 10, 10), opaqueTop, 0, 0, 1, Blending.NORMAL, false);
+		for(int v: result.getData())
+			assertEquals(0xff123456, v);
+
+		testException(()->ImgVectorOps.alphaBlend(new Img(4,4), new Img(4,4), 0, 0, 1.5, Blending.NORMAL, false), IllegalArgumentException.class);
+		testException(()->ImgVectorOps.alphaBlend(new Img(4,4), new Img(4,4), 0, 0, Double.NaN, Blending.NORMAL, false), IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,117 @@
+package hageldave.imagingkit.core.operations;
+
+import static hageldave.imagingkit.core.JunitUtils.randomImg;
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+public class PorterDuffTest {
+
+	/* reference factor of the operator in double precision */
+	static double[] factors(PorterDuff op, double srcAlpha, double dstAlpha){
+		switch(op){
+		case CLEAR:    return new double[]{0, 0};
+		case SRC:      return new double[]{1, 0};
+		case DST:      return new double[]{0, 1};
+		case SRC_OVER: return new double[]{1, 1-srcAlpha};
+		case DST_OVER: return new double[]{1-dstAlpha, 1};
+		case SRC_IN:   return new double[]{dstAlpha, 0};
+		case DST_IN:   return new double[]{0, srcAlpha};
+		case SRC_OUT:  return new double[]{1-dstAlpha, 0};
+		case DST_OUT:  return new double[]{0, 1-srcAlpha};
+		case SRC_ATOP: return new double[]{dstAlpha, 1-srcAlpha};
+		case DST_ATOP: return new double[]{1-dstAlpha, srcAlpha};
+		case XOR:      return new double[]{1-dstAlpha, 1-srcAlpha};
+		case PLUS:     return new double[]{1, 1};
+		default: throw new IllegalArgumentException();
+		}
+	}
+
+	@Test
+	public void testPremultiply(){
+		for(int a = 0; a < 256; a++){
+			for(int c = 0; c < 256; c++){
+				int argb = Pixel.argb(a, c, 255-c, c/2);
+				int p = PremultipliedAlpha.premultiply(argb);
+				assertEquals(a, Pixel.a(p));
+				assertEquals(Math.round(c*a/255.0), Pixel.r(p));
+				assertEquals(Math.round((255-c)*a/255.0), Pixel.g(p));
+				int u = PremultipliedAlpha.unpremultiply(p);
+				assertEquals(a, Pixel.a(u));
+				if(a == 0){
+					assertEquals(0, u);
+				} else {
+					assertEquals(Math.min(255, Math.round(Pixel.r(p)*255.0/a)), Pixel.r(u), 1);
+					// premultiplication is lossy, but error is bounded by half a step of the alpha quantization
+					assertEquals(c, Pixel.r(u), 128.0/a+1);
+				}
+			}
+		}
+		Img img = randomImg(99, 77, 31);
+		img.forEach(px->px.setA(0xff));
+		Img copy = img.copy();
+		PremultipliedAlpha.unpremultiply(PremultipliedAlpha.premultiply(img, true), true);
+		assertArrayEquals(copy.getData(), img.getData());
+
+		ColorImg cimg = new ColorImg(randomImg(99, 77, 32), true);
+		ColorImg ccopy = cimg.copy();
+		PremultipliedAlpha.premultiply(cimg, true);
+		assertEquals(ccopy.getDataR()[5]*ccopy.getDataA()[5], cimg.getDataR()[5], 0);
+		PremultipliedAlpha.unpremultiply(cimg, false);
+		for(int i = 0; i < cimg.numValues(); i++){
+			if(ccopy.getDataA()[i] > 0)
+				assertEquals(ccopy.getDataG()[i], cimg.getDataG()[i], 1e-12);
+		}
+		testException(()->PremultipliedAlpha.premultiply(new ColorImg(2, 2, false), false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testOperators(){
+		Img dst = PremultipliedAlpha.premultiply(randomImg(120, 90, 33), false);
+		Img src = PremultipliedAlpha.premultiply(randomImg(60, 70, 34), false);
+		int[][] offsets = {{0,0},{30,-20},{-10,50},{100,80},{200,0}};
+		for(PorterDuff op: PorterDuff.values()){
+			for(int[] offset: offsets){
+				int xo = offset[0], yo = offset[1];
+				Img result = op.composite(dst.copy(), src, xo, yo, true);
+				ColorImg cresult = op.composite(new ColorImg(dst, true), new ColorImg(src, true), xo, yo, false);
+				for(int y = 0; y < dst.getHeight(); y++){
+					for(int x = 0; x < dst.getWidth(); x++){
+						int d = dst.getValue(x, y);
+						int s = 0;
+						if(x-xo >= 0 && y-yo >= 0 && x-xo < src.getWidth() && y-yo < src.getHeight()){
+							s = src.getValue(x-xo, y-yo);
+						}
+						double[] f = factors(op, Pixel.a_normalized(s), Pixel.a_normalized(d));
+						double[] expected = {
+								Math.min(1, f[0]*Pixel.r_normalized(s) + f[1]*Pixel.r_normalized(d)),
+								Math.min(1, f[0]*Pixel.g_normalized(s) + f[1]*Pixel.g_normalized(d)),
+								Math.min(1, f[0]*Pixel.b_normalized(s) + f[1]*Pixel.b_normalized(d)),
+								Math.min(1, f[0]*Pixel.a_normalized(s) + f[1]*Pixel.a_normalized(d)),
+						};
+						int r = result.getValue(x, y);
+						String msg = op+" at "+x+","+y;
+						assertEquals(msg, expected[0]*255, Pixel.r(r), 0.5+1e-9);
+						assertEquals(msg, expected[1]*255, Pixel.g(r), 0.5+1e-9);
+						assertEquals(msg, expected[2]*255, Pixel.b(r), 0.5+1e-9);
+						assertEquals(msg, expected[3]*255, Pixel.a(r), 0.5+1e-9);
+						for(int c = 0; c < 4; c++){
+							assertEquals(msg, expected[c], cresult.getValue(c, x, y), 1e-12);
+						}
+					}
+				}
+			}
+		}
+		assertEquals(0xff000000, PorterDuff.SRC_OVER.composite(0xff0000ff, 0xff000000));
+		assertEquals(0x80408000, PorterDuff.XOR.composite(0x00000000, 0x80408000));
+		assertTrue(PorterDuff.SRC_IN.clearsUncoveredDestination());
+		assertFalse(PorterDuff.SRC_OVER.clearsUncoveredDestination());
+		testException(()->PorterDuff.SRC_OVER.composite(new ColorImg(2, 2, false), new ColorImg(2, 2, true), 0, 0, false), IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,111 @@
+package hageldave.imagingkit.core.scientific;
+
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.Pixel;
+
+public class ChannelStatisticsTest {
+
+	static void assertStats(double[] values, int[] indices, ChannelStatistics stats, int channel){
+		double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, sum = 0;
+		int amin = -1, amax = -1;
+		for(int k = 0; k < indices.length; k++){
+			double v = values[k];
+			if(v < min){ min = v; amin = indices[k]; }
+			if(v > max){ max = v; amax = indices[k]; }
+			sum += v;
+		}
+		double mean = sum/values.length;
+		double var = 0;
+		for(double v: values)
+			var += (v-mean)*(v-mean);
+		var /= values.length;
+		assertEquals(values.length, stats.count());
+		assertEquals(min, stats.min(channel), 0);
+		assertEquals(max, stats.max(channel), 0);
+		assertEquals(amin, stats.argMin(channel));
+		assertEquals(amax, stats.argMax(channel));
+		assertEquals(sum, stats.sum(channel), 1e-9*Math.abs(sum)+1e-9);
+		assertEquals(mean, stats.mean(channel), 1e-9*Math.abs(mean)+1e-9);
+		assertEquals(var, stats.variance(channel), 1e-9*var+1e-9);
+		assertEquals(Math.sqrt(var), stats.stdDev(channel), 1e-9*Math.sqrt(var)+1e-9);
+	}
+
+	@Test
+	public void testColorImg(){
+		Random r = new Random(7);
+		ColorImg img = new ColorImg(97, 53, true);
+		for(int c = 0; c < 4; c++)
+			for(int i = 0; i < img.numValues(); i++)
+				img.getData()[c][i] = 1000 + r.nextGaussian()*(c+1);
+		img.setSpliteratorMinimumSplitSize(100);
+		for(boolean parallel: new boolean[]{false,true}){
+			ChannelStatistics stats = ChannelStatistics.of(img, parallel);
+			for(int c = 0; c < 4; c++){
+				int[] indices = new int[img.numValues()];
+				for(int i = 0; i < indices.length; i++)
+					indices[i] = i;
+				assertStats(img.getData()[c], indices, stats, c);
+			}
+			// area
+			int x0 = 13, y0 = 7, w = 40, h = 30;
+			ChannelStatistics area = ChannelStatistics.of(img, x0, y0, w, h, parallel, ColorImg.channel_g);
+			double[] values = new double[w*h];
+			int[] indices = new int[w*h];
+			for(int y = 0; y < h; y++)
+				for(int x = 0; x < w; x++){
+					indices[y*w+x] = (y+y0)*img.getWidth()+x+x0;
+					values[y*w+x] = img.getDataG()[indices[y*w+x]];
+				}
+			assertStats(values, indices, area, ColorImg.channel_g);
+			assertTrue(area.hasChannel(ColorImg.channel_g));
+			assertFalse(area.hasChannel(ColorImg.channel_r));
+			testException(()->area.min(ColorImg.channel_r), IllegalArgumentException.class);
+		}
+		// ties report lowest index
+		ColorImg constant = new ColorImg(64, 64, false).fill(ColorImg.channel_b, 2);
+		constant.setSpliteratorMinimumSplitSize(64);
+		ChannelStatistics cs = ChannelStatistics.of(constant, true);
+		assertEquals(0, cs.argMax(ColorImg.channel_b));
+		assertEquals(0, cs.argMin(ColorImg.channel_b));
+		assertEquals(0, cs.variance(ColorImg.channel_b), 0);
+		testException(()->ChannelStatistics.of(constant, false, ColorImg.channel_a), IllegalArgumentException.class);
+		testException(()->ChannelStatistics.of(constant, 60, 0, 5, 5, false), IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testImg(){
+		Random r = new Random(8);
+		Img img = new Img(71, 45);
+		for(int i = 0; i < img.numValues(); i++)
+			img.getData()[i] = r.nextInt();
+		img.setSpliteratorMinimumSplitSize(100);
+		for(boolean parallel: new boolean[]{false,true}){
+			ChannelStatistics stats = ChannelStatistics.of(img, parallel);
+			int[] indices = new int[img.numValues()];
+			double[][] values = new double[4][img.numValues()];
+			for(int i = 0; i < indices.length; i++){
+				indices[i] = i;
+				int argb = img.getData()[i];
+				values[ColorImg.channel_r][i] = Pixel.r(argb);
+				values[ColorImg.channel_g][i] = Pixel.g(argb);
+				values[ColorImg.channel_b][i] = Pixel.b(argb);
+				values[ColorImg.channel_a][i] = Pixel.a(argb);
+			}
+			for(int c = 0; c < 4; c++)
+				assertStats(values[c], indices, stats, c);
+
+			ChannelStatistics area = ChannelStatistics.of(img, 5, 5, 1, 1, parallel);
+			assertEquals(1, area.count());
+			assertEquals(Pixel.a(img.getValue(5, 5)), area.max(ColorImg.channel_a), 0);
+			assertEquals(5*71+5, area.argMin(ColorImg.channel_r));
+		}
+	}
+
+}
@@ -634,4 +634,51 @@ public class ColorImgTest {
 		assertEquals(channel_r, img.getPixel().maxChannel());
 	}
 	
+
+	@Test
+	public void testMapChannel(){
+		for(boolean parallel: new boolean[]{false,true}){
+			ColorImg img = new ColorImg(100, 55, false);
+			img.setSpliteratorMinimumSplitSize(64);
+			img.forEach(px->px.setRGB_fromDouble(px.getIndex(), 1, 2));
+			assertSame(img, img.mapChannel(channel_r, v->v*0.5, parallel));
+			img.mapChannel(channel_b, v->-v, parallel);
+			for(int i = 0; i < img.numValues(); i++){
+				assertEquals(i*0.5, img.getDataR()[i], 0);
+				assertEquals(1, img.getDataG()[i], 0);
+				assertEquals(-2, img.getDataB()[i], 0);
+			}
+			testException(()->img.mapChannel(channel_a, v->v, parallel), ArrayIndexOutOfBoundsException.class);
+		}
+	}
+
+	@Test
+	public void testForEachRow(){
+		for(boolean parallel: new boolean[]{false,true}){
+			ColorImg img = new ColorImg(40, 90, true);
+			img.forEachRow(parallel, (y, channels, offset, length)->{
+				assertEquals(4, channels.length);
+				assertEquals(40, length);
+				for(int i = offset; i < offset+length; i++){
+					channels[channel_r][i] = y;
+					channels[channel_a][i] = i-offset;
+				}
+			});
+			img.forEach(px->{
+				assertEquals(px.getY(), px.r_asDouble(), 0);
+				assertEquals(px.getX(), px.a_asDouble(), 0);
+			});
+			img.forEachRow(parallel, 3, 4, 5, 6, (y, channels, offset, length)->{
+				assertEquals(y*40+3, offset);
+				assertEquals(5, length);
+				for(int i = offset; i < offset+length; i++)
+					channels[channel_g][i] = 1;
+			});
+			double sum = 0;
+			for(double v: img.getDataG()) sum += v;
+			assertEquals(30, sum, 0);
+		}
+		testException(()->new ColorImg(4, 4, false).forEachRow(false, 0, 0, 4, 5, (y,c,o,l)->{}), IllegalArgumentException.class);
+	}
+
 }
@@ -0,0 +1,160 @@
+package hageldave.imagingkit.core.scientific;
+
+import static hageldave.imagingkit.core.JunitUtils.randomColorImg;
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static hageldave.imagingkit.core.scientific.ColorImg.boundary_mode_mirror;
+import static hageldave.imagingkit.core.scientific.ColorImg.boundary_mode_repeat_edge;
+import static hageldave.imagingkit.core.scientific.ColorImg.boundary_mode_repeat_image;
+import static hageldave.imagingkit.core.scientific.ColorImg.boundary_mode_zero;
+import static hageldave.imagingkit.core.scientific.ColorImg.channel_a;
+import static hageldave.imagingkit.core.scientific.ColorImg.channel_b;
+import static hageldave.imagingkit.core.scientific.ColorImg.channel_g;
+import static hageldave.imagingkit.core.scientific.ColorImg.channel_r;
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
+
+public class FloatColorImgTest {
+
+	static final double eps = 0.000001;
+
+	@Test
+	public void testExceptions(){
+		testException(()->{
+			new FloatColorImg(2, 2, new float[4], new float[4], new float[4], new float[3]);
+		}, IllegalArgumentException.class);
+		testException(()->{
+			new FloatColorImg(2, 2, new float[3], new float[4], new float[4], null);
+		}, IllegalArgumentException.class);
+		testException(()->{
+			new FloatColorImg(2, 3, new float[4], new float[4], new float[4], null);
+		}, IllegalArgumentException.class);
+
+		FloatColorImg img = new FloatColorImg(3, 3, false);
+		testException(()->img.getValue(channel_a, 0, 0), ArrayIndexOutOfBoundsException.class);
+		testException(()->img.setValueA(0, 0, 2.5f), NullPointerException.class);
+		testException(()->img.getPixel().setValue(channel_a, 2.5), ArrayIndexOutOfBoundsException.class);
+		testException(()->img.setSpliteratorMinimumSplitSize(0), IllegalArgumentException.class);
+		// not supposed to throw
+		img.getPixel().a_asDouble();
+		img.getPixel().setA_fromDouble(0);
+	}
+
+	@Test
+	public void testConversion(){
+		for(boolean alpha: new boolean[]{false,true}){
+			ColorImg dimg = randomColorImg(13, 7, alpha, 1);
+			FloatColorImg fimg = new FloatColorImg(dimg);
+			assertEquals(alpha, fimg.hasAlpha());
+			assertEquals(dimg.getDimension(), fimg.getDimension());
+			for(int c = 0; c < (alpha ? 4:3); c++){
+				for(int i = 0; i < fimg.numValues(); i++){
+					assertEquals((float)dimg.getData()[c][i], fimg.getData()[c][i], 0);
+				}
+			}
+			// float to double is lossless
+			ColorImg back = fimg.toColorImg();
+			assertEquals(alpha, back.hasAlpha());
+			FloatColorImg again = new FloatColorImg(back);
+			for(int c = 0; c < (alpha ? 4:3); c++){
+				assertArrayEquals(fimg.getData()[c], again.getData()[c], 0f);
+			}
+		}
+		// from Img
+		Img img = new Img(4, 4);
+		img.forEach(px->px.setValue(px.getIndex()*0x01030507));
+		FloatColorImg fimg = new FloatColorImg(img, true);
+		assertArrayEquals(img.getData(), fimg.toImg().getData());
+		assertArrayEquals(img.getData(), new ColorImg(img, true).toImg().getData());
+	}
+
+	@Test
+	public void testValueAccess(){
+		ColorImg dimg = randomColorImg(5, 4, true, 2);
+		FloatColorImg fimg = new FloatColorImg(dimg);
+		int[] modes = {boundary_mode_zero, boundary_mode_repeat_edge, boundary_mode_repeat_image, boundary_mode_mirror, 0xff00ff00};
+		for(int mode: modes){
+			for(int c: new int[]{channel_r,channel_g,channel_b,channel_a}){
+				for(int y = -6; y < 10; y++){
+					for(int x = -7; x < 12; x++){
+						assertEquals((float)dimg.getValue(c, x, y, mode), fimg.getValue(c, x, y, mode), 0f);
+					}
+				}
+			}
+		}
+		for(double y = 0; y <= 1; y+=0.1){
+			for(double x = 0; x <= 1; x+=0.1){
+				assertEquals(dimg.interpolateR(x, y), fimg.interpolateR(x, y), eps);
+				assertEquals(dimg.interpolateA(x, y), fimg.interpolateA(x, y), eps);
+			}
+		}
+		fimg.setValue(channel_g, 1, 2, 0.25f);
+		assertEquals(0.25f, fimg.getValueG(1, 2), 0f);
+		assertEquals(0.25, fimg.getPixel(1, 2).g_asDouble(), 0);
+		fimg.getPixel(2, 2).setRGB_fromDouble(0.5, 1.5, 2.5);
+		assertEquals(1.5f, fimg.getValueG(2, 2), 0f);
+
+		fimg.fill(channel_b, 3f);
+		assertEquals(3f, fimg.getMinValue(channel_b), 0f);
+		fimg.setValueB(3, 1, -1f);
+		assertEquals(-1f, fimg.getMinValue(channel_b), 0f);
+		assertEquals(1*5+3, fimg.getIndexOfMinValue(channel_b));
+		fimg.scaleChannelToUnitRange(channel_b);
+		assertEquals(0f, fimg.getMinValue(channel_b), 0f);
+		assertEquals(1f, fimg.getMaxValue(channel_b), 0f);
+		fimg.fill(channel_r, 2f).clampChannelToUnitRange(channel_r);
+		assertEquals(1f, fimg.getMaxValue(channel_r), 0f);
+	}
+
+	@Test
+	public void testCopyAndIteration(){
+		FloatColorImg fimg = new FloatColorImg(randomColorImg(20, 10, false, 3));
+		FloatColorImg area = fimg.copyArea(3, 2, 5, 4, null, 0, 0);
+		for(int y = 0; y < 4; y++){
+			for(int x = 0; x < 5; x++){
+				assertEquals(fimg.getValueR(x+3, y+2), area.getValueR(x, y), 0f);
+			}
+		}
+		FloatColorImg copy = fimg.copy();
+		assertArrayEquals(fimg.getDataB(), copy.getDataB(), 0f);
+		assertNotSame(fimg.getDataB(), copy.getDataB());
+
+		copy.forEach(true, px->px.scale(0.5));
+		for(int i = 0; i < fimg.numValues(); i++){
+			assertEquals(fimg.getDataG()[i]*0.5f, copy.getDataG()[i], eps);
+		}
+	}
+
+	@Test
+	public void testSplitPolicy(){
+		FloatColorImg img = new FloatColorImg(123, 77, false);
+		AdaptiveSplitPolicy policy = new AdaptiveSplitPolicy(10_000, 100);
+		assertNull(img.getSplitPolicy());
+		img.setSplitPolicy(policy);
+		assertSame(policy, img.getSplitPolicy());
+		img.forEach(true, px->px.setR_fromDouble(px.r_asDouble()+1));
+		img.forEach(px->assertEquals(1, px.r_asDouble(), 0));
+	}
+
+	@Test
+	public void testBufferedImage(){
+		FloatColorImg fimg = new FloatColorImg(randomColorImg(6, 5, true, 4));
+		BufferedImage bimg = fimg.getRemoteBufferedImage();
+		assertEquals(DataBuffer.TYPE_FLOAT, bimg.getRaster().getDataBuffer().getDataType());
+		// remote image reflects changes
+		fimg.setValueR(2, 3, 0.75f);
+		assertEquals(0.75f, bimg.getRaster().getSampleFloat(2, 3, channel_r), 0f);
+		bimg.getRaster().setSample(1, 1, channel_b, 0.125f);
+		assertEquals(0.125f, fimg.getValueB(1, 1), 0f);
+
+		FloatColorImg fromBimg = new FloatColorImg(new Img(3, 3).fill(0xff8040c0).getRemoteBufferedImage());
+		assertEquals(0xff8040c0, fromBimg.toImg().getValue(1, 1));
+	}
+
+}
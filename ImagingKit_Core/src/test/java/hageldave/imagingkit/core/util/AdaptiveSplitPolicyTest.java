@@ -0,0 +1,30 @@
+package hageldave.imagingkit.core.util;
+
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class AdaptiveSplitPolicyTest {
+
+	@Test
+	public void testMinimumSplitSize(){
+		AdaptiveSplitPolicy policy = new AdaptiveSplitPolicy(100_000, 100);
+		// 1ns per element: chunks of 100k elements
+		assertEquals(100_000, policy.minimumSplitSize(100, 100, 10_000_000, 4));
+		// 1us per element: chunks of 100 elements
+		assertEquals(100, policy.minimumSplitSize(100_000, 100, 10_000_000, 4));
+		// expensive elements but few of them: at least one task per thread
+		assertEquals(3, policy.minimumSplitSize(1_000_000, 100, 24, 4));
+		// remaining work shorter than a task: no splitting
+		assertEquals(5000, policy.minimumSplitSize(100, 100, 5000, 4));
+		// immeasurably fast sample counts as 1ns
+		assertEquals(1_000_000, policy.minimumSplitSize(0, 200, 1_000_000, 8));
+		assertEquals(6_250_000, policy.minimumSplitSize(0, 200, 100_000_000, 8));
+		assertEquals(1, policy.minimumSplitSize(100, 100, 1, 4));
+
+		testException(()->new AdaptiveSplitPolicy(0, 10), IllegalArgumentException.class);
+		testException(()->new AdaptiveSplitPolicy(10, 0), IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,71 @@
+package hageldave.imagingkit.core.util;
+
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+
+public class CancellationTokenTest {
+
+	@Test
+	public void testToken(){
+		CancellationToken token = new CancellationToken();
+		assertFalse(token.isCancelled());
+		token.throwIfCancelled();
+		token.cancel();
+		assertTrue(token.isCancelled());
+		testException(token::throwIfCancelled, CancellationException.class);
+
+		assertTrue(CancellationToken.withDeadline(System.nanoTime()-1).isCancelled());
+		assertFalse(CancellationToken.withTimeout(1, TimeUnit.HOURS).isCancelled());
+	}
+
+	@Test
+	public void testCancellableForEach(){
+		ExecutionContext ctx = new ExecutionContext(2, 100);
+		try {
+			Img img = new Img(100, 100);
+			// completes when not cancelled, progress reaches all pixels
+			AtomicLong maxProgress = new AtomicLong();
+			img.forEach(ctx, new CancellationToken(), p->maxProgress.accumulateAndGet(p, Math::max), px->px.setValue(1));
+			assertEquals(img.numValues(), maxProgress.get());
+			img.forEach(px->assertEquals(1, px.getValue()));
+
+			// area without progress callback
+			img.forEach(ctx, new CancellationToken(), null, 10, 10, 20, 20, px->px.setValue(2));
+			assertEquals(2, img.getValue(10, 10));
+			assertEquals(1, img.getValue(30, 30));
+
+			// cancelled token skips everything
+			CancellationToken cancelled = new CancellationToken();
+			cancelled.cancel();
+			testException(()->img.forEach(ctx, cancelled, null, px->fail()), CancellationException.class);
+
+			// cancellation during execution skips remaining chunks
+			CancellationToken token = new CancellationToken();
+			AtomicInteger visited = new AtomicInteger();
+			testException(()->img.forEach(ctx, token, null, px->{
+				if(visited.incrementAndGet() == 150){
+					token.cancel();
+				}
+			}), CancellationException.class);
+			// at most the chunks in progress when cancelled are completed (chunks have less than 200 pixels)
+			assertTrue(visited.get() < 150+2*200);
+			assertEquals(0, ctx.getActiveTasks());
+			assertEquals(0, ctx.getQueuedTasks());
+
+			// expired deadline
+			testException(()->img.forEach(ctx, CancellationToken.withDeadline(System.nanoTime()), null, px->{}), CancellationException.class);
+		} finally {
+			ctx.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package hageldave.imagingkit.core.util;
+
+import static hageldave.imagingkit.core.JunitUtils.testException;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.imagingkit.core.TiledImg;
+
+public class ExecutionContextTest {
+
+	@Test
+	@SuppressWarnings("try")
+	public void testInstallation(){
+		assertSame(ExecutionContext.common(), ExecutionContext.current());
+		assertSame(ForkJoinPool.commonPool(), ExecutionContext.common().getPool());
+		ExecutionContext a = new ExecutionContext(ForkJoinPool.commonPool(), 16);
+		ExecutionContext b = ExecutionContext.withParallelism(2);
+		try {
+			assertEquals(2, b.getParallelism());
+			assertEquals(16, a.minimumSplitSize(1024));
+			assertEquals(1024, b.minimumSplitSize(1024));
+			try(ExecutionContext.Installation ia = a.install()){
+				assertSame(a, ExecutionContext.current());
+				try(ExecutionContext.Installation ib = b.install()){
+					assertSame(b, ExecutionContext.current());
+				}
+				assertSame(a, ExecutionContext.current());
+			}
+			assertSame(ExecutionContext.common(), ExecutionContext.current());
+			// worker threads of own pool have their context installed
+			assertSame(b, b.call(ExecutionContext::current));
+		} finally {
+			b.shutdown();
+		}
+		testException(()->new ExecutionContext(0, 0), IllegalArgumentException.class);
+		testException(()->new ExecutionContext(2, -1), IllegalArgumentException.class);
+	}
+
+	@Test
+	@SuppressWarnings("try")
+	public void testExecutionInPool(){
+		ExecutionContext ctx = new ExecutionContext(3, 64);
+		try {
+			Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+			Img img = new Img(64, 64);
+			img.forEach(ctx, px->{
+				assertSame(ctx.getPool(), ForkJoinTask.getPool());
+				threads.add(Thread.currentThread());
+				px.setValue(px.getIndex());
+			});
+			for(int i = 0; i < img.numValues(); i++)
+				assertEquals(i, img.getData()[i]);
+			assertTrue(threads.size() <= 3);
+			// 4096 pixels in splits of at least 64 and less than 128 pixels
+			assertEquals(64, ctx.getCompletedTasks());
+			assertEquals(0, ctx.getQueuedTasks());
+			assertEquals(0, ctx.getActiveTasks());
+
+			// installed context is used by parallel operations
+			long completed = ctx.getCompletedTasks();
+			try(ExecutionContext.Installation i = ctx.install()){
+				img.mapARGB(v->v+1, true);
+				img.forEach(true, px->assertSame(ctx.getPool(), ForkJoinTask.getPool()));
+				new TiledImg(64, 64).forEach(true, px->assertSame(ctx.getPool(), ForkJoinTask.getPool()));
+			}
+			assertTrue(ctx.getCompletedTasks() > completed);
+			assertEquals(1, img.getData()[0]);
+			assertEquals(0, ctx.getQueuedTasks());
+			assertEquals(0, ctx.getActiveTasks());
+
+			assertEquals(Integer.valueOf(4096), ctx.call(()->(int)img.stream(true).count()));
+		} finally {
+			ctx.shutdown();
+		}
+	}
+
+	@Test
+	public void testWrappedPool(){
+		ForkJoinPool pool = new ForkJoinPool(2);
+		ExecutionContext ctx = new ExecutionContext(pool, 64);
+		try {
+			Img img = new Img(64, 64);
+			assertSame(ctx, ctx.call(ExecutionContext::current));
+			ctx.run(()->{
+				img.forEach(true, px->{
+					assertSame(pool, ForkJoinTask.getPool());
+					// nested operations on the pool's workers stay in the pool as well
+					assertSame(ctx, ExecutionContext.current());
+					px.setValue(px.getIndex());
+				});
+				img.mapARGB(v->v+1, true);
+			});
+			assertEquals(128, ctx.getCompletedTasks());
+			for(int i = 0; i < img.numValues(); i++)
+				assertEquals(i+1, img.getData()[i]);
+			// installation is restored on the workers
+			assertSame(ExecutionContext.common(), pool.invoke(ForkJoinTask.adapt(ExecutionContext::current)));
+			assertSame(ExecutionContext.common(), ExecutionContext.current());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testActiveTaskMetrics(){
+		ExecutionContext ctx = new ExecutionContext(2, 0);
+		try {
+			int[] observed = new int[2];
+			ParallelRangeExecutor.execute(ctx, 0, 1, 1, (from, to)->{
+				observed[0] = ctx.getActiveTasks();
+				observed[1] = ctx.getQueuedTasks();
+			});
+			// serial execution of a range that cannot be split does not create tasks
+			assertArrayEquals(new int[]{0,0}, observed);
+			ParallelRangeExecutor.execute(ctx, 0, 2, 2, (from, to)->{});
+			assertEquals(0, ctx.getCompletedTasks());
+			ParallelRangeExecutor.execute(ctx, 0, 2, 1, (from, to)->{
+				assertTrue(ctx.getActiveTasks() >= 1);
+			});
+			assertEquals(2, ctx.getCompletedTasks());
+			assertEquals(0, ctx.getActiveTasks());
+		} finally {
+			ctx.shutdown();
+		}
+	}
+
+}
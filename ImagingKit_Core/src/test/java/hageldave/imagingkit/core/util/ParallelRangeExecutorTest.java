@@ -0,0 +1,59 @@
+package hageldave.imagingkit.core.util;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+public class ParallelRangeExecutorTest {
+
+	@Test
+	public void testCoverage(){
+		int[][] configs = {{0,0,1},{0,1,1},{3,1000,7},{0,100_000,1024},{5,6,1},{10,4096,1024}};
+		for(int[] c: configs){
+			for(boolean parallel: new boolean[]{false,true}){
+				int from = c[0], to = c[1], minSplit = c[2];
+				AtomicIntegerArray visits = new AtomicIntegerArray(Math.max(to, 1));
+				ParallelRangeExecutor.execute(from, to, minSplit, parallel, (f,t)->{
+					assertTrue(f < t);
+					assertTrue(f >= from && t <= to);
+					// splits are only smaller than the minimum when the whole range is
+					assertTrue(t-f >= Math.min(minSplit, to-from));
+					for(int i = f; i < t; i++)
+						visits.incrementAndGet(i);
+				});
+				for(int i = 0; i < to; i++)
+					assertEquals(i >= from ? 1:0, visits.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void testChunked(){
+		AtomicIntegerArray visits = new AtomicIntegerArray(100_000);
+		AtomicInteger chunks = new AtomicInteger();
+		ParallelRangeExecutor.executeChunked(100_000, 16, true, (f,t)->{
+			chunks.incrementAndGet();
+			for(int j = f; j < t; j++)
+				visits.incrementAndGet(j);
+		});
+		for(int j = 0; j < 100_000; j++)
+			assertEquals(1, visits.get(j));
+		// not more than a few chunks per worker despite the small minimum split size
+		assertTrue(chunks.get() <= ForkJoinPool.getCommonPoolParallelism()*4*2);
+
+		// rows of 100 elements, minimum split size of 1000 elements is 10 rows
+		AtomicIntegerArray rows = new AtomicIntegerArray(50);
+		ParallelRangeExecutor.executeChunked(3, 50, 100, 1000, true, (f,t)->{
+			assertTrue(t-f >= 10);
+			for(int j = f; j < t; j++)
+				rows.incrementAndGet(j);
+		});
+		for(int j = 0; j < 50; j++)
+			assertEquals(j >= 3 ? 1:0, rows.get(j));
+	}
+
+}
@@ -25,6 +25,7 @@ import java.util.Objects;
 import hageldave.imagingkit.core.ImgBase;
 import hageldave.imagingkit.core.operations.ColorSpaceTransformation;
 import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
 
 /**
  * The ComplexImg class represents an image of complex values.
@@ -562,6 +563,24 @@ public class ComplexImg implements ImgBase<ComplexPixel> {
 		return delegate.supportsRemoteBufferedImage();
 	}
 
+	/**
+	 * Calls {@link ColorImg#getSplitPolicy()} on delegate ({@link #getDelegate()}).
+	 * @return {@code getDelegate().getSplitPolicy() }
+	 */
+	@Override
+	public AdaptiveSplitPolicy getSplitPolicy() {
+		return delegate.getSplitPolicy();
+	}
+
+	/**
+	 * Calls {@link ColorImg#setSplitPolicy(AdaptiveSplitPolicy)} on delegate ({@link #getDelegate()}).
+	 * @param policy to use for parallel forEach loops, or null to use the fixed minimum split size
+	 */
+	@Override
+	public void setSplitPolicy(AdaptiveSplitPolicy policy) {
+		delegate.setSplitPolicy(policy);
+	}
+
 	/**
 	 * See {@link ColorImg#copyArea(int, int, int, int, ColorImg, int, int)}
 	 * 
@@ -0,0 +1,143 @@
+/*
+ * ImagingKit-Fourier - Copyright 2018 David Haegele
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package hageldave.imagingkit.fourier;
+
+/**
+ * Interface for implementations of the discrete Fourier transform used by {@link Fourier}.
+ * <p>
+ * All methods operate on split complex data (separate arrays for real and imaginary part)
+ * in row major order. The transforms are unnormalized in both directions, i.e. a forward
+ * followed by an inverse transform scales the data by the number of transformed elements.
+ * The forward transform uses the exponent sign -1, the inverse transform +1.
+ * <p>
+ * The imaginary input array may be null which means that the input is real valued (zero imaginary part).
+ * The imaginary output array may be null which means that only the real part of the result
+ * is of interest. For inverse transforms this is the case when transforming a spectrum back
+ * to real data, and implementations may then assume the input to be Hermitian symmetric.
+ * Input and output arrays may be the same arrays (in place transform).
+ * <p>
+ * Implementations are {@link NativeFFTBackend} (FFTW through ezfftw) and
+ * {@link JavaFFTBackend} (pure Java). The backend used by {@link Fourier} can be
+ * set using {@link Fourier#setFFTBackend(FFTBackend)}.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public interface FFTBackend {
+
+	/**
+	 * Computes the 2D discrete Fourier transform.
+	 * @param inR real part of input
+	 * @param inI imaginary part of input (may be null for real input)
+	 * @param outR real part of output
+	 * @param outI imaginary part of output (may be null if only real part is needed)
+	 * @param width of the data
+	 * @param height of the data
+	 * @param inverse whether to compute the inverse transform
+	 */
+	public void transform(double[] inR, double[] inI, double[] outR, double[] outI, int width, int height, boolean inverse);
+
+	/**
+	 * Computes a 1D discrete Fourier transform for each row of the data.
+	 * @param inR real part of input
+	 * @param inI imaginary part of input (may be null for real input)
+	 * @param outR real part of output
+	 * @param outI imaginary part of output (may be null if only real part is needed)
+	 * @param width of the data
+	 * @param height of the data
+	 * @param inverse whether to compute the inverse transforms
+	 */
+	public void transformRows(double[] inR, double[] inI, double[] outR, double[] outI, int width, int height, boolean inverse);
+
+	/**
+	 * Computes a 1D discrete Fourier transform for each column of the data.
+	 * @param inR real part of input
+	 * @param inI imaginary part of input (may be null for real input)
+	 * @param outR real part of output
+	 * @param outI imaginary part of output (may be null if only real part is needed)
+	 * @param width of the data
+	 * @param height of the data
+	 * @param inverse whether to compute the inverse transforms
+	 */
+	public void transformColumns(double[] inR, double[] inI, double[] outR, double[] outI, int width, int height, boolean inverse);
+
+	/**
+	 * @return a short name of this backend for diagnostic purposes
+	 */
+	public String getName();
+
+	/**
+	 * Creates a {@link Plan} for repeated 2D transforms of the specified dimensions.
+	 * The default implementation simply delegates to
+	 * {@link #transform(double[], double[], double[], double[], int, int, boolean)},
+	 * backends may override this to keep resources between transforms.
+	 * @param width of the data
+	 * @param height of the data
+	 * @return plan for transforms of the specified size
+	 * @since 2.2
+	 */
+	public default Plan createPlan(int width, int height){
+		if(width < 1 || height < 1){
+			throw new IllegalArgumentException(String.format(
+					"Plan dimensions have to be positive, but are [%dx%d]", width, height));
+		}
+		return new Plan() {
+			@Override
+			public void execute(double[] inR, double[] inI, double[] outR, double[] outI, boolean inverse) {
+				transform(inR, inI, outR, outI, width, height, inverse);
+			}
+			@Override
+			public int getWidth() {return width;}
+			@Override
+			public int getHeight() {return height;}
+			@Override
+			public void close() {/* nothing to release */}
+		};
+	}
+
+	/**
+	 * A prepared 2D transform of fixed dimensions that may hold resources
+	 * (e.g. native memory) between executions. A plan is not meant to be
+	 * executed by multiple threads concurrently and has to be closed when no longer needed.
+	 * @since 2.2
+	 */
+	public static interface Plan extends AutoCloseable {
+
+		/**
+		 * Computes the 2D discrete Fourier transform with the semantics of
+		 * {@link FFTBackend#transform(double[], double[], double[], double[], int, int, boolean)}.
+		 * @param inR real part of input
+		 * @param inI imaginary part of input (may be null for real input)
+		 * @param outR real part of output
+		 * @param outI imaginary part of output (may be null if only real part is needed)
+		 * @param inverse whether to compute the inverse transform
+		 */
+		public void execute(double[] inR, double[] inI, double[] outR, double[] outI, boolean inverse);
+
+		/** @return width of the data this plan transforms */
+		public int getWidth();
+
+		/** @return height of the data this plan transforms */
+		public int getHeight();
+
+		/** Releases the resources of this plan */
+		@Override
+		public void close();
+	}
+
+}
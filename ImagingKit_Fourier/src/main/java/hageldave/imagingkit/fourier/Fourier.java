@@ -19,24 +19,74 @@ package hageldave.imagingkit.fourier;
 
 import java.awt.Dimension;
 
-import hageldave.ezfftw.dp.FFT;
-import hageldave.ezfftw.dp.FFTW_Guru;
-import hageldave.ezfftw.dp.NativeRealArray;
-import hageldave.ezfftw.dp.PrecisionDependentUtils;
-import hageldave.ezfftw.dp.RowMajorArrayAccessor;
-import hageldave.ezfftw.dp.samplers.ComplexValuedSampler;
-import hageldave.ezfftw.dp.writers.ComplexValuedWriter;
 import hageldave.imagingkit.core.scientific.ColorImg;
-import hageldave.imagingkit.core.scientific.ColorPixel;
 
 /**
  * The Fourier class provides methods to execute FFTs on {@link ColorImg}es and {@link ComplexImg}es.
+ * <p>
+ * The transforms are computed by an {@link FFTBackend}. By default the {@link NativeFFTBackend}
+ * (FFTW) is used when the native library can be loaded, otherwise the pure Java
+ * {@link JavaFFTBackend} is used as fallback. The backend can be chosen at runtime using
+ * {@link #setFFTBackend(FFTBackend)} or by setting the system property
+ * {@value #BACKEND_PROPERTY} to either {@code native} or {@code java}.
  * @author hageldave
  */
 public class Fourier {
-	
+
+	/**
+	 * Name of the system property that selects the default {@link FFTBackend}
+	 * ({@code native} or {@code java}).
+	 * @since 2.2
+	 */
+	public static final String BACKEND_PROPERTY = "imagingkit.fourier.backend";
+
+	private static volatile FFTBackend backend = null;
+
 	private Fourier(){/* not constructable */}
 
+	/**
+	 * Returns the backend currently used for transforms.
+	 * When no backend was set, the default backend is determined on first call.
+	 * @return the FFT backend
+	 * @since 2.2
+	 */
+	public static FFTBackend getFFTBackend(){
+		FFTBackend b = backend;
+		if(b == null){
+			synchronized (Fourier.class) {
+				if(backend == null){
+					backend = createDefaultBackend();
+				}
+				b = backend;
+			}
+		}
+		return b;
+	}
+
+	/**
+	 * Sets the backend to be used for transforms.
+	 * @param fftBackend the backend, or null to reset to the default backend
+	 * @since 2.2
+	 */
+	public static void setFFTBackend(FFTBackend fftBackend){
+		backend = fftBackend;
+	}
+
+	private static FFTBackend createDefaultBackend(){
+		String preference = System.getProperty(BACKEND_PROPERTY, "");
+		if("java".equalsIgnoreCase(preference)){
+			return new JavaFFTBackend();
+		}
+		try {
+			if(NativeFFTBackend.isAvailable()){
+				return new NativeFFTBackend();
+			}
+		} catch (LinkageError e){
+			// ezfftw not on class path
+		}
+		return new JavaFFTBackend();
+	}
+
 	/**
 	 * Fourier transforms the specified channel of the specified {@link ColorImg}.
 	 * @param img of which one channel is to be transformed
@@ -50,11 +100,11 @@ public class Fourier {
 		sanityCheckForward(img, channel);
 		// transform
 		ComplexImg transformed = new ComplexImg(img.getDimension());
-		FFT.fft(
-				img.getData()[channel], // input
+		getFFTBackend().transform(
+				img.getData()[channel], null, // input
 				transformed.getDataReal(), // real out
 				transformed.getDataImag(), // imaginary out
-				img.getWidth(), img.getHeight()); // dimensions
+				img.getWidth(), img.getHeight(), false);
 		return transformed;
 	}
 	
@@ -71,49 +121,18 @@ public class Fourier {
 	 * @throws IllegalArgumentException if specified target does not match dimensions of transformed image
 	 */
 	public static ComplexImg transform(final boolean inverse, ComplexImg toTransform, ComplexImg target){
-		if(target == null){
-			target = new ComplexImg(toTransform.getDimension());
-		} else if(!target.getDimension().equals(toTransform.getDimension())){
-			throw new IllegalArgumentException(String.format(
-					"specified target is of wrong dimensions. Expected %s but has %s.", 
-					toTransform.getDimension(), target.getDimension()));
-		}
+		target = complexTarget(toTransform, target);
 		final int w = toTransform.getWidth();
 		final int h = toTransform.getHeight();
-		try(
-				NativeRealArray inr = new NativeRealArray(toTransform.numValues());
-				NativeRealArray ini = new NativeRealArray(inr.length);
-				NativeRealArray outr = new NativeRealArray(inr.length);
-				NativeRealArray outi = new NativeRealArray(inr.length);
-		){
-			if(toTransform.getCurrentXshift() != 0 || toTransform.getCurrentYshift() != 0){
-				ComplexValuedSampler sampler = getSamplerForShiftedComplexImg(toTransform);
-				PrecisionDependentUtils.fillNativeArrayFromSampler(inr, sampler.getPartSampler(false), w,h);
-				PrecisionDependentUtils.fillNativeArrayFromSampler(ini, sampler.getPartSampler(true),  w,h);
-			} else {
-				inr.set(toTransform.getDataReal());
-				ini.set(toTransform.getDataImag());
-			}
-			if(inverse){
-				// swap real and imaginary args
-				FFTW_Guru.execute_split_c2c(ini, inr, outi, outr, w,h);
-			} else {
-				FFTW_Guru.execute_split_c2c(inr, ini, outr, outi, w,h);
-			}
-			if(target.getCurrentXshift() != 0 || target.getCurrentYshift() != 0){
-				ComplexValuedWriter writer = getWriterForShiftedComplexImg(target);
-				PrecisionDependentUtils.readNativeArrayToWriter(outr, writer.getPartWriter(false), w,h);
-				PrecisionDependentUtils.readNativeArrayToWriter(outi, writer.getPartWriter(true), w,h);
-			} else {
-				outr.get(0, target.getDataReal());
-				outi.get(0, target.getDataImag());
-			}
-			if(inverse){
-				// need to rescale
-				double scaling = 1.0/toTransform.numValues();
-				ArrayUtils.scaleArray(target.getDataReal(), scaling);
-				ArrayUtils.scaleArray(target.getDataImag(), scaling);
-			}
+		double[][] in = unshiftedData(toTransform);
+		double[][] out = unshiftedTargetData(target);
+		getFFTBackend().transform(in[0], in[1], out[0], out[1], w, h, inverse);
+		writeShifted(out, target);
+		if(inverse){
+			// need to rescale
+			double scaling = 1.0/toTransform.numValues();
+			ArrayUtils.scaleArray(target.getDataReal(), scaling);
+			ArrayUtils.scaleArray(target.getDataImag(), scaling);
 		}
 		return target;
 	}
@@ -145,21 +164,50 @@ public class Fourier {
 		// continue sanity checks
 		sanityCheckInverse_target(target, dim, channel);
 		// now do the transforms
-		if(fourier.getCurrentXshift() != 0 || fourier.getCurrentYshift() != 0){
-			ComplexValuedSampler complexIn = getSamplerForShiftedComplexImg(fourier);
-			RowMajorArrayAccessor realOut = new RowMajorArrayAccessor(target.getData()[channel], target.getWidth(), target.getHeight());
-			FFT.ifft(complexIn, realOut, realOut.getDimensions());
-		} else {
-			FFT.ifft(	fourier.getDataReal(), 
-						fourier.getDataImag(), 
-						target.getData()[channel], 
-						target.getWidth(), target.getHeight());
-		}
+		double[][] in = unshiftedData(fourier);
+		getFFTBackend().transform(in[0], in[1], target.getData()[channel], null, target.getWidth(), target.getHeight(), true);
 		double scaling = 1.0/target.numValues();
 		ArrayUtils.scaleArray(target.getData()[channel], scaling);
 		return target;
 	}
 
+	/**
+	 * Fourier transforms all channels of the specified {@link ColorImg} (including alpha if present).
+	 * The channels are transformed concurrently using a {@link FourierPlan}.
+	 * @param img to be transformed
+	 * @return array of transforms with the transform of channel i at index i
+	 * @since 2.2
+	 * @see FourierPlan#forwardAll(ColorImg, ComplexImg[])
+	 */
+	public static ComplexImg[] transformAll(ColorImg img){
+		try(FourierPlan plan = FourierPlan.create(img.getWidth(), img.getHeight())){
+			return plan.forwardAll(img, null);
+		}
+	}
+	
+	/**
+	 * Inversely Fourier transforms the specified {@link ComplexImg}s into the channels of the
+	 * specified target, so that fouriers[i] is transformed into channel i.
+	 * The transforms are executed concurrently using a {@link FourierPlan}.
+	 * @param target (may be null) image where the transforms are stored to
+	 * @param fouriers 3 or 4 (with alpha) images to be transformed
+	 * @return the target img or a new ColorImg if target was null
+	 * 
+	 * @throws IllegalArgumentException if images are not of the same dimensions, 
+	 * there are not 3 or 4 images, or 4 images are specified but the target does not have alpha
+	 * @since 2.2
+	 * @see FourierPlan#inverseAll(ComplexImg[], ColorImg)
+	 */
+	public static ColorImg inverseTransformAll(ColorImg target, ComplexImg[] fouriers){
+		if(fouriers.length == 0){
+			throw new IllegalArgumentException("No Fourier images specified.");
+		}
+		Dimension dim = fouriers[0].getDimension();
+		try(FourierPlan plan = FourierPlan.create(dim.width, dim.height)){
+			return plan.inverseAll(fouriers, target);
+		}
+	}
+
 	/**
 	 * Executes row wise Fourier transforms of the specified channel of the specified {@link ColorImg}.
 	 * A 1-dimensional Fourier transform is done for each row of the image's channel.
@@ -175,18 +223,10 @@ public class Fourier {
 		sanityCheckForward(img, channel);
 		// make transforms
 		ComplexImg transformed = new ComplexImg(img.getDimension());
-		try(
-				NativeRealArray row = new NativeRealArray(img.getWidth());
-				NativeRealArray fft_r = new NativeRealArray(row.length);
-				NativeRealArray fft_i = new NativeRealArray(row.length);
-		) {
-			for(int y = 0; y < img.getHeight(); y++){
-				row.set(0, img.getWidth(), y*img.getWidth(), img.getData()[channel]);
-				FFTW_Guru.execute_split_r2c(row, fft_r, fft_i, img.getWidth());
-				fft_r.get(0, img.getWidth(), y*img.getWidth(), transformed.getDataReal());
-				fft_i.get(0, img.getWidth(), y*img.getWidth(), transformed.getDataImag());
-			}
-		}
+		getFFTBackend().transformRows(
+				img.getData()[channel], null, 
+				transformed.getDataReal(), transformed.getDataImag(), 
+				img.getWidth(), img.getHeight(), false);
 		return transformed;
 	}
 	
@@ -203,39 +243,13 @@ public class Fourier {
 	 * @throws IllegalArgumentException if specified target does not match dimensions of transformed image
 	 */
 	public static ComplexImg horizontalTransform(final boolean inverse, ComplexImg toTransform, ComplexImg target){
-		if(target == null){
-			target = new ComplexImg(toTransform.getDimension());
-		} else if(!target.getDimension().equals(toTransform.getDimension())){
-			throw new IllegalArgumentException(String.format(
-					"specified target is of wrong dimensions. Expected %s but has %s.", 
-					toTransform.getDimension(), target.getDimension()));
-		}
+		target = complexTarget(toTransform, target);
 		final int w = toTransform.getWidth();
 		final int h = toTransform.getHeight();
-		try(
-				NativeRealArray inr = new NativeRealArray(w);
-				NativeRealArray ini = new NativeRealArray(w);
-				NativeRealArray outr = new NativeRealArray(w);
-				NativeRealArray outi = new NativeRealArray(w);
-		){
-			ComplexValuedSampler complexIn = getSamplerForShiftedComplexImg(toTransform);
-			ComplexValuedWriter  complexOut = getWriterForShiftedComplexImg(target);
-			for(int y = 0; y < h; y++){
-				for(int x = 0; x < w; x++){
-					inr.set(x, complexIn.getValueAt(false, x,y));
-					ini.set(x, complexIn.getValueAt(true,  x,y));
-				}
-				if(inverse){
-					FFTW_Guru.execute_split_c2c(ini,inr, outi,outr, w);
-				} else {
-					FFTW_Guru.execute_split_c2c(inr,ini, outr,outi, w);
-				}
-				for(int x = 0; x < w; x++){
-					complexOut.setValueAt(outr.get(x), false, x,y);
-					complexOut.setValueAt(outi.get(x), true,  x,y);
-				}
-			}
-		}
+		double[][] in = unshiftedData(toTransform);
+		double[][] out = unshiftedTargetData(target);
+		getFFTBackend().transformRows(in[0], in[1], out[0], out[1], w, h, inverse);
+		writeShifted(out, target);
 		if(inverse){
 			// need to rescale
 			double scaling = 1.0/w;
@@ -267,21 +281,8 @@ public class Fourier {
 		// continue sanity checks
 		sanityCheckInverse_target(target, dim, channel);
 		// now do the transforms
-		try(
-				NativeRealArray row = new NativeRealArray(target.getWidth());
-				NativeRealArray fft_r = new NativeRealArray(row.length);
-				NativeRealArray fft_i = new NativeRealArray(row.length);
-		){
-			ComplexValuedSampler complexIn = getSamplerForShiftedComplexImg(fourier);
-			for(int y = 0; y < target.getHeight(); y++){
-				for(int x = 0; x < target.getWidth(); x++){
-					fft_r.set(x, complexIn.getValueAt(false, x,y));
-					fft_i.set(x, complexIn.getValueAt(true,  x,y));
-				}
-				FFTW_Guru.execute_split_c2r(fft_r, fft_i, row, target.getWidth());
-				row.get(0, target.getWidth(), y*target.getWidth(), target.getData()[channel]);
-			}
-		}
+		double[][] in = unshiftedData(fourier);
+		getFFTBackend().transformRows(in[0], in[1], target.getData()[channel], null, target.getWidth(), target.getHeight(), true);
 		double scaling = 1.0/target.getWidth();
 		ArrayUtils.scaleArray(target.getData()[channel], scaling);
 		return target;
@@ -301,25 +302,10 @@ public class Fourier {
 		sanityCheckForward(img, channel);
 		// make transforms
 		ComplexImg transformed = new ComplexImg(img.getDimension());
-		try(
-				NativeRealArray col = new NativeRealArray(img.getHeight());
-				NativeRealArray fft_r = new NativeRealArray(col.length);
-				NativeRealArray fft_i = new NativeRealArray(col.length);
-		) {
-			ColorPixel px = img.getPixel();
-			ComplexPixel tpx = transformed.getPixel();
-			for(int x = 0; x < img.getWidth(); x++){
-				for(int y = 0; y < img.getHeight(); y++){
-					px.setPosition(x, y);
-					col.set(y, px.getValue(channel));
-				}
-				FFTW_Guru.execute_split_r2c(col, fft_r, fft_i, img.getHeight());
-				for(int y = 0; y < img.getHeight(); y++){
-					tpx.setPosition(x, y);
-					tpx.setComplex(fft_r.get(y), fft_i.get(y));
-				}
-			}
-		}
+		getFFTBackend().transformColumns(
+				img.getData()[channel], null, 
+				transformed.getDataReal(), transformed.getDataImag(), 
+				img.getWidth(), img.getHeight(), false);
 		return transformed;
 	}
 	
@@ -336,39 +322,13 @@ public class Fourier {
 	 * @throws IllegalArgumentException if specified target does not match dimensions of transformed image
 	 */
 	public static ComplexImg verticalTransform(final boolean inverse, ComplexImg toTransform, ComplexImg target){
-		if(target == null){
-			target = new ComplexImg(toTransform.getDimension());
-		} else if(!target.getDimension().equals(toTransform.getDimension())){
-			throw new IllegalArgumentException(String.format(
-					"specified target is of wrong dimensions. Expected %s but has %s.", 
-					toTransform.getDimension(), target.getDimension()));
-		}
+		target = complexTarget(toTransform, target);
 		final int w = toTransform.getWidth();
 		final int h = toTransform.getHeight();
-		try(
-				NativeRealArray inr = new NativeRealArray(h);
-				NativeRealArray ini = new NativeRealArray(h);
-				NativeRealArray outr = new NativeRealArray(h);
-				NativeRealArray outi = new NativeRealArray(h);
-		){
-			ComplexValuedSampler complexIn = getSamplerForShiftedComplexImg(toTransform);
-			ComplexValuedWriter  complexOut = getWriterForShiftedComplexImg(target);
-			for(int x = 0; x < w; x++){
-				for(int y = 0; y < h; y++){
-					inr.set(y, complexIn.getValueAt(false, x,y));
-					ini.set(y, complexIn.getValueAt(true,  x,y));
-				}
-				if(inverse){
-					FFTW_Guru.execute_split_c2c(ini,inr, outi,outr, h);
-				} else {
-					FFTW_Guru.execute_split_c2c(inr,ini, outr,outi, h);
-				}
-				for(int y = 0; y < h; y++){
-					complexOut.setValueAt(outr.get(y), false, x,y);
-					complexOut.setValueAt(outi.get(y), true,  x,y);
-				}
-			}
-		}
+		double[][] in = unshiftedData(toTransform);
+		double[][] out = unshiftedTargetData(target);
+		getFFTBackend().transformColumns(in[0], in[1], out[0], out[1], w, h, inverse);
+		writeShifted(out, target);
 		if(inverse){
 			// need to rescale
 			double scaling = 1.0/h;
@@ -400,25 +360,8 @@ public class Fourier {
 		// continue sanity checks
 		sanityCheckInverse_target(target, dim, channel);
 		// now do the transforms
-		try(
-				NativeRealArray col = new NativeRealArray(target.getHeight());
-				NativeRealArray fft_r = new NativeRealArray(col.length);
-				NativeRealArray fft_i = new NativeRealArray(col.length);
-		){
-			ComplexValuedSampler complexIn = getSamplerForShiftedComplexImg(fourier);
-			ColorPixel px = target.getPixel();
-			for(int x = 0; x < target.getWidth(); x++){
-				for(int y = 0; y < target.getHeight(); y++){
-					fft_r.set(y, complexIn.getValueAt(false, x,y));
-					fft_i.set(y, complexIn.getValueAt(true,  x,y));
-				}
-				FFTW_Guru.execute_split_c2r(fft_r, fft_i, col, target.getHeight());
-				for(int y = 0; y < target.getHeight(); y++){
-					px.setPosition(x, y);
-					px.setValue(channel, col.get(y));
-				}
-			}
-		}
+		double[][] in = unshiftedData(fourier);
+		getFFTBackend().transformColumns(in[0], in[1], target.getData()[channel], null, target.getWidth(), target.getHeight(), true);
 		double scaling = 1.0/target.getHeight();
 		ArrayUtils.scaleArray(target.getData()[channel], scaling);
 		return target;
@@ -426,7 +369,18 @@ public class Fourier {
 	
 	
 	
-	private static void sanityCheckForward(ColorImg img, int channel) throws IllegalArgumentException {
+	static ComplexImg complexTarget(ComplexImg toTransform, ComplexImg target) throws IllegalArgumentException {
+		if(target == null){
+			return new ComplexImg(toTransform.getDimension());
+		} else if(!target.getDimension().equals(toTransform.getDimension())){
+			throw new IllegalArgumentException(String.format(
+					"specified target is of wrong dimensions. Expected %s but has %s.", 
+					toTransform.getDimension(), target.getDimension()));
+		}
+		return target;
+	}
+	
+	static void sanityCheckForward(ColorImg img, int channel) throws IllegalArgumentException {
 		if( channel < 0 || channel > 3 || (channel > 2 && !img.hasAlpha()) ){
 			throw new IllegalArgumentException(String.format(
 					"Channels can be 0,1,2 (also 3 if image has alpha). But channel is %d and image %s alpha",
@@ -434,7 +388,7 @@ public class Fourier {
 		}
 	}
 	
-	private static void sanityCheckInverse_target(ColorImg target, Dimension dim, int channel) throws IllegalArgumentException {
+	static void sanityCheckInverse_target(ColorImg target, Dimension dim, int channel) throws IllegalArgumentException {
 		if(!target.getDimension().equals(dim)){
 			throw new IllegalArgumentException(String.format(
 					"The specified target image has wrong dimensions (%s). Fourier image has %s.", 
@@ -447,28 +401,71 @@ public class Fourier {
 		}
 	}
 	
-	private static ComplexValuedSampler getSamplerForShiftedComplexImg(ComplexImg img){
-		int x = img.getCurrentXshift();
-		int y = img.getCurrentYshift();
-		int w = img.getWidth();
-		int h = img.getHeight();
-		
-		RowMajorArrayAccessor real = new RowMajorArrayAccessor(img.getDataReal(), w,h);
-		RowMajorArrayAccessor imag = new RowMajorArrayAccessor(img.getDataImag(), w,h);
-		ComplexValuedSampler complex = real.combineToComplexSampler(imag);
-		return (imaginary, coords) -> complex.getValueAt(imaginary, (coords[0]+w-x)%w, (coords[1]+h-y)%h);
+	static double[][] unshiftedData(ComplexImg img){
+		return unshiftedData(img, null);
 	}
 	
-	private static ComplexValuedWriter getWriterForShiftedComplexImg(ComplexImg img){
-		int x = img.getCurrentXshift();
-		int y = img.getCurrentYshift();
-		int w = img.getWidth();
-		int h = img.getHeight();
-		
-		RowMajorArrayAccessor real = new RowMajorArrayAccessor(img.getDataReal(), w,h);
-		RowMajorArrayAccessor imag = new RowMajorArrayAccessor(img.getDataImag(), w,h);
-		ComplexValuedWriter complex = real.combineToComplexWriter(imag);
-		return (val, imaginary, coords) -> complex.setValueAt(val, imaginary, (coords[0]+w-x)%w, (coords[1]+h-y)%h);
+	/**
+	 * Returns real and imaginary data of the specified image as if it was not shifted.
+	 * The image's own arrays are returned when it is not shifted, otherwise unshifted copies
+	 * which are stored to the specified buffer (if not null).
+	 */
+	static double[][] unshiftedData(ComplexImg img, double[][] buffer){
+		if(img.getCurrentXshift() == 0 && img.getCurrentYshift() == 0){
+			return new double[][]{img.getDataReal(), img.getDataImag()};
+		}
+		double[] real = buffer != null ? buffer[0] : new double[img.numValues()];
+		double[] imag = buffer != null ? buffer[1] : new double[img.numValues()];
+		final int w = img.getWidth(), h = img.getHeight();
+		final int xs = img.getCurrentXshift(), ys = img.getCurrentYshift();
+		final double[] srcR = img.getDataReal(), srcI = img.getDataImag();
+		for(int y = 0; y < h; y++){
+			int row = (((y+ys)%h+h)%h)*w;
+			for(int x = 0; x < w; x++){
+				int idx = row + ((x+xs)%w+w)%w;
+				real[y*w+x] = srcR[idx];
+				imag[y*w+x] = srcI[idx];
+			}
+		}
+		return new double[][]{real, imag};
+	}
+	
+	static double[][] unshiftedTargetData(ComplexImg target){
+		return unshiftedTargetData(target, null);
+	}
+	
+	/**
+	 * Returns arrays for the result of a transform that is to be written to the specified target.
+	 * These are the target's own arrays when it is not shifted, otherwise the specified buffer
+	 * (or new arrays if null) that have to be written to the target using
+	 * {@link #writeShifted(double[][], ComplexImg)}.
+	 */
+	static double[][] unshiftedTargetData(ComplexImg target, double[][] buffer){
+		if(target.getCurrentXshift() == 0 && target.getCurrentYshift() == 0){
+			return new double[][]{target.getDataReal(), target.getDataImag()};
+		}
+		return buffer != null ? buffer : new double[2][target.numValues()];
+	}
+	
+	/**
+	 * Writes the specified unshifted data to the target according to its shift
+	 * (unless the data are the target's own arrays).
+	 */
+	static void writeShifted(double[][] data, ComplexImg target){
+		if(data[0] == target.getDataReal()){
+			return;
+		}
+		final int w = target.getWidth(), h = target.getHeight();
+		final int xs = target.getCurrentXshift(), ys = target.getCurrentYshift();
+		final double[] dstR = target.getDataReal(), dstI = target.getDataImag();
+		for(int y = 0; y < h; y++){
+			int row = (((y+ys)%h+h)%h)*w;
+			for(int x = 0; x < w; x++){
+				int idx = row + ((x+xs)%w+w)%w;
+				dstR[idx] = data[0][y*w+x];
+				dstI[idx] = data[1][y*w+x];
+			}
+		}
 	}
 	
 }
@@ -0,0 +1,369 @@
+/*
+ * ImagingKit-Fourier - Copyright 2018 David Haegele
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package hageldave.imagingkit.fourier;
+
+import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.List;
+
+import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.util.ExecutionContext;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
+
+/**
+ * A reusable 2D Fourier transform for images of a fixed size.
+ * In contrast to the static methods of {@link Fourier}, which allocate their buffers
+ * (e.g. native memory for FFTW) on every call, a plan keeps its buffers for its whole
+ * lifetime. This pays off when many images of the same size are transformed.
+ * <p>
+ * A plan is not thread safe, but it is cheap enough to be kept per thread
+ * (e.g. in a {@link ThreadLocal}). It has to be closed when no longer needed
+ * to release its resources, preferably using try-with-resources:
+ * <pre>
+ * try(FourierPlan plan = FourierPlan.create(1920, 1080)){
+ *     for(ColorImg frame: frames){
+ *         ComplexImg fft = plan.forward(frame, ColorImg.channel_r, spectrum);
+ *         ...
+ *         plan.inverse(fft, frame, ColorImg.channel_r);
+ *     }
+ * }
+ * </pre>
+ * The transforms have the same semantics as the corresponding methods of {@link Fourier},
+ * including the handling of shifted {@link ComplexImg}s and the scaling of inverse transforms.
+ * <p>
+ * Batches of transforms (all channels of an image, or the same channel of several images)
+ * can be executed using {@link #forwardAll(ColorImg, ComplexImg[])},
+ * {@link #forwardAll(List, int, ComplexImg[])} and {@link #inverseAll(ComplexImg[], ColorImg)}.
+ * These run concurrently in the {@link ExecutionContext#current()} context of the calling thread,
+ * for which the plan creates additional backend plans on first use.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public class FourierPlan implements AutoCloseable {
+
+	private final int width, height;
+	private final FFTBackend backend;
+	/* slot 0 is used for single transforms, further slots for concurrent transforms of batches */
+	private Slot[] slots;
+	private boolean closed = false;
+
+	/**
+	 * Creates a plan for the specified dimensions using the specified backend.
+	 * @param width of the images to transform
+	 * @param height of the images to transform
+	 * @param backend to use
+	 * @throws IllegalArgumentException when width or height are not positive
+	 */
+	public FourierPlan(int width, int height, FFTBackend backend) {
+		this.width = width;
+		this.height = height;
+		this.backend = backend;
+		this.slots = new Slot[]{new Slot(backend.createPlan(width, height))};
+	}
+
+	/**
+	 * Creates a plan for the specified dimensions using the current backend of {@link Fourier}.
+	 * @param width of the images to transform
+	 * @param height of the images to transform
+	 * @return the plan
+	 * @throws IllegalArgumentException when width or height are not positive
+	 * @see Fourier#getFFTBackend()
+	 */
+	public static FourierPlan create(int width, int height){
+		return new FourierPlan(width, height, Fourier.getFFTBackend());
+	}
+
+	/** @return width of the images this plan transforms */
+	public int getWidth() {
+		return width;
+	}
+
+	/** @return height of the images this plan transforms */
+	public int getHeight() {
+		return height;
+	}
+
+	/** @return dimension of the images this plan transforms */
+	public Dimension getDimension(){
+		return new Dimension(width, height);
+	}
+
+	/**
+	 * Fourier transforms the specified channel of the specified {@link ColorImg}.
+	 * @param img of which one channel is to be transformed
+	 * @param channel the channel which will be transformed
+	 * @param target (may be null) the target image for the transform
+	 * @return target image or new {@link ComplexImg} if target was null
+	 * @throws IllegalArgumentException if the images are not of this plan's dimensions
+	 * or the channel is out of range ([0..3]) or is alpha (3) but the image does not have an alpha channel
+	 * @see Fourier#transform(ColorImg, int)
+	 */
+	public ComplexImg forward(ColorImg img, int channel, ComplexImg target){
+		requireOpen();
+		return forward(slots[0], img, channel, target);
+	}
+
+	private ComplexImg forward(Slot slot, ColorImg img, int channel, ComplexImg target){
+		requireDimension(img.getDimension());
+		Fourier.sanityCheckForward(img, channel);
+		if(target == null){
+			target = new ComplexImg(getDimension());
+		}
+		requireDimension(target.getDimension());
+		double[][] out = Fourier.unshiftedTargetData(target, slot.outBuffer());
+		slot.plan.execute(img.getData()[channel], null, out[0], out[1], false);
+		Fourier.writeShifted(out, target);
+		return target;
+	}
+
+	/**
+	 * Fourier transforms the specified {@link ComplexImg}.
+	 * @param toTransform image to be transformed
+	 * @param target (may be null) the target image for the transform, may be toTransform
+	 * @return target image or new {@link ComplexImg} if target was null
+	 * @throws IllegalArgumentException if the images are not of this plan's dimensions
+	 * @see Fourier#transform(boolean, ComplexImg, ComplexImg)
+	 */
+	public ComplexImg forward(ComplexImg toTransform, ComplexImg target){
+		return transform(false, toTransform, target);
+	}
+
+	/**
+	 * Inversely Fourier transforms the specified {@link ComplexImg}.
+	 * @param toTransform image to be transformed
+	 * @param target (may be null) the target image for the transform, may be toTransform
+	 * @return target image or new {@link ComplexImg} if target was null
+	 * @throws IllegalArgumentException if the images are not of this plan's dimensions
+	 * @see Fourier#transform(boolean, ComplexImg, ComplexImg)
+	 */
+	public ComplexImg inverse(ComplexImg toTransform, ComplexImg target){
+		return transform(true, toTransform, target);
+	}
+
+	/**
+	 * Inversely Fourier transforms the specified {@link ComplexImg} into the specified channel
+	 * of the target {@link ColorImg}.
+	 * @param fourier the image that will be transformed
+	 * @param target (may be null) image where the transform is stored to
+	 * @param channel the channel to which the result is stored
+	 * @return the target img or a new ColorImg if target was null
+	 * @throws IllegalArgumentException if the images are not of this plan's dimensions
+	 * or alpha is specified as channel but the target does not have an alpha channel
+	 * @see Fourier#inverseTransform(ColorImg, ComplexImg, int)
+	 */
+	public ColorImg inverse(ComplexImg fourier, ColorImg target, int channel){
+		requireOpen();
+		if(target == null){
+			target = new ColorImg(getDimension(), channel==ColorImg.channel_a);
+		}
+		return inverse(slots[0], fourier, target, channel);
+	}
+
+	private ColorImg inverse(Slot slot, ComplexImg fourier, ColorImg target, int channel){
+		requireDimension(fourier.getDimension());
+		Fourier.sanityCheckInverse_target(target, getDimension(), channel);
+		double[][] in = Fourier.unshiftedData(fourier, slot.inBuffer());
+		double[] out = target.getData()[channel];
+		slot.plan.execute(in[0], in[1], out, null, true);
+		ArrayUtils.scaleArray(out, 1.0/target.numValues());
+		return target;
+	}
+
+	/**
+	 * Fourier transforms all channels of the specified {@link ColorImg} (including alpha if present).
+	 * The channels are transformed concurrently.
+	 * @param img to be transformed
+	 * @param targets (may be null) target images, one per channel of img, elements may be null
+	 * @return targets or a new array if targets was null, containing the transform of channel i at index i
+	 * @throws IllegalArgumentException if the images are not of this plan's dimensions or
+	 * the number of targets does not match the number of channels
+	 */
+	public ComplexImg[] forwardAll(ColorImg img, ComplexImg[] targets){
+		requireOpen();
+		requireDimension(img.getDimension());
+		final int numChannels = img.hasAlpha() ? 4:3;
+		final ComplexImg[] results = requireTargets(targets, numChannels);
+		runBatch(numChannels, (slot,i)->results[i] = forward(slot, img, i, results[i]));
+		return results;
+	}
+
+	/**
+	 * Fourier transforms the specified channel of each of the specified images.
+	 * The images are transformed concurrently.
+	 * @param imgs to be transformed
+	 * @param channel the channel to be transformed
+	 * @param targets (may be null) target images, one per image, elements may be null
+	 * @return targets or a new array if targets was null, containing the transform of image i at index i
+	 * @throws IllegalArgumentException if the images are not of this plan's dimensions,
+	 * the number of targets does not match the number of images, or the channel is out of range
+	 */
+	public ComplexImg[] forwardAll(List<ColorImg> imgs, int channel, ComplexImg[] targets){
+		requireOpen();
+		for(ColorImg img: imgs){
+			requireDimension(img.getDimension());
+			Fourier.sanityCheckForward(img, channel);
+		}
+		final ComplexImg[] results = requireTargets(targets, imgs.size());
+		runBatch(imgs.size(), (slot,i)->results[i] = forward(slot, imgs.get(i), channel, results[i]));
+		return results;
+	}
+
+	/**
+	 * Inversely Fourier transforms the specified {@link ComplexImg}s into the channels of
+	 * the target {@link ColorImg}, i.e. fouriers[i] is transformed into channel i.
+	 * The transforms are executed concurrently.
+	 * @param fouriers 3 or 4 images (4 for alpha) to be transformed
+	 * @param target (may be null) image where the transforms are stored to
+	 * @return the target img or a new ColorImg if target was null
+	 * @throws IllegalArgumentException if the images are not of this plan's dimensions,
+	 * there are not 3 or 4 images, or 4 images were specified but the target has no alpha channel
+	 */
+	public ColorImg inverseAll(ComplexImg[] fouriers, ColorImg target){
+		requireOpen();
+		if(fouriers.length != 3 && fouriers.length != 4){
+			throw new IllegalArgumentException(String.format(
+					"Expected 3 or 4 Fourier images (one per channel) but got %d.", fouriers.length));
+		}
+		for(ComplexImg fourier: fouriers){
+			requireDimension(fourier.getDimension());
+		}
+		final ColorImg result = target != null ? target : new ColorImg(getDimension(), fouriers.length == 4);
+		Fourier.sanityCheckInverse_target(result, getDimension(), fouriers.length-1);
+		runBatch(fouriers.length, (slot,i)->inverse(slot, fouriers[i], result, i));
+		return result;
+	}
+
+	private static ComplexImg[] requireTargets(ComplexImg[] targets, int n){
+		if(targets == null){
+			return new ComplexImg[n];
+		}
+		if(targets.length != n){
+			throw new IllegalArgumentException(String.format(
+					"Number of targets (%d) does not match number of transforms (%d).", targets.length, n));
+		}
+		return targets;
+	}
+
+	/**
+	 * Executes n tasks distributed over the slots, one slot per concurrently running task.
+	 */
+	private void runBatch(int n, BiIntTask task){
+		if(n == 0){
+			return;
+		}
+		final ExecutionContext context = ExecutionContext.current();
+		final int numSlots = Math.min(n, Math.max(1, context.getParallelism()));
+		ensureSlots(numSlots);
+		final Slot[] s = this.slots;
+		ParallelRangeExecutor.execute(context, 0, numSlots, 1, (fromSlot, toSlot)->{
+			for(int slotIdx = fromSlot; slotIdx < toSlot; slotIdx++){
+				for(int i = slotIdx; i < n; i += numSlots){
+					task.run(s[slotIdx], i);
+				}
+			}
+		});
+	}
+
+	private void ensureSlots(int n){
+		if(slots.length < n){
+			Slot[] newSlots = Arrays.copyOf(slots, n);
+			for(int i = slots.length; i < n; i++){
+				newSlots[i] = new Slot(backend.createPlan(width, height));
+			}
+			slots = newSlots;
+		}
+	}
+
+	private static interface BiIntTask {
+		public void run(Slot slot, int i);
+	}
+
+	private ComplexImg transform(boolean inverse, ComplexImg toTransform, ComplexImg target){
+		requireOpen();
+		requireDimension(toTransform.getDimension());
+		target = Fourier.complexTarget(toTransform, target);
+		Slot slot = slots[0];
+		double[][] in = Fourier.unshiftedData(toTransform, slot.inBuffer());
+		double[][] out = Fourier.unshiftedTargetData(target, slot.outBuffer());
+		slot.plan.execute(in[0], in[1], out[0], out[1], inverse);
+		Fourier.writeShifted(out, target);
+		if(inverse){
+			double scaling = 1.0/target.numValues();
+			ArrayUtils.scaleArray(target.getDataReal(), scaling);
+			ArrayUtils.scaleArray(target.getDataImag(), scaling);
+		}
+		return target;
+	}
+
+	/* backend plan with buffers for shifted input and output, allocated on demand */
+	private final class Slot {
+		final FFTBackend.Plan plan;
+		double[][] inBuffer = null;
+		double[][] outBuffer = null;
+
+		Slot(FFTBackend.Plan plan) {
+			this.plan = plan;
+		}
+
+		double[][] inBuffer(){
+			if(inBuffer == null)
+				inBuffer = new double[2][width*height];
+			return inBuffer;
+		}
+
+		double[][] outBuffer(){
+			if(outBuffer == null)
+				outBuffer = new double[2][width*height];
+			return outBuffer;
+		}
+	}
+
+	private void requireOpen(){
+		if(closed){
+			throw new IllegalStateException("FourierPlan has already been closed.");
+		}
+	}
+
+	private void requireDimension(Dimension dim){
+		if(dim.width != width || dim.height != height){
+			throw new IllegalArgumentException(String.format(
+					"Image has wrong dimensions for this plan. Expected [%dx%d] but has [%dx%d].",
+					width, height, dim.width, dim.height));
+		}
+	}
+
+	/** @return true when this plan has been closed */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Releases the resources held by this plan. The plan cannot be used afterwards.
+	 */
+	@Override
+	public void close() {
+		if(!closed){
+			closed = true;
+			for(Slot slot: slots){
+				slot.plan.close();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,349 @@
+/*
+ * ImagingKit-Fourier - Copyright 2018 David Haegele
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package hageldave.imagingkit.fourier;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import hageldave.imagingkit.core.util.ExecutionContext;
+import hageldave.imagingkit.core.util.ParallelRangeExecutor;
+
+/**
+ * Pure Java implementation of the {@link FFTBackend} that does not require any native library.
+ * <p>
+ * Lengths that are a power of 2 are transformed with an iterative radix-2 FFT,
+ * all other lengths with Bluestein's algorithm (chirp z-transform) which reduces the
+ * transform to a convolution computed by radix-2 FFTs of at least twice the length.
+ * Twiddle factors and chirps are precomputed once per length and cached by the backend.
+ * 2D transforms are computed as row transforms followed by column transforms, which are
+ * distributed over multiple threads when parallel execution is enabled.
+ * Parallel execution takes place in the {@link ExecutionContext} of the backend, or
+ * in the {@link ExecutionContext#current()} context of the calling thread if none was specified.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public class JavaFFTBackend implements FFTBackend {
+
+	private final boolean parallel;
+	private final ExecutionContext context;
+	private final ConcurrentHashMap<Integer, Transform1D> transforms = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a new backend that executes rows and columns in parallel.
+	 */
+	public JavaFFTBackend() {
+		this(true);
+	}
+
+	/**
+	 * Creates a new backend.
+	 * @param parallel whether to transform rows and columns in parallel
+	 */
+	public JavaFFTBackend(boolean parallel) {
+		this.parallel = parallel;
+		this.context = null;
+	}
+
+	/**
+	 * Creates a new backend that executes rows and columns in parallel
+	 * within the specified context.
+	 * @param context in which to execute
+	 */
+	public JavaFFTBackend(ExecutionContext context) {
+		this.parallel = true;
+		this.context = Objects.requireNonNull(context);
+	}
+
+	/** @return whether rows and columns are transformed in parallel */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	@Override
+	public String getName() {
+		return "java";
+	}
+
+	/**
+	 * Returns the (cached) precomputed transform for the specified length
+	 * @param n length
+	 * @return transform
+	 */
+	Transform1D getTransform(int n){
+		return transforms.computeIfAbsent(n, Transform1D::new);
+	}
+
+	@Override
+	public void transform(double[] inR, double[] inI, double[] outR, double[] outI, int width, int height, boolean inverse) {
+		double[] tmpI = outI != null ? outI : new double[width*height];
+		transformRows(inR, inI, outR, tmpI, width, height, inverse);
+		transformColumns(outR, tmpI, outR, outI, width, height, inverse);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The returned plan precomputes the 1D transforms for rows and columns and
+	 * keeps the intermediate buffer required for transforms with real output.
+	 */
+	@Override
+	public Plan createPlan(int width, int height) {
+		if(width < 1 || height < 1){
+			throw new IllegalArgumentException(String.format(
+					"Plan dimensions have to be positive, but are [%dx%d]", width, height));
+		}
+		getTransform(width);
+		getTransform(height);
+		final double[] tmpI = new double[width*height];
+		return new Plan() {
+			@Override
+			public void execute(double[] inR, double[] inI, double[] outR, double[] outI, boolean inverse) {
+				double[] intermediateI = outI != null ? outI : tmpI;
+				transformRows(inR, inI, outR, intermediateI, width, height, inverse);
+				transformColumns(outR, intermediateI, outR, outI, width, height, inverse);
+			}
+			@Override
+			public int getWidth() {return width;}
+			@Override
+			public int getHeight() {return height;}
+			@Override
+			public void close() {/* only heap memory */}
+		};
+	}
+
+	@Override
+	public void transformRows(double[] inR, double[] inI, double[] outR, double[] outI, int width, int height, boolean inverse) {
+		final int w = width;
+		final Transform1D transform = getTransform(w);
+		forEachBlock(height, (y0,y1)->{
+			double[] re = new double[w];
+			double[] im = new double[w];
+			double[][] scratch = transform.newScratch();
+			for(int y = y0; y < y1; y++){
+				int off = y*w;
+				System.arraycopy(inR, off, re, 0, w);
+				if(inI != null)
+					System.arraycopy(inI, off, im, 0, w);
+				else
+					Arrays.fill(im, 0);
+				transform.transform(re, im, inverse, scratch);
+				System.arraycopy(re, 0, outR, off, w);
+				if(outI != null)
+					System.arraycopy(im, 0, outI, off, w);
+			}
+		});
+	}
+
+	@Override
+	public void transformColumns(double[] inR, double[] inI, double[] outR, double[] outI, int width, int height, boolean inverse) {
+		final int w = width, h = height;
+		final Transform1D transform = getTransform(h);
+		forEachBlock(width, (x0,x1)->{
+			double[] re = new double[h];
+			double[] im = new double[h];
+			double[][] scratch = transform.newScratch();
+			for(int x = x0; x < x1; x++){
+				for(int y = 0; y < h; y++){
+					re[y] = inR[y*w+x];
+					im[y] = inI != null ? inI[y*w+x]:0;
+				}
+				transform.transform(re, im, inverse, scratch);
+				for(int y = 0; y < h; y++){
+					outR[y*w+x] = re[y];
+					if(outI != null)
+						outI[y*w+x] = im[y];
+				}
+			}
+		});
+	}
+
+	private void forEachBlock(int n, BlockAction action){
+		if(!parallel){
+			action.process(0, n);
+			return;
+		}
+		ExecutionContext ctx = context != null ? context : ExecutionContext.current();
+		final int blocks = Math.min(n, ctx.getParallelism()*4);
+		if(blocks <= 1){
+			action.process(0, n);
+			return;
+		}
+		ParallelRangeExecutor.execute(ctx, 0, blocks, 1, (fromBlock, toBlock)->action.process(
+				(int)((long)fromBlock*n/blocks),
+				(int)((long)toBlock*n/blocks)));
+	}
+
+	private static interface BlockAction {
+		public void process(int from, int to);
+	}
+
+	/**
+	 * Precomputed in place 1D discrete Fourier transform of a specific length.
+	 * Instances are immutable and can be used by multiple threads concurrently,
+	 * each using its own scratch memory ({@link #newScratch()}).
+	 */
+	static final class Transform1D {
+
+		final int n;
+		// radix-2
+		private final int[] bitReversal;
+		private final double[] cos;
+		private final double[] sin;
+		// Bluestein
+		private final Transform1D convolution;
+		private final double[] chirpR, chirpI;
+		private final double[] filterR, filterI;
+
+		Transform1D(int n) {
+			if(n < 1){
+				throw new IllegalArgumentException(String.format("Length has to be positive, but was %d", n));
+			}
+			this.n = n;
+			if(Integer.bitCount(n) == 1){
+				int bits = Integer.numberOfTrailingZeros(n);
+				this.bitReversal = new int[n];
+				for(int i = 0; i < n; i++){
+					bitReversal[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32-bits);
+				}
+				this.cos = new double[n/2];
+				this.sin = new double[n/2];
+				for(int k = 0; k < n/2; k++){
+					double angle = 2*Math.PI*k/n;
+					cos[k] = Math.cos(angle);
+					sin[k] = Math.sin(angle);
+				}
+				this.convolution = null;
+				this.chirpR = this.chirpI = this.filterR = this.filterI = null;
+			} else {
+				this.bitReversal = null;
+				this.cos = this.sin = null;
+				int m = Integer.highestOneBit(2*n-1)<<1;
+				this.convolution = new Transform1D(m);
+				// chirp w_k = exp(-i*pi*k^2/n), k^2 reduced modulo 2n for accuracy
+				this.chirpR = new double[n];
+				this.chirpI = new double[n];
+				for(int k = 0; k < n; k++){
+					long k2 = ((long)k*k) % (2L*n);
+					double angle = Math.PI*k2/n;
+					chirpR[k] = Math.cos(angle);
+					chirpI[k] = -Math.sin(angle);
+				}
+				// filter is conjugated chirp wrapped around, precomputed in frequency domain
+				this.filterR = new double[m];
+				this.filterI = new double[m];
+				filterR[0] = chirpR[0];
+				filterI[0] = -chirpI[0];
+				for(int k = 1; k < n; k++){
+					filterR[k] = filterR[m-k] = chirpR[k];
+					filterI[k] = filterI[m-k] = -chirpI[k];
+				}
+				convolution.radix2(filterR, filterI);
+			}
+		}
+
+		/** @return scratch memory required for a call to transform */
+		double[][] newScratch(){
+			return convolution == null ? null : new double[2][convolution.n];
+		}
+
+		/**
+		 * Transforms the specified data in place.
+		 * @param re real part of length n
+		 * @param im imaginary part of length n
+		 * @param inverse whether to compute the (unnormalized) inverse
+		 * @param scratch memory obtained from {@link #newScratch()}
+		 */
+		void transform(double[] re, double[] im, boolean inverse, double[][] scratch){
+			if(n == 1){
+				return;
+			}
+			// inverse DFT(x) = conj(DFT(conj(x)))
+			if(inverse) negate(im, n);
+			if(convolution == null){
+				radix2(re, im);
+			} else {
+				bluestein(re, im, scratch);
+			}
+			if(inverse) negate(im, n);
+		}
+
+		private static void negate(double[] a, int n){
+			for(int i = 0; i < n; i++)
+				a[i] = -a[i];
+		}
+
+		private void radix2(double[] re, double[] im){
+			final int n = this.n;
+			for(int i = 0; i < n; i++){
+				int j = bitReversal[i];
+				if(j > i){
+					double t = re[i]; re[i] = re[j]; re[j] = t;
+					t = im[i]; im[i] = im[j]; im[j] = t;
+				}
+			}
+			for(int size = 2; size <= n; size <<= 1){
+				final int half = size >> 1;
+				final int step = n/size;
+				for(int i = 0; i < n; i += size){
+					for(int j = 0, k = 0; j < half; j++, k += step){
+						final int a = i+j, b = a+half;
+						// twiddle exp(-2*pi*i*k/n)
+						final double wr = cos[k], wi = -sin[k];
+						final double tr = re[b]*wr - im[b]*wi;
+						final double ti = re[b]*wi + im[b]*wr;
+						re[b] = re[a]-tr;
+						im[b] = im[a]-ti;
+						re[a] += tr;
+						im[a] += ti;
+					}
+				}
+			}
+		}
+
+		private void bluestein(double[] re, double[] im, double[][] scratch){
+			final int m = convolution.n;
+			final double[] ar = scratch[0], ai = scratch[1];
+			for(int k = 0; k < n; k++){
+				ar[k] = re[k]*chirpR[k] - im[k]*chirpI[k];
+				ai[k] = re[k]*chirpI[k] + im[k]*chirpR[k];
+			}
+			Arrays.fill(ar, n, m, 0);
+			Arrays.fill(ai, n, m, 0);
+			convolution.radix2(ar, ai);
+			// multiply with filter and conjugate for inverse transform
+			for(int k = 0; k < m; k++){
+				double r = ar[k]*filterR[k] - ai[k]*filterI[k];
+				double i = ar[k]*filterI[k] + ai[k]*filterR[k];
+				ar[k] = r;
+				ai[k] = -i;
+			}
+			convolution.radix2(ar, ai);
+			// conjugate back, normalize and multiply with chirp
+			final double scaling = 1.0/m;
+			for(int k = 0; k < n; k++){
+				double r = ar[k]*scaling;
+				double i = -ai[k]*scaling;
+				re[k] = r*chirpR[k] - i*chirpI[k];
+				im[k] = r*chirpI[k] + i*chirpR[k];
+			}
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * ImagingKit-Fourier - Copyright 2018 David Haegele
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package hageldave.imagingkit.fourier;
+
+import hageldave.ezfftw.dp.FFT;
+import hageldave.ezfftw.dp.FFTW_Guru;
+import hageldave.ezfftw.dp.NativeRealArray;
+
+/**
+ * {@link FFTBackend} implementation using the native FFTW library through the ezfftw bindings.
+ * This requires the native library to be loadable on the current platform,
+ * which can be checked using {@link #isAvailable()}.
+ * <p>
+ * Inverse transforms are computed by swapping real and imaginary parts of input and output.
+ *
+ * @author hageldave
+ * @since 2.2
+ */
+public class NativeFFTBackend implements FFTBackend {
+
+	/**
+	 * Checks whether the native FFTW library can be loaded.
+	 * @return true when native transforms can be executed
+	 */
+	public static boolean isAvailable(){
+		try(NativeRealArray test = new NativeRealArray(1)){
+			return test.length == 1;
+		} catch (LinkageError | RuntimeException e){
+			// native library (or ezfftw itself) not loadable
+			return false;
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "native";
+	}
+
+	@Override
+	public void transform(double[] inR, double[] inI, double[] outR, double[] outI, int width, int height, boolean inverse) {
+		if(!inverse && inI == null && outI != null){
+			FFT.fft(inR, outR, outI, width, height);
+			return;
+		}
+		if(inverse && outI == null){
+			FFT.ifft(inR, inI != null ? inI : new double[inR.length], outR, width, height);
+			return;
+		}
+		final int n = width*height;
+		try(
+				NativeRealArray inr = new NativeRealArray(n);
+				NativeRealArray ini = new NativeRealArray(n);
+				NativeRealArray outr = new NativeRealArray(n);
+				NativeRealArray outi = new NativeRealArray(n);
+		){
+			inr.set(inR);
+			ini.set(inI != null ? inI : new double[n]);
+			if(inverse){
+				// swap real and imaginary args
+				FFTW_Guru.execute_split_c2c(ini, inr, outi, outr, width, height);
+			} else {
+				FFTW_Guru.execute_split_c2c(inr, ini, outr, outi, width, height);
+			}
+			outr.get(0, outR);
+			if(outI != null)
+				outi.get(0, outI);
+		}
+	}
+
+	@Override
+	public void transformRows(double[] inR, double[] inI, double[] outR, double[] outI, int width, int height, boolean inverse) {
+		final int w = width;
+		try(
+				NativeRealArray inr = new NativeRealArray(w);
+				NativeRealArray ini = new NativeRealArray(w);
+				NativeRealArray outr = new NativeRealArray(w);
+				NativeRealArray outi = new NativeRealArray(w);
+		){
+			if(inI == null){
+				ini.set(new double[w]);
+			}
+			for(int y = 0; y < height; y++){
+				inr.set(0, w, y*w, inR);
+				if(inI != null)
+					ini.set(0, w, y*w, inI);
+				execute1D(inr, ini, outr, outi, inI == null, outI == null, w, inverse);
+				outr.get(0, w, y*w, outR);
+				if(outI != null)
+					outi.get(0, w, y*w, outI);
+			}
+		}
+	}
+
+	@Override
+	public void transformColumns(double[] inR, double[] inI, double[] outR, double[] outI, int width, int height, boolean inverse) {
+		final int w = width, h = height;
+		try(
+				NativeRealArray inr = new NativeRealArray(h);
+				NativeRealArray ini = new NativeRealArray(h);
+				NativeRealArray outr = new NativeRealArray(h);
+				NativeRealArray outi = new NativeRealArray(h);
+		){
+			if(inI == null){
+				ini.set(new double[h]);
+			}
+			for(int x = 0; x < w; x++){
+				for(int y = 0; y < h; y++){
+					inr.set(y, inR[y*w+x]);
+					if(inI != null)
+						ini.set(y, inI[y*w+x]);
+				}
+				execute1D(inr, ini, outr, outi, inI == null, outI == null, h, inverse);
+				for(int y = 0; y < h; y++){
+					outR[y*w+x] = outr.get(y);
+					if(outI != null)
+						outI[y*w+x] = outi.get(y);
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The returned plan keeps the native buffers for input and output between
+	 * transforms so that they are only allocated once.
+	 */
+	@Override
+	public Plan createPlan(int width, int height) {
+		if(width < 1 || height < 1){
+			throw new IllegalArgumentException(String.format(
+					"Plan dimensions have to be positive, but are [%dx%d]", width, height));
+		}
+		return new NativePlan(width, height);
+	}
+
+	private static final class NativePlan implements Plan {
+		final int width, height;
+		final NativeRealArray inr, ini, outr, outi;
+		double[] zeros = null;
+		boolean closed = false;
+
+		NativePlan(int width, int height) {
+			this.width = width;
+			this.height = height;
+			long n = (long)width*height;
+			this.inr = new NativeRealArray(n);
+			this.ini = new NativeRealArray(n);
+			this.outr = new NativeRealArray(n);
+			this.outi = new NativeRealArray(n);
+		}
+
+		@Override
+		public void execute(double[] inR, double[] inI, double[] outR, double[] outI, boolean inverse) {
+			if(closed){
+				throw new IllegalStateException("Plan has already been closed.");
+			}
+			inr.set(inR);
+			if(inI == null){
+				if(zeros == null)
+					zeros = new double[inR.length];
+				inI = zeros;
+			}
+			ini.set(inI);
+			if(inverse){
+				// swap real and imaginary args
+				FFTW_Guru.execute_split_c2c(ini, inr, outi, outr, width, height);
+			} else {
+				FFTW_Guru.execute_split_c2c(inr, ini, outr, outi, width, height);
+			}
+			outr.get(0, outR);
+			if(outI != null)
+				outi.get(0, outI);
+		}
+
+		@Override
+		public int getWidth() {return width;}
+
+		@Override
+		public int getHeight() {return height;}
+
+		@Override
+		public void close() {
+			if(!closed){
+				closed = true;
+				inr.close();
+				ini.close();
+				outr.close();
+				outi.close();
+			}
+		}
+	}
+
+	private static void execute1D(NativeRealArray inr, NativeRealArray ini, NativeRealArray outr, NativeRealArray outi, boolean realIn, boolean realOut, int n, boolean inverse){
+		if(!inverse && realIn){
+			FFTW_Guru.execute_split_r2c(inr, outr, outi, n);
+		} else if(inverse && realOut){
+			FFTW_Guru.execute_split_c2r(inr, ini, outr, n);
+		} else if(inverse){
+			// swap real and imaginary args
+			FFTW_Guru.execute_split_c2c(ini, inr, outi, outr, n);
+		} else {
+			FFTW_Guru.execute_split_c2c(inr, ini, outr, outi, n);
+		}
+	}
+
+}
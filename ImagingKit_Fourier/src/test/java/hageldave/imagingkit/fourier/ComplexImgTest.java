@@ -2,12 +2,15 @@ package hageldave.imagingkit.fourier;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.awt.Dimension;
 
 import org.junit.Test;
 
 import hageldave.imagingkit.core.scientific.ColorImg;
+import hageldave.imagingkit.core.util.AdaptiveSplitPolicy;
 
 public class ComplexImgTest {
 
@@ -95,5 +98,17 @@ public class ComplexImgTest {
 			}
 		}
 	}
-	
+
+	@Test
+	public void testSplitPolicy() {
+		ComplexImg img = new ComplexImg(123, 77);
+		AdaptiveSplitPolicy policy = new AdaptiveSplitPolicy(10_000, 100);
+		assertNull(img.getSplitPolicy());
+		img.setSplitPolicy(policy);
+		assertSame(policy, img.getSplitPolicy());
+		assertSame(policy, img.getDelegate().getSplitPolicy());
+		img.forEach(true, px->px.setReal(px.real()+1));
+		img.forEach(px->assertEquals(1, px.real(), 0));
+	}
+
 }
@@ -0,0 +1,119 @@
+package hageldave.imagingkit.fourier;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import hageldave.imagingkit.core.scientific.ColorImg;
+
+public class FourierPlanTest {
+
+	/* the native backend is only tested when the FFTW natives can be loaded */
+	static FFTBackend[] backends(FFTBackend javaBackend){
+		return NativeFFTBackend.isAvailable() ?
+				new FFTBackend[]{new NativeFFTBackend(), javaBackend} :
+				new FFTBackend[]{javaBackend};
+	}
+
+	@Test
+	public void testEqualsStaticTransforms(){
+		FFTBackend[] backends = backends(new JavaFFTBackend());
+		FFTBackend previous = Fourier.getFFTBackend();
+		try {
+			for(FFTBackend backend: backends){
+				Fourier.setFFTBackend(backend);
+				ColorImg img = FourierTest.createImg(60, 45, FourierTest.CIRCLE);
+				try(FourierPlan plan = new FourierPlan(60, 45, backend)){
+					ComplexImg expected = Fourier.transform(img, ColorImg.channel_r);
+					// repeated use of the plan
+					for(int i = 0; i < 3; i++){
+						ComplexImg fft = plan.forward(img, ColorImg.channel_r, null);
+						assertArrayEquals(expected.getDataReal(), fft.getDataReal(), 1e-9);
+						assertArrayEquals(expected.getDataImag(), fft.getDataImag(), 1e-9);
+					}
+					// shifted target
+					ComplexImg shifted = new ComplexImg(60, 45).shiftCornerToCenter();
+					plan.forward(img, ColorImg.channel_r, shifted);
+					ComplexImg expectedShifted = Fourier.transform(false,
+							new ComplexImg(60, 45, img.getDataR().clone(), null, null),
+							new ComplexImg(60, 45).shiftCornerToCenter());
+					assertArrayEquals(expectedShifted.getDataReal(), shifted.getDataReal(), 1e-9);
+					assertArrayEquals(expectedShifted.getDataImag(), shifted.getDataImag(), 1e-9);
+
+					// complex forward and inverse of shifted image
+					ComplexImg expectedForward = Fourier.transform(false, shifted, null);
+					ComplexImg forward = plan.forward(shifted, null);
+					assertArrayEquals(expectedForward.getDataReal(), forward.getDataReal(), 1e-6);
+					ComplexImg inverse = plan.inverse(shifted, null);
+					ComplexImg expectedInverse = Fourier.transform(true, shifted, null);
+					assertArrayEquals(expectedInverse.getDataReal(), inverse.getDataReal(), 1e-9);
+					assertArrayEquals(expectedInverse.getDataImag(), inverse.getDataImag(), 1e-9);
+
+					// inverse to ColorImg restores original
+					ColorImg restored = plan.inverse(shifted, null, ColorImg.channel_b);
+					assertArrayEquals(img.getDataR(), restored.getDataB(), 1e-9);
+					// in place
+					ComplexImg inPlace = expected.copy();
+					plan.inverse(plan.forward(inPlace, inPlace), inPlace);
+					assertArrayEquals(expected.getDataReal(), inPlace.getDataReal(), 1e-9);
+				}
+			}
+		} finally {
+			Fourier.setFFTBackend(previous);
+		}
+	}
+
+	@Test
+	public void testBatch(){
+		ColorImg img = JunitUtils.randomColorImg(33, 20, true, 3);
+		for(FFTBackend backend: backends(new JavaFFTBackend(false))){
+			try(FourierPlan plan = new FourierPlan(33, 20, backend)){
+				ComplexImg[] ffts = plan.forwardAll(img, null);
+				assertEquals(4, ffts.length);
+				for(int c = 0; c < 4; c++){
+					ComplexImg expected = plan.forward(img, c, null);
+					assertArrayEquals(expected.getDataReal(), ffts[c].getDataReal(), 1e-9);
+					assertArrayEquals(expected.getDataImag(), ffts[c].getDataImag(), 1e-9);
+				}
+				ColorImg restored = plan.inverseAll(ffts, null);
+				assertTrue(restored.hasAlpha());
+				for(int c = 0; c < 4; c++)
+					assertArrayEquals(img.getData()[c], restored.getData()[c], 1e-9);
+
+				// list of images, reusing targets
+				List<ColorImg> imgs = Arrays.asList(img, restored, img.copy());
+				ComplexImg[] targets = new ComplexImg[]{null, new ComplexImg(33, 20), null};
+				ComplexImg[] listFfts = plan.forwardAll(imgs, ColorImg.channel_g, targets);
+				assertSame(targets, listFfts);
+				for(ComplexImg fft: listFfts)
+					assertArrayEquals(ffts[ColorImg.channel_g].getDataReal(), fft.getDataReal(), 1e-9);
+
+				JunitUtils.testException(()->plan.inverseAll(new ComplexImg[]{ffts[0],ffts[1]}, null), IllegalArgumentException.class);
+				JunitUtils.testException(()->plan.inverseAll(ffts, new ColorImg(33, 20, false)), IllegalArgumentException.class);
+				JunitUtils.testException(()->plan.forwardAll(img, new ComplexImg[3]), IllegalArgumentException.class);
+			}
+		}
+		// static convenience methods
+		ComplexImg[] ffts = Fourier.transformAll(img);
+		ColorImg restored = Fourier.inverseTransformAll(null, ffts);
+		for(int c = 0; c < 4; c++)
+			assertArrayEquals(img.getData()[c], restored.getData()[c], 1e-9);
+	}
+
+	@Test
+	public void testExceptions(){
+		FourierPlan plan = new FourierPlan(10, 10, new JavaFFTBackend());
+		JunitUtils.testException(()->plan.forward(new ColorImg(10, 11, false), 0, null), IllegalArgumentException.class);
+		JunitUtils.testException(()->plan.forward(new ColorImg(10, 10, false), 3, null), IllegalArgumentException.class);
+		JunitUtils.testException(()->plan.inverse(new ComplexImg(10, 10), new ComplexImg(11, 10)), IllegalArgumentException.class);
+		JunitUtils.testException(()->plan.inverse(new ComplexImg(10, 10), new ColorImg(10, 10, false), 3), IllegalArgumentException.class);
+		plan.close();
+		assertTrue(plan.isClosed());
+		JunitUtils.testException(()->plan.forward(new ComplexImg(10, 10), null), IllegalStateException.class);
+		JunitUtils.testException(()->new FourierPlan(0, 10, new NativeFFTBackend()), IllegalArgumentException.class);
+	}
+
+}
@@ -115,6 +115,27 @@ public class FourierTest {
 		},IllegalArgumentException.class);
 	}
 	
+	@Test
+	public void testShiftedOddSize() {
+		ColorImg img = createImg(45, 31, CIRCLE);
+		ComplexImg expected = Fourier.transform(img, ColorImg.channel_r);
+		ComplexImg complexImg = new ComplexImg(45, 31, img.getDataR().clone(), null, null);
+		// forward transform to shifted target, DC is at the shift
+		ComplexImg shifted = Fourier.transform(false, complexImg, new ComplexImg(45, 31).shiftCornerToCenter());
+		assertEquals(expected.getDCreal(), shifted.getDCreal(), 0.00001);
+		expected.forEach(px->{
+			int x = (px.getX()+shifted.getCurrentXshift())%45;
+			int y = (px.getY()+shifted.getCurrentYshift())%31;
+			assertEquals(px.real(), shifted.getValueR(x, y), 0.00001);
+			assertEquals(px.imag(), shifted.getValueI(x, y), 0.00001);
+		});
+		// forward transform of shifted image is the unshifted transform
+		ComplexImg fromShifted = Fourier.transform(false, shifted, null);
+		ComplexImg fromUnshifted = Fourier.transform(false, expected, null);
+		assertArrayEquals(fromUnshifted.getDataReal(), fromShifted.getDataReal(), 0.00001);
+		assertArrayEquals(fromUnshifted.getDataImag(), fromShifted.getDataImag(), 0.00001);
+	}
+	
 	static ColorImg createImg(int width, int height, DoubleBinaryOperator objectFn){
 		ColorImg img = new ColorImg(width,height, false);
 		img.forEach(px->{
@@ -0,0 +1,122 @@
+package hageldave.imagingkit.fourier;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class JavaFFTBackendTest {
+
+	/* naive DFT along one axis of row major data */
+	static void dft(double[] inR, double[] inI, double[] outR, double[] outI, int w, int h, boolean rows, boolean inverse){
+		int n = rows ? w:h;
+		int lines = rows ? h:w;
+		double sign = inverse ? 1:-1;
+		for(int l = 0; l < lines; l++){
+			for(int k = 0; k < n; k++){
+				double sr = 0, si = 0;
+				for(int j = 0; j < n; j++){
+					int idx = rows ? l*w+j : j*w+l;
+					double angle = sign*2*Math.PI*((long)j*k % n)/n;
+					double c = Math.cos(angle), s = Math.sin(angle);
+					double vr = inR[idx], vi = inI == null ? 0:inI[idx];
+					sr += vr*c - vi*s;
+					si += vr*s + vi*c;
+				}
+				int idx = rows ? l*w+k : k*w+l;
+				outR[idx] = sr;
+				outI[idx] = si;
+			}
+		}
+	}
+
+	static double[] random(int n, Random r){
+		double[] a = new double[n];
+		for(int i = 0; i < n; i++)
+			a[i] = r.nextDouble()*2-1;
+		return a;
+	}
+
+	@Test
+	public void testAgainstNaiveDFT(){
+		Random r = new Random(42);
+		int[][] sizes = {{1,1},{2,3},{8,16},{5,7},{12,9},{31,64},{100,3}};
+		for(boolean parallel: new boolean[]{false,true}){
+			JavaFFTBackend backend = new JavaFFTBackend(parallel);
+			for(int[] size: sizes){
+				int w = size[0], h = size[1], n = w*h;
+				double[] inR = random(n, r), inI = random(n, r);
+				for(boolean inverse: new boolean[]{false,true}){
+					// rows
+					double[] eR = new double[n], eI = new double[n];
+					double[] oR = new double[n], oI = new double[n];
+					dft(inR, inI, eR, eI, w, h, true, inverse);
+					backend.transformRows(inR, inI, oR, oI, w, h, inverse);
+					assertArrayEquals(eR, oR, 1e-9);
+					assertArrayEquals(eI, oI, 1e-9);
+					// columns
+					dft(inR, inI, eR, eI, w, h, false, inverse);
+					backend.transformColumns(inR, inI, oR, oI, w, h, inverse);
+					assertArrayEquals(eR, oR, 1e-9);
+					assertArrayEquals(eI, oI, 1e-9);
+					// 2D is rows then columns
+					double[] tR = new double[n], tI = new double[n];
+					dft(inR, inI, tR, tI, w, h, true, inverse);
+					dft(tR, tI, eR, eI, w, h, false, inverse);
+					backend.transform(inR, inI, oR, oI, w, h, inverse);
+					assertArrayEquals(eR, oR, 1e-8);
+					assertArrayEquals(eI, oI, 1e-8);
+					// real input, real output only
+					dft(inR, null, eR, eI, w, h, true, inverse);
+					double[] realOut = new double[n];
+					backend.transformRows(inR, null, realOut, null, w, h, inverse);
+					assertArrayEquals(eR, realOut, 1e-9);
+				}
+				// in place round trip
+				double[] re = inR.clone(), im = inI.clone();
+				backend.transform(re, im, re, im, w, h, false);
+				backend.transform(re, im, re, im, w, h, true);
+				for(int i = 0; i < n; i++){
+					assertEquals(inR[i], re[i]/n, 1e-9);
+					assertEquals(inI[i], im[i]/n, 1e-9);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLargeBluestein(){
+		// long prime length, check Parseval and DC
+		int n = 1009;
+		Random r = new Random(1);
+		double[] re = random(n, r), im = new double[n];
+		double energy = 0;
+		for(double v: re) energy += v*v;
+		JavaFFTBackend backend = new JavaFFTBackend();
+		double[] oR = new double[n], oI = new double[n];
+		backend.transformRows(re, im, oR, oI, n, 1, false);
+		double spectralEnergy = 0;
+		for(int i = 0; i < n; i++) spectralEnergy += oR[i]*oR[i]+oI[i]*oI[i];
+		assertEquals(energy, spectralEnergy/n, 1e-9);
+		double sum = 0;
+		for(double v: re) sum += v;
+		assertEquals(sum, oR[0], 1e-9);
+	}
+
+	@Test
+	public void testFourierWithJavaBackend(){
+		FFTBackend previous = Fourier.getFFTBackend();
+		Fourier.setFFTBackend(new JavaFFTBackend());
+		try {
+			assertEquals("java", Fourier.getFFTBackend().getName());
+			FourierTest test = new FourierTest();
+			test.test2D();
+			test.test1D();
+			test.testExceptions();
+		} finally {
+			Fourier.setFFTBackend(previous);
+		}
+	}
+
+}
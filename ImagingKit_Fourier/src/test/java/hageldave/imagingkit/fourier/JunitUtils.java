@@ -3,8 +3,11 @@ package hageldave.imagingkit.fourier;
 
 import static org.junit.Assert.fail;
 
+import java.util.Random;
 import java.util.function.Supplier;
 
+import hageldave.imagingkit.core.scientific.ColorImg;
+
 public class JunitUtils {
 
 
@@ -23,6 +26,15 @@ public class JunitUtils {
 		}
 	}
 
+	public static ColorImg randomColorImg(int w, int h, boolean alpha, long seed){
+		Random r = new Random(seed);
+		ColorImg img = new ColorImg(w, h, alpha);
+		for(double[] channel: img.getData())
+			for(int i = 0; i < channel.length; i++)
+				channel[i] = r.nextDouble();
+		return img;
+	}
+
 	public static void testWithMsg(Runnable test, Supplier<String> msg){
 		try {
 			test.run();